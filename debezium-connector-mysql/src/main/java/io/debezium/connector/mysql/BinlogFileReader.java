@@ -0,0 +1,386 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.apache.kafka.connect.errors.ConnectException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.shyiko.mysql.binlog.event.Event;
+import com.github.shyiko.mysql.binlog.event.EventHeaderV4;
+import com.github.shyiko.mysql.binlog.event.EventType;
+import com.github.shyiko.mysql.binlog.event.RotateEventData;
+import com.github.shyiko.mysql.binlog.event.TableMapEventData;
+import com.github.shyiko.mysql.binlog.event.deserialization.EventDeserializer;
+import com.github.shyiko.mysql.binlog.io.ByteArrayInputStream;
+
+import io.debezium.annotation.ThreadSafe;
+
+/**
+ * A reader of MySQL binary log files on the local file system, which can be used in place of a connection to a live MySQL
+ * server. The files are read in order on a separate thread using memory-mapped I/O, and every event is passed to the supplied
+ * consumer exactly as events read from a server would be. Before the events in each file, the reader passes a synthetic
+ * {@link EventType#ROTATE ROTATE} event with the file's name and starting position, just as a MySQL server does when a client
+ * starts reading a binlog file.
+ * <p>
+ * When reading starts at a position in the middle of a file, the file's {@link EventType#FORMAT_DESCRIPTION FORMAT_DESCRIPTION}
+ * event and the {@link EventType#TABLE_MAP TABLE_MAP} events that precede that position are passed to the consumer immediately
+ * after the {@link EventType#ROTATE ROTATE} event. These are deserialized so that the {@link EventDeserializer} knows the file's
+ * format (including whether events end with a checksum) and the tables used by the rows events after the position. All other
+ * events before the position are skipped without being deserialized.
+ *
+ * @author Randall Hauch
+ */
+@ThreadSafe
+final class BinlogFileReader {
+
+    private static final byte[] MAGIC_HEADER = new byte[] { (byte) 0xfe, (byte) 0x62, (byte) 0x69, (byte) 0x6e };
+    private static final Pattern BINLOG_FILENAME = Pattern.compile(".*\\.\\d+");
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int EVENT_HEADER_LENGTH = 19;
+    private static final int FORMAT_DESCRIPTION_EVENT_TYPE = 15;
+    private static final int TABLE_MAP_EVENT_TYPE = 19;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final List<Path> files;
+    private final EventDeserializer eventDeserializer;
+    private final Consumer<Event> consumer;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private Thread thread;
+
+    /**
+     * Find the binary log files given a comma-separated list of files and/or directories. The binlog files in a directory are
+     * those whose names end with a numeric extension (e.g., {@code mysql-bin.000123}), and they are sorted by name.
+     *
+     * @param paths the comma-separated list of paths to files or directories; may not be null
+     * @return the ordered list of binlog files; never null
+     * @throws ConnectException if any of the paths does not exist or cannot be read
+     */
+    public static List<Path> findBinlogFiles(String paths) {
+        List<Path> files = new ArrayList<>();
+        for (String value : paths.split(",")) {
+            if (value.trim().isEmpty()) continue;
+            Path path = Paths.get(value.trim()).toAbsolutePath();
+            if (!Files.exists(path)) {
+                throw new ConnectException("The binlog file or directory '" + path + "' does not exist");
+            }
+            if (Files.isDirectory(path)) {
+                List<Path> binlogFiles = new ArrayList<>();
+                try (Stream<Path> stream = Files.list(path)) {
+                    stream.filter(Files::isRegularFile)
+                          .filter(file -> BINLOG_FILENAME.matcher(file.getFileName().toString()).matches())
+                          .forEach(binlogFiles::add);
+                } catch (IOException e) {
+                    throw new ConnectException("Unable to list the binlog files in '" + path + "'", e);
+                }
+                Collections.sort(binlogFiles);
+                files.addAll(binlogFiles);
+            } else {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Create a new reader.
+     *
+     * @param files the ordered list of binlog files; may not be null
+     * @param eventDeserializer the deserializer for events; may not be null
+     * @param consumer the function that is called with each event, and which may block; may not be null
+     */
+    public BinlogFileReader(List<Path> files, EventDeserializer eventDeserializer, Consumer<Event> consumer) {
+        this.files = files;
+        this.eventDeserializer = eventDeserializer;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Start reading the binlog files on a new thread.
+     *
+     * @param binlogFilename the name of the binlog file to start reading, or null if reading should start with the first file
+     * @param binlogPosition the position within the named binlog file to start reading
+     * @param threadName the name of the thread; may not be null
+     */
+    public void start(String binlogFilename, long binlogPosition, String threadName) {
+        if (running.compareAndSet(false, true)) {
+            thread = new Thread(() -> readFiles(binlogFilename, binlogPosition), threadName);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stop reading the binlog files, and wait for the reading thread to complete.
+     */
+    public void stop() {
+        if (running.compareAndSet(true, false)) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * Determine whether all of the events in all of the files have been read.
+     *
+     * @return {@code true} if all events have been read, or {@code false} otherwise
+     */
+    public boolean isCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * Get the error that caused the reader to stop.
+     *
+     * @return the error, or null if there was no error
+     */
+    public Throwable failure() {
+        return failure.get();
+    }
+
+    private void readFiles(String binlogFilename, long binlogPosition) {
+        try {
+            boolean found = binlogFilename == null;
+            for (Path file : files) {
+                if (!running.get()) return;
+                String filename = file.getFileName().toString();
+                long position = 4L;
+                if (!found) {
+                    int comparison = filename.compareTo(binlogFilename);
+                    if (comparison < 0) {
+                        logger.debug("Skipping binlog file {} that precedes the starting file {}", file, binlogFilename);
+                        continue;
+                    }
+                    if (comparison == 0) position = binlogPosition;
+                    found = true;
+                }
+                read(file, position);
+            }
+            completed.set(true);
+            logger.info("Completed reading all events in {} binlog files", files.size());
+        } catch (InterruptedException e) {
+            Thread.interrupted();
+        } catch (Throwable e) {
+            if (running.get()) {
+                logger.error("Error while reading binlog files", e);
+                failure.set(e);
+            }
+        }
+    }
+
+    /**
+     * Read all of the events in the given binlog file, starting at the given position.
+     *
+     * @param file the binlog file; may not be null
+     * @param position the position of the first event to read, which must be at or after the magic header
+     * @throws IOException if there is a problem reading the file
+     * @throws InterruptedException if the thread was interrupted
+     */
+    protected void read(Path file, long position) throws IOException, InterruptedException {
+        String filename = file.getFileName().toString();
+        logger.info("Reading binlog file {} starting at position {}", file, position);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                MappedInputStream stream = new MappedInputStream(channel, WINDOW_SIZE)) {
+            for (byte expected : MAGIC_HEADER) {
+                if (stream.read() != (expected & 0xff)) {
+                    throw new ConnectException("The file '" + file + "' is not a MySQL binlog file");
+                }
+            }
+            // Find the format description and table maps that precede the starting position ...
+            List<Event> precedingEvents = readPrecedingEvents(stream, Math.min(position, channel.size()));
+
+            // Signal the start of a new file, just like a MySQL server does ...
+            EventHeaderV4 rotateHeader = new EventHeaderV4();
+            rotateHeader.setEventType(EventType.ROTATE);
+            RotateEventData rotateData = new RotateEventData();
+            rotateData.setBinlogFilename(filename);
+            rotateData.setBinlogPosition(stream.position());
+            consumer.accept(new Event(rotateHeader, rotateData));
+            precedingEvents.forEach(consumer);
+
+            ByteArrayInputStream input = new ByteArrayInputStream(stream);
+            Event event = null;
+            while (running.get() && (event = eventDeserializer.nextEvent(input)) != null) {
+                consumer.accept(event);
+                if (Thread.interrupted()) throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Read the headers of the events up to the given position, deserializing only the format description and table map events.
+     *
+     * @param stream the stream positioned at the first event; may not be null
+     * @param position the position at which the stream should be left
+     * @return the format description event, if there is one, followed by the most recent table map event for each table
+     *         number; never null
+     * @throws IOException if there is a problem reading the file
+     */
+    private List<Event> readPrecedingEvents(MappedInputStream stream, long position) throws IOException {
+        Event formatDescription = null;
+        Map<Long, Event> tableMaps = new LinkedHashMap<>();
+        byte[] header = new byte[EVENT_HEADER_LENGTH];
+        while (stream.position() + EVENT_HEADER_LENGTH <= position) {
+            long start = stream.position();
+            stream.readFully(header, 0, EVENT_HEADER_LENGTH);
+            int eventType = header[4] & 0xff;
+            long eventLength = (header[9] & 0xffL) | (header[10] & 0xffL) << 8 | (header[11] & 0xffL) << 16
+                    | (header[12] & 0xffL) << 24;
+            if (eventLength < EVENT_HEADER_LENGTH) {
+                throw new ConnectException("Invalid length of event at position " + start + ": " + eventLength);
+            }
+            if (eventType == FORMAT_DESCRIPTION_EVENT_TYPE || eventType == TABLE_MAP_EVENT_TYPE) {
+                byte[] bytes = new byte[(int) eventLength];
+                System.arraycopy(header, 0, bytes, 0, EVENT_HEADER_LENGTH);
+                stream.readFully(bytes, EVENT_HEADER_LENGTH, bytes.length - EVENT_HEADER_LENGTH);
+                // The deserializer learns the file's checksum type from the format description ...
+                Event event = eventDeserializer.nextEvent(new ByteArrayInputStream(bytes));
+                if (eventType == FORMAT_DESCRIPTION_EVENT_TYPE) {
+                    formatDescription = event;
+                } else {
+                    TableMapEventData tableMap = event.getData();
+                    tableMaps.remove(tableMap.getTableId());
+                    tableMaps.put(tableMap.getTableId(), event);
+                }
+            } else {
+                stream.seek(start + eventLength);
+            }
+        }
+        stream.seek(position);
+        List<Event> events = new ArrayList<>(tableMaps.size() + 1);
+        if (formatDescription != null) events.add(formatDescription);
+        events.addAll(tableMaps.values());
+        return events;
+    }
+
+    /**
+     * An input stream that reads a file through a series of memory-mapped windows. The stream refers to only one window at a
+     * time and releases it as soon as the stream moves past it, so each window's mapped memory is freed when the garbage
+     * collector reclaims the buffer. There is no public API for unmapping a buffer sooner.
+     */
+    private static final class MappedInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long size;
+        private final int windowSize;
+        private MappedByteBuffer window;
+        private long windowStart = 0L;
+        private long position = 0L;
+
+        protected MappedInputStream(FileChannel channel, int windowSize) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.windowSize = windowSize;
+        }
+
+        public long position() {
+            return position;
+        }
+
+        public void seek(long position) {
+            this.position = Math.min(position, size);
+            if (window != null && position >= windowStart && position < windowStart + window.limit()) {
+                window.position((int) (position - windowStart));
+            } else {
+                unmapWindow();
+            }
+        }
+
+        /**
+         * Read exactly the given number of bytes.
+         *
+         * @param b the buffer into which the bytes are read; may not be null
+         * @param off the offset in the buffer of the first byte
+         * @param len the number of bytes to read
+         * @throws EOFException if the file ends before all of the bytes are read
+         * @throws IOException if there is a problem reading the file
+         */
+        public void readFully(byte[] b, int off, int len) throws IOException {
+            for (int n = 0; n < len;) {
+                int count = read(b, off + n, len - n);
+                if (count < 0) {
+                    throw new EOFException("Unexpected end of binlog file at position " + position + ", " + (len - n)
+                            + " bytes before the end of the event");
+                }
+                n += count;
+            }
+        }
+
+        private boolean ensureWindow() throws IOException {
+            if (window != null && window.hasRemaining()) return true;
+            unmapWindow();
+            if (position >= size) return false;
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(windowSize, size - windowStart));
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureWindow()) return -1;
+            ++position;
+            return window.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!ensureWindow()) return -1;
+            int n = Math.min(len, window.remaining());
+            window.get(b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long start = position;
+            seek(position + Math.max(0L, n));
+            return position - start;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(Integer.MAX_VALUE, size - position);
+        }
+
+        @Override
+        public void close() {
+            unmapWindow();
+        }
+
+        private void unmapWindow() {
+            // The bytes of the window have all been copied, so nothing else refers to the mapped memory ...
+            window = null;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.debezium.annotation.NotThreadSafe;
+
+/**
+ * A stage that converts rows read from the binlog into {@link SourceRecord}s using a pool of worker threads, while still
+ * producing the resulting records in exactly the same order in which they were {@link #submit(Supplier) submitted}.
+ * <p>
+ * Consecutive conversions are grouped into chunks of up to a fixed number of rows, and each chunk is converted by one task on
+ * whichever worker is free, so that the cost of handing work to the workers is paid once per chunk rather than once per row and
+ * the rows of a single busy table are spread across all of the workers. The order of the records does not depend upon which
+ * worker converts each chunk, since the results are always {@link #drainTo(Consumer) drained} in the order of the chunks.
+ * Records that do not need converting (e.g., schema change records) can be {@link #record(SourceRecord) recorded} directly,
+ * and they are kept in order relative to the submitted conversions.
+ * <p>
+ * This class is expected to be used by a single thread (e.g., the connector task's thread) that submits the work for a batch
+ * and then {@link #drainTo(Consumer) drains} the results before starting the next batch.
+ * 
+ * @author Randall Hauch
+ */
+@NotThreadSafe
+final class ConversionPipeline {
+
+    /**
+     * The default maximum number of conversions in each chunk.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 256;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final ExecutorService workers;
+    private final int workerCount;
+    private final int chunkSize;
+    private final List<CompletableFuture<List<SourceRecord>>> pending = new ArrayList<>();
+    private List<Supplier<SourceRecord>> chunk = new ArrayList<>();
+    private int size = 0;
+
+    /**
+     * Create a new pipeline with the given number of worker threads.
+     *
+     * @param serverName the logical name of the MySQL server, used to name the worker threads; may not be null
+     * @param numberOfWorkers the number of worker threads; must be positive
+     */
+    public ConversionPipeline(String serverName, int numberOfWorkers) {
+        this(serverName, numberOfWorkers, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Create a new pipeline with the given number of worker threads.
+     *
+     * @param serverName the logical name of the MySQL server, used to name the worker threads; may not be null
+     * @param numberOfWorkers the number of worker threads; must be positive
+     * @param chunkSize the maximum number of conversions performed by each task; must be positive
+     */
+    public ConversionPipeline(String serverName, int numberOfWorkers, int chunkSize) {
+        if (numberOfWorkers < 1) throw new IllegalArgumentException("The number of workers must be positive");
+        if (chunkSize < 1) throw new IllegalArgumentException("The chunk size must be positive");
+        this.workerCount = numberOfWorkers;
+        this.chunkSize = chunkSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(numberOfWorkers, runnable -> {
+            Thread thread = new Thread(runnable, "mysql-converter-" + serverName + "-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Get the number of worker threads used by this pipeline.
+     *
+     * @return the number of workers; always positive
+     */
+    public int workerCount() {
+        return workerCount;
+    }
+
+    /**
+     * Add to the end of this pipeline a record that needs no conversion.
+     *
+     * @param record the source record; may not be null
+     */
+    public void record(SourceRecord record) {
+        submitChunk();
+        pending.add(CompletableFuture.completedFuture(Collections.singletonList(record)));
+        ++size;
+    }
+
+    /**
+     * Submit to the end of this pipeline the conversion of a single row. The conversion is started once the current chunk is
+     * full, or when the pipeline is {@link #drainTo(Consumer) drained}.
+     *
+     * @param conversion the function that performs the conversion and that may return null if the row should not be recorded;
+     *            may not be null
+     */
+    public void submit(Supplier<SourceRecord> conversion) {
+        chunk.add(conversion);
+        ++size;
+        if (chunk.size() >= chunkSize) submitChunk();
+    }
+
+    private void submitChunk() {
+        if (chunk.isEmpty()) return;
+        List<Supplier<SourceRecord>> conversions = chunk;
+        chunk = new ArrayList<>(Math.min(chunkSize, conversions.size() * 2));
+        pending.add(CompletableFuture.supplyAsync(() -> convert(conversions), workers));
+    }
+
+    private static List<SourceRecord> convert(List<Supplier<SourceRecord>> conversions) {
+        List<SourceRecord> records = new ArrayList<>(conversions.size());
+        for (Supplier<SourceRecord> conversion : conversions) {
+            records.add(conversion.get());
+        }
+        return records;
+    }
+
+    /**
+     * Get the number of records and conversions that have been added since the pipeline was last {@link #drainTo(Consumer)
+     * drained}.
+     *
+     * @return the number of pending records
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Wait for all pending conversions to complete, and pass all non-null records to the supplied consumer in the order in which
+     * they were added to this pipeline.
+     *
+     * @param recorder the consumer of the records; may not be null
+     * @return the number of records passed to the consumer
+     * @throws InterruptedException if the thread was interrupted while waiting for a conversion to complete
+     * @throws ConnectException if any of the conversions failed
+     */
+    public int drainTo(Consumer<SourceRecord> recorder) throws InterruptedException {
+        return drainTo(recorder, size);
+    }
+
+    /**
+     * Wait for all pending conversions to complete, pass all non-null records to the supplied consumer in the order in which
+     * they were added to this pipeline, and determine how many of those records were produced by the given number of records
+     * and conversions that were added first. Since conversions may return null, this is how a caller finds where in the
+     * drained records a point in the pipeline (such as the beginning of a transaction) falls.
+     *
+     * @param recorder the consumer of the records; may not be null
+     * @param mark the number of records and conversions, as given by {@link #size()} at some point since the pipeline was last
+     *            drained
+     * @return the number of records passed to the consumer that were produced by the first {@code mark} records and conversions
+     * @throws InterruptedException if the thread was interrupted while waiting for a conversion to complete
+     * @throws ConnectException if any of the conversions failed
+     */
+    public int drainTo(Consumer<SourceRecord> recorder, int mark) throws InterruptedException {
+        submitChunk();
+        int countBeforeMark = 0;
+        int index = 0;
+        try {
+            for (CompletableFuture<List<SourceRecord>> future : pending) {
+                for (SourceRecord record : future.get()) {
+                    if (record != null) {
+                        recorder.accept(record);
+                        if (index < mark) ++countBeforeMark;
+                    }
+                    ++index;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new ConnectException("Error while converting rows into source records", e.getCause());
+        } finally {
+            pending.clear();
+            size = 0;
+        }
+        return countBeforeMark;
+    }
+
+    /**
+     * Stop all of the worker threads, discarding any conversions that have not yet been {@link #drainTo(Consumer) drained}.
+     */
+    public void shutdown() {
+        pending.clear();
+        chunk.clear();
+        size = 0;
+        workers.shutdownNow();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Timed out while waiting for row converter threads to stop");
+            }
+        } catch (InterruptedException e) {
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.kafka.connect.errors.ConnectException;
+
+import io.debezium.config.Configuration;
+import io.debezium.relational.history.DatabaseHistory;
+
+/**
+ * A command line tool that {@link DatabaseHistory#compact compacts} the database history of a MySQL connector while the connector
+ * is not running. It is run with the connector's configuration properties file and the binlog coordinates at or before which
+ * all changes are to be compacted:
+ *
+ * <pre>
+ * java io.debezium.connector.mysql.DatabaseHistoryCompactor connector.properties mysql-bin.000003 154
+ * </pre>
+ * <p>
+ * The history can no longer be recovered to points before those coordinates, so they must be at or before the last offset
+ * committed by the connector. A running connector can instead compact its history whenever it restarts, using the
+ * {@link io.debezium.relational.history.AbstractDatabaseHistory#COMPACTION_THRESHOLD compaction threshold}.
+ *
+ * @author Randall Hauch
+ */
+public final class DatabaseHistoryCompactor {
+
+    /**
+     * Compact the database history described by the connector configuration in the given file.
+     *
+     * @param args the path of the connector's configuration properties file, the binlog filename, and the binlog position
+     * @throws IOException if the configuration file could not be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: " + DatabaseHistoryCompactor.class.getName()
+                    + " <connector properties file> <binlog filename> <binlog position>");
+            System.exit(1);
+        }
+        compact(Configuration.load(new File(args[0])), args[1], Long.parseLong(args[2]));
+    }
+
+    /**
+     * Compact the database history described by the given connector configuration at the given binlog coordinates.
+     *
+     * @param config the connector configuration; may not be null
+     * @param binlogFilename the name of the binlog file at or before which all changes are compacted; may not be null
+     * @param binlogPosition the position within that binlog file
+     * @throws ConnectException if the history could not be created or compacted
+     */
+    public static void compact(Configuration config, String binlogFilename, long binlogPosition) {
+        DatabaseHistory history = config.getInstance(MySqlConnectorConfig.DATABASE_HISTORY, DatabaseHistory.class);
+        if (history == null) {
+            throw new ConnectException("Unable to instantiate the database history class " +
+                    config.getString(MySqlConnectorConfig.DATABASE_HISTORY));
+        }
+        history.configure(config.subset(DatabaseHistory.CONFIGURATION_FIELD_PREFIX_STRING, false));
+        SourceInfo source = new SourceInfo();
+        source.setServerName(config.getString(MySqlConnectorConfig.SERVER_NAME.name(),
+                                              config.getString(MySqlConnectorConfig.HOSTNAME) + ":"
+                                                      + config.getInteger(MySqlConnectorConfig.PORT)));
+        source.setBinlogFilename(binlogFilename);
+        source.setBinlogPosition(binlogPosition);
+        try {
+            history.compact(source.partition(), SourceInfo.historyPosition(source.offset()), new MySqlDdlParser());
+        } finally {
+            history.stop();
+        }
+    }
+
+    private DatabaseHistoryCompactor() {
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.shyiko.mysql.binlog.event.DeleteRowsEventData;
+import com.github.shyiko.mysql.binlog.event.Event;
+import com.github.shyiko.mysql.binlog.event.EventData;
+import com.github.shyiko.mysql.binlog.event.EventHeader;
+import com.github.shyiko.mysql.binlog.event.EventHeaderV4;
+import com.github.shyiko.mysql.binlog.event.UpdateRowsEventData;
+import com.github.shyiko.mysql.binlog.event.WriteRowsEventData;
+import com.github.shyiko.mysql.binlog.event.deserialization.EventDeserializer;
+
+import io.debezium.annotation.Immutable;
+import io.debezium.annotation.ThreadSafe;
+
+/**
+ * Tracks the estimated amount of memory used by the binlog events that have been read from the MySQL server but not yet
+ * processed, and optionally blocks the thread reading the binlog while that amount exceeds a limit. This bounds the heap used
+ * by queued events even when individual events (e.g., a {@code DELETE} of many rows with large BLOB columns) vary greatly in
+ * size.
+ * <p>
+ * The size of an event is {@link #estimateSize(Event) estimated} from its rows and column values once, when the event is
+ * {@link #acquire(Event) acquired}, and is kept with the event in the {@link QueuedEvent} that is added to the queue so that the
+ * same size is subtracted when the event is {@link #release(QueuedEvent) released}.
+ * 
+ * @author Randall Hauch
+ */
+@ThreadSafe
+final class EventQueueMetrics implements EventQueueMetricsMXBean {
+
+    /**
+     * An event in the queue, together with its estimated size.
+     */
+    @Immutable
+    static final class QueuedEvent {
+        private final Event event;
+        private final long size;
+
+        QueuedEvent(Event event, long size) {
+            this.event = event;
+            this.size = size;
+        }
+
+        /**
+         * Get the event.
+         * 
+         * @return the event; never null
+         */
+        public Event event() {
+            return event;
+        }
+
+        /**
+         * Get the estimated number of bytes of heap used by the event.
+         * 
+         * @return the estimated size in bytes
+         */
+        public long size() {
+            return size;
+        }
+    }
+
+    private static final long EVENT_OVERHEAD = 96L;
+    private static final long OBJECT_OVERHEAD = 16L;
+    private static final long REFERENCE_SIZE = 8L;
+    private static final long ARRAY_OVERHEAD = 16L;
+    private static final long STRING_OVERHEAD = 40L;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final BlockingQueue<?> queue;
+    private final int queueCapacity;
+    private final long maxQueuedBytes;
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private volatile boolean closed = false;
+    private ObjectName name;
+
+    /**
+     * Create the metrics for the given queue.
+     * 
+     * @param queue the queue of events; may not be null
+     * @param queueCapacity the maximum number of events in the queue
+     * @param maxQueuedBytes the maximum estimated number of bytes used by queued events, or 0 if there is no limit
+     */
+    public EventQueueMetrics(BlockingQueue<?> queue, int queueCapacity, long maxQueuedBytes) {
+        this.queue = queue;
+        this.queueCapacity = queueCapacity;
+        this.maxQueuedBytes = maxQueuedBytes;
+    }
+
+    /**
+     * Account for an event that is about to be added to the queue, blocking while there is not enough room for the event. An
+     * event is always accepted when no other events are queued, so that an event larger than the limit cannot block forever.
+     * 
+     * @param event the event; may not be null
+     * @return the entry for the event that is to be added to the queue; never null
+     * @throws InterruptedException if the thread was interrupted while waiting for room
+     */
+    public QueuedEvent acquire(Event event) throws InterruptedException {
+        long size = estimateSize(event);
+        if (maxQueuedBytes <= 0L) {
+            queuedBytes.addAndGet(size);
+            return new QueuedEvent(event, size);
+        }
+        lock.lockInterruptibly();
+        try {
+            while (!closed && queuedBytes.get() > 0L && queuedBytes.get() + size > maxQueuedBytes) {
+                released.await();
+            }
+            queuedBytes.addAndGet(size);
+        } finally {
+            lock.unlock();
+        }
+        return new QueuedEvent(event, size);
+    }
+
+    /**
+     * Account for an event that has been processed and that is no longer using memory.
+     * 
+     * @param queued the entry returned when the event was {@link #acquire(Event) acquired}; may not be null
+     */
+    public void release(QueuedEvent queued) {
+        long size = queued.size();
+        if (maxQueuedBytes <= 0L) {
+            queuedBytes.addAndGet(-size);
+            return;
+        }
+        lock.lock();
+        try {
+            queuedBytes.addAndGet(-size);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Register this object as an MBean with the platform MBean server.
+     * 
+     * @param serverName the logical name of the MySQL server; may not be null
+     */
+    public void register(String serverName) {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            name = new ObjectName("debezium.mysql:type=EventQueue,server=" + ObjectName.quote(serverName));
+            if (mBeanServer.isRegistered(name)) mBeanServer.unregisterMBean(name);
+            mBeanServer.registerMBean(this, name);
+        } catch (JMException e) {
+            logger.warn("Unable to register the event queue metrics MBean for MySQL server '{}'", serverName, e);
+            name = null;
+        }
+    }
+
+    /**
+     * Stop blocking any thread waiting for room in the queue, and unregister this object from the platform MBean server.
+     */
+    public void close() {
+        closed = true;
+        lock.lock();
+        try {
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (name != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            } catch (JMException e) {
+                logger.warn("Unable to unregister the event queue metrics MBean {}", name, e);
+            } finally {
+                name = null;
+            }
+        }
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @Override
+    public int getQueuedEvents() {
+        return queue.size();
+    }
+
+    @Override
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+
+    @Override
+    public long getMaxQueuedBytes() {
+        return maxQueuedBytes;
+    }
+
+    /**
+     * Estimate the number of bytes of heap used by the supplied event. For row events this is based upon the number of rows and
+     * the sizes of the column values, while for other events this is based upon the length of the event in the binlog.
+     * 
+     * @param event the event; may not be null
+     * @return the estimated size in bytes
+     */
+    static long estimateSize(Event event) {
+        EventData data = event.getData();
+        if (data instanceof EventDeserializer.EventDataWrapper) {
+            data = ((EventDeserializer.EventDataWrapper) data).getInternal();
+        }
+        long size = EVENT_OVERHEAD;
+        if (data instanceof WriteRowsEventData) {
+            size += estimateSize(((WriteRowsEventData) data).getRows());
+        } else if (data instanceof UpdateRowsEventData) {
+            for (Map.Entry<Serializable[], Serializable[]> change : ((UpdateRowsEventData) data).getRows()) {
+                size += OBJECT_OVERHEAD + REFERENCE_SIZE + estimateSize(change.getKey()) + estimateSize(change.getValue());
+            }
+        } else if (data instanceof DeleteRowsEventData) {
+            size += estimateSize(((DeleteRowsEventData) data).getRows());
+        } else {
+            EventHeader header = event.getHeader();
+            if (header instanceof EventHeaderV4) {
+                size += ((EventHeaderV4) header).getEventLength();
+            }
+        }
+        return size;
+    }
+
+    private static long estimateSize(List<Serializable[]> rows) {
+        long size = ARRAY_OVERHEAD;
+        for (Serializable[] row : rows) {
+            size += REFERENCE_SIZE + estimateSize(row);
+        }
+        return size;
+    }
+
+    private static long estimateSize(Serializable[] row) {
+        if (row == null) return 0L;
+        long size = ARRAY_OVERHEAD + REFERENCE_SIZE * row.length;
+        for (Serializable value : row) {
+            if (value == null) continue;
+            if (value instanceof byte[]) {
+                size += ARRAY_OVERHEAD + ((byte[]) value).length;
+            } else if (value instanceof String) {
+                size += STRING_OVERHEAD + 2L * ((String) value).length();
+            } else if (value instanceof BitSet) {
+                size += OBJECT_OVERHEAD + ARRAY_OVERHEAD + ((BitSet) value).size() / 8;
+            } else if (value instanceof BigDecimal) {
+                size += 3 * OBJECT_OVERHEAD + ((BigDecimal) value).precision() / 2;
+            } else {
+                // Numbers, dates, and times ...
+                size += OBJECT_OVERHEAD + REFERENCE_SIZE;
+            }
+        }
+        return size;
+    }
+}
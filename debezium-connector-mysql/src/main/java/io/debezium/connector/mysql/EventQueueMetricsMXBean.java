@@ -0,0 +1,43 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+/**
+ * The management interface exposing the state of the queue of binlog events that have been read from the MySQL server but not
+ * yet processed by the connector task.
+ * 
+ * @author Randall Hauch
+ */
+public interface EventQueueMetricsMXBean {
+
+    /**
+     * Get the maximum number of events in the queue.
+     * 
+     * @return the queue's capacity in number of events
+     */
+    int getQueueCapacity();
+
+    /**
+     * Get the number of events currently in the queue.
+     * 
+     * @return the number of queued events
+     */
+    int getQueuedEvents();
+
+    /**
+     * Get the estimated number of bytes of heap used by the events that have been read but not yet processed.
+     * 
+     * @return the estimated number of queued bytes
+     */
+    long getQueuedBytes();
+
+    /**
+     * Get the maximum estimated number of bytes of heap that can be used by queued events.
+     * 
+     * @return the maximum number of queued bytes, or 0 if the queue is not bounded by size
+     */
+    long getMaxQueuedBytes();
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import io.debezium.annotation.NotThreadSafe;
+
+/**
+ * A set of MySQL global transaction identifiers (GTIDs), which identifies the transactions that have been processed on any
+ * server in a replication topology. Each GTID has the form "{@code <source-uuid>:<transaction-number>}", and the set is
+ * represented by the sorted and non-overlapping intervals of transaction numbers for each source UUID. Its string form is the
+ * same as MySQL's, such as:
+ *
+ * <pre>
+ * 3e11fa47-71ca-11e1-9e33-c80aa9429562:1-5:11-18,86d2a1a5-4a2c-11e6-b28c-0242ac110002:1-27
+ * </pre>
+ * <p>
+ * Transactions from a source are usually numbered consecutively, so adding the next transaction number of the most recently used
+ * source simply extends that source's last interval. This requires neither searching nor allocating, and so the set can be
+ * updated for every transaction without adding noticeable overhead.
+ *
+ * @author Randall Hauch
+ */
+@NotThreadSafe
+final class GtidSet {
+
+    /**
+     * Parse the string representation of a GTID set, in the same form as returned by MySQL's
+     * {@code SHOW MASTER STATUS} or {@code @@global.gtid_executed}.
+     *
+     * @param gtids the string representation of the GTID set; may be null or empty
+     * @return the GTID set; never null
+     * @throws IllegalArgumentException if the string is not a valid GTID set
+     */
+    public static GtidSet parse(String gtids) {
+        GtidSet result = new GtidSet();
+        if (gtids == null) return result;
+        for (String uuidSet : gtids.split(",")) {
+            uuidSet = uuidSet.trim();
+            if (uuidSet.isEmpty()) continue;
+            String[] parts = uuidSet.split(":");
+            if (parts.length < 2) {
+                throw new IllegalArgumentException("Missing transaction intervals in the GTID set '" + uuidSet + "'");
+            }
+            Intervals intervals = result.intervalsFor(parts[0].trim());
+            for (int i = 1; i != parts.length; ++i) {
+                String interval = parts[i].trim();
+                int dash = interval.indexOf('-');
+                long start = parseTransactionNumber(interval, 0, dash < 0 ? interval.length() : dash);
+                long end = dash < 0 ? start : parseTransactionNumber(interval, dash + 1, interval.length());
+                if (end < start) {
+                    throw new IllegalArgumentException("Invalid transaction interval '" + interval + "' in the GTID set '" + uuidSet + "'");
+                }
+                intervals.add(start, end);
+            }
+        }
+        return result;
+    }
+
+    private static long parseTransactionNumber(String value, int start, int end) {
+        if (start >= end) throw new IllegalArgumentException("Missing transaction number in '" + value + "'");
+        long result = 0L;
+        for (int i = start; i != end; ++i) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') throw new IllegalArgumentException("Invalid transaction number in '" + value + "'");
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private final Map<String, Intervals> intervalsByUuid = new TreeMap<>();
+    private String lastUuid;
+    private Intervals lastIntervals;
+
+    /**
+     * Create an empty GTID set.
+     */
+    public GtidSet() {
+    }
+
+    /**
+     * Add the GTID of a single transaction.
+     *
+     * @param gtid the GTID in the form "{@code <source-uuid>:<transaction-number>}"; may not be null
+     * @return {@code true} if the transaction was added, or {@code false} if it was already in this set
+     * @throws IllegalArgumentException if the GTID is not valid
+     */
+    public boolean add(String gtid) {
+        int colon = gtid.lastIndexOf(':');
+        if (colon <= 0) throw new IllegalArgumentException("Invalid GTID '" + gtid + "'");
+        long transactionNumber = parseTransactionNumber(gtid, colon + 1, gtid.length());
+        Intervals intervals = lastIntervals;
+        if (intervals == null || lastUuid.length() != colon || !gtid.regionMatches(0, lastUuid, 0, colon)) {
+            // Only look up the source when it differs from that of the previous transaction ...
+            intervals = intervalsFor(gtid.substring(0, colon));
+        }
+        return intervals.add(transactionNumber);
+    }
+
+    /**
+     * Add a single transaction.
+     *
+     * @param uuid the UUID of the server on which the transaction originated; may not be null
+     * @param transactionNumber the number of the transaction on the originating server
+     * @return {@code true} if the transaction was added, or {@code false} if it was already in this set
+     */
+    public boolean add(String uuid, long transactionNumber) {
+        Intervals intervals = uuid.equals(lastUuid) ? lastIntervals : intervalsFor(uuid);
+        return intervals.add(transactionNumber);
+    }
+
+    /**
+     * Add a range of transactions.
+     *
+     * @param uuid the UUID of the server on which the transactions originated; may not be null
+     * @param firstTransactionNumber the number of the first transaction in the range
+     * @param lastTransactionNumber the number of the last transaction in the range; may not be less than the first
+     */
+    public void add(String uuid, long firstTransactionNumber, long lastTransactionNumber) {
+        Intervals intervals = uuid.equals(lastUuid) ? lastIntervals : intervalsFor(uuid);
+        intervals.add(firstTransactionNumber, lastTransactionNumber);
+    }
+
+    /**
+     * Add all of the transactions in the supplied set.
+     *
+     * @param other the other GTID set; may not be null
+     */
+    public void addAll(GtidSet other) {
+        other.intervalsByUuid.forEach((uuid, otherIntervals) -> {
+            Intervals intervals = intervalsFor(uuid);
+            for (int i = 0; i != otherIntervals.count; ++i) {
+                intervals.add(otherIntervals.bounds[2 * i], otherIntervals.bounds[2 * i + 1]);
+            }
+        });
+    }
+
+    /**
+     * Determine whether this set contains the given transaction.
+     *
+     * @param uuid the UUID of the server on which the transaction originated; may not be null
+     * @param transactionNumber the number of the transaction on the originating server
+     * @return {@code true} if the transaction is in this set, or {@code false} otherwise
+     */
+    public boolean contains(String uuid, long transactionNumber) {
+        Intervals intervals = intervalsByUuid.get(uuid);
+        return intervals != null && intervals.contains(transactionNumber);
+    }
+
+    /**
+     * Determine whether this set contains no transactions.
+     *
+     * @return {@code true} if there are no transactions in this set, or {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return intervalsByUuid.isEmpty();
+    }
+
+    private Intervals intervalsFor(String uuid) {
+        Intervals intervals = intervalsByUuid.get(uuid);
+        if (intervals == null) {
+            intervals = new Intervals();
+            intervalsByUuid.put(uuid, intervals);
+        }
+        lastUuid = uuid;
+        lastIntervals = intervals;
+        return intervals;
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (obj instanceof GtidSet) {
+            return toString().equals(obj.toString());
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        intervalsByUuid.forEach((uuid, intervals) -> {
+            if (sb.length() != 0) sb.append(',');
+            sb.append(uuid);
+            intervals.appendTo(sb);
+        });
+        return sb.toString();
+    }
+
+    /**
+     * The sorted, non-overlapping and non-adjacent intervals of transaction numbers from a single source, stored as consecutive
+     * pairs of inclusive start and end numbers.
+     */
+    @NotThreadSafe
+    private static final class Intervals {
+        private long[] bounds = new long[4];
+        private int count = 0;
+
+        public boolean add(long transactionNumber) {
+            if (count != 0) {
+                int last = 2 * count - 1;
+                long lastEnd = bounds[last];
+                if (transactionNumber == lastEnd + 1) {
+                    // This is by far the most common case ...
+                    bounds[last] = transactionNumber;
+                    return true;
+                }
+                if (transactionNumber <= lastEnd && contains(transactionNumber)) return false;
+            }
+            add(transactionNumber, transactionNumber);
+            return true;
+        }
+
+        public void add(long start, long end) {
+            // Find the first interval that ends at or after the one before the start ...
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (bounds[2 * mid + 1] < start - 1) lo = mid + 1;
+                else hi = mid;
+            }
+            int first = lo;
+            // Find the last interval that starts at or before the one after the end ...
+            hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (bounds[2 * mid] <= end + 1) lo = mid + 1;
+                else hi = mid;
+            }
+            int last = lo - 1;
+            if (first > last) {
+                // The new interval doesn't touch any existing interval, so insert it ...
+                if (2 * count + 2 > bounds.length) bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                System.arraycopy(bounds, 2 * first, bounds, 2 * first + 2, 2 * (count - first));
+                bounds[2 * first] = start;
+                bounds[2 * first + 1] = end;
+                ++count;
+                return;
+            }
+            // Merge the new interval with all of the existing intervals it touches ...
+            bounds[2 * first] = Math.min(start, bounds[2 * first]);
+            bounds[2 * first + 1] = Math.max(end, bounds[2 * last + 1]);
+            System.arraycopy(bounds, 2 * last + 2, bounds, 2 * first + 2, 2 * (count - last - 1));
+            count -= last - first;
+        }
+
+        public boolean contains(long transactionNumber) {
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (bounds[2 * mid + 1] < transactionNumber) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo < count && bounds[2 * lo] <= transactionNumber;
+        }
+
+        public void appendTo(StringBuilder sb) {
+            for (int i = 0; i != count; ++i) {
+                long start = bounds[2 * i];
+                long end = bounds[2 * i + 1];
+                sb.append(':').append(start);
+                if (end != start) sb.append('-').append(end);
+            }
+        }
+    }
+}
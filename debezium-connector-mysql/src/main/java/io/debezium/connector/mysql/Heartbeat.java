@@ -0,0 +1,102 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import io.debezium.annotation.NotThreadSafe;
+import io.debezium.util.Clock;
+
+/**
+ * A producer of heartbeat records, which carry the current binlog position as their offset when the connector has read events
+ * but has not produced any other records for some time. Kafka Connect only commits the offsets of the records that a task
+ * produces, so without heartbeats a connector that captures only a few quiet tables of a busy server would, upon restart, reread
+ * all of the binlog since the last change to one of those tables.
+ * <p>
+ * Each record is keyed by the server name, and its value is a structure with a single {@value #TIMESTAMP_FIELD} field with the
+ * time at which the record was produced.
+ * 
+ * @author Randall Hauch
+ */
+@NotThreadSafe
+final class Heartbeat {
+
+    public static final String TIMESTAMP_FIELD = "ts_ms";
+
+    private final String topic;
+    private final String serverName;
+    private final long intervalMs;
+    private final Clock clock;
+    private final Schema valueSchema;
+    private long lastRecordTime;
+    private Map<String, ?> lastOffset;
+
+    /**
+     * Create the producer of heartbeat records.
+     * 
+     * @param topic the name of the topic for the records; may not be null
+     * @param serverName the name of the server, used as the key of each record; may not be null
+     * @param intervalMs the minimum number of milliseconds between records; must be positive
+     * @param clock the clock; may not be null
+     */
+    public Heartbeat(String topic, String serverName, long intervalMs, Clock clock) {
+        this.topic = topic;
+        this.serverName = serverName;
+        this.intervalMs = intervalMs;
+        this.clock = clock;
+        this.valueSchema = SchemaBuilder.struct()
+                                        .name(topic + ".Value")
+                                        .field(TIMESTAMP_FIELD, Schema.INT64_SCHEMA)
+                                        .build();
+        this.lastRecordTime = clock.currentTimeInMillis();
+    }
+
+    /**
+     * Get the name of the topic for the records.
+     * 
+     * @return the topic name; never null
+     */
+    public String topic() {
+        return topic;
+    }
+
+    /**
+     * Determine whether a heartbeat is due, which is when no records have been produced for at least the interval and the
+     * source position has changed since the last record. No heartbeat is due until the name of the binlog file is known (e.g.,
+     * before the first {@code ROTATE} event has been read), since an offset without it cannot be used to restart the connector.
+     * 
+     * @param source the source information; may not be null
+     * @return {@code true} if a heartbeat record is due, or {@code false} otherwise
+     */
+    public boolean isDue(SourceInfo source) {
+        return source.binlogFilename() != null && clock.currentTimeInMillis() - lastRecordTime >= intervalMs
+                && !source.offset().equals(lastOffset);
+    }
+
+    /**
+     * Process the batch of records that is about to be returned by the task. A batch with records resets the interval, while an
+     * empty batch has a heartbeat record added to it if one is {@link #isDue(SourceInfo) due}.
+     * 
+     * @param records the batch of records; may not be null
+     * @param source the source information with the position after all of the events that were read; may not be null
+     */
+    public void process(List<SourceRecord> records, SourceInfo source) {
+        if (records.isEmpty()) {
+            if (!isDue(source)) return;
+            Map<String, ?> offset = source.offset();
+            Struct value = new Struct(valueSchema).put(TIMESTAMP_FIELD, clock.currentTimeInMillis());
+            records.add(new SourceRecord(source.partition(), offset, topic, 0, Schema.STRING_SCHEMA, serverName, valueSchema, value));
+        }
+        lastRecordTime = clock.currentTimeInMillis();
+        lastOffset = records.get(records.size() - 1).sourceOffset();
+    }
+}
@@ -0,0 +1,470 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.debezium.annotation.NotThreadSafe;
+import io.debezium.config.Configuration;
+import io.debezium.document.Array;
+import io.debezium.document.ArrayReader;
+import io.debezium.document.ArrayWriter;
+import io.debezium.document.Value;
+import io.debezium.relational.Column;
+import io.debezium.relational.Table;
+import io.debezium.relational.TableId;
+import io.debezium.relational.TableSchema;
+import io.debezium.relational.Tables;
+
+/**
+ * A snapshot of the existing tables that is read in small chunks while the connector continues to read the binlog, so that
+ * changes to the database continue to be captured with low latency while the existing rows are read.
+ * <p>
+ * The tables are read one at a time, in the order of their primary keys, and each chunk is the next rows after the primary key of
+ * the last row that was read. Since a row in a chunk may be changed by a transaction that the connector has yet to read from the
+ * binlog, each chunk is read with a shared lock (so that it waits for any uncommitted changes to its rows), and then the current
+ * binlog position is read as the chunk's <em>high watermark</em>. The rows of the chunk are held in memory while the connector
+ * reads the binlog up to that high watermark, and any row that is changed by an event read in the meantime is discarded, since
+ * the record produced from that event reflects the same or a more recent state of the row. Once the connector has read past the
+ * high watermark, the remaining rows are returned as records in the next batches, after the records produced from the binlog.
+ * This requires that MySQL's {@code binlog_row_image} is {@code FULL}, since otherwise the records of updates contain only some
+ * of the columns of the rows they replace in the chunk; this is checked when the snapshot is started or continued.
+ * <p>
+ * The progress of the snapshot is kept in the {@link SourceInfo#setSnapshotProgress(String, String) source information} and
+ * included in every offset: the tables that have yet to be completely read and the primary key of the last row read from the
+ * first of those tables. The last record of each chunk has the offset with the new progress, so that a restarted connector
+ * continues with the next chunk.
+ * <p>
+ * Only tables with a primary key are read, and tables whose primary key includes binary columns are skipped.
+ * 
+ * @author Randall Hauch
+ */
+@NotThreadSafe
+final class IncrementalSnapshot {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final Configuration config;
+    private final TopicSelector topicSelector;
+    private final int chunkSize;
+    private final Queue<SourceRecord> schemaChangeRecords = new ArrayDeque<>();
+    private final Map<Object, SourceRecord> window = new LinkedHashMap<>();
+    private MySqlJdbcConnection connection;
+    private TableId windowTable;
+    private String windowTopic;
+    private String windowEndKey;
+    private String highWatermarkFilename;
+    private long highWatermarkPosition;
+    private boolean windowClosed;
+
+    /**
+     * Create an incremental snapshot.
+     * 
+     * @param config the connector configuration; may not be null
+     * @param topicSelector the selector for topic names; may not be null
+     * @param chunkSize the maximum number of rows in each chunk; must be positive
+     */
+    public IncrementalSnapshot(Configuration config, TopicSelector topicSelector, int chunkSize) {
+        this.config = config;
+        this.topicSelector = topicSelector;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Begin a new incremental snapshot. This holds a global read lock while it sets the source information to the current
+     * binlog position and applies the definitions of the existing tables to the table converters (which records them in the
+     * database history), and then sets the snapshot progress to include all of these tables. The lock is held until all of the
+     * definitions have been read, which takes a time proportional to the number of captured tables.
+     * 
+     * @param source the source information; may not be null
+     * @param tableFilter the filter for the tables that are to be read; may not be null
+     * @param converters the table converters; may not be null
+     * @throws ConnectException if the snapshot could not be started, or if the server's {@code binlog_row_image} is not
+     *             {@code FULL}
+     */
+    public void start(SourceInfo source, Predicate<TableId> tableFilter, TableConverters converters) {
+        String serverName = source.serverName();
+        Tables definitions = new Tables();
+        try (MySqlJdbcConnection lockConnection = MySqlJdbcConnection.forConnector(config)) {
+            checkBinlogRowImage(lockConnection, serverName);
+            // Prevent all writes while reading the binlog position and the definitions of the tables ...
+            logger.info("Obtaining global read lock on MySQL server '{}' to start incremental snapshot", serverName);
+            lockConnection.execute("FLUSH TABLES WITH READ LOCK");
+            long lockStart = System.currentTimeMillis();
+            try {
+                SnapshotReader.readBinlogPosition(lockConnection, source);
+                SnapshotReader.readDefinitions(lockConnection, tableFilter, definitions, source, source.offset(), converters,
+                                               schemaChangeRecords::add);
+            } finally {
+                lockConnection.execute("UNLOCK TABLES");
+                logger.info("Released global read lock on MySQL server '{}' after {} ms", serverName,
+                            System.currentTimeMillis() - lockStart);
+            }
+        } catch (SQLException e) {
+            throw new ConnectException("Unable to start the incremental snapshot of MySQL server '" + serverName + "'", e);
+        }
+        List<TableId> tableIds = SnapshotReader.sorted(definitions);
+        source.setSnapshotProgress(tableIds.isEmpty() ? null : formatTables(tableIds), null);
+        logger.info("Starting incremental snapshot of {} tables from MySQL server '{}' at binlog file {}, position {}",
+                    tableIds.size(), serverName, source.binlogFilename(), source.binlogPosition());
+    }
+
+    /**
+     * Continue an incremental snapshot whose progress was recorded in the source information.
+     * 
+     * @param source the source information with the progress of the snapshot; may not be null
+     * @throws ConnectException if the server could not be checked, or if its {@code binlog_row_image} is not {@code FULL}
+     */
+    public void resume(SourceInfo source) {
+        try {
+            checkBinlogRowImage(connection(), source.serverName());
+        } catch (SQLException e) {
+            throw new ConnectException("Unable to continue the incremental snapshot of MySQL server '" + source.serverName() + "'", e);
+        }
+    }
+
+    /**
+     * Determine whether the snapshot has records that can be returned, or a chunk that can be read, without waiting for more
+     * events from the binlog.
+     * 
+     * @param source the source information with the position of the last event read from the binlog; may not be null
+     * @return {@code true} if there is work that does not depend upon further binlog events, or {@code false} otherwise
+     */
+    public boolean hasRecords(SourceInfo source) {
+        if (!schemaChangeRecords.isEmpty()) return true;
+        if (windowTable == null) return source.snapshotTables() != null;
+        return windowClosed || hasReachedHighWatermark(source);
+    }
+
+    /**
+     * Determine whether all tables have been read, and all of their records returned.
+     * 
+     * @param source the source information; may not be null
+     * @return {@code true} if the snapshot is complete, or {@code false} otherwise
+     */
+    public boolean isComplete(SourceInfo source) {
+        return windowTable == null && schemaChangeRecords.isEmpty() && source.snapshotTables() == null;
+    }
+
+    /**
+     * Read the next chunk of the current table, unless the rows of the previous chunk have yet to be returned or the snapshot is
+     * complete. Tables that cannot be read are skipped.
+     * 
+     * @param source the source information; may not be null
+     * @param tables the current definitions of the tables; may not be null
+     * @param converters the table converters; may not be null
+     * @throws ConnectException if there is an error reading the chunk
+     */
+    public void readChunk(SourceInfo source, Tables tables, TableConverters converters) {
+        if (windowTable != null) return;
+        while (source.snapshotTables() != null) {
+            List<TableId> remaining = parseTables(source.snapshotTables());
+            TableId tableId = remaining.get(0);
+            String rest = remaining.size() > 1 ? formatTables(remaining.subList(1, remaining.size())) : null;
+            Table table = tables.forTable(tableId);
+            TableSchema schema = converters.schemaFor(tableId);
+            List<Column> keyColumns = table != null ? table.primaryKeyColumns() : null;
+            if (schema == null || keyColumns == null || keyColumns.isEmpty() || keyColumns.stream().anyMatch(this::isBinary)) {
+                logger.warn("Skipping incremental snapshot of {}, which no longer exists or has no suitable primary key", tableId);
+                source.setSnapshotProgress(rest, null);
+                continue;
+            }
+            try {
+                if (read(source, tableId, table, schema, converters.partitionSelectorFor(tableId), keyColumns)) return;
+            } catch (SQLException e) {
+                throw new ConnectException("Error while reading incremental snapshot of " + tableId + " from MySQL server '"
+                        + source.serverName() + "'", e);
+            }
+            // There are no more rows in this table ...
+            logger.info("Completed incremental snapshot of {}", tableId);
+            source.setSnapshotProgress(rest, null);
+        }
+    }
+
+    private boolean read(SourceInfo source, TableId tableId, Table table, TableSchema schema, PartitionSelector partitionSelector,
+                         List<Column> keyColumns)
+            throws SQLException {
+        MySqlJdbcConnection connection = connection();
+        List<Column> columns = table.columns();
+        List<Object> lastKey = parseKey(source.snapshotKey());
+        String keys = keyColumns.stream().map(column -> MySqlJdbcConnection.quote(column.name())).collect(Collectors.joining(", "));
+        StringBuilder sql = new StringBuilder("SELECT ");
+        sql.append(columns.stream().map(column -> MySqlJdbcConnection.quote(column.name())).collect(Collectors.joining(", ")));
+        sql.append(" FROM ").append(MySqlJdbcConnection.quote(tableId));
+        if (!lastKey.isEmpty()) {
+            sql.append(" WHERE (").append(keys).append(") > (");
+            sql.append(lastKey.stream().map(value -> "?").collect(Collectors.joining(", "))).append(")");
+        }
+        sql.append(" ORDER BY ").append(keys).append(" LIMIT ").append(chunkSize).append(" LOCK IN SHARE MODE");
+
+        int[] keyPositions = new int[keyColumns.size()];
+        for (int i = 0; i != keyPositions.length; ++i) {
+            keyPositions[i] = columns.indexOf(table.columnWithName(keyColumns.get(i).name()));
+        }
+        String topic = topicSelector.getTopic(source.serverName(), tableId.catalog(), tableId.table());
+        Object[][] lastRow = new Object[1][];
+        int[] rowCount = new int[1];
+        logger.debug("Reading incremental snapshot chunk of {}: {}", tableId, sql);
+        connection.prepareQuery(sql.toString(), statement -> {
+            for (int i = 0; i != lastKey.size(); ++i) {
+                statement.setObject(i + 1, lastKey.get(i));
+            }
+        }, rs -> {
+            while (rs.next()) {
+                Object[] row = new Object[columns.size()];
+                for (int i = 0; i != row.length; ++i) {
+                    row[i] = rs.getObject(i + 1);
+                }
+                Object key = schema.keyFromColumnData(row);
+                if (key != null) {
+                    // The offset of each record is set when the record is returned ...
+                    window.put(key, new SourceRecord(null, null, topic, partitionSelector.partition(key, row), schema.keySchema(), key,
+                            schema.valueSchema(), schema.valueFromColumnData(row)));
+                }
+                lastRow[0] = row;
+                ++rowCount[0];
+            }
+        });
+        // Release the shared locks, and then read the high watermark ...
+        connection.commit();
+        if (rowCount[0] == 0) return false;
+
+        SourceInfo highWatermark = new SourceInfo();
+        SnapshotReader.readBinlogPosition(connection, highWatermark);
+        highWatermarkFilename = highWatermark.binlogFilename();
+        highWatermarkPosition = highWatermark.binlogPosition();
+        windowTable = tableId;
+        windowTopic = topic;
+        windowClosed = false;
+        // When the chunk is not full, there are no more rows and the table will be complete ...
+        windowEndKey = rowCount[0] < chunkSize ? null : formatKey(lastRow[0], keyPositions);
+        logger.debug("Read {} rows of {}, with high watermark at binlog file {}, position {}", rowCount[0], tableId,
+                     highWatermarkFilename, highWatermarkPosition);
+        return true;
+    }
+
+    /**
+     * Process the records produced from the binlog by the current call to {@code poll()}, and add to them the records of the
+     * snapshot that can be returned. Rows of the current chunk that are changed by these records are discarded, and once the
+     * binlog has been read past the chunk's high watermark the remaining rows of the chunk are added to the records, up to the
+     * maximum number of records. The records of changes read from the binlog take precedence over those of the snapshot.
+     * 
+     * @param records the records produced from the binlog, to which the snapshot's records are added; may not be null
+     * @param source the source information with the position of the last event read from the binlog; may not be null
+     * @param maxRecords the maximum number of records
+     */
+    public void process(List<SourceRecord> records, SourceInfo source, int maxRecords) {
+        if (!schemaChangeRecords.isEmpty()) {
+            // The definitions of the tables precede all changes read from the binlog ...
+            records.addAll(0, schemaChangeRecords);
+            schemaChangeRecords.clear();
+        }
+        if (windowTable == null) return;
+        for (SourceRecord record : records) {
+            if (record.key() != null && windowTopic.equals(record.topic())) window.remove(record.key());
+        }
+        if (!windowClosed) {
+            if (!hasReachedHighWatermark(source)) return;
+            windowClosed = true;
+        }
+        Iterator<SourceRecord> iter = window.values().iterator();
+        while (iter.hasNext() && records.size() < maxRecords) {
+            SourceRecord row = iter.next();
+            iter.remove();
+            if (!iter.hasNext()) completeChunk(source); // so that the last record of the chunk has the new progress
+            records.add(new SourceRecord(source.partition(), source.offset(), row.topic(), row.kafkaPartition(), row.keySchema(),
+                    row.key(), row.valueSchema(), row.value()));
+        }
+        if (window.isEmpty() && windowTable != null) completeChunk(source);
+    }
+
+    private void completeChunk(SourceInfo source) {
+        if (windowEndKey != null) {
+            source.setSnapshotProgress(source.snapshotTables(), windowEndKey);
+        } else {
+            logger.info("Completed incremental snapshot of {}", windowTable);
+            List<TableId> remaining = parseTables(source.snapshotTables());
+            source.setSnapshotProgress(remaining.size() > 1 ? formatTables(remaining.subList(1, remaining.size())) : null, null);
+        }
+        if (source.snapshotTables() == null) logger.info("Completed incremental snapshot of MySQL server '{}'", source.serverName());
+        windowTable = null;
+        windowTopic = null;
+        windowEndKey = null;
+        window.clear();
+    }
+
+    private MySqlJdbcConnection connection() throws SQLException {
+        if (connection == null) {
+            connection = MySqlJdbcConnection.forConnector(config);
+            // Locking reads see the latest committed rows, without locking the gaps between them ...
+            connection.connection().setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        }
+        return connection;
+    }
+
+    /**
+     * Verify that the server writes the complete rows to the binlog, since the records of updates replace the rows of the chunk.
+     * 
+     * @param connection the connection to the MySQL server; may not be null
+     * @param serverName the logical name of the server; may not be null
+     * @throws SQLException if there is an error reading the setting
+     * @throws ConnectException if the setting is not {@code FULL}
+     */
+    private static void checkBinlogRowImage(MySqlJdbcConnection connection, String serverName) throws SQLException {
+        connection.query("SELECT @@binlog_row_image", Connection::createStatement, rs -> {
+            String rowImage = rs.next() ? rs.getString(1) : null;
+            if (!"FULL".equalsIgnoreCase(rowImage)) {
+                throw new ConnectException("The incremental snapshot of MySQL server '" + serverName
+                        + "' requires 'binlog_row_image' to be FULL, but it is " + rowImage);
+            }
+        });
+    }
+
+    private boolean hasReachedHighWatermark(SourceInfo source) {
+        String filename = source.binlogFilename();
+        if (filename == null) return false;
+        // The files have the same base name and numeric extensions, which may become longer ...
+        int diff = filename.length() != highWatermarkFilename.length() ? filename.length() - highWatermarkFilename.length()
+                : filename.compareTo(highWatermarkFilename);
+        return diff > 0 || (diff == 0 && source.binlogPosition() >= highWatermarkPosition);
+    }
+
+    /**
+     * Stop the snapshot, and close its connection.
+     */
+    public void stop() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.warn("Error while closing incremental snapshot connection", e);
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    private boolean isBinary(Column column) {
+        switch (column.jdbcType()) {
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+            case Types.BIT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Format the given table identifiers as a JSON array, in which each table is an array of its database and table names. The
+     * names are kept separate so that they may contain any characters.
+     * 
+     * @param tableIds the table identifiers; may not be null
+     * @return the JSON array; never null
+     */
+    static String formatTables(List<TableId> tableIds) {
+        Array tables = Array.create();
+        for (TableId tableId : tableIds) {
+            tables.add(Array.create(tableId.catalog(), tableId.table()));
+        }
+        try {
+            return ArrayWriter.defaultWriter().write(tables);
+        } catch (IOException e) {
+            throw new ConnectException("Unable to write the tables " + tables, e);
+        }
+    }
+
+    /**
+     * Parse the table identifiers in the given JSON array.
+     * 
+     * @param tables the JSON array; may not be null
+     * @return the table identifiers; never null or empty
+     * @throws ConnectException if the value is not a non-empty JSON array of database and table names
+     */
+    static List<TableId> parseTables(String tables) {
+        List<TableId> tableIds = new ArrayList<>();
+        try {
+            for (Value value : ArrayReader.defaultReader().readArray(tables).values()) {
+                Array names = value.isArray() ? value.asArray() : null;
+                if (names == null || names.size() != 2 || !names.get(0).isString() || !names.get(1).isString()) {
+                    tableIds.clear();
+                    break;
+                }
+                tableIds.add(new TableId(names.get(0).asString(), null, names.get(1).asString()));
+            }
+        } catch (IOException e) {
+            throw new ConnectException("Source offset '" + SourceInfo.SNAPSHOT_TABLES_OFFSET_KEY + "' parameter value " + tables
+                    + " is not a valid JSON array", e);
+        }
+        if (tableIds.isEmpty()) {
+            throw new ConnectException("Source offset '" + SourceInfo.SNAPSHOT_TABLES_OFFSET_KEY + "' parameter value " + tables
+                    + " is not a valid JSON array of database and table names");
+        }
+        return tableIds;
+    }
+
+    /**
+     * Format the primary key values of the given row as a JSON array.
+     * 
+     * @param row the row; may not be null
+     * @param keyPositions the positions within the row of the primary key columns; may not be null
+     * @return the JSON array; never null
+     */
+    static String formatKey(Object[] row, int[] keyPositions) {
+        Array key = Array.create();
+        for (int position : keyPositions) {
+            Object value = row[position];
+            if (value instanceof Byte || value instanceof Short) {
+                value = ((Number) value).intValue();
+            } else if (value != null && !Value.isValid(value)) {
+                // Temporal values are compared with their string form ...
+                value = value.toString();
+            }
+            key.add(Value.create(value));
+        }
+        try {
+            return ArrayWriter.defaultWriter().write(key);
+        } catch (IOException e) {
+            throw new ConnectException("Unable to write the primary key " + key, e);
+        }
+    }
+
+    /**
+     * Parse the primary key values in the given JSON array.
+     * 
+     * @param key the JSON array; may be null
+     * @return the values; never null but empty if the key is null
+     */
+    static List<Object> parseKey(String key) {
+        List<Object> values = new ArrayList<>();
+        if (key == null) return values;
+        try {
+            ArrayReader.defaultReader().readArray(key).values().forEach(value -> values.add(value.asObject()));
+        } catch (IOException e) {
+            throw new ConnectException("Source offset '" + SourceInfo.SNAPSHOT_KEY_OFFSET_KEY + "' parameter value " + key
+                    + " is not a valid JSON array", e);
+        }
+        return values;
+    }
+}
@@ -21,17 +21,250 @@
  */
 public class MySqlConnectorConfig {
 
+    /**
+     * The set of predefined EventQueueType options or aliases.
+     */
+    public static enum EventQueueType {
+        /**
+         * Use a linked blocking queue to hand off events from the binlog reader thread to the connector task.
+         */
+        LINKED("linked"),
+
+        /**
+         * Use a preallocated single-producer, single-consumer ring buffer to hand off events from the binlog reader thread to
+         * the connector task.
+         */
+        RING("ring");
+
+        private final String value;
+
+        private EventQueueType(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Determine if the supplied value is one of the predefined options.
+         * 
+         * @param value the configuration property value; may not be null
+         * @return the matching option, or null if no match is found
+         */
+        public static EventQueueType parse(String value) {
+            if (value == null) return null;
+            value = value.trim();
+            for (EventQueueType option : EventQueueType.values()) {
+                if (option.getValue().equalsIgnoreCase(value)) return option;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The set of predefined EventQueueWaitStrategy options or aliases.
+     */
+    public static enum EventQueueWaitStrategy {
+        /**
+         * Continually check the ring buffer, for the lowest latency at the cost of dedicating a CPU core to each waiting thread.
+         */
+        BUSY_SPIN("busy-spin"),
+
+        /**
+         * Yield the thread between checks of the ring buffer.
+         */
+        YIELD("yield"),
+
+        /**
+         * Park the thread for a short time between checks of the ring buffer.
+         */
+        PARK("park"),
+
+        /**
+         * Block the thread until it is signaled by the other side of the ring buffer.
+         */
+        BLOCKING("blocking");
+
+        private final String value;
+
+        private EventQueueWaitStrategy(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Determine if the supplied value is one of the predefined options.
+         * 
+         * @param value the configuration property value; may not be null
+         * @return the matching option, or null if no match is found
+         */
+        public static EventQueueWaitStrategy parse(String value) {
+            if (value == null) return null;
+            value = value.trim();
+            for (EventQueueWaitStrategy option : EventQueueWaitStrategy.values()) {
+                if (option.getValue().equalsIgnoreCase(value)) return option;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The set of predefined SnapshotMode options or aliases.
+     */
+    public static enum SnapshotMode {
+        /**
+         * Never perform a snapshot, and only read the binlog.
+         */
+        NEVER("never"),
+
+        /**
+         * Perform a snapshot of the existing tables when the connector starts with no offsets, and then read the binlog from the
+         * position at which the snapshot was taken.
+         */
+        INITIAL("initial"),
+
+        /**
+         * Read the binlog immediately, and incrementally read chunks of the existing tables while the binlog is being read. The
+         * progress is recorded in the offsets, so that a restarted connector continues with the next chunk.
+         */
+        INCREMENTAL("incremental");
+
+        private final String value;
+
+        private SnapshotMode(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Determine if the supplied value is one of the predefined options.
+         * 
+         * @param value the configuration property value; may not be null
+         * @return the matching option, or null if no match is found
+         */
+        public static SnapshotMode parse(String value) {
+            if (value == null) return null;
+            value = value.trim();
+            for (SnapshotMode option : SnapshotMode.values()) {
+                if (option.getValue().equalsIgnoreCase(value)) return option;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The set of predefined PartitionStrategy options or aliases.
+     */
+    public static enum PartitionStrategy {
+        /**
+         * Leave the partition of each record unset, so that Kafka assigns the partitions.
+         */
+        DEFAULT("default"),
+
+        /**
+         * Assign the partition of each record from a hash of the values of its primary key.
+         */
+        KEY_HASH("key-hash"),
+
+        /**
+         * Assign the partition of each record from the value of a configured numeric column, modulo the number of partitions.
+         */
+        COLUMN("column"),
+
+        /**
+         * Assign all records of the same table to the same partition.
+         */
+        TABLE("table");
+
+        private final String value;
+
+        private PartitionStrategy(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Determine if the supplied value is one of the predefined options.
+         * 
+         * @param value the configuration property value; may not be null
+         * @return the matching option, or null if no match is found
+         */
+        public static PartitionStrategy parse(String value) {
+            if (value == null) return null;
+            value = value.trim();
+            for (PartitionStrategy option : PartitionStrategy.values()) {
+                if (option.getValue().equalsIgnoreCase(value)) return option;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The set of predefined UpdateFormat options or aliases.
+     */
+    public static enum UpdateFormat {
+        /**
+         * Write the value of each updated row as the state of all of the row's columns after the update.
+         */
+        AFTER("after"),
+
+        /**
+         * Write the value of each updated row as an envelope with the state of the row's columns before and after the update.
+         */
+        ENVELOPE("envelope"),
+
+        /**
+         * Write the value of each updated row with only the primary key columns and the columns whose values were changed.
+         */
+        CHANGES("changes");
+
+        private final String value;
+
+        private UpdateFormat(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Determine if the supplied value is one of the predefined options.
+         * 
+         * @param value the configuration property value; may not be null
+         * @return the matching option, or null if no match is found
+         */
+        public static UpdateFormat parse(String value) {
+            if (value == null) return null;
+            value = value.trim();
+            for (UpdateFormat option : UpdateFormat.values()) {
+                if (option.getValue().equalsIgnoreCase(value)) return option;
+            }
+            return null;
+        }
+    }
+
     public static final Field USER = Field.create("database.user")
                                           .withDescription("Name of the database user to be used when connecting to the database.")
-                                          .withValidation(Field::isRequired);
+                                          .withValidation(MySqlConnectorConfig::isRequiredUnlessOffline);
 
     public static final Field PASSWORD = Field.create("database.password")
                                               .withDescription("Password to be used when connecting to the database.")
-                                              .withValidation(Field::isRequired);
+                                              .withValidation(MySqlConnectorConfig::isRequiredUnlessOffline);
 
     public static final Field HOSTNAME = Field.create("database.hostname")
                                               .withDescription("IP address of the MySQL database server.")
-                                              .withValidation(Field::isRequired);
+                                              .withValidation(MySqlConnectorConfig::isRequiredUnlessOffline);
 
     public static final Field PORT = Field.create("database.port")
                                           .withDescription("Port of the MySQL database server.")
@@ -50,7 +283,7 @@ public class MySqlConnectorConfig {
     public static final Field INITIAL_BINLOG_FILENAME = Field.create("database.binlog")
                                                              .withDescription("The name of the first binlog filename that should be processed by this connector. "
                                                                      + "This should include the basename and extension.")
-                                                             .withValidation(Field::isRequired);
+                                                             .withValidation(MySqlConnectorConfig::isRequiredUnlessOffline);
 
     public static final Field CONNECTION_TIMEOUT_MS = Field.create("connect.timeout.ms")
                                                            .withDescription("Maximum time in milliseconds to wait after trying to connect to the database before timing out.")
@@ -67,6 +300,33 @@ public class MySqlConnectorConfig {
                                                     .withDefault(2048)
                                                     .withValidation(MySqlConnectorConfig::validateMaxQueueSize);
 
+    public static final Field MAX_QUEUE_SIZE_IN_BYTES = Field.create("max.queue.size.bytes")
+                                                             .withDescription("Maximum estimated number of bytes of heap used by the change events read from the database log "
+                                                                     + "but not yet recorded or forwarded. When this is reached, reading the log is paused until "
+                                                                     + "enough events are processed, regardless of '" + MAX_QUEUE_SIZE + "'. "
+                                                                     + "Defaults to 0, which means the queue is bounded only by the number of events.")
+                                                             .withDefault(0L)
+                                                             .withValidation(Field::isNonNegativeLong);
+
+    public static final Field EVENT_QUEUE_TYPE = Field.create("event.queue.type")
+                                                      .withDescription("The kind of queue used to hand off change events from the thread reading the binlog to the connector task. "
+                                                              + "The default is 'linked', which uses a linked blocking queue. Use 'ring' for a preallocated ring buffer "
+                                                              + "that allocates nothing per event and that waits using the 'event.queue.wait.strategy'. "
+                                                              + "Using 'ring' also enables 'poll.wake.on.events', so the connector task waits on the ring "
+                                                              + "buffer with the same wait strategy. "
+                                                              + "Either way, the capacity of the queue is set with '" + MAX_QUEUE_SIZE + "'.")
+                                                      .withDefault(EventQueueType.LINKED.getValue())
+                                                      .withValidation(MySqlConnectorConfig::validateEventQueueType);
+
+    public static final Field EVENT_QUEUE_WAIT_STRATEGY = Field.create("event.queue.wait.strategy")
+                                                               .withDescription("How the threads wait when the '" + EVENT_QUEUE_TYPE + "' is 'ring' and the ring buffer is "
+                                                                       + "full or empty: 'busy-spin' has the lowest latency but dedicates a CPU core to each waiting thread, "
+                                                                       + "'yield' and 'park' use progressively less CPU but add latency, and 'blocking' (the default) "
+                                                                       + "uses no CPU while waiting. The waiting threads include the connector task's polling thread, "
+                                                                       + "so with 'busy-spin' that thread keeps a CPU core busy even when no changes are being made.")
+                                                               .withDefault(EventQueueWaitStrategy.BLOCKING.getValue())
+                                                               .withValidation(MySqlConnectorConfig::validateEventQueueWaitStrategy);
+
     public static final Field MAX_BATCH_SIZE = Field.create("max.batch.size")
                                                     .withDescription("Maximum size of each batch of source records. Defaults to 1024.")
                                                     .withDefault(1024)
@@ -77,6 +337,28 @@ public class MySqlConnectorConfig {
                                                       .withDefault(TimeUnit.SECONDS.toMillis(1))
                                                       .withValidation(Field::isPositiveInteger);
 
+    public static final Field POLL_WAKE_ON_EVENTS = Field.create("poll.wake.on.events")
+                                                         .withDescription("Whether the connector task should be woken up as soon as change events are read from the binlog, "
+                                                                 + "rather than checking for new events every '" + POLL_INTERVAL_MS + "'. The default is 'false'. "
+                                                                 + "This is always enabled when the '" + EVENT_QUEUE_TYPE + "' is 'ring', regardless of this setting, "
+                                                                 + "in which case the task waits using the '" + EVENT_QUEUE_WAIT_STRATEGY + "'.")
+                                                         .withDefault(false)
+                                                         .withValidation(Field::isBoolean);
+
+    public static final Field POLL_LINGER_MS = Field.create("poll.linger.ms")
+                                                    .withDescription("When the connector task is woken up by new change events, the maximum time in milliseconds to wait "
+                                                            + "for additional events before processing the batch. The default is 0, which means that the batch "
+                                                            + "is processed immediately. Only used when '" + POLL_WAKE_ON_EVENTS + "' is enabled.")
+                                                    .withDefault(0)
+                                                    .withValidation(Field::isNonNegativeInteger);
+
+    public static final Field POLL_LINGER_EVENTS = Field.create("poll.linger.events")
+                                                        .withDescription("When the connector task is woken up by new change events, the number of events after which the "
+                                                                + "task stops waiting for '" + POLL_LINGER_MS + "' and processes the batch. The default is 0, "
+                                                                + "which means the '" + MAX_BATCH_SIZE + "' is used.")
+                                                        .withDefault(0)
+                                                        .withValidation(Field::isNonNegativeInteger);
+
     public static final Field DATABASE_HISTORY = Field.create("database.history")
                                                       .withDescription("The name of the DatabaseHistory class that should be used to store and recover database schema changes. "
                                                               + "The configuration properties for the history are prefixed with the '"
@@ -91,6 +373,33 @@ public class MySqlConnectorConfig {
                                                             .withDefault(false)
                                                             .withValidation(Field::isBoolean);
 
+    public static final Field TRANSACTION_MARKERS = Field.create("transaction.markers")
+                                                         .withDescription("Whether the connector should publish a record marking the beginning and end of each "
+                                                                 + "transaction to a Kafka topic named '<serverName>.transaction'. Each record is keyed by the "
+                                                                 + "transaction's identifier, and the record marking the end of a transaction includes the "
+                                                                 + "number of change events in the transaction. The default is 'false'.")
+                                                         .withDefault(false)
+                                                         .withValidation(Field::isBoolean);
+
+    public static final Field TRANSACTION_BATCHING = Field.create("transaction.batching")
+                                                          .withDescription("Whether each batch of source records should end at a transaction boundary, so that "
+                                                                  + "all of the records of a transaction are returned in the same batch. A transaction whose "
+                                                                  + "records do not fit into '" + MAX_BATCH_SIZE + "' records is still split "
+                                                                  + "across several batches, as is a transaction whose remaining events do not arrive within '"
+                                                                  + POLL_INTERVAL_MS + "' milliseconds. The default is 'false'.")
+                                                          .withDefault(false)
+                                                          .withValidation(Field::isBoolean);
+
+    public static final Field HEARTBEAT_INTERVAL_MS = Field.create("heartbeat.interval.ms")
+                                                           .withDescription("The minimum interval in milliseconds between heartbeat records, which the connector "
+                                                                   + "publishes to a Kafka topic named '<serverName>.heartbeat' when it has read events from the "
+                                                                   + "binlog but produced no other records during that interval (e.g., because all of the changes "
+                                                                   + "were to tables that are not captured). Each heartbeat has the current binlog position as "
+                                                                   + "its offset, so that a restarted connector does not reread those events. The default is 0, "
+                                                                   + "which disables heartbeats.")
+                                                           .withDefault(0)
+                                                           .withValidation(Field::isNonNegativeLong);
+
     public static final Field TABLE_BLACKLIST = Field.create("table.blacklist")
                                                      .withValidation(MySqlConnectorConfig::validateTableBlacklist)
                                                      .withDescription("A comma-separated list of table identifiers to be excluded from monitoring, where each identifer is of the form "
@@ -117,13 +426,128 @@ public class MySqlConnectorConfig {
                                                            .withDescription("Flag specifying whether built-in tables should be ignored. This applies regardless of the table whitelist or blacklists.")
                                                            .withDefault(true);
 
+    public static final Field OFFLINE_BINLOG_FILES = Field.create("offline.binlog.files")
+                                                          .withDescription("A comma-separated list of binlog files and/or directories on the local file system. When set, "
+                                                                  + "the connector reads the events from these files rather than connecting to the MySQL server, "
+                                                                  + "and the '" + USER + "', '" + PASSWORD + "', '" + HOSTNAME + "', and '"
+                                                                  + INITIAL_BINLOG_FILENAME + "' properties are not required. The binlog files within a "
+                                                                  + "directory are those with a numeric extension (e.g., 'mysql-bin.000123'), read in order of "
+                                                                  + "their names. Once all of the events in the files have been processed, the connector "
+                                                                  + "logs a message and returns no more records.");
+
+    public static final Field OFFLINE_BINLOG_CHECKSUMS = Field.create("offline.binlog.checksums")
+                                                              .withDescription("Whether the events in the '" + OFFLINE_BINLOG_FILES + "' end with CRC32 "
+                                                                      + "checksums, as written by MySQL 5.6.2 and later when 'binlog_checksum' is 'CRC32'. "
+                                                                      + "The default is 'false'.")
+                                                              .withDefault(false)
+                                                              .withValidation(Field::isBoolean);
+
+    public static final Field CONVERTER_THREADS = Field.create("converter.threads")
+                                                       .withDescription("The number of threads used to convert the rows read from the binlog into source records. "
+                                                               + "The default is 0, which means that all rows are converted on the connector task's thread. "
+                                                               + "When positive, rows are converted concurrently by this number of threads, although the "
+                                                               + "records are always returned in the order in which the rows appear in the binlog.")
+                                                       .withDefault(0)
+                                                       .withValidation(Field::isNonNegativeInteger);
+
+    public static final Field PARTITION_STRATEGY = Field.create("partition.strategy")
+                                                        .withDescription("Specifies how the Kafka partition of each change record is assigned. The default is "
+                                                                + "'default', which leaves the partition unset so that Kafka assigns it from the "
+                                                                + "serialized key. Use 'key-hash' to assign the partition from a hash of the primary "
+                                                                + "key values, 'column' to assign it from the value of the numeric primary key column named "
+                                                                + "for the table in 'partition.columns' modulo the number of partitions, or 'table' "
+                                                                + "to assign all records of a table to the same partition. All strategies other than "
+                                                                + "'default' require 'partition.count'.")
+                                                        .withDefault(PartitionStrategy.DEFAULT.getValue())
+                                                        .withValidation(MySqlConnectorConfig::validatePartitionStrategy);
+
+    public static final Field PARTITION_COUNT = Field.create("partition.count")
+                                                     .withDescription("The number of partitions in each of the topics to which change records are written, "
+                                                             + "which is required when '" + PARTITION_STRATEGY + "' is not 'default'.")
+                                                     .withValidation(Field::isPositiveInteger);
+
+    public static final Field PARTITION_COLUMNS = Field.create("partition.columns")
+                                                       .withDescription("A comma-separated list of fully-qualified names of the numeric columns used to "
+                                                               + "assign partitions when '" + PARTITION_STRATEGY + "' is 'column', with at most one "
+                                                               + "column per table in the form '<databaseName>.<tableName>.<columnName>'. Each column "
+                                                               + "must be part of its table's primary key, since other columns may be missing from the "
+                                                               + "row images of updates and deletes. Records of tables without a primary key column in "
+                                                               + "this list are assigned partitions from their primary keys.");
+
+    public static final Field UPDATE_FORMAT = Field.create("update.format")
+                                                   .withDescription("Specifies the value of the change records for updated rows. The default is 'after', "
+                                                           + "which writes the state of all of the row's columns after the update. Use 'envelope' "
+                                                           + "to write a value with a 'before' and an 'after' field containing the state of the row "
+                                                           + "before and after the update. Use 'changes' to write only the primary key columns and "
+                                                           + "the columns whose values were changed, which is much smaller for wide tables; such a "
+                                                           + "value has one schema per table in which every column is optional and the columns that "
+                                                           + "were not changed are null, plus a '__changed_columns' field listing the names of the "
+                                                           + "changed columns, so a column that was changed to null is distinguished from one that "
+                                                           + "was not changed. The 'changes' format cannot be used "
+                                                           + "with the 'incremental' snapshot mode.")
+                                                   .withDefault(UpdateFormat.AFTER.getValue())
+                                                   .withValidation(MySqlConnectorConfig::validateUpdateFormat);
+
+    public static final Field SNAPSHOT_MODE = Field.create("snapshot.mode")
+                                                   .withDescription("Specifies whether the connector snapshots the existing tables. The default is 'never', "
+                                                           + "which only reads the binlog and ignores the rows of tables that were created before the "
+                                                           + "start of the binlog. Use 'initial' to read all rows of the existing tables when the "
+                                                           + "connector starts without offsets, and then to read the binlog from the position at "
+                                                           + "which the snapshot was taken. Use 'incremental' to start reading the binlog "
+                                                           + "immediately, and to read the rows of the existing tables in small chunks interleaved "
+                                                           + "with the changes read from the binlog; the progress of an incremental snapshot is "
+                                                           + "recorded in the offsets, so a restarted connector continues with the next chunk. "
+                                                           + "Both 'initial' and 'incremental' start by holding a global read lock, which blocks "
+                                                           + "all writes to the database, while they read the binlog position and the definitions "
+                                                           + "of all captured tables; the lock is held for a time proportional to the number of "
+                                                           + "captured tables, but is released before any rows are read.")
+                                                   .withDefault(SnapshotMode.NEVER.getValue())
+                                                   .withValidation(MySqlConnectorConfig::validateSnapshotMode);
+
+    public static final Field SNAPSHOT_THREADS = Field.create("snapshot.threads")
+                                                      .withDescription("The number of threads, each with its own database connection, that read the rows "
+                                                              + "of the tables during a snapshot. The default is 4.")
+                                                      .withDefault(4)
+                                                      .withValidation(Field::isPositiveInteger);
+
+    public static final Field SNAPSHOT_CHUNK_SIZE = Field.create("snapshot.chunk.size")
+                                                         .withDescription("The approximate number of rows in each chunk of a table read during a snapshot. "
+                                                                 + "Tables with a single-column integer primary key are split into ranges of primary keys "
+                                                                 + "with about this many rows, which are read concurrently; other tables are read as a "
+                                                                 + "single chunk. The default is 100000.")
+                                                         .withDefault(100000)
+                                                         .withValidation(Field::isPositiveInteger);
+
+    public static final Field INCREMENTAL_SNAPSHOT_CHUNK_SIZE = Field.create("snapshot.incremental.chunk.size")
+                                                                     .withDescription("The maximum number of rows in each chunk of a table read during an "
+                                                                             + "incremental snapshot. Only tables with a primary key are read, in the order "
+                                                                             + "of their primary keys. Each chunk is held in memory until the binlog has been "
+                                                                             + "read up to the point at which the chunk was read, so smaller chunks use less "
+                                                                             + "memory but require more queries. The default is 1024.")
+                                                                     .withDefault(1024)
+                                                                     .withValidation(Field::isPositiveInteger);
+
     public static Collection<Field> ALL_FIELDS = Collect.arrayListOf(USER, PASSWORD, HOSTNAME, PORT, SERVER_ID,
                                                                      SERVER_NAME, INITIAL_BINLOG_FILENAME,
                                                                      CONNECTION_TIMEOUT_MS, KEEP_ALIVE,
-                                                                     MAX_QUEUE_SIZE, MAX_BATCH_SIZE, POLL_INTERVAL_MS,
+                                                                     MAX_QUEUE_SIZE, MAX_QUEUE_SIZE_IN_BYTES, MAX_BATCH_SIZE, POLL_INTERVAL_MS,
+                                                                     EVENT_QUEUE_TYPE, EVENT_QUEUE_WAIT_STRATEGY,
+                                                                     POLL_WAKE_ON_EVENTS, POLL_LINGER_MS, POLL_LINGER_EVENTS,
                                                                      DATABASE_HISTORY, INCLUDE_SCHEMA_CHANGES,
+                                                                     TRANSACTION_MARKERS, TRANSACTION_BATCHING, HEARTBEAT_INTERVAL_MS,
                                                                      TABLE_WHITELIST, TABLE_BLACKLIST, TABLES_IGNORE_BUILTIN,
-                                                                     DATABASE_WHITELIST, DATABASE_BLACKLIST);
+                                                                     DATABASE_WHITELIST, DATABASE_BLACKLIST,
+                                                                     CONVERTER_THREADS,
+                                                                     PARTITION_STRATEGY, PARTITION_COUNT, PARTITION_COLUMNS,
+                                                                     UPDATE_FORMAT,
+                                                                     OFFLINE_BINLOG_FILES, OFFLINE_BINLOG_CHECKSUMS,
+                                                                     SNAPSHOT_MODE, SNAPSHOT_THREADS, SNAPSHOT_CHUNK_SIZE,
+                                                                     INCREMENTAL_SNAPSHOT_CHUNK_SIZE);
+
+    private static int isRequiredUnlessOffline(Configuration config, Field field, Consumer<String> problems) {
+        if (config.getString(OFFLINE_BINLOG_FILES) != null) return 0; // not needed to read local binlog files
+        return Field.isRequired(config, field, problems);
+    }
 
     private static int validateMaxQueueSize(Configuration config, Field field, Consumer<String> problems) {
         int maxQueueSize = config.getInteger(field);
@@ -163,6 +587,70 @@ private static int validateTableBlacklist(Configuration config, Field field, Con
         return 0;
     }
 
+    private static int validateEventQueueType(Configuration config, Field field, Consumer<String> problems) {
+        String value = config.getString(field);
+        if (EventQueueType.parse(value) == null) {
+            problems.accept("The " + field + " value '" + value + "' must be either '" + EventQueueType.LINKED.getValue()
+                    + "' or '" + EventQueueType.RING.getValue() + "'.");
+            return 1;
+        }
+        return 0;
+    }
+
+    private static int validateEventQueueWaitStrategy(Configuration config, Field field, Consumer<String> problems) {
+        String value = config.getString(field);
+        if (EventQueueWaitStrategy.parse(value) == null) {
+            problems.accept("The " + field + " value '" + value + "' must be one of '" + EventQueueWaitStrategy.BUSY_SPIN.getValue()
+                    + "', '" + EventQueueWaitStrategy.YIELD.getValue() + "', '" + EventQueueWaitStrategy.PARK.getValue()
+                    + "', or '" + EventQueueWaitStrategy.BLOCKING.getValue() + "'.");
+            return 1;
+        }
+        return 0;
+    }
+
+    private static int validateSnapshotMode(Configuration config, Field field, Consumer<String> problems) {
+        String value = config.getString(field);
+        if (SnapshotMode.parse(value) == null) {
+            problems.accept("The " + field + " value '" + value + "' must be one of '" + SnapshotMode.NEVER.getValue()
+                    + "', '" + SnapshotMode.INITIAL.getValue() + "', or '" + SnapshotMode.INCREMENTAL.getValue() + "'.");
+            return 1;
+        }
+        return 0;
+    }
+
+    private static int validatePartitionStrategy(Configuration config, Field field, Consumer<String> problems) {
+        String value = config.getString(field);
+        PartitionStrategy strategy = PartitionStrategy.parse(value);
+        if (strategy == null) {
+            problems.accept("The " + field + " value '" + value + "' must be one of '" + PartitionStrategy.DEFAULT.getValue()
+                    + "', '" + PartitionStrategy.KEY_HASH.getValue() + "', '" + PartitionStrategy.COLUMN.getValue()
+                    + "', or '" + PartitionStrategy.TABLE.getValue() + "'.");
+            return 1;
+        }
+        if (strategy != PartitionStrategy.DEFAULT && config.getString(PARTITION_COUNT) == null) {
+            problems.accept("The " + PARTITION_COUNT + " must be specified when " + field + " is '" + value + "'.");
+            return 1;
+        }
+        return 0;
+    }
+
+    private static int validateUpdateFormat(Configuration config, Field field, Consumer<String> problems) {
+        String value = config.getString(field);
+        UpdateFormat format = UpdateFormat.parse(value);
+        if (format == null) {
+            problems.accept("The " + field + " value '" + value + "' must be one of '" + UpdateFormat.AFTER.getValue()
+                    + "', '" + UpdateFormat.ENVELOPE.getValue() + "', or '" + UpdateFormat.CHANGES.getValue() + "'.");
+            return 1;
+        }
+        if (format == UpdateFormat.CHANGES && SnapshotMode.parse(config.getString(SNAPSHOT_MODE)) == SnapshotMode.INCREMENTAL) {
+            // An incremental snapshot discards the rows it read when they are updated, relying upon the update's complete value ...
+            problems.accept("The " + field + " value '" + value + "' cannot be used when " + SNAPSHOT_MODE + " is '"
+                    + SnapshotMode.INCREMENTAL.getValue() + "'.");
+            return 1;
+        }
+        return 0;
+    }
+
     private static int randomServerId() {
         int lowestServerId = 5400;
         int highestServerId = 6400;
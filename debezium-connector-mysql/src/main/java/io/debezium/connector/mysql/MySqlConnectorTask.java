@@ -6,9 +6,11 @@
 package io.debezium.connector.mysql;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
@@ -19,6 +21,7 @@
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.IntSupplier;
 import java.util.function.Predicate;
 
 import org.apache.kafka.connect.errors.ConnectException;
@@ -29,17 +32,28 @@
 
 import com.github.shyiko.mysql.binlog.BinaryLogClient;
 import com.github.shyiko.mysql.binlog.BinaryLogClient.LifecycleListener;
+import com.github.shyiko.mysql.binlog.event.DeleteRowsEventData;
 import com.github.shyiko.mysql.binlog.event.Event;
 import com.github.shyiko.mysql.binlog.event.EventData;
 import com.github.shyiko.mysql.binlog.event.EventHeader;
 import com.github.shyiko.mysql.binlog.event.EventHeaderV4;
 import com.github.shyiko.mysql.binlog.event.EventType;
+import com.github.shyiko.mysql.binlog.event.GtidEventData;
+import com.github.shyiko.mysql.binlog.event.QueryEventData;
 import com.github.shyiko.mysql.binlog.event.RotateEventData;
+import com.github.shyiko.mysql.binlog.event.UpdateRowsEventData;
+import com.github.shyiko.mysql.binlog.event.WriteRowsEventData;
+import com.github.shyiko.mysql.binlog.event.deserialization.ChecksumType;
 import com.github.shyiko.mysql.binlog.event.deserialization.EventDeserializer;
 import com.github.shyiko.mysql.binlog.network.AuthenticationException;
 
 import io.debezium.annotation.NotThreadSafe;
 import io.debezium.config.Configuration;
+import io.debezium.connector.mysql.EventQueueMetrics.QueuedEvent;
+import io.debezium.connector.mysql.MySqlConnectorConfig.EventQueueType;
+import io.debezium.connector.mysql.MySqlConnectorConfig.EventQueueWaitStrategy;
+import io.debezium.connector.mysql.MySqlConnectorConfig.SnapshotMode;
+import io.debezium.connector.mysql.MySqlConnectorConfig.UpdateFormat;
 import io.debezium.relational.TableId;
 import io.debezium.relational.Tables;
 import io.debezium.relational.ddl.DdlParser;
@@ -47,6 +61,7 @@
 import io.debezium.util.Clock;
 import io.debezium.util.Collect;
 import io.debezium.util.Metronome;
+import io.debezium.util.RingBuffer;
 
 /**
  * A Kafka Connect source task reads the MySQL binary log and generate the corresponding data change events.
@@ -70,21 +85,51 @@ public final class MySqlConnectorTask extends SourceTask {
                                                                              "server_cost", "engine_cost");
     private final Set<String> BUILT_IN_DB_NAMES = Collect.unmodifiableSet("mysql", "performance_schema");
 
+    private static final Set<EventType> ROWS_EVENT_TYPES = EnumSet.of(EventType.WRITE_ROWS, EventType.UPDATE_ROWS,
+                                                                      EventType.DELETE_ROWS, EventType.EXT_WRITE_ROWS,
+                                                                      EventType.EXT_UPDATE_ROWS, EventType.EXT_DELETE_ROWS);
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final TopicSelector topicSelector;
 
     // These are all effectively constants between start(...) and stop(...)
     private DatabaseHistory dbHistory;
     private EnumMap<EventType, EventHandler> eventHandlers = new EnumMap<>(EventType.class);
+    private EnumMap<EventType, RowsEventHandler> rowsEventHandlers = new EnumMap<>(EventType.class);
     private Tables tables;
     private TableConverters tableConverters;
+    private ConversionPipeline pipeline;
     private BinaryLogClient client;
-    private BlockingQueue<Event> events;
-    private Queue<Event> batchEvents;
+    private BinlogFileReader fileReader;
+    private boolean fileReaderCompletionLogged;
+    private SnapshotReader snapshotReader;
+    private IncrementalSnapshot incrementalSnapshot;
+    private String host;
+    private int port;
+    private String user;
+    private long connectTimeoutMs;
+    private BlockingQueue<QueuedEvent> events;
+    private EventQueueMetrics queueMetrics;
+    private Queue<QueuedEvent> batchEvents;
+    private QueuedEvent partialEvent;
+    private boolean inTableMaps;
+    private SourceOffset restartOffset;
+    private String transactionId;
+    private String transactionGtid;
+    private long transactionEventCount;
+    private TransactionMarkers transactionMarkers;
+    private Heartbeat heartbeat;
+    private boolean transactionBatching;
+    private List<SourceRecord> incompleteTransactionRecords;
     private int maxBatchSize;
+    private long pollIntervalMs;
+    private boolean wakeOnEvents;
+    private long lingerNanos;
+    private int lingerEvents;
     private String serverName;
     private Metronome metronome;
     private final AtomicBoolean running = new AtomicBoolean(false);
+    private Consumer<Event> beforeEnqueue = event -> {};
 
     // Used in the methods that process events ...
     private final SourceInfo source = new SourceInfo();
@@ -129,19 +174,38 @@ public void start(Map<String, String> props) {
         this.running.set(true);
 
         // Read the configuration ...
-        final String user = config.getString(MySqlConnectorConfig.USER);
+        user = config.getString(MySqlConnectorConfig.USER);
         final String password = config.getString(MySqlConnectorConfig.PASSWORD);
-        final String host = config.getString(MySqlConnectorConfig.HOSTNAME);
-        final int port = config.getInteger(MySqlConnectorConfig.PORT);
+        host = config.getString(MySqlConnectorConfig.HOSTNAME);
+        port = config.getInteger(MySqlConnectorConfig.PORT);
         final String initialBinLogFilename = config.getString(MySqlConnectorConfig.INITIAL_BINLOG_FILENAME);
         final long serverId = config.getLong(MySqlConnectorConfig.SERVER_ID);
         serverName = config.getString(MySqlConnectorConfig.SERVER_NAME.name(), host + ":" + port);
         final boolean keepAlive = config.getBoolean(MySqlConnectorConfig.KEEP_ALIVE);
         final int maxQueueSize = config.getInteger(MySqlConnectorConfig.MAX_QUEUE_SIZE);
-        final long timeoutInMilliseconds = config.getLong(MySqlConnectorConfig.CONNECTION_TIMEOUT_MS);
+        final long maxQueueSizeInBytes = config.getLong(MySqlConnectorConfig.MAX_QUEUE_SIZE_IN_BYTES);
+        connectTimeoutMs = config.getLong(MySqlConnectorConfig.CONNECTION_TIMEOUT_MS);
         final boolean includeSchemaChanges = config.getBoolean(MySqlConnectorConfig.INCLUDE_SCHEMA_CHANGES);
-        final long pollIntervalMs = config.getLong(MySqlConnectorConfig.POLL_INTERVAL_MS);
+        final boolean includeTransactionMarkers = config.getBoolean(MySqlConnectorConfig.TRANSACTION_MARKERS);
+        final String offlineBinlogFiles = config.getString(MySqlConnectorConfig.OFFLINE_BINLOG_FILES);
+        final boolean offlineBinlogChecksums = config.getBoolean(MySqlConnectorConfig.OFFLINE_BINLOG_CHECKSUMS);
+        final SnapshotMode snapshotMode = SnapshotMode.parse(config.getString(MySqlConnectorConfig.SNAPSHOT_MODE));
+        final EventQueueType queueType = EventQueueType.parse(config.getString(MySqlConnectorConfig.EVENT_QUEUE_TYPE));
+        final EventQueueWaitStrategy waitStrategy = EventQueueWaitStrategy.parse(config.getString(MySqlConnectorConfig.EVENT_QUEUE_WAIT_STRATEGY));
+        pollIntervalMs = config.getLong(MySqlConnectorConfig.POLL_INTERVAL_MS);
+        final int converterThreads = config.getInteger(MySqlConnectorConfig.CONVERTER_THREADS);
+        final UpdateFormat updateFormat = UpdateFormat.parse(config.getString(MySqlConnectorConfig.UPDATE_FORMAT));
         maxBatchSize = config.getInteger(MySqlConnectorConfig.MAX_BATCH_SIZE);
+        transactionBatching = config.getBoolean(MySqlConnectorConfig.TRANSACTION_BATCHING);
+        // The ring buffer's wait strategy is meant to be used by both threads, so the task always waits on the ring buffer ...
+        wakeOnEvents = config.getBoolean(MySqlConnectorConfig.POLL_WAKE_ON_EVENTS) || queueType == EventQueueType.RING;
+        if (queueType == EventQueueType.RING && waitStrategy == EventQueueWaitStrategy.BUSY_SPIN) {
+            logger.info("The '{}' is '{}', so the task's polling thread will spin while waiting for change events",
+                        MySqlConnectorConfig.EVENT_QUEUE_WAIT_STRATEGY, waitStrategy.getValue());
+        }
+        lingerNanos = TimeUnit.MILLISECONDS.toNanos(config.getLong(MySqlConnectorConfig.POLL_LINGER_MS));
+        final int lingerEventCount = config.getInteger(MySqlConnectorConfig.POLL_LINGER_EVENTS);
+        lingerEvents = lingerEventCount > 0 ? Math.min(lingerEventCount, maxBatchSize) : maxBatchSize;
         metronome = Metronome.parker(pollIntervalMs, TimeUnit.MILLISECONDS, Clock.SYSTEM);
 
         // Define the filter using the whitelists and blacklists for tables and database names ...
@@ -157,31 +221,72 @@ public void start(Map<String, String> props) {
         }
 
         // Create the queue ...
-        events = new LinkedBlockingDeque<>(maxQueueSize);
+        if (queueType == EventQueueType.RING) {
+            events = new RingBuffer<>(maxQueueSize, waitStrategyFor(waitStrategy));
+        } else {
+            events = new LinkedBlockingDeque<>(maxQueueSize);
+        }
+        logger.debug("Using {} for change events from MySQL server '{}'", events, serverName);
+        queueMetrics = new EventQueueMetrics(events, maxQueueSize, maxQueueSizeInBytes);
+        queueMetrics.register(serverName);
         batchEvents = new ArrayDeque<>(maxBatchSize);
 
         // Set up our handlers for specific kinds of events ...
         tables = new Tables();
-        tableConverters = new TableConverters(topicSelector, dbHistory, includeSchemaChanges, tables, tableFilter);
+        if (converterThreads > 0) {
+            // Convert rows on multiple threads, but still return the records in the order they appear in the binlog ...
+            pipeline = new ConversionPipeline(serverName, converterThreads);
+            logger.info("Using {} threads to convert rows read from MySQL server '{}'", converterThreads, serverName);
+        }
+        tableConverters = new TableConverters(topicSelector, dbHistory, tables,
+                TableConverters.Options.create()
+                                       .withSchemaChangesRecorded(includeSchemaChanges)
+                                       .withTableFilter(tableFilter)
+                                       .withPipeline(pipeline)
+                                       .withPartitionSelectors(PartitionSelector.factory(config))
+                                       .withUpdateFormat(updateFormat));
+        if (includeTransactionMarkers) {
+            transactionMarkers = new TransactionMarkers(topicSelector.getTransactionTopic(serverName));
+        }
+        final long heartbeatIntervalMs = config.getLong(MySqlConnectorConfig.HEARTBEAT_INTERVAL_MS);
+        if (heartbeatIntervalMs > 0) {
+            heartbeat = new Heartbeat(topicSelector.getHeartbeatTopic(serverName), serverName, heartbeatIntervalMs, Clock.SYSTEM);
+        }
         eventHandlers.put(EventType.ROTATE, tableConverters::rotateLogs);
         eventHandlers.put(EventType.TABLE_MAP, tableConverters::updateTableMetadata);
         eventHandlers.put(EventType.QUERY, tableConverters::updateTableCommand);
-        eventHandlers.put(EventType.EXT_WRITE_ROWS, tableConverters::handleInsert);
-        eventHandlers.put(EventType.EXT_UPDATE_ROWS, tableConverters::handleUpdate);
-        eventHandlers.put(EventType.EXT_DELETE_ROWS, tableConverters::handleDelete);
-
-        // Set up the log reader ...
-        client = new BinaryLogClient(host, port, user, password);
-        client.setServerId(serverId);
-        client.setKeepAlive(keepAlive);
-        if (logger.isDebugEnabled()) client.registerEventListener(this::logEvent);
-        client.registerEventListener(this::enqueue);
-        client.registerLifecycleListener(traceLifecycleListener());
+        rowsEventHandlers.put(EventType.EXT_WRITE_ROWS, tableConverters::handleInsert);
+        rowsEventHandlers.put(EventType.EXT_UPDATE_ROWS, tableConverters::handleUpdate);
+        rowsEventHandlers.put(EventType.EXT_DELETE_ROWS, tableConverters::handleDelete);
 
         // Set up the event deserializer with additional types ...
         EventDeserializer eventDeserializer = new EventDeserializer();
         eventDeserializer.setEventDataDeserializer(EventType.STOP, new StopEventDataDeserializer());
-        client.setEventDeserializer(eventDeserializer);
+        eventDeserializer.setEventDataDeserializer(EventType.PREVIOUS_GTIDS, new PreviousGtidsEventDataDeserializer());
+        // Don't deserialize the rows of tables that are excluded by the configuration ...
+        new RowsEventFilter(tableFilter).registerWith(eventDeserializer);
+
+        // Set up the log reader ...
+        if (offlineBinlogFiles != null) {
+            // Read binlog files from the local file system rather than from the MySQL server ...
+            List<Path> files = BinlogFileReader.findBinlogFiles(offlineBinlogFiles);
+            if (files.isEmpty()) {
+                throw new ConnectException("No binlog files were found in '" + offlineBinlogFiles + "'");
+            }
+            if (offlineBinlogChecksums) eventDeserializer.setChecksumType(ChecksumType.CRC32);
+            fileReader = new BinlogFileReader(files, eventDeserializer, event -> {
+                if (logger.isDebugEnabled()) logEvent(event);
+                enqueue(event);
+            });
+        } else {
+            client = new BinaryLogClient(host, port, user, password);
+            client.setServerId(serverId);
+            client.setKeepAlive(keepAlive);
+            if (logger.isDebugEnabled()) client.registerEventListener(this::logEvent);
+            client.registerEventListener(this::enqueue);
+            client.registerLifecycleListener(traceLifecycleListener());
+            client.setEventDeserializer(eventDeserializer);
+        }
 
         // Check if we've already processed some of the log for this database ...
         source.setServerName(serverName);
@@ -190,11 +295,29 @@ public void start(Map<String, String> props) {
         if (offsets != null) {
             source.setOffset(offsets);
             // And set the client to start from that point ...
-            client.setBinlogFilename(source.binlogFilename());
-            client.setBinlogPosition(source.binlogPosition());
-            // The event row number will be used when processing the first event ...
-            logger.info("Restarting MySQL connector '{}' from binlog file {}, position {}, and event row {}",
-                        serverName, source.binlogFilename(), source.binlogPosition(), source.eventRowNumber());
+            boolean resumeWithGtids = client != null && source.gtidSet() != null;
+            if (resumeWithGtids) {
+                // The GTID set identifies the same point on any server in the topology, unlike the binlog coordinates ...
+                client.setGtidSet(source.gtidSet());
+                logger.info("Restarting MySQL connector '{}' after GTID set {}, skipping {} events and {} rows",
+                            serverName, source.gtidSet(), source.eventsToSkip(), source.eventRowNumber());
+            } else {
+                if (client != null) {
+                    client.setBinlogFilename(source.binlogFilename());
+                    client.setBinlogPosition(source.binlogPosition());
+                }
+                logger.info("Restarting MySQL connector '{}' from binlog file {}, position {}, skipping {} events and {} rows",
+                            serverName, source.binlogFilename(), source.binlogPosition(), source.eventsToSkip(),
+                            source.eventRowNumber());
+            }
+            if (source.eventsToSkip() != 0 || source.eventRowNumber() != 0) {
+                // The events and rows after the position that were already processed will be skipped. When resuming with GTIDs,
+                // the server may have different binlog coordinates, so the position is that of the first transaction ...
+                restartOffset = new SourceOffset(resumeWithGtids ? null : source.binlogFilename(), source.binlogPosition(),
+                        source.eventsToSkip(), source.eventRowNumber(), source.gtidSet());
+                source.setEventsToSkip(0);
+                source.setRowInEvent(0);
+            }
 
             // We have to make our Tables reflect the state of the database at the above source partition (e.g., the location
             // in the MySQL log where we last stopped reading. Since the TableConverts writes out all DDL statements to the
@@ -204,26 +327,70 @@ public void start(Map<String, String> props) {
             try {
                 logger.info("Recovering MySQL connector '{}' database schemas from history stored in {}", serverName, dbHistory);
                 DdlParser ddlParser = new MySqlDdlParser();
-                dbHistory.recover(source.partition(), source.offset(), tables, ddlParser);
+                dbHistory.recover(source.partition(), SourceInfo.historyPosition(source.offset()), tables, ddlParser);
                 tableConverters.loadTables();
                 logger.debug("Recovered MySQL connector '{}' database schemas: {}", serverName, tables.subset(tableFilter));
             } catch (Throwable t) {
                 throw new ConnectException("Failure while recovering database schemas", t);
             }
+            if (resumeWithGtids) {
+                // The binlog coordinates will be those of the server we connect to, as given by its first ROTATE event ...
+                source.setBinlogFilename(null);
+            }
         } else {
             // initializes this position, though it will be reset when we see the first event (should be a rotate event) ...
-            client.setBinlogFilename(initialBinLogFilename);
+            if (client != null) client.setBinlogFilename(initialBinLogFilename);
             logger.info("Starting MySQL connector from beginning of binlog file {}, position {}",
                         source.binlogFilename(), source.binlogPosition());
         }
 
-        // Start the log reader, which starts background threads ...
+        if (fileReader != null) {
+            // Start reading the local binlog files, which starts a background thread ...
+            fileReader.start(offsets != null ? source.binlogFilename() : null, source.binlogPosition(),
+                             "mysql-binlog-file-reader-" + serverName);
+            return;
+        }
+
+        if (snapshotMode == SnapshotMode.INITIAL && (offsets == null || source.isSnapshotInEffect())) {
+            // Read the existing tables first, and then the binlog from the position at which the snapshot was started ...
+            if (offsets != null) logger.info("Restarting the incomplete snapshot of MySQL server '{}'", serverName);
+            snapshotReader = new SnapshotReader(config, tableFilter, topicSelector,
+                    config.getInteger(MySqlConnectorConfig.SNAPSHOT_THREADS),
+                    config.getInteger(MySqlConnectorConfig.SNAPSHOT_CHUNK_SIZE), maxQueueSize);
+            snapshotReader.start(source, tables, tableConverters);
+            client.setBinlogFilename(source.binlogFilename());
+            client.setBinlogPosition(source.binlogPosition());
+            client.setGtidSet(source.gtidSet());
+            return;
+        }
+        if (snapshotMode == SnapshotMode.INCREMENTAL && (offsets == null || source.snapshotTables() != null)) {
+            // Read the existing tables in chunks while reading the binlog ...
+            incrementalSnapshot = new IncrementalSnapshot(config, topicSelector,
+                    config.getInteger(MySqlConnectorConfig.INCREMENTAL_SNAPSHOT_CHUNK_SIZE));
+            if (offsets == null) {
+                incrementalSnapshot.start(source, tableFilter, tableConverters);
+                client.setBinlogFilename(source.binlogFilename());
+                client.setBinlogPosition(source.binlogPosition());
+                client.setGtidSet(source.gtidSet());
+            } else {
+                incrementalSnapshot.resume(source);
+                logger.info("Continuing the incremental snapshot of MySQL server '{}' with table {} after primary key {}",
+                            serverName, source.snapshotTables(), source.snapshotKey());
+            }
+        }
+        connect();
+    }
+
+    /**
+     * Connect the binlog client to the MySQL server, which starts reading the binlog on background threads.
+     */
+    private void connect() {
         try {
             logger.debug("Connecting to MySQL server");
-            client.connect(timeoutInMilliseconds);
+            client.connect(connectTimeoutMs);
             logger.debug("Successfully connected to MySQL server and beginning to read binlog");
         } catch (TimeoutException e) {
-            double seconds = TimeUnit.MILLISECONDS.toSeconds(timeoutInMilliseconds);
+            double seconds = TimeUnit.MILLISECONDS.toSeconds(connectTimeoutMs);
             throw new ConnectException("Timed out after " + seconds + " seconds while waiting to connect to the MySQL database at " + host
                     + ":" + port + " with user '" + user + "'", e);
         } catch (AuthenticationException e) {
@@ -237,49 +404,130 @@ public void start(Map<String, String> props) {
 
     @Override
     public List<SourceRecord> poll() throws InterruptedException {
+        if (snapshotReader != null) return pollSnapshot();
         logger.trace("Polling for events from MySQL server '{}'", serverName);
-        while (running.get() && (events.drainTo(batchEvents, maxBatchSize - batchEvents.size()) == 0 || batchEvents.isEmpty())) {
-            // No events to process, so sleep for a bit ...
-            metronome.pause();
+        List<SourceRecord> records = new ArrayList<>(maxBatchSize);
+        if (incompleteTransactionRecords != null) {
+            // Start with the records of the transaction that was not complete at the end of the previous batch ...
+            records.addAll(incompleteTransactionRecords);
+            incompleteTransactionRecords = null;
         }
-        logger.trace("Preparing {} events from MySQL server '{}'", events.size(), serverName);
-
-        // We have at least some records to process ...
-        List<SourceRecord> records = new ArrayList<>(batchEvents.size());
-        while (!batchEvents.isEmpty()) {
-            Event event = batchEvents.poll();
-            if (event == null) continue;
-
-            // Update the source offset info ...
-            EventHeader eventHeader = event.getHeader();
-            EventType eventType = eventHeader.getEventType();
-            if (eventType == EventType.ROTATE) {
-                EventData eventData = event.getData();
-                RotateEventData rotateEventData;
-                if (eventData instanceof EventDeserializer.EventDataWrapper) {
-                    rotateEventData = (RotateEventData) ((EventDeserializer.EventDataWrapper) eventData).getInternal();
+        if (incrementalSnapshot != null) incrementalSnapshot.readChunk(source, tables, tableConverters);
+        Consumer<SourceRecord> recorder = pipeline != null ? pipeline::record : records::add;
+        IntSupplier recordCount = pipeline != null ? () -> records.size() + pipeline.size() : records::size;
+        int recordsBeforeTransaction = 0;
+        boolean awaitingTransaction = false;
+        long transactionDeadline = 0L;
+        while (running.get()) {
+            while (running.get() && partialEvent == null && batchEvents.isEmpty()) {
+                if (events.drainTo(batchEvents, maxBatchSize) == 0) {
+                    if (transactionId == null && incrementalSnapshot != null && incrementalSnapshot.hasRecords(source)) {
+                        // Return the snapshot's records rather than waiting for events ...
+                        break;
+                    }
+                    if (transactionId == null && heartbeat != null && heartbeat.isDue(source)) {
+                        // Record the position of the events that produced no records rather than waiting for events ...
+                        break;
+                    }
+                    if (transactionBatching && transactionId != null) {
+                        // Wait up to the poll interval for the rest of the transaction, and then return its beginning ...
+                        if (!awaitingTransaction) {
+                            awaitingTransaction = true;
+                            transactionDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pollIntervalMs);
+                        } else if (System.nanoTime() - transactionDeadline >= 0) {
+                            break;
+                        }
+                    }
+                    // No events to process, so wait for a bit ...
+                    awaitEvents();
+                    if (batchEvents.isEmpty() && isFileReaderCompleted()) {
+                        // There will be no more events, so return rather than waiting forever ...
+                        break;
+                    }
+                }
+            }
+            logger.trace("Preparing {} events from MySQL server '{}'", events.size(), serverName);
+
+            // We have at least some records to process ...
+            while (recordCount.getAsInt() < maxBatchSize) {
+                QueuedEvent queued = partialEvent;
+                Event event;
+                EventHeader eventHeader;
+                EventType eventType;
+                EventKind kind = EventKind.STATEMENT;
+                boolean processedBeforeRestart = false;
+                if (queued != null) {
+                    // Continue with the rows remaining in the event that did not fit into the previous batch ...
+                    partialEvent = null;
+                    event = queued.event();
+                    eventHeader = event.getHeader();
+                    eventType = eventHeader.getEventType();
+                } else if ((queued = batchEvents.poll()) == null) {
+                    break;
                 } else {
-                    rotateEventData = (RotateEventData) eventData;
+                    event = queued.event();
+                    // Update the source offset info ...
+                    eventHeader = event.getHeader();
+                    eventType = eventHeader.getEventType();
+                    kind = updateSource(event, eventHeader, eventType);
+                    processedBeforeRestart = kind.isCounted() && restartOffset != null && isProcessedBeforeRestart(event);
                 }
-                source.setBinlogFilename(rotateEventData.getBinlogFilename());
-                source.setBinlogPosition(rotateEventData.getBinlogPosition());
-                source.setRowInEvent(0);
-            } else if (eventHeader instanceof EventHeaderV4) {
-                EventHeaderV4 trackableEventHeader = (EventHeaderV4) eventHeader;
-                long nextBinlogPosition = trackableEventHeader.getNextPosition();
-                if (nextBinlogPosition > 0) {
-                    source.setBinlogPosition(nextBinlogPosition);
-                    source.setRowInEvent(0);
+
+                if (!running.get()) break;
+
+                // If there is a handler for this event, forward the event to it ...
+                RowsEventHandler rowsHandler = rowsEventHandlers.get(eventType);
+                if (rowsHandler != null) {
+                    int recordsBefore = recordCount.getAsInt();
+                    int maxRows = maxBatchSize - recordsBefore;
+                    if (processedBeforeRestart) {
+                        logger.debug("Skipping rows event that was processed before the connector was restarted: {}", event);
+                    } else if (rowsHandler.handle(event, source, maxRows, recorder) > 0) {
+                        // The batch is full, so process the remaining rows in the next call ...
+                        transactionEventCount += recordCount.getAsInt() - recordsBefore;
+                        partialEvent = queued;
+                        break;
+                    }
+                    transactionEventCount += recordCount.getAsInt() - recordsBefore;
+                } else {
+                    EventHandler handler = eventHandlers.get(eventType);
+                    if (handler != null) {
+                        handler.handle(event, source, recorder);
+                    }
                 }
+                if (kind.isCounted()) source.completeEvent();
+                if (kind == EventKind.TRANSACTION_BEGIN) {
+                    if (transactionMarkers != null && !processedBeforeRestart) {
+                        recorder.accept(transactionMarkers.begin(source, transactionId));
+                    }
+                } else if (kind == EventKind.TRANSACTION_END) {
+                    if (transactionMarkers != null) {
+                        recorder.accept(transactionMarkers.end(source, transactionId, transactionEventCount));
+                    }
+                    transactionId = null;
+                }
+                queueMetrics.release(queued);
+                if (transactionId == null) recordsBeforeTransaction = recordCount.getAsInt();
             }
-            
-            if ( !running.get()) break;
-
-            // If there is a handler for this event, forward the event to it ...
-            EventHandler handler = eventHandlers.get(eventType);
-            if (handler != null) {
-                handler.handle(event, source, records::add);
+            if (pipeline != null && running.get()) {
+                // Wait for the conversions to complete, and collect the records in order. Conversions that produce no record
+                // (e.g., deletes in tables without primary keys) were counted, so find where the transaction begins ...
+                int drained = records.size();
+                int convertedBeforeTransaction = pipeline.drainTo(records::add, recordsBeforeTransaction - drained);
+                if (recordsBeforeTransaction > drained) recordsBeforeTransaction = drained + convertedBeforeTransaction;
             }
+            if (!transactionBatching || transactionId == null) break;
+            if (recordsBeforeTransaction > 0) {
+                // Return the complete transactions now, and the records of the incomplete transaction in the next call ...
+                List<SourceRecord> incomplete = records.subList(recordsBeforeTransaction, records.size());
+                incompleteTransactionRecords = new ArrayList<>(incomplete);
+                incomplete.clear();
+                break;
+            }
+            if (partialEvent != null || records.size() >= maxBatchSize) break; // the transaction doesn't fit into one batch
+            if (batchEvents.isEmpty() && isFileReaderCompleted()) break; // the files end within the transaction
+            if (awaitingTransaction && System.nanoTime() - transactionDeadline >= 0) break; // the rest of the transaction is late
+            // Otherwise, the batch contains only the beginning of a transaction, so wait for the rest of it ...
         }
         logger.trace("Completed processing {} events from MySQL server '{}'", serverName);
 
@@ -288,17 +536,240 @@ public List<SourceRecord> poll() throws InterruptedException {
             // so that no records get persisted if DB history has already been stopped ...
             return null;
         }
+        if (incrementalSnapshot != null && incompleteTransactionRecords == null && transactionId == null) {
+            // Add the snapshot's records after the binlog's records that supersede them. The snapshot's records have the current
+            // offset, so they are not added while the records of an incomplete transaction are held back for the next batch ...
+            incrementalSnapshot.process(records, source, maxBatchSize);
+            if (incrementalSnapshot.isComplete(source)) {
+                incrementalSnapshot.stop();
+                incrementalSnapshot = null;
+            }
+        }
+        if (heartbeat != null && incompleteTransactionRecords == null) {
+            // Ensure the offset advances even when none of the events produced records ...
+            heartbeat.process(records, source);
+        }
 
-        // We've processed them all, so clear the batch and return the records ...
-        assert batchEvents.isEmpty();
+        // Any events that did not fit into this batch will be processed in the next call ...
         return records;
     }
 
+    /**
+     * Get the next batch of records from the snapshot, and once the snapshot is complete start reading the binlog.
+     * 
+     * @return the records; null if the task is stopping
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    private List<SourceRecord> pollSnapshot() throws InterruptedException {
+        List<SourceRecord> records = new ArrayList<>(maxBatchSize);
+        while (running.get() && records.isEmpty()) {
+            if (snapshotReader.poll(records, maxBatchSize, pollIntervalMs)) {
+                snapshotReader.stop();
+                snapshotReader = null;
+                connect();
+                break;
+            }
+        }
+        return running.get() ? records : null;
+    }
+
+    /**
+     * The kinds of events that affect how the source position is tracked.
+     */
+    private static enum EventKind {
+        /**
+         * An event whose position is that of the event that follows it.
+         */
+        OTHER(false),
+        /**
+         * The event that begins a transaction, and whose position is that of the transaction.
+         */
+        TRANSACTION_BEGIN(true),
+        /**
+         * An event within a transaction or statement, which is counted relative to the position of the transaction or statement.
+         */
+        STATEMENT(true),
+        /**
+         * The event that ends a transaction, and whose position is that of the event that follows it.
+         */
+        TRANSACTION_END(false);
+
+        private final boolean counted;
+
+        private EventKind(boolean counted) {
+            this.counted = counted;
+        }
+
+        public boolean isCounted() {
+            return counted;
+        }
+    }
+
+    /**
+     * Update the source information with the position of the event that is about to be processed.
+     * <p>
+     * The events of a transaction are only consistent when read from the {@code GTID} event or, without GTIDs, from the
+     * {@code QUERY} event that begins the transaction, and the rows events of a statement can only be read after the statement's
+     * {@code TABLE_MAP} events. So the position of the transaction's beginning (or, outside of a transaction, of the first of
+     * these table maps) is the position from which the connector can restart. The events after that position are therefore
+     * counted as {@link SourceInfo#completeEvent() completed} relative to that position, so that they can be skipped upon
+     * restart. The position of every other event, including the {@code XID} or {@code COMMIT} event that ends a transaction, is
+     * the position of the event that follows it, and that is also when the transaction's GTID is added to the
+     * {@link SourceInfo#gtidSet() GTID set} of completed transactions.
+     * 
+     * @param event the event; never null
+     * @param eventHeader the event's header; never null
+     * @param eventType the event's type; never null
+     * @return the kind of event; never null
+     */
+    private EventKind updateSource(Event event, EventHeader eventHeader, EventType eventType) {
+        if (eventType == EventType.ROTATE) {
+            EventData eventData = event.getData();
+            RotateEventData rotateEventData;
+            if (eventData instanceof EventDeserializer.EventDataWrapper) {
+                rotateEventData = (RotateEventData) ((EventDeserializer.EventDataWrapper) eventData).getInternal();
+            } else {
+                rotateEventData = (RotateEventData) eventData;
+            }
+            if (!rotateEventData.getBinlogFilename().equals(source.binlogFilename())) {
+                source.setBinlogFilename(rotateEventData.getBinlogFilename());
+                source.setBinlogPosition(rotateEventData.getBinlogPosition());
+                source.setEventsToSkip(0);
+            }
+            // Otherwise we've (re)connected to the same file, and will continue from where we were ...
+            inTableMaps = false;
+            source.setRowInEvent(0);
+            return EventKind.OTHER;
+        }
+        if (!(eventHeader instanceof EventHeaderV4)) return EventKind.OTHER;
+        EventHeaderV4 trackableEventHeader = (EventHeaderV4) eventHeader;
+        long nextBinlogPosition = trackableEventHeader.getNextPosition();
+        if (nextBinlogPosition <= source.binlogPosition()) {
+            // An artificial event (e.g., a FORMAT_DESCRIPTION upon connecting) or a table map before the restart position ...
+            return EventKind.OTHER;
+        }
+        long binlogPosition = nextBinlogPosition - trackableEventHeader.getEventLength();
+        // The rows handlers start with this row, and record where to continue if the event doesn't fit into one batch ...
+        source.setRowInEvent(0);
+        if (eventType == EventType.PREVIOUS_GTIDS) {
+            // All transactions in the preceding binlog files are complete ...
+            source.completeTransactions(((PreviousGtidsEventData) event.getData()).getGtidSet());
+        } else if (eventType == EventType.GTID) {
+            // The GTID event precedes the rest of its transaction, so its position is that of the transaction ...
+            transactionGtid = ((GtidEventData) event.getData()).getGtid();
+            inTableMaps = false;
+            source.setBinlogPosition(binlogPosition);
+            source.setEventsToSkip(0);
+            return EventKind.STATEMENT;
+        } else if (eventType == EventType.QUERY) {
+            String sql = ((QueryEventData) event.getData()).getSql();
+            if ("BEGIN".equalsIgnoreCase(sql)) {
+                transactionId = transactionGtid != null ? transactionGtid : source.binlogFilename() + ":" + binlogPosition;
+                transactionEventCount = 0L;
+                inTableMaps = false;
+                if (transactionGtid == null) {
+                    source.setBinlogPosition(binlogPosition);
+                    source.setEventsToSkip(0);
+                }
+                return EventKind.TRANSACTION_BEGIN;
+            }
+            if (transactionId != null && ("COMMIT".equalsIgnoreCase(sql) || "ROLLBACK".equalsIgnoreCase(sql))) {
+                return endTransaction(nextBinlogPosition);
+            }
+        } else if (eventType == EventType.XID && transactionId != null) {
+            return endTransaction(nextBinlogPosition);
+        }
+        if (transactionId != null) {
+            // All other events in a transaction are counted relative to the transaction's beginning ...
+            return EventKind.STATEMENT;
+        }
+        if (eventType == EventType.TABLE_MAP) {
+            if (!inTableMaps) {
+                // This is the first table map of a statement ...
+                source.setBinlogPosition(binlogPosition);
+                source.setEventsToSkip(0);
+                inTableMaps = true;
+            }
+            return EventKind.STATEMENT;
+        }
+        inTableMaps = false;
+        if (ROWS_EVENT_TYPES.contains(eventType)) return EventKind.STATEMENT;
+        if (transactionGtid != null && eventType == EventType.QUERY) {
+            // A DDL statement is a transaction on its own ...
+            source.completeTransaction(transactionGtid);
+            transactionGtid = null;
+        }
+        source.setBinlogPosition(nextBinlogPosition);
+        source.setEventsToSkip(0);
+        return EventKind.OTHER;
+    }
+
+    private EventKind endTransaction(long nextBinlogPosition) {
+        inTableMaps = false;
+        if (transactionGtid != null) {
+            source.completeTransaction(transactionGtid);
+            transactionGtid = null;
+        }
+        source.setBinlogPosition(nextBinlogPosition);
+        source.setEventsToSkip(0);
+        return EventKind.TRANSACTION_END;
+    }
+
+    /**
+     * Determine whether the current event was completely processed before the connector was restarted, and if the event was
+     * partially processed then set the number of the first row that was not processed.
+     * 
+     * @param event the current event; never null
+     * @return {@code true} if the event was completely processed, or {@code false} otherwise
+     */
+    private boolean isProcessedBeforeRestart(Event event) {
+        if (restartOffset.binlogFilename() == null) {
+            // We resumed with GTIDs, so the server first sends the transaction that was partially processed ...
+            restartOffset = new SourceOffset(source.binlogFilename(), source.binlogPosition(), restartOffset.eventsToSkip(),
+                    restartOffset.eventRowNumber(), restartOffset.gtidSet());
+        }
+        if (source.binlogPosition() == restartOffset.binlogPosition()
+                && source.binlogFilename().equals(restartOffset.binlogFilename())) {
+            int eventNumber = source.eventsToSkip();
+            if (eventNumber < restartOffset.eventsToSkip()) {
+                transactionEventCount += rowCount(event);
+                return true;
+            }
+            if (eventNumber == restartOffset.eventsToSkip()) {
+                source.setRowInEvent(restartOffset.eventRowNumber());
+                transactionEventCount += restartOffset.eventRowNumber();
+            }
+        }
+        // Everything after this event has yet to be processed ...
+        restartOffset = null;
+        return false;
+    }
+
+    private static int rowCount(Event event) {
+        EventData data = event.getData();
+        if (data instanceof WriteRowsEventData) return ((WriteRowsEventData) data).getRows().size();
+        if (data instanceof UpdateRowsEventData) return ((UpdateRowsEventData) data).getRows().size();
+        if (data instanceof DeleteRowsEventData) return ((DeleteRowsEventData) data).getRows().size();
+        return 0;
+    }
+
     @Override
     public void stop() {
         try {
             // Signal to the 'poll()' method that it should stop what its doing ...
             this.running.set(false);
+            if (snapshotReader != null) snapshotReader.stop();
+            if (incrementalSnapshot != null) incrementalSnapshot.stop();
+
+            // Wake the binlog reader thread if it is waiting for the queued events to be released below the byte limit ...
+            if (queueMetrics != null) queueMetrics.close();
+            // Wake the binlog reader thread if it is waiting for room in the queue, by closing the ring buffer or by
+            // discarding the events in the deque (which will not be processed anyway) ...
+            if (events instanceof RingBuffer) {
+                ((RingBuffer<?>) events).close();
+            } else if (events != null) {
+                events.clear();
+            }
 
             // Flush and stop the database history ...
             logger.debug("Stopping database history for MySQL server '{}'", serverName);
@@ -307,15 +778,86 @@ public void stop() {
             logger.error("Unexpected error shutting down the database history", e);
         } finally {
             try {
-                logger.debug("Disconnecting from MySQL server '{}'", serverName);
-                client.disconnect();
+                if (fileReader != null) {
+                    logger.debug("Stopping reading binlog files for MySQL server '{}'", serverName);
+                    fileReader.stop();
+                } else {
+                    logger.debug("Disconnecting from MySQL server '{}'", serverName);
+                    client.disconnect();
+                }
                 logger.info("Stopped connector to MySQL server '{}'", serverName);
             } catch (IOException e) {
                 logger.error("Unexpected error when disconnecting from the MySQL binary log reader", e);
+            } finally {
+                if (pipeline != null) pipeline.shutdown();
             }
         }
     }
 
+    /**
+     * Determine whether all of the events in the offline binlog files have been read and processed. The first time this is found
+     * to be the case, a message is logged to report that the connector can be stopped.
+     * 
+     * @return {@code true} if the binlog is being read from offline files and all of their events have been processed, or
+     *         {@code false} otherwise
+     */
+    private boolean isFileReaderCompleted() {
+        // The reader completes after adding its last event to the queue ...
+        if (fileReader == null || !fileReader.isCompleted() || !events.isEmpty() || partialEvent != null) return false;
+        if (!fileReaderCompletionLogged) {
+            logger.info("Processed all events in the binlog files for MySQL server '{}'; the connector can now be stopped", serverName);
+            fileReaderCompletionLogged = true;
+        }
+        return true;
+    }
+
+    /**
+     * Wait for events to appear in the queue. When the task is to be woken up as soon as events arrive, this waits on the queue
+     * for up to the poll interval and moves any events that appear into the batch, lingering for more events if so configured;
+     * otherwise this simply pauses for the poll interval.
+     * 
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    private void awaitEvents() throws InterruptedException {
+        if (fileReader != null && fileReader.failure() != null) {
+            throw new ConnectException("Error while reading binlog files for MySQL server '" + serverName + "'", fileReader.failure());
+        }
+        if (!wakeOnEvents) {
+            metronome.pause();
+            return;
+        }
+        QueuedEvent queued = events.poll(pollIntervalMs, TimeUnit.MILLISECONDS);
+        if (queued == null) return;
+        batchEvents.add(queued);
+        events.drainTo(batchEvents, maxBatchSize - batchEvents.size());
+        if (lingerNanos > 0) {
+            // Wait a bit longer for more events, up to the linger time or the linger number of events ...
+            long deadline = System.nanoTime() + lingerNanos;
+            while (batchEvents.size() < lingerEvents && running.get()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) break;
+                queued = events.poll(remaining, TimeUnit.NANOSECONDS);
+                if (queued == null) break;
+                batchEvents.add(queued);
+                events.drainTo(batchEvents, maxBatchSize - batchEvents.size());
+            }
+        }
+    }
+
+    private static RingBuffer.WaitStrategy waitStrategyFor(EventQueueWaitStrategy strategy) {
+        switch (strategy) {
+            case BUSY_SPIN:
+                return RingBuffer.busySpin();
+            case YIELD:
+                return RingBuffer.yielding();
+            case PARK:
+                return RingBuffer.parking(50, TimeUnit.MICROSECONDS);
+            case BLOCKING:
+            default:
+                return RingBuffer.blocking();
+        }
+    }
+
     /**
      * Adds the event into the queue for subsequent batch processing.
      * 
@@ -323,15 +865,29 @@ public void stop() {
      */
     protected void enqueue(Event event) {
         if (event != null) {
+            beforeEnqueue.accept(event);
             try {
-                events.put(event);
+                events.put(queueMetrics.acquire(event));
             } catch (InterruptedException e) {
                 Thread.interrupted();
                 throw new ConnectException("Interrupted while waiting to add event to queue", e);
+            } catch (IllegalStateException e) {
+                // The ring buffer was closed because the task is stopping ...
+                logger.debug("Discarding event read after the connector to MySQL server '{}' was stopped: {}", serverName, event);
             }
         }
     }
 
+    /**
+     * Set the function that is called with each event read from the binary log before the event is added to the queue, on the
+     * thread that reads the binary log. This must be called before the task is started, and is intended only for testing.
+     * 
+     * @param beforeEnqueue the function; may not be null
+     */
+    void beforeEnqueue(Consumer<Event> beforeEnqueue) {
+        this.beforeEnqueue = beforeEnqueue;
+    }
+
     protected void logEvent(Event event) {
         logger.debug("Received event: " + event);
     }
@@ -375,4 +931,23 @@ public void onEventDeserializationFailure(BinaryLogClient client, Exception ex)
     protected static interface EventHandler {
         void handle(Event event, SourceInfo source, Consumer<SourceRecord> recorder);
     }
+
+    /**
+     * The functional interface for the handler methods of events that contain rows, which can be processed across several
+     * batches.
+     */
+    @FunctionalInterface
+    protected static interface RowsEventHandler {
+        /**
+         * Process at most {@code maxRows} of the rows in the event, starting with the {@link SourceInfo#eventRowNumber() row}
+         * in the source information.
+         * 
+         * @param event the event; never null
+         * @param source the source information; never null
+         * @param maxRows the maximum number of rows to process
+         * @param recorder the consumer of all source records; never null
+         * @return the number of rows that remain to be processed; 0 if the event has been completely processed
+         */
+        int handle(Event event, SourceInfo source, int maxRows, Consumer<SourceRecord> recorder);
+    }
 }
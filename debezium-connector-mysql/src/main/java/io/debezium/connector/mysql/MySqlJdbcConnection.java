@@ -0,0 +1,89 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import io.debezium.config.Configuration;
+import io.debezium.jdbc.JdbcConfiguration;
+import io.debezium.jdbc.JdbcConnection;
+import io.debezium.relational.TableId;
+
+/**
+ * A JDBC connection to the MySQL server, used to read the existing tables when the connector performs a snapshot.
+ *
+ * @author Randall Hauch
+ */
+public class MySqlJdbcConnection extends JdbcConnection {
+
+    /**
+     * The factory for connections to the server rather than to a single database, so that the metadata of all databases is
+     * available.
+     */
+    protected static final ConnectionFactory FACTORY = JdbcConnection.patternBasedFactory("jdbc:mysql://${hostname}:${port}/"
+            + "?useInformationSchema=true&nullCatalogMeansCurrent=false&zeroDateTimeBehavior=convertToNull");
+
+    /**
+     * Obtain a connection to the MySQL server described by the connector's configuration.
+     *
+     * @param config the connector configuration; may not be null
+     * @return the connection; never null
+     */
+    public static MySqlJdbcConnection forConnector(Configuration config) {
+        return new MySqlJdbcConnection(JdbcConfiguration.create()
+                                                        .withHostname(config.getString(MySqlConnectorConfig.HOSTNAME))
+                                                        .withPort(config.getInteger(MySqlConnectorConfig.PORT))
+                                                        .withUser(config.getString(MySqlConnectorConfig.USER))
+                                                        .withPassword(config.getString(MySqlConnectorConfig.PASSWORD))
+                                                        .build());
+    }
+
+    /**
+     * Create a statement whose result sets are streamed from the server one row at a time, rather than read entirely into memory
+     * by the MySQL JDBC driver.
+     *
+     * @param connection the JDBC connection; may not be null
+     * @return the statement; never null
+     * @throws SQLException if there is an error creating the statement
+     */
+    public static Statement streamingStatement(Connection connection) throws SQLException {
+        Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(Integer.MIN_VALUE);
+        return statement;
+    }
+
+    /**
+     * Get the fully-qualified and quoted name of the given table, for use in SQL statements.
+     *
+     * @param tableId the table identifier; may not be null
+     * @return the quoted name; never null
+     */
+    public static String quote(TableId tableId) {
+        return quote(tableId.catalog()) + "." + quote(tableId.table());
+    }
+
+    /**
+     * Quote the given database, table, or column name for use in SQL statements.
+     *
+     * @param name the name; may not be null
+     * @return the quoted name; never null
+     */
+    public static String quote(String name) {
+        return "`" + name.replace("`", "``") + "`";
+    }
+
+    /**
+     * Create a new connection with the given configuration.
+     *
+     * @param config the JDBC configuration; may not be null
+     */
+    public MySqlJdbcConnection(Configuration config) {
+        super(config, FACTORY);
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.slf4j.LoggerFactory;
+
+import io.debezium.annotation.ThreadSafe;
+import io.debezium.config.Configuration;
+import io.debezium.connector.mysql.MySqlConnectorConfig.PartitionStrategy;
+import io.debezium.relational.Column;
+import io.debezium.relational.Table;
+import io.debezium.relational.TableId;
+import io.debezium.util.MurmurHash3;
+
+/**
+ * A function that determines the Kafka partition of each record produced for the rows of a single table. Partitions are
+ * computed from the values of each row after they have been converted to the key, so that the records for the same key are
+ * always written to the same partition regardless of how the key is later serialized, and so that the rows read during a
+ * snapshot are written to the same partitions as the changes to those rows read from the binlog, even though the two sources
+ * return the column values as different Java types.
+ * 
+ * @author Randall Hauch
+ */
+@ThreadSafe
+@FunctionalInterface
+public interface PartitionSelector {
+
+    /**
+     * Get the partition for a record.
+     * 
+     * @param key the record's key, as created from the row; may be null if the table has no primary key
+     * @param row the values of the row's columns, in the order of the table's columns; never null
+     * @return the partition, or null if Kafka should assign the partition
+     */
+    Integer partition(Object key, Object[] row);
+
+    /**
+     * A function that creates the {@link PartitionSelector} for each table.
+     */
+    @FunctionalInterface
+    public static interface Factory {
+        /**
+         * Create the partition selector for the table with the given definition.
+         * 
+         * @param table the definition of the table; never null
+         * @return the partition selector; never null
+         */
+        PartitionSelector create(Table table);
+    }
+
+    /**
+     * Get the factory for the partition selectors defined by the supplied connector configuration.
+     * 
+     * @param config the connector configuration; may not be null
+     * @return the factory; never null
+     * @throws ConnectException if a column named in the configuration is not fully-qualified
+     * @see MySqlConnectorConfig#PARTITION_STRATEGY
+     */
+    static Factory factory(Configuration config) {
+        PartitionStrategy strategy = PartitionStrategy.parse(config.getString(MySqlConnectorConfig.PARTITION_STRATEGY));
+        if (strategy == null || strategy == PartitionStrategy.DEFAULT) return table -> none();
+        int partitions = config.getInteger(MySqlConnectorConfig.PARTITION_COUNT);
+        switch (strategy) {
+            case TABLE:
+                return table -> fixed(hash(table.id().toString()) % partitions);
+            case COLUMN:
+                Map<TableId, String> columnNames = new HashMap<>();
+                String columns = config.getString(MySqlConnectorConfig.PARTITION_COLUMNS);
+                if (columns != null) {
+                    for (String column : columns.split(",")) {
+                        int lastDot = column.trim().lastIndexOf('.');
+                        if (lastDot < 0) {
+                            throw new ConnectException("The column '" + column.trim() + "' in '" + MySqlConnectorConfig.PARTITION_COLUMNS
+                                    + "' must be fully-qualified");
+                        }
+                        columnNames.put(TableId.parse(column.trim().substring(0, lastDot)), column.trim().substring(lastDot + 1));
+                    }
+                }
+                return table -> {
+                    String name = columnNames.get(table.id());
+                    Column column = name != null ? table.columnWithName(name) : null;
+                    if (column == null) return keyHash(partitions);
+                    // Only the key columns are always in the row images of updates and deletes, so partitioning by any other
+                    // column could send the changes to a row to a different partition than the row itself ...
+                    if (!table.primaryKeyColumnNames().contains(column.name())) {
+                        LoggerFactory.getLogger(PartitionSelector.class)
+                                     .warn("The column '{}' in '{}' is not part of the primary key of table '{}', so its records "
+                                             + "will be assigned partitions from their primary keys", column.name(),
+                                           MySqlConnectorConfig.PARTITION_COLUMNS, table.id());
+                        return keyHash(partitions);
+                    }
+                    return columnModulo(column.name(), partitions);
+                };
+            default:
+                return table -> keyHash(partitions);
+        }
+    }
+
+    /**
+     * Get the partition selector that leaves the partition of every record for Kafka to assign.
+     * 
+     * @return the partition selector; never null
+     */
+    static PartitionSelector none() {
+        return (key, row) -> null;
+    }
+
+    /**
+     * Get the partition selector that assigns every record to the same partition.
+     * 
+     * @param partition the partition
+     * @return the partition selector; never null
+     */
+    static PartitionSelector fixed(int partition) {
+        Integer result = partition;
+        return (key, row) -> result;
+    }
+
+    /**
+     * Get the partition selector that assigns records using a hash of the values in the key.
+     * 
+     * @param partitions the number of partitions; must be positive
+     * @return the partition selector; never null
+     */
+    static PartitionSelector keyHash(int partitions) {
+        return (key, row) -> key != null ? hash(key) % partitions : null;
+    }
+
+    /**
+     * Get the partition selector that assigns records using the value of a numeric primary key column modulo the number of
+     * partitions. The value is taken from the key, where it has already been converted to the column's Kafka Connect type.
+     * Records whose column value is not a number are assigned using a hash of the value.
+     * 
+     * @param fieldName the name of the column's field in the key
+     * @param partitions the number of partitions; must be positive
+     * @return the partition selector; never null
+     */
+    static PartitionSelector columnModulo(String fieldName, int partitions) {
+        return (key, row) -> {
+            Struct struct = key instanceof Struct ? (Struct) key : null;
+            Object value = struct != null && struct.schema().field(fieldName) != null ? struct.get(fieldName) : null;
+            if (value instanceof Number && !(value instanceof BigDecimal)) {
+                return (int) Math.floorMod(((Number) value).longValue(), (long) partitions);
+            }
+            return hash(value) % partitions;
+        };
+    }
+
+    /**
+     * Compute a non-negative hash of the supplied value, which is the same on all platforms and in all JVMs. The hash of a
+     * {@link Struct} is computed from the values of all its fields, and integral numbers have the same hash regardless of their
+     * type.
+     * 
+     * @param value the value; may be null
+     * @return the non-negative hash
+     */
+    static int hash(Object value) {
+        if (value instanceof Struct) {
+            Struct struct = (Struct) value;
+            int hash = 0;
+            for (Field field : struct.schema().fields()) {
+                hash = MurmurHash3.mix(hash, hash(struct.get(field)));
+            }
+            return MurmurHash3.finish(hash, 4 * struct.schema().fields().size()) & Integer.MAX_VALUE;
+        }
+        int hash;
+        if (value == null) {
+            hash = 0;
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            hash = MurmurHash3.hash(((Number) value).longValue(), 0);
+        } else if (value instanceof Double || value instanceof Float) {
+            hash = MurmurHash3.hash(Double.doubleToLongBits(((Number) value).doubleValue()), 0);
+        } else if (value instanceof Boolean) {
+            hash = MurmurHash3.hash(((Boolean) value).booleanValue() ? 1L : 0L, 0);
+        } else if (value instanceof CharSequence) {
+            hash = MurmurHash3.hash((CharSequence) value, 0);
+        } else if (value instanceof byte[]) {
+            hash = MurmurHash3.hash((byte[]) value, 0);
+        } else if (value instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            hash = MurmurHash3.hash(bytes, 0);
+        } else if (value instanceof Date) {
+            hash = MurmurHash3.hash(((Date) value).getTime(), 0);
+        } else {
+            hash = MurmurHash3.hash(value.toString(), 0);
+        }
+        return hash & Integer.MAX_VALUE;
+    }
+}
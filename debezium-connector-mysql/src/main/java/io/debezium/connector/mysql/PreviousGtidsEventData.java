@@ -0,0 +1,38 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import com.github.shyiko.mysql.binlog.event.EventData;
+
+/**
+ * The data of the {@code PREVIOUS_GTIDS} event at the beginning of each binlog file, which contains the set of GTIDs of all
+ * transactions in the preceding binlog files.
+ * 
+ * @author Randall Hauch
+ */
+public class PreviousGtidsEventData implements EventData {
+    private static final long serialVersionUID = 1L;
+
+    private final String gtidSet;
+
+    public PreviousGtidsEventData(String gtidSet) {
+        this.gtidSet = gtidSet;
+    }
+
+    /**
+     * Get the string representation of the GTID set of all transactions in the preceding binlog files.
+     * 
+     * @return the GTID set; never null but possibly empty
+     */
+    public String getGtidSet() {
+        return gtidSet;
+    }
+
+    @Override
+    public String toString() {
+        return "PreviousGtidsEventData{gtidSet='" + gtidSet + "'}";
+    }
+}
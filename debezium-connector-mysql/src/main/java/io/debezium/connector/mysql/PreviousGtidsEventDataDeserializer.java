@@ -0,0 +1,47 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.io.IOException;
+
+import com.github.shyiko.mysql.binlog.event.deserialization.EventDataDeserializer;
+import com.github.shyiko.mysql.binlog.io.ByteArrayInputStream;
+
+/**
+ * The deserializer of {@code PREVIOUS_GTIDS} events, whose data is the number of source UUIDs followed by each 16-byte UUID, its
+ * number of intervals, and the start (inclusive) and end (exclusive) transaction numbers of each interval.
+ * 
+ * @author Randall Hauch
+ */
+public class PreviousGtidsEventDataDeserializer implements EventDataDeserializer<PreviousGtidsEventData> {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    @Override
+    public PreviousGtidsEventData deserialize(ByteArrayInputStream inputStream) throws IOException {
+        GtidSet gtidSet = new GtidSet();
+        long uuidCount = inputStream.readLong(8);
+        for (long i = 0; i != uuidCount; ++i) {
+            String uuid = formatUuid(inputStream.read(16));
+            long intervalCount = inputStream.readLong(8);
+            for (long j = 0; j != intervalCount; ++j) {
+                long start = inputStream.readLong(8);
+                long end = inputStream.readLong(8);
+                gtidSet.add(uuid, start, end - 1);
+            }
+        }
+        return new PreviousGtidsEventData(gtidSet.toString());
+    }
+
+    private static String formatUuid(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(36);
+        for (int i = 0; i != bytes.length; ++i) {
+            if (i == 4 || i == 6 || i == 8 || i == 10) sb.append('-');
+            sb.append(HEX_DIGITS[(bytes[i] >> 4) & 0xF]).append(HEX_DIGITS[bytes[i] & 0xF]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.SequenceInputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+import com.github.shyiko.mysql.binlog.event.DeleteRowsEventData;
+import com.github.shyiko.mysql.binlog.event.EventData;
+import com.github.shyiko.mysql.binlog.event.EventType;
+import com.github.shyiko.mysql.binlog.event.RotateEventData;
+import com.github.shyiko.mysql.binlog.event.TableMapEventData;
+import com.github.shyiko.mysql.binlog.event.UpdateRowsEventData;
+import com.github.shyiko.mysql.binlog.event.WriteRowsEventData;
+import com.github.shyiko.mysql.binlog.event.deserialization.DeleteRowsEventDataDeserializer;
+import com.github.shyiko.mysql.binlog.event.deserialization.EventDataDeserializer;
+import com.github.shyiko.mysql.binlog.event.deserialization.EventDeserializer;
+import com.github.shyiko.mysql.binlog.event.deserialization.RotateEventDataDeserializer;
+import com.github.shyiko.mysql.binlog.event.deserialization.TableMapEventDataDeserializer;
+import com.github.shyiko.mysql.binlog.event.deserialization.UpdateRowsEventDataDeserializer;
+import com.github.shyiko.mysql.binlog.event.deserialization.WriteRowsEventDataDeserializer;
+
+import io.debezium.annotation.NotThreadSafe;
+import io.debezium.relational.TableId;
+
+/**
+ * A set of event data deserializers that avoid deserializing the rows in the {@code WRITE_ROWS}, {@code UPDATE_ROWS}, and
+ * {@code DELETE_ROWS} events for tables that are excluded by the table filter. Each rows event begins with the numeric
+ * identifier of its table, so the deserializers read only that identifier and, when the table defined by the preceding
+ * {@code TABLE_MAP} event is excluded, return event data with no rows. The {@link EventDeserializer} then skips the remaining
+ * bytes of the event, so the event's header and the binlog position are unaffected. The rows of included tables are deserialized
+ * directly from the event's bytes in the binlog stream.
+ * <p>
+ * The table maps are forgotten upon each {@code ROTATE} event, since MySQL may assign the same number to different tables in
+ * different binlog files.
+ * <p>
+ * The deserializers are called on the thread that reads the binlog, so the table filter must be thread-safe and must depend only
+ * upon the connector's configuration.
+ *
+ * @author Randall Hauch
+ */
+@NotThreadSafe
+final class RowsEventFilter {
+
+    private static final int TABLE_NUMBER_LENGTH = 6;
+
+    private final Predicate<TableId> tableFilter;
+    private final Map<Long, TableMapEventData> tableMapsByTableNumber = new HashMap<>();
+    private final Set<Long> excludedTableNumbers = new HashSet<>();
+    private long lastTableNumber = -1L;
+    private boolean lastExcluded = false;
+
+    /**
+     * Create the deserializers that use the given table filter.
+     *
+     * @param tableFilter the thread-safe predicate that returns {@code true} for tables that are included; may not be null
+     */
+    public RowsEventFilter(Predicate<TableId> tableFilter) {
+        this.tableFilter = tableFilter;
+    }
+
+    /**
+     * Register the table map and rows event deserializers with the supplied event deserializer.
+     *
+     * @param eventDeserializer the event deserializer used to read the binlog; may not be null
+     */
+    public void registerWith(EventDeserializer eventDeserializer) {
+        RotateEventDataDeserializer rotates = new RotateEventDataDeserializer();
+        eventDeserializer.setEventDataDeserializer(EventType.ROTATE, (inputStream) -> {
+            RotateEventData rotate = rotates.deserialize(inputStream);
+            forgetTableMaps();
+            return rotate;
+        });
+        TableMapEventDataDeserializer tableMaps = new TableMapEventDataDeserializer();
+        eventDeserializer.setEventDataDeserializer(EventType.TABLE_MAP, (inputStream) -> {
+            TableMapEventData tableMap = tableMaps.deserialize(inputStream);
+            recordTableMap(tableMap);
+            return tableMap;
+        });
+        for (EventType type : new EventType[] { EventType.WRITE_ROWS, EventType.EXT_WRITE_ROWS }) {
+            WriteRowsEventDataDeserializer writes = new WriteRowsEventDataDeserializer(tableMapsByTableNumber)
+                    .setMayContainExtraInformation(type == EventType.EXT_WRITE_ROWS);
+            eventDeserializer.setEventDataDeserializer(type, filtering(writes, tableNumber -> {
+                WriteRowsEventData data = new WriteRowsEventData();
+                data.setTableId(tableNumber);
+                data.setRows(Collections.emptyList());
+                return data;
+            }));
+        }
+        for (EventType type : new EventType[] { EventType.UPDATE_ROWS, EventType.EXT_UPDATE_ROWS }) {
+            UpdateRowsEventDataDeserializer updates = new UpdateRowsEventDataDeserializer(tableMapsByTableNumber)
+                    .setMayContainExtraInformation(type == EventType.EXT_UPDATE_ROWS);
+            eventDeserializer.setEventDataDeserializer(type, filtering(updates, tableNumber -> {
+                UpdateRowsEventData data = new UpdateRowsEventData();
+                data.setTableId(tableNumber);
+                data.setRows(Collections.emptyList());
+                return data;
+            }));
+        }
+        for (EventType type : new EventType[] { EventType.DELETE_ROWS, EventType.EXT_DELETE_ROWS }) {
+            DeleteRowsEventDataDeserializer deletes = new DeleteRowsEventDataDeserializer(tableMapsByTableNumber)
+                    .setMayContainExtraInformation(type == EventType.EXT_DELETE_ROWS);
+            eventDeserializer.setEventDataDeserializer(type, filtering(deletes, tableNumber -> {
+                DeleteRowsEventData data = new DeleteRowsEventData();
+                data.setTableId(tableNumber);
+                data.setRows(Collections.emptyList());
+                return data;
+            }));
+        }
+    }
+
+    /**
+     * Record the table map event, and determine whether the table is excluded.
+     *
+     * @param tableMap the table map event data; may not be null
+     */
+    protected void recordTableMap(TableMapEventData tableMap) {
+        long tableNumber = tableMap.getTableId();
+        tableMapsByTableNumber.put(tableNumber, tableMap);
+        TableId tableId = new TableId(tableMap.getDatabase(), null, tableMap.getTable());
+        if (tableFilter.test(tableId)) {
+            excludedTableNumbers.remove(tableNumber);
+        } else {
+            excludedTableNumbers.add(tableNumber);
+        }
+        lastTableNumber = -1L; // table numbers may be reused after the logs are rotated
+    }
+
+    /**
+     * Forget all of the table map events, since the table numbers they define are only valid within a single binlog file. MySQL
+     * writes a {@code ROTATE} event at the end of each binlog file and sends one when a client starts reading a file, and the rows
+     * events in the next file are preceded by their own table map events.
+     */
+    protected void forgetTableMaps() {
+        tableMapsByTableNumber.clear();
+        excludedTableNumbers.clear();
+        lastTableNumber = -1L;
+    }
+
+    /**
+     * Determine whether the rows for the table with the given number are to be skipped.
+     *
+     * @param tableNumber the number of the table as defined by the most recent table map event
+     * @return {@code true} if the table is excluded, or {@code false} otherwise
+     */
+    protected boolean isExcluded(long tableNumber) {
+        if (tableNumber != lastTableNumber) {
+            // Most transactions affect only one table, so remember the last decision ...
+            lastExcluded = excludedTableNumbers.contains(tableNumber);
+            lastTableNumber = tableNumber;
+        }
+        return lastExcluded;
+    }
+
+    private <T extends EventData> EventDataDeserializer<T> filtering(EventDataDeserializer<T> delegate, LongFunction<T> skipped) {
+        return (inputStream) -> {
+            long tableNumber = inputStream.readLong(TABLE_NUMBER_LENGTH);
+            if (isExcluded(tableNumber)) {
+                // The remainder of the event's bytes are skipped by the EventDeserializer ...
+                return skipped.apply(tableNumber);
+            }
+            // Otherwise, deserialize the whole event including the table number we've already read ...
+            return delegate.deserialize(prepend(tableNumber, inputStream));
+        };
+    }
+
+    /**
+     * Create a stream that reads the table number that was already read, followed by the remaining bytes of the event directly
+     * from the supplied stream, without copying those bytes.
+     *
+     * @param tableNumber the table number that was read from the stream
+     * @param inputStream the stream positioned after the table number, and limited to the bytes of the event; may not be null
+     * @return the stream of the event's bytes; never null
+     * @throws IOException if there is a problem determining the number of bytes remaining in the event
+     */
+    private static com.github.shyiko.mysql.binlog.io.ByteArrayInputStream prepend(long tableNumber,
+                                                                                  com.github.shyiko.mysql.binlog.io.ByteArrayInputStream inputStream)
+            throws IOException {
+        byte[] bytes = new byte[TABLE_NUMBER_LENGTH];
+        for (int i = 0; i != TABLE_NUMBER_LENGTH; ++i) {
+            bytes[i] = (byte) (tableNumber >>> (8 * i)); // little-endian
+        }
+        int remaining = inputStream.available();
+        // The binlog library's stream shares the JDK stream's simple name, so it is always fully qualified here ...
+        com.github.shyiko.mysql.binlog.io.ByteArrayInputStream result = new com.github.shyiko.mysql.binlog.io.ByteArrayInputStream(
+                new SequenceInputStream(new ByteArrayInputStream(bytes), inputStream));
+        // Limit the stream to the event's bytes, since the rows deserializers read rows until none are available ...
+        result.enterBlock(TABLE_NUMBER_LENGTH + remaining);
+        return result;
+    }
+}
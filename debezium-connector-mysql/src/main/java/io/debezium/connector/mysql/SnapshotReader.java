@@ -0,0 +1,447 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.debezium.annotation.NotThreadSafe;
+import io.debezium.config.Configuration;
+import io.debezium.relational.Column;
+import io.debezium.relational.Table;
+import io.debezium.relational.TableId;
+import io.debezium.relational.TableSchema;
+import io.debezium.relational.Tables;
+
+/**
+ * A reader of all rows in the existing tables of the MySQL server, which produces a record for each row as if it were inserted.
+ * <p>
+ * The snapshot is consistent with the binlog position at which it starts. The reader briefly holds a global read lock while it
+ * reads the current binlog position and the definitions of the tables, and while it starts a consistent snapshot transaction on
+ * each of its connections. Each table with a single-column integer primary key is then split into chunks of primary key ranges,
+ * and the chunks of all tables are read concurrently by several threads, each using one of those connections and streaming the
+ * results. The rows are converted with the same {@link TableSchema}s that are used for rows read from the binlog, and the
+ * connector starts reading the binlog at the captured position once all rows have been returned.
+ * <p>
+ * The methods of this class must be called by a single thread (e.g., the connector task's thread), although the rows are read by
+ * the reader's own threads.
+ *
+ * @author Randall Hauch
+ */
+@NotThreadSafe
+final class SnapshotReader {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final Configuration config;
+    private final Predicate<TableId> tableFilter;
+    private final TopicSelector topicSelector;
+    private final int threads;
+    private final long chunkSize;
+    private final BlockingQueue<SourceRecord> records;
+    private final Queue<SourceRecord> schemaChangeRecords = new ArrayDeque<>();
+    private final Queue<Chunk> chunks = new ConcurrentLinkedQueue<>();
+    private final List<MySqlJdbcConnection> connections = new ArrayList<>();
+    private final AtomicInteger activeReaders = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private ExecutorService executor;
+    private Map<String, ?> completedOffset;
+    private SourceRecord lastRecord;
+
+    /**
+     * Create a snapshot reader.
+     *
+     * @param config the connector configuration; may not be null
+     * @param tableFilter the filter for the tables that are to be read; may not be null
+     * @param topicSelector the selector for topic names; may not be null
+     * @param threads the number of threads that read rows concurrently, each with its own connection; must be positive
+     * @param chunkSize the approximate number of rows in each chunk of a table; must be positive
+     * @param maxQueueSize the maximum number of records that have been read but not yet {@link #poll polled}; must be positive
+     */
+    public SnapshotReader(Configuration config, Predicate<TableId> tableFilter, TopicSelector topicSelector, int threads,
+            long chunkSize, int maxQueueSize) {
+        this.config = config;
+        this.tableFilter = tableFilter;
+        this.topicSelector = topicSelector;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+        this.records = new LinkedBlockingQueue<>(maxQueueSize);
+    }
+
+    /**
+     * Start the snapshot. This sets the source information to the binlog position at which the snapshot is consistent, applies the
+     * definitions of the existing tables to the table converters and records them in the database history, and then begins
+     * reading the rows of these tables on separate threads.
+     * <p>
+     * A global read lock is held until the definitions of all of the tables have been read, since {@code SHOW CREATE TABLE} reads
+     * the current definition rather than the one in the snapshot transactions. Releasing the lock any earlier would allow DDL
+     * that is in the binlog after the snapshot's position to also be reflected in the definitions. The lock is therefore held
+     * for a time proportional to the number of captured tables, but not while the rows are read.
+     *
+     * @param source the source information; may not be null
+     * @param tables the table definitions; may not be null
+     * @param converters the table converters; may not be null
+     * @throws ConnectException if the snapshot could not be started
+     */
+    public void start(SourceInfo source, Tables tables, TableConverters converters) {
+        String serverName = source.serverName();
+        running.set(true);
+        Tables definitions = new Tables();
+        Map<String, ?> snapshotOffset;
+        try (MySqlJdbcConnection lockConnection = MySqlJdbcConnection.forConnector(config)) {
+            // Prevent all writes while reading the binlog position, starting the snapshot transactions, and reading definitions ...
+            logger.info("Obtaining global read lock on MySQL server '{}' to start snapshot", serverName);
+            lockConnection.execute("FLUSH TABLES WITH READ LOCK");
+            long lockStart = System.currentTimeMillis();
+            try {
+                readBinlogPosition(lockConnection, source);
+                for (int i = 0; i != threads; ++i) {
+                    MySqlJdbcConnection connection = MySqlJdbcConnection.forConnector(config);
+                    connections.add(connection);
+                    Connection jdbc = connection.connection();
+                    jdbc.setAutoCommit(false);
+                    jdbc.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                    try (Statement statement = jdbc.createStatement()) {
+                        statement.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT");
+                    }
+                }
+                completedOffset = source.offset();
+                snapshotOffset = source.snapshotOffset();
+
+                // Read the definitions of the tables, and record their DDL so that the binlog can be read after the snapshot ...
+                readDefinitions(lockConnection, tableFilter, definitions, source, snapshotOffset, converters,
+                                schemaChangeRecords::add);
+            } finally {
+                lockConnection.execute("UNLOCK TABLES");
+                logger.info("Released global read lock on MySQL server '{}' after {} ms", serverName,
+                            System.currentTimeMillis() - lockStart);
+            }
+
+            // Split the tables into chunks, using the snapshot transaction of one of the connections ...
+            for (TableId tableId : sorted(definitions)) {
+                addChunks(connections.get(0), tableId, definitions.forTable(tableId), tables.forTable(tableId),
+                          converters.schemaFor(tableId), converters.partitionSelectorFor(tableId), serverName);
+            }
+        } catch (SQLException e) {
+            stop();
+            throw new ConnectException("Unable to start the snapshot of MySQL server '" + serverName + "'", e);
+        } catch (RuntimeException e) {
+            stop();
+            throw e;
+        }
+        logger.info("Reading {} chunks of {} tables from MySQL server '{}' using {} threads, starting binlog file {}, position {}",
+                    chunks.size(), definitions.size(), serverName, connections.size(), source.binlogFilename(),
+                    source.binlogPosition());
+
+        // Read the chunks on separate threads ...
+        Map<String, ?> partition = source.partition();
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(connections.size(), runnable -> {
+            Thread thread = new Thread(runnable, "mysql-snapshot-" + serverName + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        activeReaders.set(connections.size());
+        connections.forEach(connection -> executor.execute(() -> readChunks(connection, partition, snapshotOffset)));
+        executor.shutdown();
+    }
+
+    /**
+     * Add to the batch the records that have been read, waiting up to the given time for the first record.
+     *
+     * @param batch the batch of records; may not be null
+     * @param maxRecords the maximum size of the batch
+     * @param timeoutMs the maximum time in milliseconds to wait for a record
+     * @return {@code true} if all of the snapshot's records have been added to batches, or {@code false} otherwise
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * @throws ConnectException if there was an error reading the rows
+     */
+    public boolean poll(List<SourceRecord> batch, int maxRecords, long timeoutMs) throws InterruptedException {
+        // The most recent record is held back, since the last record of the snapshot must have the completed offset ...
+        if (lastRecord == null) lastRecord = next(timeoutMs);
+        SourceRecord record;
+        while (lastRecord != null && batch.size() < maxRecords && (record = next(0)) != null) {
+            batch.add(lastRecord);
+            lastRecord = record;
+        }
+        boolean allRead = activeReaders.get() == 0 && records.isEmpty();
+        Throwable error = failure.get();
+        if (error != null) {
+            throw new ConnectException("Error while reading the snapshot: " + error.getMessage(), error);
+        }
+        if (!allRead) return false;
+        if (lastRecord != null) {
+            if (batch.size() >= maxRecords) return false;
+            batch.add(new SourceRecord(lastRecord.sourcePartition(), completedOffset, lastRecord.topic(),
+                    lastRecord.kafkaPartition(), lastRecord.keySchema(), lastRecord.key(),
+                    lastRecord.valueSchema(), lastRecord.value()));
+            lastRecord = null;
+        }
+        logger.info("Completed snapshot");
+        return true;
+    }
+
+    /**
+     * Stop reading rows, and close all connections.
+     */
+    public void stop() {
+        running.set(false);
+        if (executor != null) {
+            // Interrupt any reader blocked on a full queue; each reader closes its own connection ...
+            executor.shutdownNow();
+        } else {
+            connections.forEach(this::close);
+        }
+    }
+
+    private SourceRecord next(long timeoutMs) throws InterruptedException {
+        SourceRecord record = schemaChangeRecords.poll();
+        return record != null ? record : records.poll(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Set the source information to the current binlog position of the MySQL server, and add the GTIDs of the transactions that
+     * have been executed to its GTID set. The server must not allow writes while this is called if the position is to be
+     * consistent with a snapshot.
+     *
+     * @param connection the connection to the MySQL server; may not be null
+     * @param source the source information; may not be null
+     * @throws SQLException if there is an error reading the binlog position
+     * @throws ConnectException if binary logging is not enabled
+     */
+    static void readBinlogPosition(MySqlJdbcConnection connection, SourceInfo source) throws SQLException {
+        connection.query("SHOW MASTER STATUS", Connection::createStatement, rs -> {
+            if (!rs.next()) {
+                throw new ConnectException("Unable to read the binlog position; binary logging must be enabled on the MySQL server");
+            }
+            source.setBinlogFilename(rs.getString(1));
+            source.setBinlogPosition(rs.getLong(2));
+            source.setEventsToSkip(0);
+            source.setRowInEvent(0);
+            if (rs.getMetaData().getColumnCount() > 4) {
+                String gtids = rs.getString(5);
+                if (gtids != null && !gtids.trim().isEmpty()) source.completeTransactions(gtids);
+            }
+        });
+    }
+
+    /**
+     * Read the definitions of the tables that are to be captured, and apply the DDL of each table to the table converters so that
+     * it is also recorded in the database history. The server must not allow schema changes while this is called.
+     *
+     * @param connection the connection to the MySQL server; may not be null
+     * @param tableFilter the filter for the tables that are to be read; may not be null
+     * @param definitions the table definitions as read from the database metadata; may not be null
+     * @param source the source information; may not be null
+     * @param offset the offset at which the DDL is recorded; may not be null
+     * @param converters the table converters; may not be null
+     * @param schemaChangeRecorder the function that is called with each schema change record; may not be null
+     * @throws SQLException if there is an error reading the definitions
+     */
+    static void readDefinitions(MySqlJdbcConnection connection, Predicate<TableId> tableFilter, Tables definitions,
+                                SourceInfo source, Map<String, ?> offset, TableConverters converters,
+                                Consumer<SourceRecord> schemaChangeRecorder)
+            throws SQLException {
+        connection.connect().readSchema(definitions, null, null,
+                                        (catalog, schema, table) -> tableFilter.test(new TableId(catalog, schema, table)), null);
+        for (TableId tableId : sorted(definitions)) {
+            connection.query("SHOW CREATE TABLE " + MySqlJdbcConnection.quote(tableId), Connection::createStatement, rs -> {
+                if (rs.next()) {
+                    converters.applyDdl(source, offset, tableId.catalog(), rs.getString(2), schemaChangeRecorder);
+                }
+            });
+        }
+    }
+
+    private void addChunks(MySqlJdbcConnection connection, TableId tableId, Table definition, Table table, TableSchema schema,
+                           PartitionSelector partitionSelector, String serverName)
+            throws SQLException {
+        if (table == null || schema == null) {
+            logger.debug("Skipping snapshot of {}, which has no table definition (e.g., it is a view)", tableId);
+            return;
+        }
+        String topic = topicSelector.getTopic(serverName, tableId.catalog(), tableId.table());
+        String select = "SELECT " + table.columns().stream().map(column -> MySqlJdbcConnection.quote(column.name()))
+                                         .collect(Collectors.joining(", "))
+                + " FROM " + MySqlJdbcConnection.quote(tableId);
+        int columnCount = table.columns().size();
+        List<String> pkColumnNames = definition.primaryKeyColumnNames();
+        Column pkColumn = pkColumnNames.size() == 1 ? definition.columnWithName(pkColumnNames.get(0)) : null;
+        if (pkColumn == null || !isInteger(pkColumn.jdbcType())) {
+            // The table can only be read as a single chunk ...
+            chunks.add(new Chunk(tableId, topic, schema, partitionSelector, columnCount, select));
+            return;
+        }
+        String pk = MySqlJdbcConnection.quote(pkColumn.name());
+        long[] bounds = new long[2];
+        AtomicBoolean splittable = new AtomicBoolean();
+        connection.query("SELECT MIN(" + pk + "), MAX(" + pk + ") FROM " + MySqlJdbcConnection.quote(tableId),
+                         Connection::createStatement, rs -> {
+                             if (rs.next() && rs.getObject(1) != null && !(rs.getObject(2) instanceof BigInteger)) {
+                                 bounds[0] = rs.getLong(1);
+                                 bounds[1] = rs.getLong(2);
+                                 splittable.set(true);
+                             }
+                         });
+        if (!splittable.get()) {
+            // The table is empty, or its keys are too large to be split ...
+            chunks.add(new Chunk(tableId, topic, schema, partitionSelector, columnCount, select));
+            return;
+        }
+        long[] estimatedRows = new long[1];
+        connection.query("SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = " + literal(tableId.catalog())
+                + " AND TABLE_NAME = " + literal(tableId.table()), Connection::createStatement, rs -> {
+                    if (rs.next()) estimatedRows[0] = rs.getLong(1);
+                });
+        for (long[] range : chunkRanges(bounds[0], bounds[1], estimatedRows[0], chunkSize)) {
+            chunks.add(new Chunk(tableId, topic, schema, partitionSelector, columnCount,
+                    select + " WHERE " + pk + " BETWEEN " + range[0] + " AND " + range[1]));
+        }
+    }
+
+    private void readChunks(MySqlJdbcConnection connection, Map<String, ?> partition, Map<String, ?> offset) {
+        try {
+            Chunk chunk;
+            while (running.get() && (chunk = chunks.poll()) != null) {
+                logger.debug("Reading chunk of {}: {}", chunk.tableId, chunk.sql);
+                read(connection, chunk, partition, offset);
+            }
+        } catch (Throwable t) {
+            if (running.get()) {
+                logger.error("Error while reading the snapshot", t);
+                failure.compareAndSet(null, t);
+            }
+        } finally {
+            close(connection);
+            activeReaders.decrementAndGet();
+        }
+    }
+
+    private void read(MySqlJdbcConnection connection, Chunk chunk, Map<String, ?> partition, Map<String, ?> offset)
+            throws SQLException {
+        TableSchema schema = chunk.schema;
+        connection.query(chunk.sql, MySqlJdbcConnection::streamingStatement, rs -> {
+            while (running.get() && rs.next()) {
+                Object[] row = new Object[chunk.columnCount];
+                for (int i = 0; i != row.length; ++i) {
+                    row[i] = rs.getObject(i + 1);
+                }
+                Object key = schema.keyFromColumnData(row);
+                Struct value = schema.valueFromColumnData(row);
+                Integer kafkaPartition = chunk.partitionSelector.partition(key, row);
+                enqueue(new SourceRecord(partition, offset, chunk.topic, kafkaPartition, schema.keySchema(), key, schema.valueSchema(),
+                        value));
+            }
+        });
+    }
+
+    private void enqueue(SourceRecord record) {
+        try {
+            records.put(record);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectException("Interrupted while waiting to add snapshot record to queue", e);
+        }
+    }
+
+    private void close(MySqlJdbcConnection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.warn("Error while closing snapshot connection", e);
+        }
+    }
+
+    static List<TableId> sorted(Tables tables) {
+        List<TableId> tableIds = new ArrayList<>(tables.tableIds());
+        tableIds.sort(Comparator.comparing(TableId::toString));
+        return tableIds;
+    }
+
+    private static boolean isInteger(int jdbcType) {
+        return jdbcType == Types.TINYINT || jdbcType == Types.SMALLINT || jdbcType == Types.INTEGER || jdbcType == Types.BIGINT;
+    }
+
+    private static String literal(String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "''") + "'";
+    }
+
+    /**
+     * Split the range of primary keys into contiguous and inclusive ranges that each contain about the given number of rows,
+     * assuming the rows are evenly distributed.
+     *
+     * @param min the smallest primary key
+     * @param max the largest primary key
+     * @param estimatedRows the estimated number of rows in the table
+     * @param chunkSize the desired number of rows in each range; must be positive
+     * @return the ranges, each with an inclusive start and end; never null or empty
+     */
+    static List<long[]> chunkRanges(long min, long max, long estimatedRows, long chunkSize) {
+        List<long[]> ranges = new ArrayList<>();
+        long chunkCount = estimatedRows <= chunkSize ? 1 : (estimatedRows + chunkSize - 1) / chunkSize;
+        long step = Math.max(1L, (long) Math.ceil(((double) max - (double) min + 1.0d) / chunkCount));
+        long start = min;
+        while (true) {
+            long end = start + step - 1;
+            if (end < start || end >= max) {
+                // This is the last range (and the computation may have overflowed) ...
+                ranges.add(new long[] { start, max });
+                return ranges;
+            }
+            ranges.add(new long[] { start, end });
+            start = end + 1;
+        }
+    }
+
+    /**
+     * A range of rows of a single table that are read with a single query.
+     */
+    private static final class Chunk {
+        protected final TableId tableId;
+        protected final String topic;
+        protected final TableSchema schema;
+        protected final PartitionSelector partitionSelector;
+        protected final int columnCount;
+        protected final String sql;
+
+        protected Chunk(TableId tableId, String topic, TableSchema schema, PartitionSelector partitionSelector, int columnCount,
+                String sql) {
+            this.tableId = tableId;
+            this.topic = topic;
+            this.schema = schema;
+            this.partitionSelector = partitionSelector;
+            this.columnCount = columnCount;
+            this.sql = sql;
+        }
+    }
+}
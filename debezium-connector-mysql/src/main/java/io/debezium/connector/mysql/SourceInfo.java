@@ -5,6 +5,7 @@
  */
 package io.debezium.connector.mysql;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.kafka.connect.errors.ConnectException;
@@ -33,9 +34,35 @@
  * {
  *     "file" = "mysql-bin.000003",
  *     "pos" = 105586,
- *     "row" = 0
+ *     "event" = 2,
+ *     "row" = 1500,
+ *     "gtids" = "3e11fa47-71ca-11e1-9e33-c80aa9429562:1-5"
  * }
  * </pre>
+ * <p>
+ * The position is always one at which reading the binary log can be restarted. Since the rows events within a transaction can
+ * only be read after the {@code TABLE_MAP} events that precede them, the position of a record produced from a rows event is that
+ * of the first {@code TABLE_MAP} event of the statement. The "event" parameter is then the number of events after that position
+ * that have been completely processed, and the "row" parameter is the number of rows in the next event that have been processed.
+ * Upon restart, these events and rows can be skipped so that no records are produced more than once.
+ * <p>
+ * When the MySQL server uses global transaction identifiers (GTIDs), the "gtids" parameter is the set of GTIDs of the transactions
+ * that have been completely processed. Unlike the binlog coordinates, this set identifies the same point on every server in the
+ * replication topology, so the connector can use it to restart from another server (e.g., after a failover). The parameter is
+ * omitted when no GTIDs have been seen.
+ * <p>
+ * The records produced while {@link #snapshotOffset() snapshotting} the existing tables have an additional "snapshot" parameter,
+ * and their position is that of the binlog at the time the snapshot was started. A restart with such an offset means that the
+ * snapshot did not complete.
+ * <p>
+ * While an incremental snapshot is in progress, the offset of every record also includes the progress of that snapshot: the
+ * "snapshot_tables" parameter is the JSON array of the tables that have yet to be completely read, each given as an array of
+ * its database and table names, and the "snapshot_key" parameter is the JSON array of the primary key values of the last row of
+ * the first of those tables that has been read. Upon restart, the incremental snapshot continues with the rows after that key.
+ * <p>
+ * The DDL statements recorded in the database history have a {@link #historyPosition(Map) position} with only the "file", "pos",
+ * "event", and "row" parameters, and the history is recovered up to the same kind of position. The positions in the history are
+ * compared with one another as documents, which must therefore always have the same parameters.
  * 
  * @author Randall Hauch
  */
@@ -45,13 +72,25 @@ final class SourceInfo {
     public static final String SERVER_PARTITION_KEY = "server";
     public static final String BINLOG_FILENAME_OFFSET_KEY = "file";
     public static final String BINLOG_POSITION_OFFSET_KEY = "pos";
+    public static final String BINLOG_EVENTS_TO_SKIP_OFFSET_KEY = "event";
     public static final String BINLOG_EVENT_ROW_NUMBER_OFFSET_KEY = "row";
+    public static final String GTID_SET_OFFSET_KEY = "gtids";
+    public static final String SNAPSHOT_KEY = "snapshot";
+    public static final String SNAPSHOT_TABLES_OFFSET_KEY = "snapshot_tables";
+    public static final String SNAPSHOT_KEY_OFFSET_KEY = "snapshot_key";
 
     private String binlogFilename;
     private long binlogPosition = 4;
+    private int eventsToSkip = 0;
     private int eventRowNumber = 0;
+    private GtidSet gtidSet;
+    private String gtids;
+    private boolean snapshotInEffect = false;
+    private String snapshotTables;
+    private String snapshotKey;
     private String serverName;
     private Map<String, String> sourcePartition;
+    private SourceOffset lastOffset;
 
     public SourceInfo() {
     }
@@ -82,21 +121,60 @@ public Map<String, String> partition() {
     /**
      * Get the Kafka Connect detail about the source "offset", which describes the position within the source where we last
      * have last read.
+     * <p>
+     * The resulting map is immutable, and the same instance is returned until the position changes.
      * 
-     * @return a copy of the current offset; never null
+     * @return the immutable representation of the current offset; never null
      */
     public Map<String, ?> offset() {
-        return Collect.hashMapOf(BINLOG_FILENAME_OFFSET_KEY, binlogFilename,
-                                 BINLOG_POSITION_OFFSET_KEY, binlogPosition,
-                                 BINLOG_EVENT_ROW_NUMBER_OFFSET_KEY, eventRowNumber);
+        SourceOffset offset = lastOffset;
+        String gtids = gtidSet();
+        if (offset == null
+                || !offset.isAt(binlogFilename, binlogPosition, eventsToSkip, eventRowNumber, gtids, snapshotTables, snapshotKey)) {
+            offset = new SourceOffset(binlogFilename, binlogPosition, eventsToSkip, eventRowNumber, gtids, snapshotTables,
+                    snapshotKey);
+            lastOffset = offset;
+        }
+        return offset;
+    }
+
+    /**
+     * Get the Kafka Connect detail about the source "offset" of the records produced by a snapshot, which is the current
+     * {@link #offset() offset} with the additional "snapshot" parameter.
+     * 
+     * @return the representation of the snapshot offset; never null
+     */
+    public Map<String, ?> snapshotOffset() {
+        Map<String, Object> offset = new HashMap<>(offset());
+        offset.put(SNAPSHOT_KEY, Boolean.TRUE);
+        return offset;
+    }
+
+    /**
+     * Get the position in the database history for the given offset, which contains only the binlog coordinates of the offset
+     * without any of the optional parameters (e.g., "snapshot" or "gtids"). All positions in the history must have the same
+     * parameters, since positions with different numbers of parameters can not be compared.
+     * 
+     * @param offset the source offset; may not be null
+     * @return the position with only the "file", "pos", "event", and "row" parameters; never null
+     */
+    public static Map<String, ?> historyPosition(Map<String, ?> offset) {
+        if (offset instanceof SourceOffset) {
+            SourceOffset sourceOffset = (SourceOffset) offset;
+            return new SourceOffset(sourceOffset.binlogFilename(), sourceOffset.binlogPosition(), sourceOffset.eventsToSkip(),
+                    sourceOffset.eventRowNumber(), null);
+        }
+        return new SourceOffset((String) offset.get(BINLOG_FILENAME_OFFSET_KEY), longOffsetValue(offset, BINLOG_POSITION_OFFSET_KEY),
+                (int) longOffsetValue(offset, BINLOG_EVENTS_TO_SKIP_OFFSET_KEY),
+                (int) longOffsetValue(offset, BINLOG_EVENT_ROW_NUMBER_OFFSET_KEY), null);
     }
 
     /**
-     * Set the current row number within a given event, and then get the Kafka Connect detail about the source "offset", which
-     * describes the position within the source where we have last read.
+     * Set the number of rows within the current event that have been processed, and then get the Kafka Connect detail about the
+     * source "offset", which describes the position within the source where we have last read.
      * 
-     * @param eventRowNumber the 0-based row number within the last event that was successfully processed
-     * @return a copy of the current offset; never null
+     * @param eventRowNumber the number of rows within the current event that have been successfully processed
+     * @return the immutable representation of the current offset; never null
      */
     public Map<String, ?> offset(int eventRowNumber) {
         setRowInEvent(eventRowNumber);
@@ -122,17 +200,78 @@ public void setBinlogPosition(long binlogPosition) {
     }
 
     /**
-     * Set the index of the row within the event appearing at the {@link #binlogPosition() position} within the
-     * {@link #binlogFilename() binary log file}.
+     * Set the number of rows within the current event that have been processed, which is also the 0-based number of the next row
+     * in the event to be processed.
      * 
-     * @param rowNumber the 0-based row number
+     * @param rowNumber the number of rows that have been processed
      */
     public void setRowInEvent(int rowNumber) {
         this.eventRowNumber = rowNumber;
     }
 
+    /**
+     * Set the number of events after the {@link #binlogPosition() position} that have been completely processed.
+     * 
+     * @param eventsToSkip the number of events
+     */
+    public void setEventsToSkip(int eventsToSkip) {
+        this.eventsToSkip = eventsToSkip;
+    }
+
+    /**
+     * Record that the current event has been completely processed. This increments the number of {@link #eventsToSkip() events
+     * to skip} and resets the {@link #eventRowNumber() row number}.
+     */
+    public void completeEvent() {
+        ++this.eventsToSkip;
+        this.eventRowNumber = 0;
+    }
+
+    /**
+     * Record that the transaction with the given GTID has been completely processed.
+     * 
+     * @param gtid the GTID of the transaction, in the form "{@code <source-uuid>:<transaction-number>}"; may not be null
+     */
+    public void completeTransaction(String gtid) {
+        if (gtidSet == null) gtidSet = new GtidSet();
+        if (gtidSet.add(gtid)) {
+            // The string form is computed only when the next offset is needed ...
+            gtids = null;
+        }
+    }
+
+    /**
+     * Record that all of the transactions in the given GTID set have been completely processed, such as those in the binlog files
+     * that precede the one being read.
+     * 
+     * @param gtidSet the string representation of the GTID set; may not be null
+     */
+    public void completeTransactions(String gtidSet) {
+        GtidSet completed = GtidSet.parse(gtidSet);
+        if (completed.isEmpty()) return;
+        if (this.gtidSet == null) this.gtidSet = new GtidSet();
+        this.gtidSet.addAll(completed);
+        this.gtids = null;
+    }
+
+    /**
+     * Set the progress of the incremental snapshot, which is included in all subsequent offsets.
+     * 
+     * @param snapshotTables the JSON array of the tables that have yet to be completely read; may be null if the
+     *            incremental snapshot is complete
+     * @param snapshotKey the JSON array of the primary key values of the last row of the first table that has been read; may be
+     *            null if no rows of that table have been read
+     */
+    public void setSnapshotProgress(String snapshotTables, String snapshotKey) {
+        this.snapshotTables = snapshotTables;
+        this.snapshotKey = snapshotTables != null ? snapshotKey : null;
+    }
+
     /**
      * Set the source offset, as read from Kafka Connect. This method does nothing if the supplied map is null.
+     * <p>
+     * Offsets recorded by earlier versions of the connector have no "event" parameter, and their position is that of the event
+     * following the one with the recorded row. Since such a row number does not apply to the event at the position, it is ignored.
      * 
      * @param sourceOffset the previously-recorded Kafka Connect source offset
      * @throws ConnectException if any offset parameter values are missing, invalid, or of the wrong type
@@ -145,11 +284,26 @@ public void setOffset(Map<String, ?> sourceOffset) {
                 throw new ConnectException("Source offset '" + BINLOG_FILENAME_OFFSET_KEY + "' parameter is missing");
             }
             binlogPosition = longOffsetValue(sourceOffset, BINLOG_POSITION_OFFSET_KEY);
-            eventRowNumber = (int) longOffsetValue(sourceOffset, BINLOG_EVENT_ROW_NUMBER_OFFSET_KEY);
+            if (sourceOffset.containsKey(BINLOG_EVENTS_TO_SKIP_OFFSET_KEY)) {
+                eventsToSkip = (int) longOffsetValue(sourceOffset, BINLOG_EVENTS_TO_SKIP_OFFSET_KEY);
+                eventRowNumber = (int) longOffsetValue(sourceOffset, BINLOG_EVENT_ROW_NUMBER_OFFSET_KEY);
+            } else {
+                eventsToSkip = 0;
+                eventRowNumber = 0;
+            }
+            snapshotInEffect = Boolean.parseBoolean(String.valueOf(sourceOffset.get(SNAPSHOT_KEY)));
+            setSnapshotProgress((String) sourceOffset.get(SNAPSHOT_TABLES_OFFSET_KEY), (String) sourceOffset.get(SNAPSHOT_KEY_OFFSET_KEY));
+            gtids = (String) sourceOffset.get(GTID_SET_OFFSET_KEY);
+            try {
+                gtidSet = gtids != null ? GtidSet.parse(gtids) : null;
+            } catch (IllegalArgumentException e) {
+                throw new ConnectException("Source offset '" + GTID_SET_OFFSET_KEY + "' parameter value " + gtids
+                        + " is not a valid GTID set", e);
+            }
         }
     }
 
-    private long longOffsetValue(Map<String, ?> values, String key) {
+    private static long longOffsetValue(Map<String, ?> values, String key) {
         Object obj = values.get(key);
         if (obj == null) return 0;
         if (obj instanceof Number) return ((Number) obj).longValue();
@@ -179,15 +333,60 @@ public long binlogPosition() {
     }
 
     /**
-     * Get the row within the event at the {@link #binlogPosition() position} within the {@link #binlogFilename() binary log file}
-     * .
+     * Get the number of events after the {@link #binlogPosition() position} that have been completely processed.
      * 
-     * @return the 0-based row number
+     * @return the number of events
+     */
+    public int eventsToSkip() {
+        return eventsToSkip;
+    }
+
+    /**
+     * Get the number of rows that have been processed in the event that follows the {@link #eventsToSkip() completed events}.
+     * 
+     * @return the number of rows, which is also the 0-based number of the next row to be processed
      */
     public int eventRowNumber() {
         return eventRowNumber;
     }
+
+    /**
+     * Get the string representation of the set of GTIDs of the transactions that have been completely processed.
+     * 
+     * @return the GTID set in the same form used by MySQL; null if no GTIDs have been seen
+     */
+    public String gtidSet() {
+        if (gtids == null && gtidSet != null) gtids = gtidSet.toString();
+        return gtids;
+    }
     
+    /**
+     * Determine whether the {@link #setOffset(Map) offset} was recorded by a snapshot that did not complete.
+     * 
+     * @return {@code true} if the offset was recorded during a snapshot, or {@code false} otherwise
+     */
+    public boolean isSnapshotInEffect() {
+        return snapshotInEffect;
+    }
+
+    /**
+     * Get the tables that have yet to be completely read by the incremental snapshot.
+     * 
+     * @return the JSON array of the tables; null if there is no incremental snapshot in progress
+     */
+    public String snapshotTables() {
+        return snapshotTables;
+    }
+
+    /**
+     * Get the primary key of the last row read by the incremental snapshot from the first of the {@link #snapshotTables() tables}.
+     * 
+     * @return the JSON array of the primary key values; null if no rows of that table have been read
+     */
+    public String snapshotKey() {
+        return snapshotKey;
+    }
+
     /**
      * Get the logical identifier of the database that is the source of the events.
      * @return the database name; null if it has not been {@link #setServerName(String) set}
@@ -0,0 +1,225 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import io.debezium.annotation.Immutable;
+
+/**
+ * An immutable and compact representation of a {@link SourceInfo#offset() source offset}, which stores the binlog position as
+ * primitive fields and that shares the binlog filename with all other offsets in the same file. This class implements the
+ * {@link java.util.Map} contract required by Kafka Connect, but values are boxed only when they are actually read (e.g., when
+ * Kafka Connect serializes the most recent offset), so creating an offset for each record produces very little garbage.
+ * 
+ * @author Randall Hauch
+ */
+@Immutable
+final class SourceOffset extends AbstractMap<String, Object> {
+
+    private static final String[] KEYS = { SourceInfo.BINLOG_FILENAME_OFFSET_KEY,
+            SourceInfo.BINLOG_POSITION_OFFSET_KEY,
+            SourceInfo.BINLOG_EVENTS_TO_SKIP_OFFSET_KEY,
+            SourceInfo.BINLOG_EVENT_ROW_NUMBER_OFFSET_KEY,
+            SourceInfo.GTID_SET_OFFSET_KEY,
+            SourceInfo.SNAPSHOT_TABLES_OFFSET_KEY,
+            SourceInfo.SNAPSHOT_KEY_OFFSET_KEY };
+
+    /**
+     * The number of keys that are always present; the values of the others are optional and omitted when null.
+     */
+    private static final int REQUIRED_KEY_COUNT = 4;
+
+    private final String binlogFilename;
+    private final long binlogPosition;
+    private final int eventsToSkip;
+    private final int eventRowNumber;
+    private final String gtidSet;
+    private final String snapshotTables;
+    private final String snapshotKey;
+
+    /**
+     * Create a new offset.
+     * 
+     * @param binlogFilename the name of the binary log file
+     * @param binlogPosition the position within the binary log file
+     * @param eventsToSkip the number of events after the position that have been completely processed
+     * @param eventRowNumber the number of rows that have been processed in the next event
+     * @param gtidSet the string representation of the GTID set of the completed transactions; may be null if the server does not
+     *            use GTIDs
+     */
+    public SourceOffset(String binlogFilename, long binlogPosition, int eventsToSkip, int eventRowNumber, String gtidSet) {
+        this(binlogFilename, binlogPosition, eventsToSkip, eventRowNumber, gtidSet, null, null);
+    }
+
+    /**
+     * Create a new offset that includes the progress of an incremental snapshot.
+     * 
+     * @param binlogFilename the name of the binary log file
+     * @param binlogPosition the position within the binary log file
+     * @param eventsToSkip the number of events after the position that have been completely processed
+     * @param eventRowNumber the number of rows that have been processed in the next event
+     * @param gtidSet the string representation of the GTID set of the completed transactions; may be null if the server does not
+     *            use GTIDs
+     * @param snapshotTables the tables that have yet to be completely read by the incremental snapshot; may be null if there is
+     *            no incremental snapshot in progress
+     * @param snapshotKey the primary key of the last row of the first of those tables that has been read; may be null if no rows
+     *            of that table have been read
+     */
+    public SourceOffset(String binlogFilename, long binlogPosition, int eventsToSkip, int eventRowNumber, String gtidSet,
+            String snapshotTables, String snapshotKey) {
+        this.binlogFilename = binlogFilename;
+        this.binlogPosition = binlogPosition;
+        this.eventsToSkip = eventsToSkip;
+        this.eventRowNumber = eventRowNumber;
+        this.gtidSet = gtidSet;
+        this.snapshotTables = snapshotTables;
+        this.snapshotKey = snapshotKey;
+    }
+
+    /**
+     * Determine whether this offset represents the given position.
+     * 
+     * @param binlogFilename the name of the binary log file
+     * @param binlogPosition the position within the binary log file
+     * @param eventsToSkip the number of events after the position that have been completely processed
+     * @param eventRowNumber the number of rows that have been processed in the next event
+     * @param gtidSet the string representation of the GTID set of the completed transactions; may be null
+     * @param snapshotTables the tables that have yet to be completely read by the incremental snapshot; may be null
+     * @param snapshotKey the primary key of the last row that has been read by the incremental snapshot; may be null
+     * @return {@code true} if this offset has the same values, or {@code false} otherwise
+     */
+    public boolean isAt(String binlogFilename, long binlogPosition, int eventsToSkip, int eventRowNumber, String gtidSet,
+                        String snapshotTables, String snapshotKey) {
+        return this.binlogPosition == binlogPosition && this.eventRowNumber == eventRowNumber && this.eventsToSkip == eventsToSkip
+                && Objects.equals(this.binlogFilename, binlogFilename) && Objects.equals(this.gtidSet, gtidSet)
+                && Objects.equals(this.snapshotTables, snapshotTables) && Objects.equals(this.snapshotKey, snapshotKey);
+    }
+
+    public String binlogFilename() {
+        return binlogFilename;
+    }
+
+    public long binlogPosition() {
+        return binlogPosition;
+    }
+
+    public int eventsToSkip() {
+        return eventsToSkip;
+    }
+
+    public int eventRowNumber() {
+        return eventRowNumber;
+    }
+
+    public String gtidSet() {
+        return gtidSet;
+    }
+
+    public String snapshotTables() {
+        return snapshotTables;
+    }
+
+    public String snapshotKey() {
+        return snapshotKey;
+    }
+
+    @Override
+    public int size() {
+        int size = REQUIRED_KEY_COUNT;
+        if (gtidSet != null) ++size;
+        if (snapshotTables != null) ++size;
+        if (snapshotKey != null) ++size;
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : valueAt(index);
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i != KEYS.length; ++i) {
+            if (KEYS[i].equals(key)) return isPresent(i) ? i : -1;
+        }
+        return -1;
+    }
+
+    private boolean isPresent(int index) {
+        return index < REQUIRED_KEY_COUNT || valueAt(index) != null;
+    }
+
+    private Object valueAt(int index) {
+        switch (index) {
+            case 0:
+                return binlogFilename;
+            case 1:
+                return Long.valueOf(binlogPosition);
+            case 2:
+                return Integer.valueOf(eventsToSkip);
+            case 3:
+                return Integer.valueOf(eventRowNumber);
+            case 4:
+                return gtidSet;
+            case 5:
+                return snapshotTables;
+            case 6:
+                return snapshotKey;
+            default:
+                throw new NoSuchElementException();
+        }
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public int size() {
+                return SourceOffset.this.size();
+            }
+
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    private int index = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        // Skip the optional keys that have no value ...
+                        while (index < KEYS.length && !isPresent(index)) {
+                            ++index;
+                        }
+                        return index < KEYS.length;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        Entry<String, Object> entry = new SimpleImmutableEntry<>(KEYS[index], valueAt(index));
+                        ++index;
+                        return entry;
+                    }
+                };
+            }
+        };
+    }
+}
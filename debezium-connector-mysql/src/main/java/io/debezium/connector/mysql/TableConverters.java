@@ -16,6 +16,7 @@
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.Struct;
@@ -32,6 +33,7 @@
 import com.github.shyiko.mysql.binlog.event.WriteRowsEventData;
 
 import io.debezium.annotation.NotThreadSafe;
+import io.debezium.connector.mysql.MySqlConnectorConfig.UpdateFormat;
 import io.debezium.relational.Table;
 import io.debezium.relational.TableId;
 import io.debezium.relational.TableSchema;
@@ -41,6 +43,7 @@
 import io.debezium.relational.history.HistoryRecord;
 import io.debezium.text.ParsingException;
 import io.debezium.util.Collect;
+import io.debezium.util.LongMap;
 
 /**
  * @author Randall Hauch
@@ -54,37 +57,58 @@ final class TableConverters {
     private final TopicSelector topicSelector;
     private final MySqlDdlParser ddlParser;
     private final Tables tables;
-    private final TableSchemaBuilder schemaBuilder = new TableSchemaBuilder();
+    private final TableSchemaBuilder schemaBuilder;
     private final Map<TableId, TableSchema> tableSchemaByTableId = new HashMap<>();
-    private final Map<Long, Converter> convertersByTableId = new HashMap<>();
-    private final Map<String, Long> tableNumbersByTableName = new HashMap<>();
+    private final Map<TableId, Table> schemaDefinitionByTableId = new HashMap<>();
+    private final Map<TableId, PartitionSelector> partitionSelectorByTableId = new HashMap<>();
+    private final LongMap<Converter> convertersByTableId = new LongMap<>();
+    private final Map<TableId, Long> tableNumbersByTableId = new HashMap<>();
+    private final Map<String, Map<String, Converter>> convertersByDatabaseName = new HashMap<>();
     private final boolean recordSchemaChangesInSourceRecords;
     private final Predicate<TableId> tableFilter;
-    private final Set<String> ignoredQueryStatements = Collect.unmodifiableSet("BEGIN", "END", "FLUSH PRIVILEGES");
+    private final Set<String> ignoredQueryStatements = Collect.unmodifiableSet("BEGIN", "END", "COMMIT", "ROLLBACK", "FLUSH PRIVILEGES");
     private final Set<TableId> unknownTableIds = new HashSet<>();
+    private final ConversionPipeline pipeline;
+    private final PartitionSelector.Factory partitionSelectors;
+    private final UpdateFormat updateFormat;
 
-    public TableConverters(TopicSelector topicSelector, DatabaseHistory dbHistory,
-            boolean recordSchemaChangesInSourceRecords, Tables tables,
-            Predicate<TableId> tableFilter) {
+    /**
+     * Create the table converters.
+     * 
+     * @param topicSelector the selector for topic names; may not be null
+     * @param dbHistory the database history; may not be null
+     * @param tables the table definitions; may not be null
+     * @param options the optional settings; may be null if the {@link Options#create() defaults} are to be used
+     */
+    public TableConverters(TopicSelector topicSelector, DatabaseHistory dbHistory, Tables tables, Options options) {
         Objects.requireNonNull(topicSelector, "A topic selector is required");
         Objects.requireNonNull(dbHistory, "Database history storage is required");
         Objects.requireNonNull(tables, "A Tables object is required");
+        if (options == null) options = Options.create();
         this.topicSelector = topicSelector;
         this.dbHistory = dbHistory;
         this.tables = tables;
         this.ddlParser = new MySqlDdlParser(false); // don't include views
-        this.recordSchemaChangesInSourceRecords = recordSchemaChangesInSourceRecords;
+        this.recordSchemaChangesInSourceRecords = options.recordSchemaChanges;
         Predicate<TableId> knownTables = (id) -> !unknownTableIds.contains(id); // known if not unknown
-        this.tableFilter = tableFilter != null ? tableFilter.and(knownTables) : knownTables;
+        this.tableFilter = options.tableFilter != null ? options.tableFilter.and(knownTables) : knownTables;
+        this.pipeline = options.pipeline;
+        this.partitionSelectors = options.partitionSelectors != null ? options.partitionSelectors : table -> PartitionSelector.none();
+        this.updateFormat = options.updateFormat != null ? options.updateFormat : UpdateFormat.AFTER;
+        this.schemaBuilder = options.schemaBuilder != null ? options.schemaBuilder : new TableSchemaBuilder();
     }
 
+    /**
+     * Prepare to use the table definitions, such as after they have been recovered from the database history. The
+     * {@link TableSchema} of each table is built only when it is {@link #schemaFor(TableId) first needed}, which for most
+     * tables is when the first row event for the table is read, so tables that see no changes never have schemas built.
+     */
     public void loadTables() {
-        // Create TableSchema instances for any existing table ...
-        this.tables.tableIds().forEach(id -> {
-            Table table = this.tables.forTable(id);
-            TableSchema schema = schemaBuilder.create(table);
-            tableSchemaByTableId.put(id, schema);
-        });
+        // Discard any schemas built from previous definitions; the schemas of the tables are built as they are needed ...
+        schemaDefinitionByTableId.values().forEach(schemaBuilder::release);
+        schemaDefinitionByTableId.clear();
+        tableSchemaByTableId.clear();
+        partitionSelectorByTableId.clear();
     }
 
     public void rotateLogs(Event event, SourceInfo source, Consumer<SourceRecord> recorder) {
@@ -93,8 +117,10 @@ public void rotateLogs(Event event, SourceInfo source, Consumer<SourceRecord> re
         if (command != null) {
             // The logs are being rotated, which means the server was either restarted, or the binlog has transitioned to a new
             // file. In either case, the table numbers will change, so we need to discard the cache of converters by the table IDs
-            // (e.g., the Map<Long,Converter>). Note, however, that we're NOT clearing out the Map<TableId,TableSchema>.
+            // (e.g., the LongMap<Converter>). Note, however, that we're NOT clearing out the Map<TableId,TableSchema> or the
+            // converters cached by table name, which are simply bound to the new table numbers as they are seen.
             convertersByTableId.clear();
+            tableNumbersByTableId.clear();
         }
     }
 
@@ -104,6 +130,21 @@ public void updateTableCommand(Event event, SourceInfo source, Consumer<SourceRe
         String ddlStatements = command.getSql();
         if (ignoredQueryStatements.contains(ddlStatements)) return;
         logger.debug("Received update table command: {}", event);
+        applyDdl(source, source.offset(), databaseName, ddlStatements, recorder);
+    }
+
+    /**
+     * Apply the supplied DDL statements to the table definitions, record them in the database history, and update the schemas
+     * of the affected tables.
+     * 
+     * @param source the source information; never null
+     * @param offset the offset at which the statements apply; never null
+     * @param databaseName the name of the database to which the statements apply; may be null
+     * @param ddlStatements the DDL statements; never null
+     * @param recorder the consumer of any schema change records; never null
+     */
+    public void applyDdl(SourceInfo source, Map<String, ?> offset, String databaseName, String ddlStatements,
+                         Consumer<SourceRecord> recorder) {
         try {
             this.ddlParser.setCurrentSchema(databaseName);
             this.ddlParser.parse(ddlStatements, tables);
@@ -111,28 +152,79 @@ public void updateTableCommand(Event event, SourceInfo source, Consumer<SourceRe
             logger.error("Error parsing DDL statement and updating tables: {}", ddlStatements, e);
         } finally {
             // Record the DDL statement so that we can later recover them if needed ...
-            dbHistory.record(source.partition(), source.offset(), databaseName, tables, ddlStatements);
+            Map<String, ?> position = SourceInfo.historyPosition(offset);
+            dbHistory.record(source.partition(), position, databaseName, tables, ddlStatements);
 
             if (recordSchemaChangesInSourceRecords) {
                 String serverName = source.serverName();
                 String topicName = topicSelector.getTopic(serverName);
-                HistoryRecord historyRecord = new HistoryRecord(source.partition(), source.offset(), databaseName, ddlStatements);
-                recorder.accept(new SourceRecord(source.partition(), source.offset(), topicName, 0,
+                HistoryRecord historyRecord = new HistoryRecord(source.partition(), position, databaseName, ddlStatements);
+                recorder.accept(new SourceRecord(source.partition(), offset, topicName, 0,
                         Schema.STRING_SCHEMA, databaseName, Schema.STRING_SCHEMA, historyRecord.document().toString()));
             }
         }
 
-        // Figure out what changed ...
+        // Figure out what changed, and discard the schemas of those tables so they are rebuilt when next needed ...
         Set<TableId> changes = tables.drainChanges();
         changes.forEach(tableId -> {
+            discardSchema(tableId);
+            partitionSelectorByTableId.remove(tableId);
+            if (tables.forTable(tableId) == null) { // removed
+                Map<String, Converter> convertersByTableName = convertersByDatabaseName.get(tableId.catalog());
+                if (convertersByTableName != null) convertersByTableName.remove(tableId.table());
+            }
+        });
+    }
+
+    /**
+     * Get the schema for the rows of the given table, as built from the table's current definition. The schema is built the
+     * first time it is needed after the table's definition changes, and the same instance is returned until the definition
+     * changes again.
+     * 
+     * @param tableId the identifier of the table; may not be null
+     * @return the table's schema, or null if the table is not known
+     */
+    public TableSchema schemaFor(TableId tableId) {
+        TableSchema schema = tableSchemaByTableId.get(tableId);
+        if (schema == null) {
             Table table = tables.forTable(tableId);
-            if (table == null) { // removed
-                tableSchemaByTableId.remove(tableId);
-            } else {
-                TableSchema schema = schemaBuilder.create(table);
+            if (table != null) {
+                schema = schemaBuilder.create(table);
                 tableSchemaByTableId.put(tableId, schema);
+                schemaDefinitionByTableId.put(tableId, table);
             }
-        });
+        }
+        return schema;
+    }
+
+    /**
+     * Discard the schema of the given table, and release it so that the builder no longer keeps the fields and converters
+     * of the table's previous structure when no other table uses them.
+     * 
+     * @param tableId the identifier of the table; may not be null
+     */
+    private void discardSchema(TableId tableId) {
+        tableSchemaByTableId.remove(tableId);
+        Table definition = schemaDefinitionByTableId.remove(tableId);
+        if (definition != null) schemaBuilder.release(definition);
+    }
+
+    /**
+     * Get the selector of the Kafka partitions for the records of the given table, as created from the table's current
+     * definition.
+     * 
+     * @param tableId the identifier of the table; may not be null
+     * @return the table's partition selector; never null
+     */
+    public PartitionSelector partitionSelectorFor(TableId tableId) {
+        PartitionSelector selector = partitionSelectorByTableId.get(tableId);
+        if (selector == null) {
+            Table table = tables.forTable(tableId);
+            if (table == null) return PartitionSelector.none();
+            selector = partitionSelectors.create(table);
+            partitionSelectorByTableId.put(tableId, selector);
+        }
+        return selector;
     }
 
     /**
@@ -156,87 +248,132 @@ public void updateTableMetadata(Event event, SourceInfo source, Consumer<SourceR
         long tableNumber = metadata.getTableId();
         logger.debug("Received update table metadata event: {}", event);
         if (!convertersByTableId.containsKey(tableNumber)) {
-            // We haven't seen this table ID, so we need to rebuild our converter functions ...
-            String serverName = source.serverName();
+            // We haven't seen this table ID, so look for the converter we last used for the table ...
             String databaseName = metadata.getDatabase();
             String tableName = metadata.getTable();
-            String topicName = topicSelector.getTopic(serverName, databaseName, tableName);
-
-            // Just get the current schema, which should be up-to-date ...
-            TableId tableId = new TableId(databaseName, null, tableName);
-            TableSchema tableSchema = tableSchemaByTableId.get(tableId);
-            logger.debug("Registering metadata for table {} with table #{}", tableId, tableNumber);
-            if (tableSchema == null) {
-                // We are seeing an event for a row that's in a table we don't know about, meaning the table
-                // was created before the binlog was enabled (or before the point we started reading it).
-                if (unknownTableIds.add(tableId)) {
-                    logger.warn("Transaction affects rows in {}, for which no metadata exists. All subsequent changes to rows in this table will be ignored.",
-                                tableId);
-                }
+            Map<String, Converter> convertersByTableName = convertersByDatabaseName.computeIfAbsent(databaseName, name -> new HashMap<>());
+            Converter converter = convertersByTableName.get(tableName);
+            if (converter == null || converter.tableSchema() != schemaFor(converter.tableId())) {
+                // The table is new or its schema has changed, so we need to rebuild our converter functions ...
+                TableId tableId = converter != null ? converter.tableId() : new TableId(databaseName, null, tableName);
+                converter = createConverter(source.serverName(), tableId);
+                convertersByTableName.put(tableName, converter);
             }
-            // Generate this table's insert, update, and delete converters ...
-            Converter converter = new Converter() {
-                @Override
-                public TableId tableId() {
-                    return tableId;
+            logger.debug("Registering metadata for table {} with table #{}", converter.tableId(), tableNumber);
+            convertersByTableId.put(tableNumber, converter);
+            Long previousTableNumber = tableNumbersByTableId.put(converter.tableId(), tableNumber);
+            if (previousTableNumber != null && previousTableNumber.longValue() != tableNumber) {
+                // Discard the table's old number, unless that number has since been reused for another table ...
+                Converter previous = convertersByTableId.get(previousTableNumber.longValue());
+                if (previous != null && previous.tableId().equals(converter.tableId())) {
+                    convertersByTableId.remove(previousTableNumber.longValue());
                 }
+            }
+        } else if (logger.isDebugEnabled()) {
+            logger.debug("Skipping update table metadata event: {}", event);
+        }
+    }
 
-                @Override
-                public String topic() {
-                    return topicName;
-                }
+    /**
+     * Get the converter registered for the given table number.
+     * 
+     * @param tableNumber the number of the table in the binlog
+     * @return the converter, or null if no converter is registered for the table number
+     */
+    Converter converterFor(long tableNumber) {
+        return convertersByTableId.get(tableNumber);
+    }
 
-                @Override
-                public Integer partition() {
-                    return null;
-                }
+    private Converter createConverter(String serverName, TableId tableId) {
+        String topicName = topicSelector.getTopic(serverName, tableId.catalog(), tableId.table());
+
+        // Just get the current schema, which should be up-to-date ...
+        TableSchema tableSchema = schemaFor(tableId);
+        PartitionSelector partitionSelector = partitionSelectorFor(tableId);
+        if (tableSchema == null) {
+            // We are seeing an event for a row that's in a table we don't know about, meaning the table
+            // was created before the binlog was enabled (or before the point we started reading it).
+            if (unknownTableIds.add(tableId)) {
+                logger.warn("Transaction affects rows in {}, for which no metadata exists. All subsequent changes to rows in this table will be ignored.",
+                            tableId);
+            }
+        }
+        // Determine the positions of the primary key columns, which the update formatter always keeps in the changes format ...
+        Table table = tables.forTable(tableId);
+        int[] keyIndexes = table == null ? new int[0]
+                : table.primaryKeyColumnNames().stream().mapToInt(name -> table.columnWithName(name).position() - 1).toArray();
+        int columnCount = table == null ? 0 : table.columns().size();
+        UpdateFormatter updateFormatter = UpdateFormatter.create(updateFormat, tableSchema, keyIndexes, columnCount);
+        // Generate this table's insert, update, and delete converters ...
+        return new Converter() {
+            @Override
+            public TableId tableId() {
+                return tableId;
+            }
 
-                @Override
-                public Schema keySchema() {
-                    return tableSchema.keySchema();
-                }
+            @Override
+            public String topic() {
+                return topicName;
+            }
 
-                @Override
-                public Schema valueSchema() {
-                    return tableSchema.valueSchema();
-                }
+            @Override
+            public TableSchema tableSchema() {
+                return tableSchema;
+            }
 
-                @Override
-                public Object createKey(Serializable[] row, BitSet includedColumns) {
-                    // assume all columns in the table are included ...
-                    return tableSchema.keyFromColumnData(row);
-                }
+            @Override
+            public Integer partition(Object key, Serializable[] row, BitSet includedColumns) {
+                return partitionSelector.partition(key, completeRow(row, includedColumns, columnCount));
+            }
 
-                @Override
-                public Struct inserted(Serializable[] row, BitSet includedColumns) {
-                    // assume all columns in the table are included ...
-                    return tableSchema.valueFromColumnData(row);
-                }
+            @Override
+            public Schema keySchema() {
+                return tableSchema.keySchema();
+            }
 
-                @Override
-                public Struct updated(Serializable[] before, BitSet includedColumns, Serializable[] after,
-                                      BitSet includedColumnsBeforeUpdate) {
-                    // assume all columns in the table are included, and we'll write out only the after state ...
-                    return tableSchema.valueFromColumnData(after);
-                }
+            @Override
+            public Schema valueSchema() {
+                return tableSchema.valueSchema();
+            }
 
-                @Override
-                public Struct deleted(Serializable[] deleted, BitSet includedColumns) {
-                    // We current write out null to signal that the row was removed ...
-                    return null; // tableSchema.valueFromColumnData(row);
-                }
-            };
-            convertersByTableId.put(tableNumber, converter);
-            Long previousTableNumber = tableNumbersByTableName.put(tableName, tableNumber);
-            if (previousTableNumber != null) {
-                convertersByTableId.remove(previousTableNumber);
+            @Override
+            public Object createKey(Serializable[] row, BitSet includedColumns) {
+                // the row may include only some of the columns (e.g., with 'binlog_row_image=MINIMAL') ...
+                return tableSchema.keyFromColumnData(row, includedColumns);
             }
-        } else if (logger.isDebugEnabled()) {
-            logger.debug("Skipping update table metadata event: {}", event);
-        }
+
+            @Override
+            public Struct inserted(Serializable[] row, BitSet includedColumns) {
+                return tableSchema.valueFromColumnData(row, includedColumns);
+            }
+
+            @Override
+            public Struct updated(Serializable[] before, BitSet includedColumnsBefore, Serializable[] after,
+                                  BitSet includedColumns) {
+                return updateFormatter.updated(before, includedColumnsBefore, after, includedColumns);
+            }
+
+            @Override
+            public Struct deleted(Serializable[] deleted, BitSet includedColumns) {
+                // We current write out null to signal that the row was removed ...
+                return null; // tableSchema.valueFromColumnData(row);
+            }
+        };
     }
 
-    public void handleInsert(Event event, SourceInfo source, Consumer<SourceRecord> recorder) {
+    /**
+     * Process the rows in the supplied insert event and generate any source records, adding them to the supplied consumer. At most
+     * {@code maxRows} rows are processed, starting with the {@link SourceInfo#eventRowNumber() current row} in the source
+     * information. When rows remain, the source information is updated with the number of the next row to be processed, and the
+     * method can be called again with the same event to continue.
+     * 
+     * @param event the database change data event to be processed; never null
+     * @param source the source information to use in the record(s); never null
+     * @param maxRows the maximum number of rows to process; must be positive
+     * @param recorder the consumer of all source records; never null
+     * @return the number of rows in the event that remain to be processed; 0 if the event has been completely processed
+     */
+    public int handleInsert(Event event, SourceInfo source, int maxRows, Consumer<SourceRecord> recorder) {
         WriteRowsEventData write = event.getData();
         long tableNumber = write.getTableId();
         BitSet includedColumns = write.getIncludedColumns();
@@ -246,36 +383,47 @@ public void handleInsert(Event event, SourceInfo source, Consumer<SourceRecord>
             if (tableFilter.test(tableId)) {
                 logger.debug("Processing insert row event for {}: {}", tableId, event);
                 String topic = converter.topic();
-                Integer partition = converter.partition();
                 List<Serializable[]> rows = write.getRows();
-                for (int row = 0; row != rows.size(); ++row) {
+                Map<String, ?> sourcePartition = source.partition();
+                int firstRow = source.eventRowNumber();
+                int lastRow = lastRow(firstRow, maxRows, rows.size());
+                for (int row = firstRow; row != lastRow; ++row) {
                     Serializable[] values = rows.get(row);
-                    Schema keySchema = converter.keySchema();
-                    Object key = converter.createKey(values, includedColumns);
-                    Schema valueSchema = converter.valueSchema();
-                    Struct value = converter.inserted(values, includedColumns);
-                    if (value != null || key != null) {
-                        SourceRecord record = new SourceRecord(source.partition(), source.offset(row), topic, partition,
-                                keySchema, key, valueSchema, value);
-                        recorder.accept(record);
-                    }
+                    // The offset records that all rows up to and including this one have been processed ...
+                    Map<String, ?> offset = source.offset(row + 1);
+                    emit(() -> {
+                        Schema keySchema = converter.keySchema();
+                        Object key = converter.createKey(values, includedColumns);
+                        Integer partition = converter.partition(key, values, includedColumns);
+                        Struct value = converter.inserted(values, includedColumns);
+                        Schema valueSchema = value != null ? value.schema() : converter.valueSchema();
+                        if (value != null || key != null) {
+                            return new SourceRecord(sourcePartition, offset, topic, partition, keySchema, key, valueSchema, value);
+                        }
+                        return null;
+                    }, recorder);
                 }
+                return remainingRows(source, lastRow, rows.size());
             } else if (logger.isDebugEnabled()) {
                 logger.debug("Skipping insert row event: {}", event);
             }
         } else {
             logger.warn("Unable to find converter for table #{} in {}", tableNumber, convertersByTableId);
         }
+        return 0;
     }
 
     /**
-     * Process the supplied event and generate any source records, adding them to the supplied consumer.
+     * Process the rows in the supplied update event and generate any source records, adding them to the supplied consumer.
      * 
      * @param event the database change data event to be processed; never null
      * @param source the source information to use in the record(s); never null
+     * @param maxRows the maximum number of rows to process; must be positive
      * @param recorder the consumer of all source records; never null
+     * @return the number of rows in the event that remain to be processed; 0 if the event has been completely processed
+     * @see #handleInsert(Event, SourceInfo, int, Consumer)
      */
-    public void handleUpdate(Event event, SourceInfo source, Consumer<SourceRecord> recorder) {
+    public int handleUpdate(Event event, SourceInfo source, int maxRows, Consumer<SourceRecord> recorder) {
         UpdateRowsEventData update = event.getData();
         long tableNumber = update.getTableId();
         BitSet includedColumns = update.getIncludedColumns();
@@ -286,31 +434,51 @@ public void handleUpdate(Event event, SourceInfo source, Consumer<SourceRecord>
             if (tableFilter.test(tableId)) {
                 logger.debug("Processing update row event for {}: {}", tableId, event);
                 String topic = converter.topic();
-                Integer partition = converter.partition();
                 List<Entry<Serializable[], Serializable[]>> rows = update.getRows();
-                for (int row = 0; row != rows.size(); ++row) {
+                // With partial row images, the columns missing from the after image are taken from the before image ...
+                BitSet rowColumns = union(includedColumnsBefore, includedColumns);
+                Map<String, ?> sourcePartition = source.partition();
+                int firstRow = source.eventRowNumber();
+                int lastRow = lastRow(firstRow, maxRows, rows.size());
+                for (int row = firstRow; row != lastRow; ++row) {
                     Map.Entry<Serializable[], Serializable[]> changes = rows.get(row);
                     Serializable[] before = changes.getKey();
-                    Serializable[] after = changes.getValue();
-                    Schema keySchema = converter.keySchema();
-                    Object key = converter.createKey(after, includedColumns);
-                    Schema valueSchema = converter.valueSchema();
-                    Struct value = converter.updated(before, includedColumnsBefore, after, includedColumns);
-                    if (value != null || key != null) {
-                        SourceRecord record = new SourceRecord(source.partition(), source.offset(row), topic, partition,
-                                keySchema, key, valueSchema, value);
-                        recorder.accept(record);
-                    }
+                    Serializable[] after = rowColumns == includedColumns ? changes.getValue()
+                            : completeAfterImage(before, includedColumnsBefore, changes.getValue(), includedColumns, rowColumns);
+                    Map<String, ?> offset = source.offset(row + 1);
+                    emit(() -> {
+                        Schema keySchema = converter.keySchema();
+                        Object key = converter.createKey(after, rowColumns);
+                        Integer partition = converter.partition(key, after, rowColumns);
+                        Struct value = converter.updated(before, includedColumnsBefore, after, rowColumns);
+                        Schema valueSchema = value != null ? value.schema() : converter.valueSchema();
+                        if (value != null || key != null) {
+                            return new SourceRecord(sourcePartition, offset, topic, partition, keySchema, key, valueSchema, value);
+                        }
+                        return null;
+                    }, recorder);
                 }
+                return remainingRows(source, lastRow, rows.size());
             } else if (logger.isDebugEnabled()) {
                 logger.debug("Skipping update row event: {}", event);
             }
         } else {
             logger.warn("Unable to find converter for table #{} in {}", tableNumber, convertersByTableId);
         }
+        return 0;
     }
 
-    public void handleDelete(Event event, SourceInfo source, Consumer<SourceRecord> recorder) {
+    /**
+     * Process the rows in the supplied delete event and generate any source records, adding them to the supplied consumer.
+     * 
+     * @param event the database change data event to be processed; never null
+     * @param source the source information to use in the record(s); never null
+     * @param maxRows the maximum number of rows to process; must be positive
+     * @param recorder the consumer of all source records; never null
+     * @return the number of rows in the event that remain to be processed; 0 if the event has been completely processed
+     * @see #handleInsert(Event, SourceInfo, int, Consumer)
+     */
+    public int handleDelete(Event event, SourceInfo source, int maxRows, Consumer<SourceRecord> recorder) {
         DeleteRowsEventData deleted = event.getData();
         long tableNumber = deleted.getTableId();
         BitSet includedColumns = deleted.getIncludedColumns();
@@ -320,27 +488,121 @@ public void handleDelete(Event event, SourceInfo source, Consumer<SourceRecord>
             if (tableFilter.test(tableId)) {
                 logger.debug("Processing delete row event for {}: {}", tableId, event);
                 String topic = converter.topic();
-                Integer partition = converter.partition();
                 List<Serializable[]> rows = deleted.getRows();
-                for (int row = 0; row != rows.size(); ++row) {
+                Map<String, ?> sourcePartition = source.partition();
+                int firstRow = source.eventRowNumber();
+                int lastRow = lastRow(firstRow, maxRows, rows.size());
+                for (int row = firstRow; row != lastRow; ++row) {
                     Serializable[] values = rows.get(row);
-                    Schema keySchema = converter.keySchema();
-                    Object key = converter.createKey(values, includedColumns);
-                    Schema valueSchema = converter.valueSchema();
-                    Struct value = converter.deleted(values, includedColumns);
-                    if (value != null || key != null) {
-                        if ( value == null ) valueSchema = null;
-                        SourceRecord record = new SourceRecord(source.partition(), source.offset(row), topic, partition,
-                                keySchema, key, valueSchema, value);
-                        recorder.accept(record);
-                    }
+                    Map<String, ?> offset = source.offset(row + 1);
+                    emit(() -> {
+                        Schema keySchema = converter.keySchema();
+                        Object key = converter.createKey(values, includedColumns);
+                        Integer partition = converter.partition(key, values, includedColumns);
+                        Schema valueSchema = converter.valueSchema();
+                        Struct value = converter.deleted(values, includedColumns);
+                        if (value != null || key != null) {
+                            if (value == null) valueSchema = null;
+                            return new SourceRecord(sourcePartition, offset, topic, partition, keySchema, key, valueSchema, value);
+                        }
+                        return null;
+                    }, recorder);
                 }
+                return remainingRows(source, lastRow, rows.size());
             } else if (logger.isDebugEnabled()) {
                 logger.debug("Skipping delete row event: {}", event);
             }
         } else {
             logger.warn("Unable to find converter for table #{} in {}", tableNumber, convertersByTableId);
         }
+        return 0;
+    }
+
+    private static int lastRow(int firstRow, int maxRows, int rowCount) {
+        return firstRow + Math.max(0, Math.min(maxRows, rowCount - firstRow));
+    }
+
+    private static int remainingRows(SourceInfo source, int nextRow, int rowCount) {
+        if (nextRow >= rowCount) return 0;
+        // Record where the next call should continue ...
+        source.setRowInEvent(nextRow);
+        return rowCount - nextRow;
+    }
+
+    /**
+     * Convert a single row, either immediately on the calling thread or, when a {@link ConversionPipeline} is being used, by
+     * submitting the conversion to the pipeline.
+     * 
+     * @param conversion the function that creates the source record, or returns null if there is no record; never null
+     * @param recorder the consumer of the source record when the row is converted on the calling thread; never null
+     */
+    private void emit(Supplier<SourceRecord> conversion, Consumer<SourceRecord> recorder) {
+        if (pipeline == null) {
+            SourceRecord record = conversion.get();
+            if (record != null) recorder.accept(record);
+        } else {
+            pipeline.submit(conversion);
+        }
+    }
+
+    /**
+     * Get the positions of the columns in either the before or after image of an updated row.
+     * 
+     * @param includedColumnsBefore the positions of the columns in the before image; may be null
+     * @param includedColumns the positions of the columns in the after image; may not be null
+     * @return the positions of the columns in either image, which is {@code includedColumns} if the before image includes no
+     *         other columns
+     */
+    private static BitSet union(BitSet includedColumnsBefore, BitSet includedColumns) {
+        if (includedColumnsBefore == null || includedColumnsBefore.equals(includedColumns)) return includedColumns;
+        BitSet union = (BitSet) includedColumns.clone();
+        union.or(includedColumnsBefore);
+        return union.equals(includedColumns) ? includedColumns : union;
+    }
+
+    /**
+     * Complete a partial after image of an updated row with the values of the before image for the columns that are not in the
+     * after image, which with {@code binlog_row_image=MINIMAL} are the columns that identify the row but were not changed.
+     * 
+     * @param before the values in the before image; may not be null
+     * @param includedColumnsBefore the positions of the columns in the before image; may not be null
+     * @param after the values in the after image; may not be null
+     * @param includedColumns the positions of the columns in the after image; may not be null
+     * @param rowColumns the positions of the columns in either image; may not be null
+     * @return the values of the columns in either image, in order of the columns' positions; never null
+     */
+    private static Serializable[] completeAfterImage(Serializable[] before, BitSet includedColumnsBefore, Serializable[] after,
+                                                     BitSet includedColumns, BitSet rowColumns) {
+        Serializable[] row = new Serializable[rowColumns.cardinality()];
+        int index = 0;
+        int beforeIndex = 0;
+        int afterIndex = 0;
+        for (int position = rowColumns.nextSetBit(0); position >= 0; position = rowColumns.nextSetBit(position + 1)) {
+            boolean inBefore = includedColumnsBefore.get(position);
+            row[index++] = includedColumns.get(position) ? after[afterIndex++] : before[beforeIndex];
+            if (inBefore) ++beforeIndex;
+        }
+        return row;
+    }
+
+    /**
+     * Get the values of a row in the positions of their columns, with nulls for the columns not included in the row.
+     * 
+     * @param row the values of the included columns, in order of the columns' positions; may not be null
+     * @param includedColumns the positions of the included columns; may be null if all columns are included
+     * @param columnCount the number of columns in the table
+     * @return the values in the positions of their columns; never null
+     */
+    private static Object[] completeRow(Serializable[] row, BitSet includedColumns, int columnCount) {
+        if (includedColumns == null || row.length == columnCount) return row;
+        Object[] values = new Object[columnCount];
+        int index = 0;
+        for (int position = includedColumns.nextSetBit(0); position >= 0 && index < row.length;
+                position = includedColumns.nextSetBit(position + 1)) {
+            if (position < columnCount) values[position] = row[index];
+            ++index;
+        }
+        return values;
     }
 
     protected static interface Converter {
@@ -348,7 +610,9 @@ protected static interface Converter {
 
         String topic();
 
-        Integer partition();
+        TableSchema tableSchema();
+
+        Integer partition(Object key, Serializable[] row, BitSet includedColumns);
 
         Schema keySchema();
 
@@ -358,8 +622,103 @@ protected static interface Converter {
 
         Struct inserted(Serializable[] row, BitSet includedColumns);
 
-        Struct updated(Serializable[] before, BitSet includedColumns, Serializable[] after, BitSet includedColumnsBeforeUpdate);
+        Struct updated(Serializable[] before, BitSet includedColumnsBefore, Serializable[] after, BitSet includedColumns);
 
         Struct deleted(Serializable[] deleted, BitSet includedColumns);
     }
+
+    /**
+     * The optional settings of the {@link TableConverters}. Each setting that is not set uses its default.
+     */
+    @NotThreadSafe
+    public static final class Options {
+
+        /**
+         * Create the settings, initialized with the defaults.
+         * 
+         * @return the new settings; never null
+         */
+        public static Options create() {
+            return new Options();
+        }
+
+        private boolean recordSchemaChanges;
+        private Predicate<TableId> tableFilter;
+        private ConversionPipeline pipeline;
+        private PartitionSelector.Factory partitionSelectors;
+        private UpdateFormat updateFormat;
+        private TableSchemaBuilder schemaBuilder;
+
+        private Options() {
+        }
+
+        /**
+         * Set whether schema changes should be recorded as source records. The default is {@code false}.
+         * 
+         * @param recordSchemaChanges {@code true} if schema changes should be recorded as source records
+         * @return these settings, for method chaining; never null
+         */
+        public Options withSchemaChangesRecorded(boolean recordSchemaChanges) {
+            this.recordSchemaChanges = recordSchemaChanges;
+            return this;
+        }
+
+        /**
+         * Set the filter for tables that are to be processed. By default all tables are processed.
+         * 
+         * @param tableFilter the filter; may be null if all tables are to be processed
+         * @return these settings, for method chaining; never null
+         */
+        public Options withTableFilter(Predicate<TableId> tableFilter) {
+            this.tableFilter = tableFilter;
+            return this;
+        }
+
+        /**
+         * Set the pipeline to which row conversions are submitted. When set, all other records must be passed to the same
+         * pipeline via the recorder. By default rows are converted on the calling thread.
+         * 
+         * @param pipeline the pipeline; may be null if rows are to be converted on the calling thread
+         * @return these settings, for method chaining; never null
+         */
+        public Options withPipeline(ConversionPipeline pipeline) {
+            this.pipeline = pipeline;
+            return this;
+        }
+
+        /**
+         * Set the factory for the selectors of the Kafka partitions of each table's records. By default Kafka assigns the
+         * partitions of all records.
+         * 
+         * @param partitionSelectors the factory; may be null if Kafka should assign the partitions
+         * @return these settings, for method chaining; never null
+         */
+        public Options withPartitionSelectors(PartitionSelector.Factory partitionSelectors) {
+            this.partitionSelectors = partitionSelectors;
+            return this;
+        }
+
+        /**
+         * Set the format of the values of the records for updated rows. By default the values contain the state of the rows
+         * after the updates.
+         * 
+         * @param updateFormat the format; may be null if the default is to be used
+         * @return these settings, for method chaining; never null
+         */
+        public Options withUpdateFormat(UpdateFormat updateFormat) {
+            this.updateFormat = updateFormat;
+            return this;
+        }
+
+        /**
+         * Set the builder of the tables' schemas, such as one shared with other converters. By default a new builder is used.
+         * 
+         * @param schemaBuilder the builder; may be null if a new builder is to be used
+         * @return these settings, for method chaining; never null
+         */
+        public Options withSchemaBuilder(TableSchemaBuilder schemaBuilder) {
+            this.schemaBuilder = schemaBuilder;
+            return this;
+        }
+    }
 }
@@ -55,6 +55,30 @@ public String getTopic(String serverName) {
             public String getTopic(String serverName, String databaseName, String tableName) {
                 return String.join(delimiter, serverName, databaseName, tableName);
             }
+
+            /**
+             * Get the name of the topic for the transaction markers of the given server. This method returns
+             * "{@code <serverName>.transaction}".
+             * 
+             * @param serverName the name of the database server; may not be null
+             * @return the topic name; never null
+             */
+            @Override
+            public String getTransactionTopic(String serverName) {
+                return String.join(delimiter, serverName, "transaction");
+            }
+
+            /**
+             * Get the name of the topic for the heartbeat records of the given server. This method returns
+             * "{@code <serverName>.heartbeat}".
+             * 
+             * @param serverName the name of the database server; may not be null
+             * @return the topic name; never null
+             */
+            @Override
+            public String getHeartbeatTopic(String serverName) {
+                return String.join(delimiter, serverName, "heartbeat");
+            }
         };
     }
 
@@ -75,4 +99,24 @@ public String getTopic(String serverName, String databaseName, String tableName)
      * @return the topic name; never null
      */
     String getTopic(String serverName);
+
+    /**
+     * Get the name of the topic for the records that mark the beginning and end of transactions on the given server.
+     * 
+     * @param serverName the name of the database server; may not be null
+     * @return the topic name; never null
+     */
+    default String getTransactionTopic(String serverName) {
+        return getTopic(serverName) + ".transaction";
+    }
+
+    /**
+     * Get the name of the topic for the heartbeat records that record the progress of reading the binlog of the given server.
+     * 
+     * @param serverName the name of the database server; may not be null
+     * @return the topic name; never null
+     */
+    default String getHeartbeatTopic(String serverName) {
+        return getTopic(serverName) + ".heartbeat";
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import io.debezium.annotation.Immutable;
+
+/**
+ * A factory for the records that mark the beginning and end of each transaction read from the binlog. Each record is keyed by
+ * the transaction's identifier, and its value is a structure with the following fields:
+ * <ul>
+ * <li>{@value #STATUS_FIELD} - either {@value #BEGIN} or {@value #END};</li>
+ * <li>{@value #ID_FIELD} - the identifier of the transaction; and</li>
+ * <li>{@value #EVENT_COUNT_FIELD} - the number of change events in the transaction, present only in the {@value #END} marker.</li>
+ * </ul>
+ *
+ * @author Randall Hauch
+ */
+@Immutable
+final class TransactionMarkers {
+
+    public static final String STATUS_FIELD = "status";
+    public static final String ID_FIELD = "id";
+    public static final String EVENT_COUNT_FIELD = "event_count";
+    public static final String BEGIN = "BEGIN";
+    public static final String END = "END";
+
+    private final String topic;
+    private final Schema valueSchema;
+
+    /**
+     * Create the factory for transaction marker records.
+     *
+     * @param topic the name of the topic for the records; may not be null
+     */
+    public TransactionMarkers(String topic) {
+        this.topic = topic;
+        this.valueSchema = SchemaBuilder.struct()
+                                        .name(topic + ".Value")
+                                        .field(STATUS_FIELD, Schema.STRING_SCHEMA)
+                                        .field(ID_FIELD, Schema.STRING_SCHEMA)
+                                        .field(EVENT_COUNT_FIELD, Schema.OPTIONAL_INT64_SCHEMA)
+                                        .build();
+    }
+
+    /**
+     * Get the name of the topic for the records.
+     *
+     * @return the topic name; never null
+     */
+    public String topic() {
+        return topic;
+    }
+
+    /**
+     * Create the record that marks the beginning of a transaction.
+     *
+     * @param source the source information for the position of the transaction's beginning; may not be null
+     * @param transactionId the identifier of the transaction; may not be null
+     * @return the record; never null
+     */
+    public SourceRecord begin(SourceInfo source, String transactionId) {
+        Struct value = new Struct(valueSchema).put(STATUS_FIELD, BEGIN).put(ID_FIELD, transactionId);
+        return new SourceRecord(source.partition(), source.offset(), topic, 0,
+                Schema.STRING_SCHEMA, transactionId, valueSchema, value);
+    }
+
+    /**
+     * Create the record that marks the end of a transaction.
+     *
+     * @param source the source information for the position after the transaction's end; may not be null
+     * @param transactionId the identifier of the transaction; may not be null
+     * @param eventCount the number of change events in the transaction
+     * @return the record; never null
+     */
+    public SourceRecord end(SourceInfo source, String transactionId, long eventCount) {
+        Struct value = new Struct(valueSchema).put(STATUS_FIELD, END).put(ID_FIELD, transactionId)
+                                              .put(EVENT_COUNT_FIELD, eventCount);
+        return new SourceRecord(source.partition(), source.offset(), topic, 0,
+                Schema.STRING_SCHEMA, transactionId, valueSchema, value);
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+
+import io.debezium.annotation.ThreadSafe;
+import io.debezium.connector.mysql.MySqlConnectorConfig.UpdateFormat;
+import io.debezium.relational.TableSchema;
+
+/**
+ * A function that creates the value of the change record for an updated row, in one of the {@link UpdateFormat formats}. The
+ * function is called with the before and after images of the row read from the binlog, where the after image has already been
+ * completed with any values of the before image that are missing from the after image.
+ * <p>
+ * Formatters may be called concurrently when rows are converted by a {@link ConversionPipeline}.
+ * 
+ * @author Randall Hauch
+ */
+@ThreadSafe
+@FunctionalInterface
+interface UpdateFormatter {
+
+    /**
+     * Create the value of the change record for an updated row.
+     * 
+     * @param before the values of the columns in the before image; never null
+     * @param includedColumnsBefore the positions of the columns in the before image; may be null if all columns are included
+     * @param after the values of the columns in the after image; never null
+     * @param includedColumns the positions of the columns in the after image; may be null if all columns are included
+     * @return the value; may be null
+     */
+    Struct updated(Serializable[] before, BitSet includedColumnsBefore, Serializable[] after, BitSet includedColumns);
+
+    /**
+     * Create the formatter of the values of the given table's updated rows.
+     * 
+     * @param format the format of the values; may be null if the {@link UpdateFormat#AFTER default} format is to be used
+     * @param tableSchema the schema of the table; may be null if the table is not known, in which case the formatter is never
+     *            called
+     * @param keyIndexes the 0-based positions of the table's primary key columns; may not be null
+     * @param columnCount the number of columns in the table
+     * @return the formatter; never null
+     */
+    static UpdateFormatter create(UpdateFormat format, TableSchema tableSchema, int[] keyIndexes, int columnCount) {
+        if (tableSchema == null || format == null) format = UpdateFormat.AFTER;
+        switch (format) {
+            case ENVELOPE:
+                return envelope(tableSchema);
+            case CHANGES:
+                return changes(tableSchema, keyIndexes, columnCount);
+            case AFTER:
+            default:
+                return (before, includedColumnsBefore, after, includedColumns) -> tableSchema.valueFromColumnData(after, includedColumns);
+        }
+    }
+
+    /**
+     * Create a formatter of values with a {@code before} and an {@code after} field, each with the {@link Struct} for the
+     * corresponding image of the row. When either image is partial, both fields use the table's partial value schema, so that
+     * there is exactly one envelope schema for complete images and one for partial images, each with its own name.
+     * 
+     * @param tableSchema the schema of the table; may not be null
+     * @return the formatter; never null
+     */
+    static UpdateFormatter envelope(TableSchema tableSchema) {
+        Schema valueSchema = tableSchema.valueSchema();
+        Schema envelopeSchema = envelopeSchema(valueSchema);
+        Map<Schema, Schema> partialEnvelopeSchemas = new ConcurrentHashMap<>();
+        return (before, includedColumnsBefore, after, includedColumns) -> {
+            Struct beforeValue = tableSchema.valueFromColumnData(before, includedColumnsBefore);
+            Struct afterValue = tableSchema.valueFromColumnData(after, includedColumns);
+            Schema schema = envelopeSchema;
+            if (beforeValue.schema() != valueSchema || afterValue.schema() != valueSchema) {
+                Schema partialSchema = beforeValue.schema() != valueSchema ? beforeValue.schema() : afterValue.schema();
+                beforeValue = withSchema(beforeValue, partialSchema);
+                afterValue = withSchema(afterValue, partialSchema);
+                // There is only one partial value schema per table ...
+                schema = partialEnvelopeSchemas.computeIfAbsent(partialSchema, UpdateFormatter::envelopeSchema);
+            }
+            return new Struct(schema).put("before", beforeValue).put("after", afterValue);
+        };
+    }
+
+    /**
+     * Create the schema of envelopes whose {@code before} and {@code after} fields have the given value schema.
+     * 
+     * @param valueSchema the schema of the row values; may not be null
+     * @return the envelope schema; never null
+     */
+    static Schema envelopeSchema(Schema valueSchema) {
+        return SchemaBuilder.struct()
+                            .name(valueSchema.name() + "/envelope")
+                            .field("before", valueSchema)
+                            .field("after", valueSchema)
+                            .build();
+    }
+
+    /**
+     * Copy the value into a struct with the given schema, which must have fields with the same names.
+     * 
+     * @param value the value; may not be null
+     * @param schema the schema of the result; may not be null
+     * @return the value with the given schema; never null
+     */
+    static Struct withSchema(Struct value, Schema schema) {
+        if (value.schema() == schema) return value;
+        Struct result = new Struct(schema);
+        for (Field field : schema.fields()) {
+            result.put(field, value.get(field.name()));
+        }
+        return result;
+    }
+
+    /**
+     * The name of the field in values of the {@link UpdateFormat#CHANGES changes} format that lists the names of the changed
+     * columns.
+     */
+    static final String CHANGED_COLUMNS_FIELD = "__changed_columns";
+
+    /**
+     * Create a formatter of values with only the primary key columns and the columns whose values were changed. All values of
+     * the table have the same schema, in which the field of every column is optional and the fields of the columns that were not
+     * changed are null, and which has a {@link #CHANGED_COLUMNS_FIELD field} listing the names of the changed columns so that a
+     * column whose value was changed to null is distinguished from a column whose value was not changed.
+     * 
+     * @param tableSchema the schema of the table; may not be null
+     * @param keyIndexes the 0-based positions of the table's primary key columns; may not be null
+     * @param columnCount the number of columns in the table
+     * @return the formatter; never null
+     */
+    static UpdateFormatter changes(TableSchema tableSchema, int[] keyIndexes, int columnCount) {
+        Schema valueSchema = tableSchema.valueSchema();
+        List<Field> fields = valueSchema.fields(); // in order of the columns' positions
+        SchemaBuilder builder = SchemaBuilder.struct().name(valueSchema.name() + "/changes");
+        fields.forEach(field -> builder.field(field.name(), optional(field.schema())));
+        builder.field(CHANGED_COLUMNS_FIELD, SchemaBuilder.array(Schema.STRING_SCHEMA).build());
+        Schema schema = builder.build();
+        Field[] changesFields = new Field[fields.size()];
+        for (int i = 0; i != changesFields.length; ++i) {
+            changesFields[i] = schema.field(fields.get(i).name());
+        }
+        Field changedColumnsField = schema.field(CHANGED_COLUMNS_FIELD);
+        return (before, includedColumnsBefore, after, includedColumns) -> {
+            BitSet changed = changedColumns(before, includedColumnsBefore, after, includedColumns, columnCount);
+            BitSet columns = (BitSet) changed.clone();
+            for (int index : keyIndexes) {
+                if (includedColumns == null || includedColumns.get(index)) columns.set(index);
+            }
+            Struct afterValue = tableSchema.valueFromColumnData(after, includedColumns);
+            Struct result = new Struct(schema);
+            List<String> changedNames = new ArrayList<>(changed.cardinality());
+            for (int position = columns.nextSetBit(0); position >= 0; position = columns.nextSetBit(position + 1)) {
+                result.put(changesFields[position], afterValue.get(fields.get(position).name()));
+                if (changed.get(position)) changedNames.add(fields.get(position).name());
+            }
+            return result.put(changedColumnsField, changedNames);
+        };
+    }
+
+    /**
+     * Get the optional variant of the given schema.
+     * 
+     * @param schema the schema; may not be null
+     * @return the optional schema; never null
+     */
+    static Schema optional(Schema schema) {
+        if (schema.isOptional()) return schema;
+        SchemaBuilder builder = SchemaBuilder.type(schema.type())
+                                             .name(schema.name())
+                                             .version(schema.version())
+                                             .doc(schema.doc())
+                                             .optional();
+        if (schema.parameters() != null) builder.parameters(schema.parameters());
+        return builder.build();
+    }
+
+    /**
+     * Determine the positions of the columns in the after image whose values differ from those in the before image. Columns that
+     * are in the after image but not in the before image are considered to be changed.
+     * 
+     * @param before the values of the columns in the before image; never null
+     * @param includedColumnsBefore the positions of the columns in the before image; may be null if all columns are included
+     * @param after the values of the columns in the after image; never null
+     * @param includedColumns the positions of the columns in the after image; may be null if all columns are included
+     * @param columnCount the number of columns in the table
+     * @return the positions of the changed columns; never null
+     */
+    static BitSet changedColumns(Serializable[] before, BitSet includedColumnsBefore, Serializable[] after, BitSet includedColumns,
+                                 int columnCount) {
+        BitSet changed = new BitSet(columnCount);
+        int beforeIndex = 0;
+        int afterIndex = 0;
+        for (int position = 0; position != columnCount; ++position) {
+            boolean inBefore = (includedColumnsBefore == null || includedColumnsBefore.get(position)) && beforeIndex < before.length;
+            boolean inAfter = (includedColumns == null || includedColumns.get(position)) && afterIndex < after.length;
+            Serializable beforeValue = inBefore ? before[beforeIndex++] : null;
+            if (inAfter) {
+                Serializable afterValue = after[afterIndex++];
+                if (!inBefore || !Objects.deepEquals(beforeValue, afterValue)) changed.set(position);
+            }
+        }
+        return changed;
+    }
+}
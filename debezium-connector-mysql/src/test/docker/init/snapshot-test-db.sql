@@ -0,0 +1,42 @@
+# The connector's user must also be able to take the global read lock and read the tables during snapshots
+GRANT SELECT, RELOAD, SHOW DATABASES ON *.* TO 'replicator';
+
+# Create the database with tables that are snapshotted while they are being changed
+CREATE DATABASE snapshot_test;
+GRANT ALL PRIVILEGES ON snapshot_test.* TO 'mysqluser'@'%';
+
+USE snapshot_test;
+
+# Each test uses its own table, so that the tables are populated only once
+CREATE TABLE orders_initial (
+  id INTEGER NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  amount INTEGER NOT NULL
+);
+
+# Populate the table with 65536 rows by repeatedly doubling its rows
+INSERT INTO orders_initial VALUES (default, 1);
+INSERT INTO orders_initial (amount) SELECT amount FROM orders_initial;
+INSERT INTO orders_initial (amount) SELECT amount FROM orders_initial;
+INSERT INTO orders_initial (amount) SELECT amount FROM orders_initial;
+INSERT INTO orders_initial (amount) SELECT amount FROM orders_initial;
+INSERT INTO orders_initial (amount) SELECT amount FROM orders_initial;
+INSERT INTO orders_initial (amount) SELECT amount FROM orders_initial;
+INSERT INTO orders_initial (amount) SELECT amount FROM orders_initial;
+INSERT INTO orders_initial (amount) SELECT amount FROM orders_initial;
+INSERT INTO orders_initial (amount) SELECT amount FROM orders_initial;
+INSERT INTO orders_initial (amount) SELECT amount FROM orders_initial;
+INSERT INTO orders_initial (amount) SELECT amount FROM orders_initial;
+INSERT INTO orders_initial (amount) SELECT amount FROM orders_initial;
+INSERT INTO orders_initial (amount) SELECT amount FROM orders_initial;
+INSERT INTO orders_initial (amount) SELECT amount FROM orders_initial;
+INSERT INTO orders_initial (amount) SELECT amount FROM orders_initial;
+INSERT INTO orders_initial (amount) SELECT amount FROM orders_initial;
+
+CREATE TABLE orders_restart LIKE orders_initial;
+INSERT INTO orders_restart SELECT * FROM orders_initial;
+
+CREATE TABLE orders_incremental LIKE orders_initial;
+INSERT INTO orders_incremental SELECT * FROM orders_initial ORDER BY id LIMIT 4096;
+
+CREATE TABLE orders_resume LIKE orders_initial;
+INSERT INTO orders_resume SELECT * FROM orders_initial ORDER BY id LIMIT 4096;
@@ -0,0 +1,200 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A utility for writing the binary form of simple MySQL binlog events, for use in tests that need binlog content without a
+ * MySQL server. Tables all have a single, non-nullable {@code INT} column.
+ * 
+ * @author Randall Hauch
+ */
+public class BinlogBuilder {
+
+    private static final int QUERY = 2;
+    private static final int ROTATE = 4;
+    private static final int FORMAT_DESCRIPTION = 15;
+    private static final int XID = 16;
+    private static final int TABLE_MAP = 19;
+    private static final int EXT_WRITE_ROWS = 30;
+    private static final int EXT_DELETE_ROWS = 32;
+    private static final int GTID = 33;
+    private static final int PREVIOUS_GTIDS = 35;
+    private static final byte[] MAGIC_HEADER = new byte[] { (byte) 0xfe, (byte) 0x62, (byte) 0x69, (byte) 0x6e };
+
+    private final ByteArrayOutputStream binlog = new ByteArrayOutputStream();
+    private long position = 4;
+
+    /**
+     * Get the position of the next event to be added.
+     * 
+     * @return the position within the binlog
+     */
+    public long position() {
+        return position;
+    }
+
+    public BinlogBuilder addFormatDescription(String serverVersion) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeLong(body, 4, 2); // binlog version
+        byte[] version = new byte[50];
+        byte[] name = serverVersion.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(name, 0, version, 0, Math.min(name.length, version.length));
+        body.write(version, 0, version.length);
+        writeLong(body, 0, 4); // timestamp
+        body.write(19); // event header length
+        for (int type = 1; type <= PREVIOUS_GTIDS; ++type) {
+            body.write(0); // post-header lengths are not used by these tests
+        }
+        return addEvent(FORMAT_DESCRIPTION, body.toByteArray());
+    }
+
+    public BinlogBuilder addTableMap(long tableNumber, String database, String table) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeLong(body, tableNumber, 6);
+        writeLong(body, 0, 2); // flags
+        writeName(body, database);
+        writeName(body, table);
+        body.write(1); // one column
+        body.write(3); // of type LONG
+        body.write(0); // with no metadata
+        body.write(0); // that is not nullable
+        return addEvent(TABLE_MAP, body.toByteArray());
+    }
+
+    public BinlogBuilder addQuery(String database, String sql) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] databaseName = database.getBytes(StandardCharsets.UTF_8);
+        writeLong(body, 1, 4); // thread ID
+        writeLong(body, 0, 4); // execution time
+        body.write(databaseName.length);
+        writeLong(body, 0, 2); // error code
+        writeLong(body, 0, 2); // no status variables
+        body.write(databaseName, 0, databaseName.length);
+        body.write(0);
+        byte[] statement = sql.getBytes(StandardCharsets.UTF_8);
+        body.write(statement, 0, statement.length);
+        return addEvent(QUERY, body.toByteArray());
+    }
+
+    public BinlogBuilder addRotate(String filename, long nextPosition) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeLong(body, nextPosition, 8);
+        byte[] name = filename.getBytes(StandardCharsets.UTF_8);
+        body.write(name, 0, name.length);
+        return addEvent(ROTATE, body.toByteArray());
+    }
+
+    public BinlogBuilder addXid(long xid) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeLong(body, xid, 8);
+        return addEvent(XID, body.toByteArray());
+    }
+
+    public BinlogBuilder addGtid(String uuid, long transactionNumber) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(1); // flags
+        writeUuid(body, uuid);
+        writeLong(body, transactionNumber, 8);
+        return addEvent(GTID, body.toByteArray());
+    }
+
+    public BinlogBuilder addPreviousGtids(String uuid, long firstTransactionNumber, long lastTransactionNumber) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeLong(body, 1, 8); // one UUID
+        writeUuid(body, uuid);
+        writeLong(body, 1, 8); // with one interval
+        writeLong(body, firstTransactionNumber, 8);
+        writeLong(body, lastTransactionNumber + 1, 8); // exclusive
+        return addEvent(PREVIOUS_GTIDS, body.toByteArray());
+    }
+
+    public BinlogBuilder addWriteRow(long tableNumber, int value) {
+        return addWriteRows(tableNumber, value);
+    }
+
+    public BinlogBuilder addWriteRows(long tableNumber, int... values) {
+        return addEvent(EXT_WRITE_ROWS, rows(tableNumber, values));
+    }
+
+    public BinlogBuilder addDeleteRows(long tableNumber, int... values) {
+        return addEvent(EXT_DELETE_ROWS, rows(tableNumber, values));
+    }
+
+    private byte[] rows(long tableNumber, int... values) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeLong(body, tableNumber, 6);
+        writeLong(body, 0, 2); // flags
+        writeLong(body, 2, 2); // length of extra information, including this length
+        body.write(1); // one column
+        body.write(1); // that is included
+        for (int value : values) {
+            body.write(0); // and not null
+            writeLong(body, value, 4);
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Get the events, without the magic header that appears at the start of binlog files.
+     * 
+     * @return the bytes of the events; never null
+     */
+    public byte[] events() {
+        return binlog.toByteArray();
+    }
+
+    /**
+     * Write a binlog file containing the magic header and the events.
+     * 
+     * @param file the file to be written; may not be null
+     * @throws IOException if there is a problem writing the file
+     */
+    public void writeTo(Path file) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(MAGIC_HEADER, 0, MAGIC_HEADER.length);
+        content.write(events(), 0, binlog.size());
+        Files.write(file, content.toByteArray());
+    }
+
+    private BinlogBuilder addEvent(int type, byte[] body) {
+        int length = 19 + body.length;
+        writeLong(binlog, 0, 4); // timestamp
+        binlog.write(type);
+        writeLong(binlog, 1, 4); // server ID
+        writeLong(binlog, length, 4);
+        writeLong(binlog, position + length, 4);
+        writeLong(binlog, 0, 2); // flags
+        binlog.write(body, 0, body.length);
+        position += length;
+        return this;
+    }
+
+    private void writeName(ByteArrayOutputStream out, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes.length);
+        out.write(bytes, 0, bytes.length);
+        out.write(0);
+    }
+
+    private void writeUuid(ByteArrayOutputStream out, String uuid) {
+        String hex = uuid.replace("-", "");
+        for (int i = 0; i != 16; ++i) {
+            out.write(Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16));
+        }
+    }
+
+    private void writeLong(ByteArrayOutputStream out, long value, int length) {
+        for (int i = 0; i != length; ++i) {
+            out.write((int) (value >>> (8 * i)) & 0xFF);
+        }
+    }
+}
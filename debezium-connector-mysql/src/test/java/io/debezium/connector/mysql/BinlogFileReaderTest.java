@@ -0,0 +1,141 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import com.github.shyiko.mysql.binlog.event.Event;
+import com.github.shyiko.mysql.binlog.event.EventType;
+import com.github.shyiko.mysql.binlog.event.RotateEventData;
+import com.github.shyiko.mysql.binlog.event.WriteRowsEventData;
+import com.github.shyiko.mysql.binlog.event.deserialization.EventDeserializer;
+
+import io.debezium.util.Testing;
+
+/**
+ * @author Randall Hauch
+ */
+public class BinlogFileReaderTest {
+
+    private Path directory;
+    private BinlogFileReader reader;
+    private List<Event> events;
+    private long secondFileRowPosition;
+
+    @Before
+    public void beforeEach() throws IOException {
+        Testing.Files.delete(Testing.Files.createTestingPath("binlog-files"));
+        directory = Testing.Files.createTestingDirectory("binlog-files").toPath();
+        new BinlogBuilder().addTableMap(1, "db1", "t1").addWriteRow(1, 100).writeTo(directory.resolve("mysql-bin.000001"));
+        BinlogBuilder second = new BinlogBuilder().addTableMap(1, "db1", "t1");
+        secondFileRowPosition = second.position();
+        second.addWriteRow(1, 200).addWriteRow(1, 201).writeTo(directory.resolve("mysql-bin.000002"));
+        directory.resolve("mysql-bin.index").toFile().createNewFile();
+        events = new CopyOnWriteArrayList<>();
+    }
+
+    @After
+    public void afterEach() {
+        if (reader != null) reader.stop();
+    }
+
+    @Test
+    public void shouldFindBinlogFilesInDirectoryInOrder() {
+        List<Path> files = BinlogFileReader.findBinlogFiles(directory.toString());
+        assertThat(files.size()).isEqualTo(2);
+        assertThat(files.get(0).getFileName().toString()).isEqualTo("mysql-bin.000001");
+        assertThat(files.get(1).getFileName().toString()).isEqualTo("mysql-bin.000002");
+    }
+
+    @Test
+    public void shouldReadAllEventsInAllFiles() throws InterruptedException {
+        readFrom(null, 0L);
+        assertThat(events.size()).isEqualTo(7);
+        assertRotate(events.get(0), "mysql-bin.000001", 4L);
+        assertThat(events.get(1).getHeader().getEventType()).isEqualTo(EventType.TABLE_MAP);
+        assertInserted(events.get(2), 100);
+        assertRotate(events.get(3), "mysql-bin.000002", 4L);
+        assertThat(events.get(4).getHeader().getEventType()).isEqualTo(EventType.TABLE_MAP);
+        assertInserted(events.get(5), 200);
+        assertInserted(events.get(6), 201);
+    }
+
+    @Test
+    public void shouldStartReadingAtFileAndPosition() throws InterruptedException {
+        readFrom("mysql-bin.000002", secondFileRowPosition);
+        // The table map preceding the position is replayed so that the rows can be deserialized ...
+        assertThat(events.size()).isEqualTo(4);
+        assertRotate(events.get(0), "mysql-bin.000002", secondFileRowPosition);
+        assertThat(events.get(1).getHeader().getEventType()).isEqualTo(EventType.TABLE_MAP);
+        assertInserted(events.get(2), 200);
+        assertInserted(events.get(3), 201);
+    }
+
+    @Test
+    public void shouldDeserializeFormatDescriptionPrecedingPosition() throws Exception {
+        BinlogBuilder third = new BinlogBuilder().addFormatDescription("5.5.0").addTableMap(1, "db1", "t1");
+        long rowPosition = third.position();
+        third.addWriteRow(1, 300).writeTo(directory.resolve("mysql-bin.000003"));
+        readFrom("mysql-bin.000003", rowPosition);
+        // The format description is replayed before the table maps, as it is when the file is read from the start ...
+        assertThat(events.size()).isEqualTo(4);
+        assertRotate(events.get(0), "mysql-bin.000003", rowPosition);
+        assertThat(events.get(1).getHeader().getEventType()).isEqualTo(EventType.FORMAT_DESCRIPTION);
+        assertThat(events.get(2).getHeader().getEventType()).isEqualTo(EventType.TABLE_MAP);
+        assertInserted(events.get(3), 300);
+    }
+
+    @Test
+    public void shouldFailWhenFileIsTruncatedWithinTableMapPrecedingPosition() throws Exception {
+        Path file = directory.resolve("mysql-bin.000002");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(secondFileRowPosition - 5);
+        }
+        start("mysql-bin.000002", secondFileRowPosition);
+        assertThat(reader.failure()).isInstanceOf(EOFException.class);
+        assertThat(reader.isCompleted()).isFalse();
+    }
+
+    protected void readFrom(String filename, long position) throws InterruptedException {
+        start(filename, position);
+        assertThat(reader.failure()).isNull();
+        assertThat(reader.isCompleted()).isTrue();
+    }
+
+    protected void start(String filename, long position) throws InterruptedException {
+        List<Path> files = BinlogFileReader.findBinlogFiles(directory.toString());
+        reader = new BinlogFileReader(files, new EventDeserializer(), events::add);
+        reader.start(filename, position, "test-binlog-reader");
+        for (int i = 0; i != 1000 && !reader.isCompleted() && reader.failure() == null; ++i) {
+            Thread.sleep(10);
+        }
+    }
+
+    protected void assertRotate(Event event, String filename, long position) {
+        assertThat(event.getHeader().getEventType()).isEqualTo(EventType.ROTATE);
+        RotateEventData data = event.getData();
+        assertThat(data.getBinlogFilename()).isEqualTo(filename);
+        assertThat(data.getBinlogPosition()).isEqualTo(position);
+    }
+
+    protected void assertInserted(Event event, int value) {
+        assertThat(event.getHeader().getEventType()).isEqualTo(EventType.EXT_WRITE_ROWS);
+        WriteRowsEventData data = event.getData();
+        assertThat(data.getRows().get(0)[0]).isEqualTo(value);
+    }
+}
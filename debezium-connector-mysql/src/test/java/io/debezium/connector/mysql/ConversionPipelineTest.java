@@ -0,0 +1,125 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import io.debezium.util.Collect;
+
+/**
+ * @author Randall Hauch
+ */
+public class ConversionPipelineTest {
+
+    private ConversionPipeline pipeline;
+    private List<SourceRecord> records;
+
+    @Before
+    public void beforeEach() {
+        pipeline = new ConversionPipeline("test", 4, 16);
+        records = new ArrayList<>();
+    }
+
+    @After
+    public void afterEach() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void shouldReturnRecordsInSubmissionOrder() throws InterruptedException {
+        for (int i = 0; i != 1000; ++i) {
+            int index = i;
+            if (i % 100 == 0) {
+                pipeline.record(record(index));
+            } else {
+                pipeline.submit(() -> {
+                    // Make earlier conversions slower than later ones ...
+                    if (index % 7 == 0) sleep(1);
+                    return record(index);
+                });
+            }
+        }
+        assertThat(pipeline.size()).isEqualTo(1000);
+        assertThat(pipeline.drainTo(records::add)).isEqualTo(1000);
+        assertThat(pipeline.size()).isEqualTo(0);
+        for (int i = 0; i != 1000; ++i) {
+            assertThat(records.get(i).value()).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void shouldConvertChunksOfTheSameTableConcurrently() throws InterruptedException {
+        // Each chunk of one conversion blocks until both chunks are being converted at the same time ...
+        pipeline.shutdown();
+        pipeline = new ConversionPipeline("test", 2, 1);
+        CountDownLatch running = new CountDownLatch(2);
+        for (int i = 0; i != 2; ++i) {
+            int index = i;
+            pipeline.submit(() -> {
+                running.countDown();
+                try {
+                    return running.await(10, TimeUnit.SECONDS) ? record(index) : null;
+                } catch (InterruptedException e) {
+                    Thread.interrupted();
+                    return null;
+                }
+            });
+        }
+        assertThat(pipeline.drainTo(records::add)).isEqualTo(2);
+        assertThat(records.get(0).value()).isEqualTo(0);
+        assertThat(records.get(1).value()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldSkipNullRecords() throws InterruptedException {
+        pipeline.submit(() -> record(1));
+        pipeline.submit(() -> null);
+        pipeline.submit(() -> record(3));
+        assertThat(pipeline.drainTo(records::add)).isEqualTo(2);
+        assertThat(records.get(0).value()).isEqualTo(1);
+        assertThat(records.get(1).value()).isEqualTo(3);
+    }
+
+    @Test(expected = ConnectException.class)
+    public void shouldFailWhenConversionFails() throws InterruptedException {
+        pipeline.submit(() -> record(1));
+        pipeline.submit(() -> {
+            throw new IllegalStateException("failed");
+        });
+        try {
+            pipeline.drainTo(records::add);
+        } finally {
+            assertThat(pipeline.size()).isEqualTo(0);
+        }
+    }
+
+    protected SourceRecord record(int value) {
+        Map<String, ?> partition = Collect.hashMapOf("server", "test");
+        Map<String, ?> offset = Collect.hashMapOf("pos", value);
+        return new SourceRecord(partition, offset, "topic", 0, Schema.INT32_SCHEMA, value);
+    }
+
+    protected void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import com.github.shyiko.mysql.binlog.event.Event;
+import com.github.shyiko.mysql.binlog.event.EventHeaderV4;
+import com.github.shyiko.mysql.binlog.event.EventType;
+import com.github.shyiko.mysql.binlog.event.WriteRowsEventData;
+
+import io.debezium.connector.mysql.EventQueueMetrics.QueuedEvent;
+
+/**
+ * @author Randall Hauch
+ */
+public class EventQueueMetricsTest {
+
+    @Test
+    public void shouldEstimateLargerSizeForMoreAndLargerRows() {
+        long small = EventQueueMetrics.estimateSize(insert(1, 10));
+        long moreRows = EventQueueMetrics.estimateSize(insert(100, 10));
+        long largerRows = EventQueueMetrics.estimateSize(insert(1, 10000));
+        assertThat(small).isGreaterThan(0);
+        assertThat(moreRows).isGreaterThan(small * 20);
+        assertThat(largerRows).isGreaterThan(10000);
+    }
+
+    @Test
+    public void shouldTrackQueuedBytes() throws InterruptedException {
+        EventQueueMetrics metrics = new EventQueueMetrics(new LinkedBlockingDeque<>(), 10, 0L);
+        Event event = insert(10, 100);
+        QueuedEvent first = metrics.acquire(event);
+        QueuedEvent second = metrics.acquire(event);
+        assertThat(first.event()).isSameAs(event);
+        assertThat(first.size()).isEqualTo(EventQueueMetrics.estimateSize(event));
+        assertThat(metrics.getQueuedBytes()).isEqualTo(2 * EventQueueMetrics.estimateSize(event));
+        metrics.release(first);
+        metrics.release(second);
+        assertThat(metrics.getQueuedBytes()).isEqualTo(0L);
+    }
+
+    @Test
+    public void shouldReleaseSizeEstimatedWhenAcquired() throws InterruptedException {
+        EventQueueMetrics metrics = new EventQueueMetrics(new LinkedBlockingDeque<>(), 10, 0L);
+        Event event = insert(10, 100);
+        QueuedEvent queued = metrics.acquire(event);
+        // Processing the event doesn't change the size that is released ...
+        ((WriteRowsEventData) event.getData()).setRows(new ArrayList<>());
+        metrics.release(queued);
+        assertThat(metrics.getQueuedBytes()).isEqualTo(0L);
+    }
+
+    @Test
+    public void shouldBlockWhileQueuedBytesExceedLimit() throws InterruptedException {
+        Event event = insert(10, 1000);
+        long size = EventQueueMetrics.estimateSize(event);
+        EventQueueMetrics metrics = new EventQueueMetrics(new LinkedBlockingDeque<>(), 10, size + size / 2);
+        // The first event is always accepted ...
+        QueuedEvent queued = metrics.acquire(event);
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                metrics.acquire(event);
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.interrupted();
+            }
+        });
+        producer.start();
+        assertThat(acquired.await(100, TimeUnit.MILLISECONDS)).isFalse();
+        metrics.release(queued);
+        assertThat(acquired.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(metrics.getQueuedBytes()).isEqualTo(size);
+        producer.join();
+    }
+
+    protected Event insert(int numberOfRows, int valueLength) {
+        List<Serializable[]> rows = new ArrayList<>();
+        for (int i = 0; i != numberOfRows; ++i) {
+            rows.add(new Serializable[] { i, new byte[valueLength] });
+        }
+        WriteRowsEventData data = new WriteRowsEventData();
+        data.setRows(rows);
+        EventHeaderV4 header = new EventHeaderV4();
+        header.setEventType(EventType.EXT_WRITE_ROWS);
+        return new Event(header, data);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Randall Hauch
+ */
+public class GtidSetTest {
+
+    private static final String UUID1 = "24bc7850-2c16-11e6-a073-0242ac110002";
+    private static final String UUID2 = "7145bf69-d1ca-11e5-a588-0242ac110004";
+
+    @Test
+    public void shouldParseAndFormatGtidSets() {
+        assertThat(GtidSet.parse(null).isEmpty()).isTrue();
+        assertThat(GtidSet.parse("").toString()).isEqualTo("");
+        assertThat(GtidSet.parse(UUID1 + ":1-5").toString()).isEqualTo(UUID1 + ":1-5");
+        assertThat(GtidSet.parse(UUID2 + ":1-3:7, \n" + UUID1 + ":1-5:11-18").toString())
+                .isEqualTo(UUID1 + ":1-5:11-18," + UUID2 + ":1-3:7");
+    }
+
+    @Test
+    public void shouldMergeOverlappingAndAdjacentIntervalsWhenParsing() {
+        assertThat(GtidSet.parse(UUID1 + ":11-18:1-5:6:17-20").toString()).isEqualTo(UUID1 + ":1-6:11-20");
+        assertThat(GtidSet.parse(UUID1 + ":3-4:7-8:1-10").toString()).isEqualTo(UUID1 + ":1-10");
+    }
+
+    @Test
+    public void shouldAddConsecutiveTransactions() {
+        GtidSet gtids = new GtidSet();
+        for (int i = 1; i <= 1000; ++i) {
+            assertThat(gtids.add(UUID1 + ":" + i)).isTrue();
+        }
+        assertThat(gtids.add(UUID2 + ":1")).isTrue();
+        assertThat(gtids.add(UUID1 + ":1001")).isTrue();
+        assertThat(gtids.toString()).isEqualTo(UUID1 + ":1-1001," + UUID2 + ":1");
+    }
+
+    @Test
+    public void shouldAddTransactionsOutOfOrder() {
+        GtidSet gtids = new GtidSet();
+        assertThat(gtids.add(UUID1, 10)).isTrue();
+        assertThat(gtids.add(UUID1, 5)).isTrue();
+        assertThat(gtids.add(UUID1, 7)).isTrue();
+        assertThat(gtids.toString()).isEqualTo(UUID1 + ":5:7:10");
+        assertThat(gtids.add(UUID1, 6)).isTrue();
+        assertThat(gtids.add(UUID1, 9)).isTrue();
+        assertThat(gtids.add(UUID1, 8)).isTrue();
+        assertThat(gtids.toString()).isEqualTo(UUID1 + ":5-10");
+        assertThat(gtids.add(UUID1, 7)).isFalse();
+        assertThat(gtids.toString()).isEqualTo(UUID1 + ":5-10");
+    }
+
+    @Test
+    public void shouldDetermineWhetherTransactionsAreContained() {
+        GtidSet gtids = GtidSet.parse(UUID1 + ":1-5:11-18");
+        assertThat(gtids.contains(UUID1, 1)).isTrue();
+        assertThat(gtids.contains(UUID1, 5)).isTrue();
+        assertThat(gtids.contains(UUID1, 6)).isFalse();
+        assertThat(gtids.contains(UUID1, 11)).isTrue();
+        assertThat(gtids.contains(UUID1, 19)).isFalse();
+        assertThat(gtids.contains(UUID2, 1)).isFalse();
+    }
+
+    @Test
+    public void shouldAddAllTransactionsOfAnotherSet() {
+        GtidSet gtids = GtidSet.parse(UUID1 + ":1-5:11-18");
+        gtids.addAll(GtidSet.parse(UUID1 + ":6-10:20," + UUID2 + ":1-3"));
+        assertThat(gtids.toString()).isEqualTo(UUID1 + ":1-18:20," + UUID2 + ":1-3");
+        assertThat(gtids).isEqualTo(GtidSet.parse(UUID2 + ":1-3," + UUID1 + ":20:1-18"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailToParseGtidSetWithoutIntervals() {
+        GtidSet.parse(UUID1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailToParseGtidSetWithInvalidInterval() {
+        GtidSet.parse(UUID1 + ":5-1");
+    }
+}
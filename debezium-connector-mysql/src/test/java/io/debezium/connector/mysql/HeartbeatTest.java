@@ -0,0 +1,97 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Randall Hauch
+ */
+public class HeartbeatTest {
+
+    private AtomicLong time;
+    private SourceInfo source;
+    private Heartbeat heartbeat;
+
+    @Before
+    public void beforeEach() {
+        time = new AtomicLong(1000L);
+        source = new SourceInfo();
+        source.setServerName("server1");
+        source.setBinlogFilename("mysql-bin.000001");
+        source.setBinlogPosition(4L);
+        heartbeat = new Heartbeat("server1.heartbeat", "server1", 100L, time::get);
+    }
+
+    @Test
+    public void shouldProduceHeartbeatOnlyAfterIntervalWithoutRecords() {
+        source.setBinlogPosition(1000L);
+        assertThat(process().isEmpty()).isTrue();
+
+        time.addAndGet(100L);
+        List<SourceRecord> records = process();
+        assertThat(records.size()).isEqualTo(1);
+        assertThat(records.get(0).topic()).isEqualTo("server1.heartbeat");
+        assertThat(records.get(0).key()).isEqualTo("server1");
+        assertThat(records.get(0).sourceOffset().get(SourceInfo.BINLOG_POSITION_OFFSET_KEY)).isEqualTo(1000L);
+        assertThat(((Struct) records.get(0).value()).get(Heartbeat.TIMESTAMP_FIELD)).isEqualTo(1100L);
+
+        // The next interval starts with the heartbeat ...
+        source.setBinlogPosition(2000L);
+        time.addAndGet(99L);
+        assertThat(process().isEmpty()).isTrue();
+        time.addAndGet(1L);
+        assertThat(process().size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotProduceHeartbeatWhenPositionHasNotChangedSinceLastRecord() {
+        source.setBinlogPosition(1000L);
+        List<SourceRecord> records = new ArrayList<>();
+        records.add(new SourceRecord(source.partition(), source.offset(), "server1.db1.t1", null, null));
+        heartbeat.process(records, source);
+
+        time.addAndGet(500L);
+        assertThat(heartbeat.isDue(source)).isFalse();
+        assertThat(process().isEmpty()).isTrue();
+
+        source.setBinlogPosition(1500L);
+        assertThat(heartbeat.isDue(source)).isTrue();
+        assertThat(process().size()).isEqualTo(1);
+        assertThat(heartbeat.isDue(source)).isFalse();
+    }
+
+    @Test
+    public void shouldNotProduceHeartbeatBeforeBinlogFilenameIsKnown() {
+        source = new SourceInfo();
+        source.setServerName("server1");
+        time.addAndGet(500L);
+        assertThat(heartbeat.isDue(source)).isFalse();
+        assertThat(process().isEmpty()).isTrue();
+
+        // The first ROTATE event sets the binlog filename ...
+        source.setBinlogFilename("mysql-bin.000001");
+        source.setBinlogPosition(4L);
+        List<SourceRecord> records = process();
+        assertThat(records.size()).isEqualTo(1);
+        new SourceInfo().setOffset(records.get(0).sourceOffset());
+    }
+
+    protected List<SourceRecord> process() {
+        List<SourceRecord> records = new ArrayList<>();
+        heartbeat.process(records, source);
+        return records;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.kafka.connect.errors.ConnectException;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import io.debezium.relational.TableId;
+
+/**
+ * @author Randall Hauch
+ */
+public class IncrementalSnapshotTest {
+
+    @Test
+    public void shouldFormatAndParsePrimaryKeyOfSingleColumn() {
+        String key = IncrementalSnapshot.formatKey(new Object[] { "a", 1024L }, new int[] { 1 });
+        assertThat(key).isEqualTo("[1024]");
+        List<Object> values = IncrementalSnapshot.parseKey(key);
+        assertThat(values.size()).isEqualTo(1);
+        assertThat(((Number) values.get(0)).longValue()).isEqualTo(1024L);
+    }
+
+    @Test
+    public void shouldFormatAndParsePrimaryKeyOfMultipleColumns() {
+        Object[] row = { (short) 7, "it's \"quoted\"", new BigDecimal("12.50"), Timestamp.valueOf("2016-06-01 10:11:12") };
+        List<Object> values = IncrementalSnapshot.parseKey(IncrementalSnapshot.formatKey(row, new int[] { 1, 0, 2, 3 }));
+        assertThat(values.size()).isEqualTo(4);
+        assertThat(values.get(0)).isEqualTo("it's \"quoted\"");
+        assertThat(((Number) values.get(1)).intValue()).isEqualTo(7);
+        assertThat(new BigDecimal(values.get(2).toString()).compareTo(new BigDecimal("12.5"))).isEqualTo(0);
+        assertThat(values.get(3)).isEqualTo("2016-06-01 10:11:12.0");
+    }
+
+    @Test
+    public void shouldParseMissingKeyAsNoValues() {
+        assertThat(IncrementalSnapshot.parseKey(null).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldFormatAndParseTablesWithNamesContainingDelimiters() {
+        List<TableId> tableIds = Arrays.asList(new TableId("db1", null, "t1"), new TableId("db.2", null, "t,2"),
+                                               new TableId("db1", null, "t\"3"));
+        String tables = IncrementalSnapshot.formatTables(tableIds);
+        assertThat(IncrementalSnapshot.parseTables(tables)).isEqualTo(tableIds);
+        assertThat(IncrementalSnapshot.parseTables(IncrementalSnapshot.formatTables(tableIds.subList(1, 3))))
+                .isEqualTo(tableIds.subList(1, 3));
+    }
+
+    @Test(expected = ConnectException.class)
+    public void shouldNotParseTablesInCommaSeparatedList() {
+        IncrementalSnapshot.parseTables("db1.t1,db1.t2");
+    }
+
+    @Test(expected = ConnectException.class)
+    public void shouldNotParseTablesWithoutDatabaseName() {
+        IncrementalSnapshot.parseTables("[[\"t1\"]]");
+    }
+}
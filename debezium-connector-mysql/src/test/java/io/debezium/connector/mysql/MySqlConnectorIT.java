@@ -6,9 +6,22 @@
 package io.debezium.connector.mysql;
 
 import java.nio.file.Path;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -27,8 +40,11 @@
 public class MySqlConnectorIT extends AbstractConnectorTest {
 
     private static final Path DB_HISTORY_PATH = Testing.Files.createTestingPath("file-db-history.txt").toAbsolutePath();
+    private static final String SNAPSHOT_SERVER_NAME = "snapshotter";
+    private static final String SNAPSHOT_DATABASE = "snapshot_test";
 
     private Configuration config;
+    private final AtomicReference<Throwable> writerFailure = new AtomicReference<>();
 
     @Before
     public void beforeEach() {
@@ -39,6 +55,12 @@ public void beforeEach() {
     public void afterEach() {
         Testing.Files.delete(DB_HISTORY_PATH);
     }
+
+    @Override
+    protected int getMaximumEnqueuedRecordCount() {
+        // The snapshot tests consume a record for every row of their tables ...
+        return 200000;
+    }
     
     /**
      * Verifies that the connector doesn't run with an invalid configuration. This does not actually connect to the MySQL server.
@@ -123,4 +145,242 @@ public void shouldStartAndPollShouldReturnSourceRecordsFromDatabase() throws SQL
         // We should have seen a total of 30 events, though when they appear may vary ...
         assertThat(totalConsumed).isEqualTo(30);
     }
+
+    /**
+     * Verifies that a snapshot of a table that is being written to produces exactly one record for each row: every row that
+     * existed when the global read lock was held is read by the snapshot's threads, and every row inserted after that is read
+     * from the binlog starting at the position captured under the lock.
+     */
+    @Test
+    public void shouldSnapshotTableWhileWritesContinueAndThenReadBinlogFromSnapshotPosition() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread writer = startWriter(writing, () -> "INSERT INTO orders_initial VALUES (default, 2)");
+        setConsumeTimeout(10, TimeUnit.SECONDS);
+        // Read the table in many chunks on several threads ...
+        start(MySqlConnector.class, snapshotConfig("orders_initial", "initial").with(MySqlConnectorConfig.SNAPSHOT_THREADS, 3)
+                                                                            .with(MySqlConnectorConfig.SNAPSHOT_CHUNK_SIZE, 5000)
+                                                                            .build());
+        // Continue writing while the snapshot is being read ...
+        assertThat(waitForAvailableRecords(30, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(2000);
+        stopWriter(writing, writer);
+        List<SourceRecord> records = consumeRowsOf("orders_initial");
+        stopConnector();
+
+        assertEachRowProducedOnce(records, "orders_initial");
+        assertThat(records.stream().filter(this::isSnapshot).count()).isGreaterThan(0);
+        // The last record of the snapshot has the offset at which the binlog is read, so more than one indicates binlog rows ...
+        assertThat(records.stream().filter(record -> !isSnapshot(record)).count()).isGreaterThan(1);
+    }
+
+    /**
+     * Verifies that a connector stopped during a snapshot starts the snapshot again when it is restarted, and then continues with
+     * the binlog from the position of the new snapshot.
+     */
+    @Test
+    public void shouldRestartIncompleteSnapshot() throws Exception {
+        Configuration config = snapshotConfig("orders_restart", "initial").with(MySqlConnectorConfig.SNAPSHOT_CHUNK_SIZE, 5000)
+                                                                          .with(MySqlConnectorConfig.MAX_BATCH_SIZE, 64)
+                                                                          .build();
+        setConsumeTimeout(10, TimeUnit.SECONDS);
+        start(MySqlConnector.class, config);
+        assertThat(waitForAvailableRecords(30, TimeUnit.SECONDS)).isTrue();
+        stopConnector();
+        List<SourceRecord> firstRun = new ArrayList<>();
+        consumeAvailableRecords(firstRun::add);
+        // The offset of the last record is the one that was committed, and it must be that of the incomplete snapshot ...
+        assertThat(isSnapshot(firstRun.get(firstRun.size() - 1))).isTrue();
+        assertThat(rowsOf(firstRun, "orders_restart").size()).isLessThan(readAmounts("orders_restart").size());
+
+        // Change the table while the connector is stopped, and then restart ...
+        execute("INSERT INTO orders_restart VALUES (default, 3)");
+        start(MySqlConnector.class, config);
+        List<SourceRecord> secondRun = consumeRowsOf("orders_restart");
+        execute("INSERT INTO orders_restart VALUES (default, 4)");
+        secondRun.addAll(consumeRowsOf("orders_restart"));
+        stopConnector();
+
+        // The restarted snapshot reads all of the rows, and the binlog after the snapshot has the last insert ...
+        assertEachRowProducedOnce(secondRun, "orders_restart");
+        assertThat(isSnapshot(secondRun.get(0))).isTrue();
+        assertThat(isSnapshot(secondRun.get(secondRun.size() - 1))).isFalse();
+    }
+
+    /**
+     * Verifies that the rows of an incremental snapshot that are changed while their chunk is being read are superseded by the
+     * records read from the binlog, so that the last record of every row has the row's current state.
+     */
+    @Test
+    public void shouldProduceCurrentRowsWhenTableIsChangedDuringIncrementalSnapshot() throws Exception {
+        Map<Integer, Integer> initial = readAmounts("orders_incremental");
+        List<Integer> ids = new ArrayList<>(initial.keySet());
+        Random random = new Random();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread writer = startWriter(writing, () -> random.nextInt(10) == 0 ? "INSERT INTO orders_incremental VALUES (default, 5)"
+                : "UPDATE orders_incremental SET amount = amount + 1 WHERE id = " + ids.get(random.nextInt(ids.size())));
+        setConsumeTimeout(10, TimeUnit.SECONDS);
+        // Use small chunks, so that many of them are read while the rows are being changed ...
+        Configuration config = snapshotConfig("orders_incremental", "incremental").with(MySqlConnectorConfig.INCREMENTAL_SNAPSHOT_CHUNK_SIZE, 100)
+                                                                                  .build();
+        start(MySqlConnector.class, config);
+        assertThat(waitForAvailableRecords(30, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(2000);
+        stopWriter(writing, writer);
+        List<SourceRecord> records = consumeRowsOf("orders_incremental");
+        stopConnector();
+
+        // The snapshot must be complete, and the last record of each row must have the row's current amount ...
+        assertThat(records.get(records.size() - 1).sourceOffset().get(SourceInfo.SNAPSHOT_TABLES_OFFSET_KEY)).isNull();
+        Map<Integer, Integer> lastAmounts = new HashMap<>();
+        records.forEach(record -> lastAmounts.put(idOf(record), amountOf(record)));
+        assertThat(lastAmounts).isEqualTo(readAmounts("orders_incremental"));
+    }
+
+    /**
+     * Verifies that a connector stopped during an incremental snapshot continues the snapshot after the primary key recorded in
+     * its offset, rather than reading the table again from the start.
+     */
+    @Test
+    public void shouldResumeIncrementalSnapshotAfterRecordedKey() throws Exception {
+        Configuration config = snapshotConfig("orders_resume", "incremental").with(MySqlConnectorConfig.INCREMENTAL_SNAPSHOT_CHUNK_SIZE, 100)
+                                                                             .with(MySqlConnectorConfig.MAX_BATCH_SIZE, 64)
+                                                                             .build();
+        Set<Integer> ids = readAmounts("orders_resume").keySet();
+        setConsumeTimeout(10, TimeUnit.SECONDS);
+        start(MySqlConnector.class, config);
+        List<SourceRecord> firstRun = new ArrayList<>();
+        consumeRecords(1000, firstRun::add);
+        stopConnector();
+        consumeAvailableRecords(firstRun::add);
+        // The offset of the last record is the one that was committed, and it must be that of the incomplete snapshot ...
+        Map<String, ?> offset = firstRun.get(firstRun.size() - 1).sourceOffset();
+        assertThat(offset.get(SourceInfo.SNAPSHOT_TABLES_OFFSET_KEY)).isNotNull();
+        List<Object> lastKey = IncrementalSnapshot.parseKey((String) offset.get(SourceInfo.SNAPSHOT_KEY_OFFSET_KEY));
+        assertThat(lastKey.size()).isEqualTo(1);
+        int lastId = ((Number) lastKey.get(0)).intValue();
+
+        start(MySqlConnector.class, config);
+        List<SourceRecord> secondRun = consumeRowsOf("orders_resume");
+        stopConnector();
+
+        // Only the rows after the recorded key are read again, and together the runs include every row ...
+        Set<Integer> secondIds = new TreeSet<>();
+        secondRun.forEach(record -> secondIds.add(idOf(record)));
+        assertThat(secondIds.isEmpty()).isFalse();
+        assertThat(secondIds.iterator().next()).isGreaterThan(lastId);
+        assertThat(secondIds.size()).isLessThan(ids.size());
+        Set<Integer> allIds = new TreeSet<>(secondIds);
+        rowsOf(firstRun, "orders_resume").forEach(record -> allIds.add(idOf(record)));
+        assertThat(allIds).isEqualTo(new TreeSet<>(ids));
+    }
+
+    protected Configuration.Builder snapshotConfig(String tableName, String snapshotMode) {
+        return Configuration.create()
+                            .with(MySqlConnectorConfig.HOSTNAME, System.getProperty("database.hostname"))
+                            .with(MySqlConnectorConfig.PORT, System.getProperty("database.port"))
+                            .with(MySqlConnectorConfig.USER, "replicator")
+                            .with(MySqlConnectorConfig.PASSWORD, "replpass")
+                            .with(MySqlConnectorConfig.SERVER_ID, 18766)
+                            .with(MySqlConnectorConfig.SERVER_NAME, SNAPSHOT_SERVER_NAME)
+                            .with(MySqlConnectorConfig.DATABASE_WHITELIST, SNAPSHOT_DATABASE)
+                            .with(MySqlConnectorConfig.TABLE_WHITELIST, SNAPSHOT_DATABASE + "." + tableName)
+                            .with(MySqlConnectorConfig.SNAPSHOT_MODE, snapshotMode)
+                            .with(MySqlConnectorConfig.DATABASE_HISTORY, FileDatabaseHistory.class)
+                            .with(FileDatabaseHistory.FILE_PATH, DB_HISTORY_PATH);
+    }
+
+    /**
+     * Start a thread that repeatedly executes the supplied statements against the snapshot test database, until told to stop.
+     * 
+     * @param writing the flag that is cleared to stop the thread; may not be null
+     * @param statements the supplier of the statements for each transaction; may not be null
+     * @return the thread; never null
+     */
+    protected Thread startWriter(AtomicBoolean writing, Supplier<String> statements) {
+        Thread writer = new Thread(() -> {
+            try (MySQLConnection db = MySQLConnection.forTestDatabase(SNAPSHOT_DATABASE)) {
+                JdbcConnection connection = db.connect();
+                while (writing.get()) {
+                    connection.execute(statements.get());
+                }
+            } catch (Throwable e) {
+                writerFailure.set(e);
+            }
+        }, "snapshot-test-writer");
+        writer.start();
+        return writer;
+    }
+
+    protected void stopWriter(AtomicBoolean writing, Thread writer) throws InterruptedException {
+        writing.set(false);
+        writer.join();
+        assertThat(writerFailure.get()).isNull();
+    }
+
+    protected void execute(String statement) throws SQLException {
+        try (MySQLConnection db = MySQLConnection.forTestDatabase(SNAPSHOT_DATABASE)) {
+            db.connect().execute(statement);
+        }
+    }
+
+    /**
+     * Read the amount of each row in the given table of the snapshot test database.
+     * 
+     * @param tableName the name of the table
+     * @return the amounts keyed by the identifiers of the rows; never null
+     * @throws SQLException if the rows could not be read
+     */
+    protected Map<Integer, Integer> readAmounts(String tableName) throws SQLException {
+        Map<Integer, Integer> amounts = new HashMap<>();
+        try (MySQLConnection db = MySQLConnection.forTestDatabase(SNAPSHOT_DATABASE)) {
+            db.connect().query("SELECT id, amount FROM " + tableName, Connection::createStatement, rs -> {
+                while (rs.next()) {
+                    amounts.put(rs.getInt(1), rs.getInt(2));
+                }
+            });
+        }
+        return amounts;
+    }
+
+    /**
+     * Consume records until none arrive within the consume timeout, and return those of the given table.
+     * 
+     * @param tableName the name of the table
+     * @return the records of the table's rows, in the order they were produced; never null
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    protected List<SourceRecord> consumeRowsOf(String tableName) throws InterruptedException {
+        List<SourceRecord> records = new ArrayList<>();
+        SourceRecord record;
+        while ((record = consumeRecord()) != null) {
+            records.add(record);
+        }
+        return rowsOf(records, tableName);
+    }
+
+    protected List<SourceRecord> rowsOf(List<SourceRecord> records, String tableName) {
+        String topic = SNAPSHOT_SERVER_NAME + "." + SNAPSHOT_DATABASE + "." + tableName;
+        List<SourceRecord> rows = new ArrayList<>();
+        records.stream().filter(record -> topic.equals(record.topic())).forEach(rows::add);
+        return rows;
+    }
+
+    protected void assertEachRowProducedOnce(List<SourceRecord> records, String tableName) throws SQLException {
+        Map<Integer, Integer> counts = new HashMap<>();
+        records.forEach(record -> counts.merge(idOf(record), 1, Integer::sum));
+        assertThat(counts.keySet()).isEqualTo(readAmounts(tableName).keySet());
+        assertThat(counts.values().stream().allMatch(count -> count == 1)).isTrue();
+    }
+
+    protected boolean isSnapshot(SourceRecord record) {
+        return Boolean.TRUE.equals(record.sourceOffset().get(SourceInfo.SNAPSHOT_KEY));
+    }
+
+    protected int idOf(SourceRecord record) {
+        return ((Struct) record.key()).getInt32("id");
+    }
+
+    protected int amountOf(SourceRecord record) {
+        return ((Struct) record.value()).getInt32("amount");
+    }
 }
@@ -0,0 +1,329 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.source.SourceTaskContext;
+import org.apache.kafka.connect.storage.OffsetStorageReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import com.github.shyiko.mysql.binlog.event.XidEventData;
+
+import io.debezium.config.Configuration;
+import io.debezium.relational.Tables;
+import io.debezium.relational.history.FileDatabaseHistory;
+import io.debezium.util.Testing;
+
+/**
+ * Tests of the {@link MySqlConnectorTask} that read local binlog files rather than connecting to a MySQL server.
+ *
+ * @author Randall Hauch
+ */
+public class MySqlConnectorTaskTest {
+
+    private Path directory;
+    private MySqlConnectorTask task;
+    private Map<String, ?> storedOffset;
+
+    @Before
+    public void beforeEach() throws IOException {
+        Testing.Files.delete(Testing.Files.createTestingPath("task-binlog-files"));
+        directory = Testing.Files.createTestingDirectory("task-binlog-files").toPath();
+        new BinlogBuilder().addQuery("db1", "CREATE TABLE t1 (id INT NOT NULL PRIMARY KEY)")
+                           .addQuery("db1", "BEGIN")
+                           .addTableMap(1, "db1", "t1")
+                           .addWriteRows(1, 1, 2, 3)
+                           .addWriteRow(1, 4)
+                           .addXid(100)
+                           .addQuery("db1", "BEGIN")
+                           .addTableMap(1, "db1", "t1")
+                           .addWriteRow(1, 5)
+                           .addXid(101)
+                           .writeTo(directory.resolve("mysql-bin.000001"));
+    }
+
+    @After
+    public void afterEach() {
+        if (task != null) task.stop();
+    }
+
+    @Test
+    public void shouldResumeWithinPartiallyProcessedEventAfterRestart() throws InterruptedException {
+        startTask(config(2));
+        List<SourceRecord> batch = pollRecords(1);
+        assertThat(ids(batch)).isEqualTo(ids(1, 2));
+        storedOffset = batch.get(1).sourceOffset();
+        task.stop();
+
+        startTask(config(2));
+        assertThat(ids(pollRecords(3))).isEqualTo(ids(3, 4, 5));
+    }
+
+    @Test
+    public void shouldTrackGtidsOfCompletedTransactionsAndResumeWithinGtidTransaction() throws Exception {
+        String uuid = "24bc7850-2c16-11e6-a073-0242ac110002";
+        new BinlogBuilder().addPreviousGtids(uuid, 1, 10)
+                           .addGtid(uuid, 11)
+                           .addQuery("db1", "CREATE TABLE t1 (id INT NOT NULL PRIMARY KEY)")
+                           .addGtid(uuid, 12)
+                           .addQuery("db1", "BEGIN")
+                           .addTableMap(1, "db1", "t1")
+                           .addWriteRows(1, 1, 2, 3)
+                           .addXid(100)
+                           .addGtid(uuid, 13)
+                           .addQuery("db1", "BEGIN")
+                           .addTableMap(1, "db1", "t1")
+                           .addWriteRow(1, 4)
+                           .addXid(101)
+                           .writeTo(directory.resolve("mysql-bin.000001"));
+        startTask(config(2));
+        List<SourceRecord> batch = pollRecords(1);
+        assertThat(ids(batch)).isEqualTo(ids(1, 2));
+        assertThat(batch.get(0).sourceOffset().get(SourceInfo.GTID_SET_OFFSET_KEY)).isEqualTo(uuid + ":1-11");
+        storedOffset = batch.get(1).sourceOffset();
+        task.stop();
+
+        startTask(config(2));
+        List<SourceRecord> records = pollRecords(2);
+        assertThat(ids(records)).isEqualTo(ids(3, 4));
+        assertThat(records.get(0).sourceOffset().get(SourceInfo.GTID_SET_OFFSET_KEY)).isEqualTo(uuid + ":1-11");
+        assertThat(records.get(1).sourceOffset().get(SourceInfo.GTID_SET_OFFSET_KEY)).isEqualTo(uuid + ":1-12");
+    }
+
+    @Test
+    public void shouldEmitTransactionMarkersAndEndBatchesAtTransactionBoundaries() throws InterruptedException {
+        Map<String, String> config = config(7);
+        config.put(MySqlConnectorConfig.TRANSACTION_MARKERS.name(), "true");
+        config.put(MySqlConnectorConfig.TRANSACTION_BATCHING.name(), "true");
+        startTask(config);
+
+        List<SourceRecord> records = new ArrayList<>();
+        while (records.size() < 9) {
+            List<SourceRecord> batch = task.poll();
+            assertThat(batch.size() <= 7).isTrue();
+            if (batch.isEmpty()) continue;
+            assertMarker(batch.get(batch.size() - 1), TransactionMarkers.END);
+            records.addAll(batch);
+        }
+        assertThat(records.size()).isEqualTo(9);
+        assertMarker(records.get(0), TransactionMarkers.BEGIN);
+        assertThat(((Struct) records.get(5).value()).get(TransactionMarkers.EVENT_COUNT_FIELD)).isEqualTo(4L);
+        assertMarker(records.get(6), TransactionMarkers.BEGIN);
+        assertThat(((Struct) records.get(8).value()).get(TransactionMarkers.EVENT_COUNT_FIELD)).isEqualTo(1L);
+        assertThat(records.get(8).sourceOffset().get(SourceInfo.BINLOG_EVENTS_TO_SKIP_OFFSET_KEY)).isEqualTo(0);
+    }
+
+    @Test(timeout = 30000)
+    public void shouldReturnBeginningOfTransactionWhenRestIsNotReadWithinPollInterval() throws InterruptedException {
+        CountDownLatch commitRead = new CountDownLatch(1);
+        Map<String, String> config = config(10);
+        config.put(MySqlConnectorConfig.TRANSACTION_MARKERS.name(), "true");
+        config.put(MySqlConnectorConfig.TRANSACTION_BATCHING.name(), "true");
+        MySqlConnectorTask task = new MySqlConnectorTask();
+        task.beforeEnqueue(event -> {
+            if (event.getData() instanceof XidEventData && ((XidEventData) event.getData()).getXid() == 101) {
+                // Hold back the commit of the second transaction ...
+                try {
+                    commitRead.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        startTask(task, config);
+
+        // The first transaction is returned whole, and the second without its commit ...
+        List<SourceRecord> records = pollRecords(8);
+        assertThat(records.size()).isEqualTo(8);
+        assertMarker(records.get(5), TransactionMarkers.END);
+        assertMarker(records.get(6), TransactionMarkers.BEGIN);
+        assertThat(((Struct) records.get(7).value()).get("id")).isEqualTo(5);
+
+        commitRead.countDown();
+        List<SourceRecord> batch = pollRecords(1);
+        assertThat(batch.size()).isEqualTo(1);
+        assertMarker(batch.get(0), TransactionMarkers.END);
+    }
+
+    @Test(timeout = 30000)
+    public void shouldEndBatchAtTransactionBoundaryWhenConvertedRowsProduceNoRecords() throws Exception {
+        new BinlogBuilder().addQuery("db1", "CREATE TABLE t1 (id INT NOT NULL PRIMARY KEY)")
+                           .addQuery("db1", "CREATE TABLE t2 (id INT NOT NULL)")
+                           .addQuery("db1", "BEGIN")
+                           .addTableMap(2, "db1", "t2")
+                           .addDeleteRows(2, 7, 8, 9)
+                           .addTableMap(1, "db1", "t1")
+                           .addWriteRow(1, 1)
+                           .addXid(100)
+                           .addQuery("db1", "BEGIN")
+                           .addTableMap(1, "db1", "t1")
+                           .addWriteRows(1, 2, 3)
+                           .addXid(101)
+                           .writeTo(directory.resolve("mysql-bin.000001"));
+        CountDownLatch commitReached = new CountDownLatch(1);
+        CountDownLatch commitRead = new CountDownLatch(1);
+        Map<String, String> config = config(10);
+        config.put(MySqlConnectorConfig.TRANSACTION_BATCHING.name(), "true");
+        config.put(MySqlConnectorConfig.CONVERTER_THREADS.name(), "2");
+        MySqlConnectorTask task = new MySqlConnectorTask();
+        task.beforeEnqueue(event -> {
+            if (event.getData() instanceof XidEventData && ((XidEventData) event.getData()).getXid() == 101) {
+                // Hold back the commit of the second transaction until the rest has been read ...
+                commitReached.countDown();
+                try {
+                    commitRead.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        startTask(task, config);
+        commitReached.await();
+
+        // The deletes in the table without a primary key produce no records, so only the first transaction is returned ...
+        assertThat(ids(pollRecords(1))).isEqualTo(ids(1));
+
+        commitRead.countDown();
+        assertThat(ids(pollRecords(2))).isEqualTo(ids(2, 3));
+    }
+
+    @Test
+    public void shouldProduceHeartbeatWithPositionOfEventsForExcludedTables() throws Exception {
+        new BinlogBuilder().addQuery("db1", "CREATE TABLE t1 (id INT NOT NULL PRIMARY KEY)")
+                           .addQuery("db1", "BEGIN")
+                           .addTableMap(1, "db1", "t1")
+                           .addWriteRows(1, 1, 2, 3)
+                           .addXid(100)
+                           .writeTo(directory.resolve("mysql-bin.000001"));
+        Map<String, String> config = config(10);
+        config.put(MySqlConnectorConfig.TABLE_BLACKLIST.name(), "db1.t1");
+        config.put(MySqlConnectorConfig.HEARTBEAT_INTERVAL_MS.name(), "1");
+        startTask(config);
+
+        // Only heartbeats are produced, until one has the position at the end of the file ...
+        long endPosition = Files.size(directory.resolve("mysql-bin.000001"));
+        long position = 0L;
+        while (position != endPosition) {
+            for (SourceRecord heartbeat : task.poll()) {
+                assertThat(heartbeat.topic()).isEqualTo("server1.heartbeat");
+                position = (Long) heartbeat.sourceOffset().get(SourceInfo.BINLOG_POSITION_OFFSET_KEY);
+            }
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void shouldReturnEmptyBatchesOnceAllEventsInFilesAreProcessed() throws InterruptedException {
+        startTask(config(10));
+        assertThat(ids(pollRecords(5))).isEqualTo(ids(1, 2, 3, 4, 5));
+        assertThat(task.poll()).isEmpty();
+        assertThat(task.poll()).isEmpty();
+    }
+
+    @Test(timeout = 30000)
+    public void shouldRecoverTablesRecordedBySnapshotAfterRestart() throws Exception {
+        // The binlog after the snapshot's position contains only changes to the snapshotted table ...
+        new BinlogBuilder().addQuery("db1", "BEGIN")
+                           .addTableMap(1, "db1", "t1")
+                           .addWriteRows(1, 1, 2)
+                           .addXid(100)
+                           .writeTo(directory.resolve("mysql-bin.000001"));
+
+        // The snapshot records the table's definition at the binlog position where the snapshot started ...
+        SourceInfo source = new SourceInfo();
+        source.setServerName("server1");
+        source.setBinlogFilename("mysql-bin.000001");
+        source.setBinlogPosition(4L);
+        FileDatabaseHistory history = new FileDatabaseHistory();
+        history.configure(Configuration.create().with(FileDatabaseHistory.FILE_PATH, directory.resolve("history.dat")).build());
+        history.start();
+        TableConverters converters = new TableConverters(TopicSelector.defaultSelector(), history, new Tables(), null);
+        converters.applyDdl(source, source.snapshotOffset(), "db1", "CREATE TABLE t1 (id INT NOT NULL PRIMARY KEY)", record -> {
+        });
+        history.stop();
+
+        // Restart with the offset of the completed snapshot ...
+        storedOffset = source.offset();
+        startTask(config(10));
+        assertThat(ids(pollRecords(2))).isEqualTo(ids(1, 2));
+    }
+
+    protected Map<String, String> config(int maxBatchSize) {
+        Map<String, String> config = new HashMap<>();
+        config.put(MySqlConnectorConfig.SERVER_NAME.name(), "server1");
+        config.put(MySqlConnectorConfig.SERVER_ID.name(), "1");
+        config.put(MySqlConnectorConfig.DATABASE_HISTORY.name(), FileDatabaseHistory.class.getName());
+        config.put(FileDatabaseHistory.FILE_PATH.name(), directory.resolve("history.dat").toString());
+        config.put(MySqlConnectorConfig.OFFLINE_BINLOG_FILES.name(), directory.toString());
+        config.put(MySqlConnectorConfig.MAX_BATCH_SIZE.name(), Integer.toString(maxBatchSize));
+        config.put(MySqlConnectorConfig.POLL_INTERVAL_MS.name(), "10");
+        return config;
+    }
+
+    protected void startTask(Map<String, String> config) {
+        startTask(new MySqlConnectorTask(), config);
+    }
+
+    protected void startTask(MySqlConnectorTask task, Map<String, String> config) {
+        this.task = task;
+        OffsetStorageReader offsetReader = new OffsetStorageReader() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public <T> Map<String, Object> offset(Map<String, T> partition) {
+                return (Map<String, Object>) storedOffset;
+            }
+
+            @Override
+            public <T> Map<Map<String, T>, Map<String, Object>> offsets(Collection<Map<String, T>> partitions) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        SourceTaskContext context = () -> offsetReader;
+        task.initialize(context);
+        task.start(config);
+    }
+
+    protected List<SourceRecord> pollRecords(int count) throws InterruptedException {
+        List<SourceRecord> records = new ArrayList<>();
+        while (records.size() < count) {
+            records.addAll(task.poll());
+        }
+        return records;
+    }
+
+    protected List<Object> ids(List<SourceRecord> records) {
+        List<Object> ids = new ArrayList<>();
+        records.forEach(record -> ids.add(((Struct) record.value()).get("id")));
+        return ids;
+    }
+
+    protected List<Object> ids(int... values) {
+        List<Object> ids = new ArrayList<>();
+        for (int value : values) {
+            ids.add(value);
+        }
+        return ids;
+    }
+
+    protected void assertMarker(SourceRecord record, String status) {
+        assertThat(record.topic()).isEqualTo("server1.transaction");
+        assertThat(((Struct) record.value()).get(TransactionMarkers.STATUS_FIELD)).isEqualTo(status);
+    }
+}
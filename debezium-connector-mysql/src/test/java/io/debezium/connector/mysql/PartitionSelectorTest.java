@@ -0,0 +1,222 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import com.github.shyiko.mysql.binlog.event.Event;
+import com.github.shyiko.mysql.binlog.event.EventHeaderV4;
+import com.github.shyiko.mysql.binlog.event.EventType;
+import com.github.shyiko.mysql.binlog.event.TableMapEventData;
+import com.github.shyiko.mysql.binlog.event.WriteRowsEventData;
+
+import io.debezium.config.Configuration;
+import io.debezium.relational.Table;
+import io.debezium.relational.TableId;
+import io.debezium.relational.TableSchema;
+import io.debezium.relational.TableSchemaBuilder;
+import io.debezium.relational.Tables;
+import io.debezium.relational.history.MemoryDatabaseHistory;
+
+/**
+ * @author Randall Hauch
+ */
+public class PartitionSelectorTest {
+
+    private Tables tables;
+
+    @Before
+    public void beforeEach() {
+        tables = new Tables();
+        MySqlDdlParser parser = new MySqlDdlParser();
+        parser.setCurrentSchema("db1");
+        parser.parse("CREATE TABLE t1 (id INT NOT NULL PRIMARY KEY, tenant BIGINT, name VARCHAR(20));", tables);
+        parser.parse("CREATE TABLE t2 (id INT NOT NULL PRIMARY KEY, tenant BIGINT);", tables);
+        parser.parse("CREATE TABLE t3 (id INT NOT NULL, tenant BIGINT NOT NULL, name VARCHAR(20), PRIMARY KEY (tenant, id));", tables);
+        parser.parse("CREATE TABLE t4 (code DECIMAL(10,0) NOT NULL PRIMARY KEY);", tables);
+    }
+
+    @Test
+    public void shouldLeavePartitionUnsetByDefault() {
+        PartitionSelector selector = PartitionSelector.factory(Configuration.create().build()).create(table("t1"));
+        assertThat(selector.partition(key(1), new Object[] { 1, 2L, "a" })).isNull();
+    }
+
+    @Test
+    public void shouldHashIntegralKeysOfAnyTypeToSamePartition() {
+        PartitionSelector selector = PartitionSelector.keyHash(16);
+        Schema intSchema = SchemaBuilder.struct().field("id", Schema.INT32_SCHEMA).build();
+        Schema longSchema = SchemaBuilder.struct().field("id", Schema.INT64_SCHEMA).build();
+        Set<Integer> partitions = new HashSet<>();
+        for (int id = 0; id != 1000; ++id) {
+            Integer partition = selector.partition(new Struct(intSchema).put("id", id), new Object[0]);
+            assertThat(partition).isEqualTo(selector.partition(new Struct(longSchema).put("id", (long) id), new Object[0]));
+            assertThat(partition >= 0 && partition < 16).isTrue();
+            partitions.add(partition);
+        }
+        assertThat(partitions.size()).isEqualTo(16);
+        assertThat(selector.partition(null, new Object[0])).isNull();
+    }
+
+    @Test
+    public void shouldHashStringAndByteKeys() {
+        assertThat(PartitionSelector.hash("abc")).isEqualTo(PartitionSelector.hash(new StringBuilder("abc")));
+        byte[] bytes = new byte[] { 1, 2, 3 };
+        assertThat(PartitionSelector.hash(bytes)).isEqualTo(PartitionSelector.hash(ByteBuffer.wrap(bytes)));
+        assertThat(PartitionSelector.hash("abc")).isNotEqualTo(PartitionSelector.hash("abd"));
+    }
+
+    @Test
+    public void shouldUseConfiguredColumnModuloPartitionCount() {
+        Configuration config = Configuration.create()
+                                            .with(MySqlConnectorConfig.PARTITION_STRATEGY, "column")
+                                            .with(MySqlConnectorConfig.PARTITION_COUNT, 4)
+                                            .with(MySqlConnectorConfig.PARTITION_COLUMNS, "db1.t3.tenant")
+                                            .build();
+        PartitionSelector.Factory factory = PartitionSelector.factory(config);
+        PartitionSelector selector = factory.create(table("t3"));
+        TableSchema schema = new TableSchemaBuilder().create(table("t3"));
+        Object[] row = new Object[] { 1, 6L, "a" };
+        assertThat(selector.partition(schema.keyFromColumnData(row), row)).isEqualTo(2);
+        row = new Object[] { 2, 7L, "b" };
+        assertThat(selector.partition(schema.keyFromColumnData(row), row)).isEqualTo(3);
+        row = new Object[] { 3, -1L, "c" };
+        assertThat(selector.partition(schema.keyFromColumnData(row), row)).isEqualTo(3);
+
+        // Tables without a configured column are partitioned by key ...
+        Integer expected = PartitionSelector.keyHash(4).partition(key(5), new Object[0]);
+        assertThat(factory.create(table("t2")).partition(key(5), new Object[] { 5, 6L })).isEqualTo(expected);
+    }
+
+    @Test
+    public void shouldAssignSamePartitionToColumnValuesOfDifferentTypesThatConvertToSameValue() {
+        Configuration config = Configuration.create()
+                                            .with(MySqlConnectorConfig.PARTITION_STRATEGY, "column")
+                                            .with(MySqlConnectorConfig.PARTITION_COUNT, 4)
+                                            .with(MySqlConnectorConfig.PARTITION_COLUMNS, "db1.t4.code")
+                                            .build();
+        PartitionSelector selector = PartitionSelector.factory(config).create(table("t4"));
+        TableSchema schema = new TableSchemaBuilder().create(table("t4"));
+        for (long code = 0; code != 20; ++code) {
+            // The binlog and a JDBC snapshot may return the same DECIMAL value as different types ...
+            Object[] binlogRow = new Object[] { code };
+            Object[] snapshotRow = new Object[] { BigDecimal.valueOf(code) };
+            Integer partition = selector.partition(schema.keyFromColumnData(snapshotRow), snapshotRow);
+            assertThat(selector.partition(schema.keyFromColumnData(binlogRow), binlogRow)).isEqualTo(partition);
+            assertThat(partition).isEqualTo(PartitionSelector.hash(BigDecimal.valueOf(code)) % 4);
+        }
+    }
+
+    @Test
+    public void shouldUseKeyHashForConfiguredColumnNotInPrimaryKey() {
+        Configuration config = Configuration.create()
+                                            .with(MySqlConnectorConfig.PARTITION_STRATEGY, "column")
+                                            .with(MySqlConnectorConfig.PARTITION_COUNT, 4)
+                                            .with(MySqlConnectorConfig.PARTITION_COLUMNS, "db1.t1.tenant")
+                                            .build();
+        PartitionSelector selector = PartitionSelector.factory(config).create(table("t1"));
+        PartitionSelector keyHash = PartitionSelector.keyHash(4);
+        for (int id = 0; id != 20; ++id) {
+            Integer expected = keyHash.partition(key(id), new Object[0]);
+            assertThat(selector.partition(key(id), new Object[] { id, 6L, "a" })).isEqualTo(expected);
+            // The column is missing from minimal row images ...
+            assertThat(selector.partition(key(id), new Object[] { id, null, null })).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void shouldAssignAllRecordsOfTableToSamePartition() {
+        Configuration config = Configuration.create()
+                                            .with(MySqlConnectorConfig.PARTITION_STRATEGY, "table")
+                                            .with(MySqlConnectorConfig.PARTITION_COUNT, 8)
+                                            .build();
+        PartitionSelector selector = PartitionSelector.factory(config).create(table("t1"));
+        Integer partition = selector.partition(key(1), new Object[] { 1, 6L, "a" });
+        assertThat(partition >= 0 && partition < 8).isTrue();
+        for (int id = 2; id != 100; ++id) {
+            assertThat(selector.partition(key(id), new Object[] { id, (long) id, "a" })).isEqualTo(partition);
+        }
+    }
+
+    @Test
+    public void shouldRequirePartitionCountForStrategiesOtherThanDefault() {
+        Configuration config = Configuration.create().with(MySqlConnectorConfig.PARTITION_STRATEGY, "key-hash").build();
+        List<String> problems = new ArrayList<>();
+        config.validate(MySqlConnectorConfig.ALL_FIELDS, problems::add);
+        assertThat(problems.stream().anyMatch(problem -> problem.contains(MySqlConnectorConfig.PARTITION_COUNT.name()))).isTrue();
+    }
+
+    @Test
+    public void shouldAssignPartitionsToRecordsConvertedFromBinlog() {
+        Configuration config = Configuration.create()
+                                            .with(MySqlConnectorConfig.PARTITION_STRATEGY, "key-hash")
+                                            .with(MySqlConnectorConfig.PARTITION_COUNT, 3)
+                                            .build();
+        TableConverters converters = new TableConverters(TopicSelector.defaultSelector(), new MemoryDatabaseHistory(), tables,
+                TableConverters.Options.create().withPartitionSelectors(PartitionSelector.factory(config)));
+        converters.loadTables();
+        SourceInfo source = new SourceInfo();
+        source.setServerName("server1");
+        source.setBinlogFilename("mysql-bin.000001");
+        List<SourceRecord> records = new ArrayList<>();
+
+        TableMapEventData tableMap = new TableMapEventData();
+        tableMap.setTableId(1L);
+        tableMap.setDatabase("db1");
+        tableMap.setTable("t1");
+        converters.updateTableMetadata(new Event(header(EventType.TABLE_MAP), tableMap), source, records::add);
+
+        List<Serializable[]> rows = new ArrayList<>();
+        for (int i = 0; i != 10; ++i) {
+            rows.add(new Serializable[] { i, 1L, "name" });
+        }
+        BitSet includedColumns = new BitSet();
+        includedColumns.set(0, 3);
+        WriteRowsEventData data = new WriteRowsEventData();
+        data.setTableId(1L);
+        data.setIncludedColumns(includedColumns);
+        data.setRows(rows);
+        converters.handleInsert(new Event(header(EventType.EXT_WRITE_ROWS), data), source, 10, records::add);
+
+        assertThat(records.size()).isEqualTo(10);
+        for (SourceRecord record : records) {
+            assertThat(record.kafkaPartition()).isEqualTo(PartitionSelector.hash(record.key()) % 3);
+        }
+        PartitionSelector selector = converters.partitionSelectorFor(new TableId("db1", null, "t1"));
+        assertThat(selector.partition(records.get(0).key(), rows.get(0))).isEqualTo(records.get(0).kafkaPartition());
+    }
+
+    protected Struct key(int id) {
+        Schema schema = SchemaBuilder.struct().field("id", Schema.INT32_SCHEMA).build();
+        return new Struct(schema).put("id", id);
+    }
+
+    protected Table table(String name) {
+        return tables.forTable(new TableId("db1", null, name));
+    }
+
+    protected EventHeaderV4 header(EventType type) {
+        EventHeaderV4 header = new EventHeaderV4();
+        header.setEventType(type);
+        return header;
+    }
+}
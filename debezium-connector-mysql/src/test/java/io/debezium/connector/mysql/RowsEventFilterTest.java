@@ -0,0 +1,111 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import com.github.shyiko.mysql.binlog.event.Event;
+import com.github.shyiko.mysql.binlog.event.EventHeaderV4;
+import com.github.shyiko.mysql.binlog.event.EventType;
+import com.github.shyiko.mysql.binlog.event.WriteRowsEventData;
+import com.github.shyiko.mysql.binlog.event.deserialization.EventDeserializer;
+import com.github.shyiko.mysql.binlog.io.ByteArrayInputStream;
+
+/**
+ * @author Randall Hauch
+ */
+public class RowsEventFilterTest {
+
+    private EventDeserializer deserializer;
+    private RowsEventFilter filter;
+    private BinlogBuilder binlog;
+
+    @Before
+    public void beforeEach() {
+        deserializer = new EventDeserializer();
+        filter = new RowsEventFilter(id -> !id.table().startsWith("excluded"));
+        filter.registerWith(deserializer);
+        binlog = new BinlogBuilder();
+    }
+
+    @Test
+    public void shouldSkipRowsOfExcludedTablesButDeserializeRowsOfIncludedTables() throws IOException {
+        binlog.addTableMap(1, "db1", "included")
+              .addWriteRow(1, 100)
+              .addTableMap(2, "db1", "excluded")
+              .addWriteRow(2, 200)
+              .addWriteRow(2, 201)
+              .addTableMap(1, "db1", "included")
+              .addWriteRow(1, 300);
+
+        ByteArrayInputStream input = new ByteArrayInputStream(binlog.events());
+        assertThat(nextEvent(input).getHeader().getEventType()).isEqualTo(EventType.TABLE_MAP);
+        assertInserted(nextEvent(input), 1, 100);
+        assertThat(nextEvent(input).getHeader().getEventType()).isEqualTo(EventType.TABLE_MAP);
+        assertInsertedNothing(nextEvent(input), 2);
+        assertInsertedNothing(nextEvent(input), 2);
+        assertThat(nextEvent(input).getHeader().getEventType()).isEqualTo(EventType.TABLE_MAP);
+        Event last = nextEvent(input);
+        assertInserted(last, 1, 300);
+        assertThat(((EventHeaderV4) last.getHeader()).getNextPosition()).isEqualTo(binlog.position());
+        assertThat(deserializer.nextEvent(input)).isNull();
+    }
+
+    @Test
+    public void shouldDeserializeAllRowsOfIncludedTablesFollowingTheEvent() throws IOException {
+        binlog.addTableMap(1, "db1", "included")
+              .addWriteRows(1, 100, 101, 102)
+              .addXid(7);
+
+        ByteArrayInputStream input = new ByteArrayInputStream(binlog.events());
+        assertThat(nextEvent(input).getHeader().getEventType()).isEqualTo(EventType.TABLE_MAP);
+        WriteRowsEventData data = nextEvent(input).getData();
+        assertThat(data.getRows().size()).isEqualTo(3);
+        assertThat(data.getRows().get(2)[0]).isEqualTo(102);
+        assertThat(nextEvent(input).getHeader().getEventType()).isEqualTo(EventType.XID);
+        assertThat(deserializer.nextEvent(input)).isNull();
+    }
+
+    @Test
+    public void shouldForgetTableNumbersWhenRotating() throws IOException {
+        binlog.addTableMap(2, "db1", "excluded")
+              .addWriteRow(2, 200)
+              .addRotate("mysql-bin.000002", 4);
+
+        ByteArrayInputStream input = new ByteArrayInputStream(binlog.events());
+        nextEvent(input);
+        assertInsertedNothing(nextEvent(input), 2);
+        assertThat(filter.isExcluded(2)).isTrue();
+        assertThat(nextEvent(input).getHeader().getEventType()).isEqualTo(EventType.ROTATE);
+        assertThat(filter.isExcluded(2)).isFalse();
+    }
+
+    protected Event nextEvent(ByteArrayInputStream input) throws IOException {
+        Event event = deserializer.nextEvent(input);
+        assertThat(event).isNotNull();
+        return event;
+    }
+
+    protected void assertInserted(Event event, long tableNumber, int value) {
+        assertThat(event.getHeader().getEventType()).isEqualTo(EventType.EXT_WRITE_ROWS);
+        WriteRowsEventData data = event.getData();
+        assertThat(data.getTableId()).isEqualTo(tableNumber);
+        assertThat(data.getRows().size()).isEqualTo(1);
+        assertThat(data.getRows().get(0)[0]).isEqualTo(value);
+    }
+
+    protected void assertInsertedNothing(Event event, long tableNumber) {
+        assertThat(event.getHeader().getEventType()).isEqualTo(EventType.EXT_WRITE_ROWS);
+        WriteRowsEventData data = event.getData();
+        assertThat(data.getTableId()).isEqualTo(tableNumber);
+        assertThat(data.getRows().isEmpty()).isTrue();
+    }
+}
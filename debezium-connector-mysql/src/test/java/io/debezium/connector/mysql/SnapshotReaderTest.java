@@ -0,0 +1,66 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Randall Hauch
+ */
+public class SnapshotReaderTest {
+
+    @Test
+    public void shouldReadSmallTableAsSingleChunk() {
+        List<long[]> ranges = SnapshotReader.chunkRanges(1, 500, 400, 1000);
+        assertThat(ranges.size()).isEqualTo(1);
+        assertRange(ranges.get(0), 1, 500);
+    }
+
+    @Test
+    public void shouldSplitLargeTableIntoContiguousRanges() {
+        List<long[]> ranges = SnapshotReader.chunkRanges(1, 1000, 1000, 300);
+        assertThat(ranges.size()).isEqualTo(4);
+        assertRange(ranges.get(0), 1, 250);
+        assertRange(ranges.get(1), 251, 500);
+        assertRange(ranges.get(2), 501, 750);
+        assertRange(ranges.get(3), 751, 1000);
+    }
+
+    @Test
+    public void shouldSplitSparseKeysByKeyRangeRatherThanRowCount() {
+        List<long[]> ranges = SnapshotReader.chunkRanges(-100, 99, 4, 1);
+        assertThat(ranges.size()).isEqualTo(4);
+        assertRange(ranges.get(0), -100, -51);
+        assertRange(ranges.get(3), 50, 99);
+    }
+
+    @Test
+    public void shouldNotOverflowWithExtremeKeys() {
+        List<long[]> ranges = SnapshotReader.chunkRanges(Long.MIN_VALUE, Long.MAX_VALUE, 3, 1);
+        assertThat(ranges.get(0)[0]).isEqualTo(Long.MIN_VALUE);
+        assertThat(ranges.get(ranges.size() - 1)[1]).isEqualTo(Long.MAX_VALUE);
+        for (int i = 1; i < ranges.size(); ++i) {
+            assertThat(ranges.get(i)[0]).isEqualTo(ranges.get(i - 1)[1] + 1);
+        }
+    }
+
+    @Test
+    public void shouldCreateRangesWithSingleKeyWhenKeysAreDense() {
+        List<long[]> ranges = SnapshotReader.chunkRanges(5, 7, 100, 1);
+        assertThat(ranges.size()).isEqualTo(3);
+        assertRange(ranges.get(0), 5, 5);
+        assertRange(ranges.get(2), 7, 7);
+    }
+
+    protected void assertRange(long[] range, long start, long end) {
+        assertThat(range[0]).isEqualTo(start);
+        assertThat(range[1]).isEqualTo(end);
+    }
+}
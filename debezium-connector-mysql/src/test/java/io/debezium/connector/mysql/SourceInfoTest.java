@@ -0,0 +1,169 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import io.debezium.relational.history.HistoryRecord;
+import io.debezium.util.Collect;
+
+/**
+ * @author Randall Hauch
+ */
+public class SourceInfoTest {
+
+    private SourceInfo source;
+
+    @Before
+    public void beforeEach() {
+        source = new SourceInfo();
+        source.setServerName("server1");
+        source.setBinlogFilename("mysql-bin.000003");
+        source.setBinlogPosition(105586);
+    }
+
+    @Test
+    public void shouldCreateOffsetEqualToEquivalentHashMap() {
+        Map<String, ?> offset = source.offset(2);
+        Map<String, Object> expected = Collect.hashMapOf(SourceInfo.BINLOG_FILENAME_OFFSET_KEY, "mysql-bin.000003",
+                                                         SourceInfo.BINLOG_POSITION_OFFSET_KEY, 105586L,
+                                                         SourceInfo.BINLOG_EVENTS_TO_SKIP_OFFSET_KEY, 0,
+                                                         SourceInfo.BINLOG_EVENT_ROW_NUMBER_OFFSET_KEY, 2);
+        assertThat(offset).isEqualTo(expected);
+        assertThat(expected).isEqualTo(offset);
+        assertThat(offset.hashCode()).isEqualTo(expected.hashCode());
+        assertThat(new HashMap<>(offset)).isEqualTo(expected);
+        assertThat(offset.get(SourceInfo.BINLOG_POSITION_OFFSET_KEY)).isEqualTo(105586L);
+        assertThat(offset.get("other")).isNull();
+        assertThat(offset.containsKey("other")).isFalse();
+    }
+
+    @Test
+    public void shouldReuseOffsetUntilPositionChanges() {
+        Map<String, ?> offset1 = source.offset(0);
+        assertThat(source.offset()).isSameAs(offset1);
+        Map<String, ?> offset2 = source.offset(1);
+        assertThat(offset2).isNotSameAs(offset1);
+        assertThat(offset1.get(SourceInfo.BINLOG_EVENT_ROW_NUMBER_OFFSET_KEY)).isEqualTo(0);
+        assertThat(offset2.get(SourceInfo.BINLOG_EVENT_ROW_NUMBER_OFFSET_KEY)).isEqualTo(1);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotAllowOffsetToBeModified() {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> offset = (Map<String, Object>) source.offset();
+        offset.put(SourceInfo.BINLOG_POSITION_OFFSET_KEY, 4L);
+    }
+
+    @Test
+    public void shouldRestoreFromOffset() {
+        SourceInfo restored = new SourceInfo();
+        restored.setServerName("server1");
+        restored.setOffset(source.offset(3));
+        assertThat(restored.binlogFilename()).isEqualTo("mysql-bin.000003");
+        assertThat(restored.binlogPosition()).isEqualTo(105586L);
+        assertThat(restored.eventsToSkip()).isEqualTo(0);
+        assertThat(restored.eventRowNumber()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldCountCompletedEventsAfterPosition() {
+        source.offset(10);
+        source.completeEvent();
+        source.completeEvent();
+        Map<String, ?> offset = source.offset(5);
+        assertThat(offset.get(SourceInfo.BINLOG_EVENTS_TO_SKIP_OFFSET_KEY)).isEqualTo(2);
+        assertThat(offset.get(SourceInfo.BINLOG_EVENT_ROW_NUMBER_OFFSET_KEY)).isEqualTo(5);
+
+        SourceInfo restored = new SourceInfo();
+        restored.setServerName("server1");
+        restored.setOffset(offset);
+        assertThat(restored.binlogPosition()).isEqualTo(105586L);
+        assertThat(restored.eventsToSkip()).isEqualTo(2);
+        assertThat(restored.eventRowNumber()).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldIgnoreRowNumberInOffsetWithoutEventsToSkip() {
+        SourceInfo restored = new SourceInfo();
+        restored.setServerName("server1");
+        restored.setOffset(Collect.hashMapOf(SourceInfo.BINLOG_FILENAME_OFFSET_KEY, "mysql-bin.000003",
+                                             SourceInfo.BINLOG_POSITION_OFFSET_KEY, 105586L,
+                                             SourceInfo.BINLOG_EVENT_ROW_NUMBER_OFFSET_KEY, 3));
+        assertThat(restored.binlogPosition()).isEqualTo(105586L);
+        assertThat(restored.eventsToSkip()).isEqualTo(0);
+        assertThat(restored.eventRowNumber()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldIncludeIncrementalSnapshotProgressInOffset() {
+        source.setSnapshotProgress("[[\"db1\",\"t1\"],[\"db1\",\"t2\"]]", "[1024]");
+        Map<String, ?> offset = source.offset(0);
+        Map<String, Object> expected = Collect.hashMapOf(SourceInfo.BINLOG_FILENAME_OFFSET_KEY, "mysql-bin.000003",
+                                                         SourceInfo.BINLOG_POSITION_OFFSET_KEY, 105586L,
+                                                         SourceInfo.BINLOG_EVENTS_TO_SKIP_OFFSET_KEY, 0,
+                                                         SourceInfo.BINLOG_EVENT_ROW_NUMBER_OFFSET_KEY, 0);
+        expected.put(SourceInfo.SNAPSHOT_TABLES_OFFSET_KEY, "[[\"db1\",\"t1\"],[\"db1\",\"t2\"]]");
+        expected.put(SourceInfo.SNAPSHOT_KEY_OFFSET_KEY, "[1024]");
+        assertThat(new HashMap<>(offset)).isEqualTo(expected);
+        assertThat(offset.size()).isEqualTo(6);
+
+        SourceInfo restored = new SourceInfo();
+        restored.setServerName("server1");
+        restored.setOffset(offset);
+        assertThat(restored.snapshotTables()).isEqualTo("[[\"db1\",\"t1\"],[\"db1\",\"t2\"]]");
+        assertThat(restored.snapshotKey()).isEqualTo("[1024]");
+
+        source.setSnapshotProgress(null, "[2048]");
+        assertThat(source.offset()).isNotSameAs(offset);
+        assertThat(source.offset().containsKey(SourceInfo.SNAPSHOT_TABLES_OFFSET_KEY)).isFalse();
+        assertThat(source.offset().containsKey(SourceInfo.SNAPSHOT_KEY_OFFSET_KEY)).isFalse();
+        assertThat(source.offset().size()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldExcludeGtidsAndSnapshotProgressFromHistoryPosition() {
+        source.completeTransaction("24bc7850-2c16-11e6-a073-0242ac110002:12");
+        source.setSnapshotProgress("[[\"db1\",\"t1\"],[\"db1\",\"t2\"]]", "[1024]");
+        Map<String, ?> offset = source.offset(0);
+        assertThat(offset.size()).isEqualTo(7);
+        Map<String, Object> expected = Collect.hashMapOf(SourceInfo.BINLOG_FILENAME_OFFSET_KEY, "mysql-bin.000003",
+                                                         SourceInfo.BINLOG_POSITION_OFFSET_KEY, 105586L,
+                                                         SourceInfo.BINLOG_EVENTS_TO_SKIP_OFFSET_KEY, 0,
+                                                         SourceInfo.BINLOG_EVENT_ROW_NUMBER_OFFSET_KEY, 0);
+        assertThat(new HashMap<>(SourceInfo.historyPosition(offset))).isEqualTo(expected);
+        // The same position is found from an offset read from Kafka Connect ...
+        assertThat(new HashMap<>(SourceInfo.historyPosition(new HashMap<>(offset)))).isEqualTo(expected);
+        assertThat(new HashMap<>(SourceInfo.historyPosition(source.snapshotOffset()))).isEqualTo(expected);
+    }
+
+    @Test
+    public void shouldCompareHistoryPositionsByBinlogCoordinatesOnly() {
+        // DDL recorded while an incremental snapshot is in progress and after GTIDs have been seen ...
+        source.completeTransaction("24bc7850-2c16-11e6-a073-0242ac110002:12");
+        source.setSnapshotProgress("[[\"db1\",\"t1\"]]", "[1024]");
+        HistoryRecord ddl = new HistoryRecord(source.partition(), SourceInfo.historyPosition(source.offset()), "db1",
+                "CREATE TABLE t2 (id INT)");
+
+        // ... is recovered when restarting after the incremental snapshot has completed, and vice versa ...
+        source.setSnapshotProgress(null, null);
+        source.completeEvent();
+        HistoryRecord restart = new HistoryRecord(source.partition(), SourceInfo.historyPosition(source.offset()), null, null);
+        assertThat(ddl.isAtOrBefore(restart)).isTrue();
+        assertThat(restart.isAtOrBefore(ddl)).isFalse();
+
+        source.setSnapshotProgress("[[\"db1\",\"t1\"],[\"db1\",\"t2\"]]", "[1024]");
+        HistoryRecord later = new HistoryRecord(source.partition(), SourceInfo.historyPosition(source.offset()), "db1",
+                "DROP TABLE t2");
+        assertThat(later.isAtOrBefore(restart)).isTrue();
+    }
+}
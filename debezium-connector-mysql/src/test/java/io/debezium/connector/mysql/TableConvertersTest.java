@@ -5,40 +5,452 @@
  */
 package io.debezium.connector.mysql;
 
-import static org.junit.Assert.fail;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import com.github.shyiko.mysql.binlog.event.DeleteRowsEventData;
+import com.github.shyiko.mysql.binlog.event.Event;
+import com.github.shyiko.mysql.binlog.event.EventHeaderV4;
+import com.github.shyiko.mysql.binlog.event.EventType;
+import com.github.shyiko.mysql.binlog.event.RotateEventData;
+import com.github.shyiko.mysql.binlog.event.TableMapEventData;
+import com.github.shyiko.mysql.binlog.event.UpdateRowsEventData;
+import com.github.shyiko.mysql.binlog.event.WriteRowsEventData;
+
+import io.debezium.config.Configuration;
+import io.debezium.connector.mysql.MySqlConnectorConfig.UpdateFormat;
+import io.debezium.relational.Table;
+import io.debezium.relational.TableId;
+import io.debezium.relational.TableSchema;
+import io.debezium.relational.TableSchemaBuilder;
+import io.debezium.relational.Tables;
+import io.debezium.relational.history.MemoryDatabaseHistory;
+
 /**
  * @author Randall Hauch
  */
-@Ignore
 public class TableConvertersTest {
 
+    private Tables tables;
+    private TableConverters converters;
+    private SourceInfo source;
+    private List<SourceRecord> records;
+    private List<TableId> builtSchemas;
+
+    @Before
+    public void beforeEach() {
+        tables = new Tables();
+        source = new SourceInfo();
+        source.setServerName("server1");
+        source.setBinlogFilename("mysql-bin.000001");
+        records = new ArrayList<>();
+        builtSchemas = new ArrayList<>();
+    }
+
+    @Ignore
     @Test
     public void shouldHandleMetadataEventToUpdateTables() {
         fail("Not yet implemented");
     }
 
+    @Ignore
     @Test
     public void shouldProduceSourceRecorForMetadataEventWhenConfigured() {
         fail("Not yet implemented");
     }
 
+    @Ignore
     @Test
     public void shouldProduceSourceRecorForInsertEvent() {
         fail("Not yet implemented");
     }
 
+    @Ignore
     @Test
     public void shouldProduceSourceRecorForUpdateEvent() {
         fail("Not yet implemented");
     }
 
+    @Ignore
     @Test
     public void shouldProduceSourceRecorForDeleteEvent() {
         fail("Not yet implemented");
     }
 
+    @Test
+    public void shouldProcessAllRowsWhenEventFitsInBatch() {
+        useSingleTable();
+        Event event = insertEvent(5);
+        assertThat(converters.handleInsert(event, source, 10, records::add)).isEqualTo(0);
+        assertInserted(0, 5);
+    }
+
+    @Test
+    public void shouldSkipRowsProcessedBeforeRestart() {
+        useSingleTable();
+        Event event = insertEvent(5);
+        source.setRowInEvent(3);
+        assertThat(converters.handleInsert(event, source, 10, records::add)).isEqualTo(0);
+        assertInserted(3, 2);
+    }
+
+    @Test
+    public void shouldContinueProcessingRowsOfLargeEventAcrossBatches() {
+        useSingleTable();
+        Event event = insertEvent(7);
+        assertThat(converters.handleInsert(event, source, 3, records::add)).isEqualTo(4);
+        assertInserted(0, 3);
+        assertThat(source.eventRowNumber()).isEqualTo(3);
+
+        records.clear();
+        assertThat(converters.handleInsert(event, source, 3, records::add)).isEqualTo(1);
+        assertInserted(3, 3);
+        assertThat(source.eventRowNumber()).isEqualTo(6);
+
+        records.clear();
+        assertThat(converters.handleInsert(event, source, 3, records::add)).isEqualTo(0);
+        assertInserted(6, 1);
+        assertThat(source.offset().get(SourceInfo.BINLOG_EVENT_ROW_NUMBER_OFFSET_KEY)).isEqualTo(7);
+    }
+
+    @Test
+    public void shouldRebindCachedConverterToNewTableNumberAfterRotation() {
+        useTablesWithSameNameInDifferentDatabases();
+        tableMap(1L, "db1", "t1");
+        TableConverters.Converter converter = converters.converterFor(1L);
+        assertThat(converter).isNotNull();
+        assertThat(converter.topic()).isEqualTo("server1.db1.t1");
+
+        rotate();
+        assertThat(converters.converterFor(1L)).isNull();
+        tableMap(2L, "db1", "t1");
+        assertThat(converters.converterFor(2L)).isSameAs(converter);
+    }
+
+    @Test
+    public void shouldKeepConverterWhenTableNumberIsUnchangedAfterRotation() {
+        useTablesWithSameNameInDifferentDatabases();
+        tableMap(1L, "db1", "t1");
+        TableConverters.Converter converter = converters.converterFor(1L);
+        rotate();
+        tableMap(1L, "db1", "t1");
+        assertThat(converters.converterFor(1L)).isSameAs(converter);
+    }
+
+    @Test
+    public void shouldKeepConverterOfOtherTableReusingTableNumberAfterRotation() {
+        useTablesWithSameNameInDifferentDatabases();
+        tableMap(1L, "db1", "t1");
+        rotate();
+        tableMap(1L, "db2", "t1");
+        tableMap(2L, "db1", "t1");
+        assertThat(converters.converterFor(1L).topic()).isEqualTo("server1.db2.t1");
+        assertThat(converters.converterFor(2L).topic()).isEqualTo("server1.db1.t1");
+    }
+
+    @Test
+    public void shouldRebuildConverterAfterSchemaChange() {
+        useTablesWithSameNameInDifferentDatabases();
+        tableMap(1L, "db1", "t1");
+        TableConverters.Converter converter = converters.converterFor(1L);
+        converters.applyDdl(source, source.offset(), "db1", "ALTER TABLE t1 ADD COLUMN c1 VARCHAR(10);", records::add);
+        tableMap(2L, "db1", "t1");
+        TableConverters.Converter rebuilt = converters.converterFor(2L);
+        assertThat(rebuilt).isNotSameAs(converter);
+        assertThat(rebuilt.valueSchema().field("c1")).isNotNull();
+        assertThat(converters.converterFor(1L)).isNull();
+    }
+
+    @Test
+    public void shouldCacheConvertersOfTablesWithSameNameInDifferentDatabases() {
+        useTablesWithSameNameInDifferentDatabases();
+        tableMap(1L, "db1", "t1");
+        tableMap(2L, "db2", "t1");
+        assertThat(converters.converterFor(1L).topic()).isEqualTo("server1.db1.t1");
+        assertThat(converters.converterFor(2L).topic()).isEqualTo("server1.db2.t1");
+    }
+
+    @Test
+    public void shouldConvertFullInsert() {
+        usePartitionedTable();
+        insert(columns(0, 1, 2, 3), 1, "widget", 5, 23);
+        SourceRecord record = records.get(0);
+        Struct value = (Struct) record.value();
+        assertThat(record.valueSchema()).isSameAs(converters.schemaFor(converters.converterFor(1L).tableId()).valueSchema());
+        assertThat(value.get("name")).isEqualTo("widget");
+        assertThat(value.get("tenant")).isEqualTo(23);
+        assertThat(record.kafkaPartition()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldConvertPartialInsert() {
+        usePartitionedTable();
+        insert(columns(0, 1, 3), 1, "widget", 17);
+        SourceRecord record = records.get(0);
+        Struct value = (Struct) record.value();
+        assertThat(record.valueSchema()).isSameAs(value.schema());
+        assertThat(value.get("id")).isEqualTo(1);
+        assertThat(value.get("name")).isEqualTo("widget");
+        assertThat(value.get("qty")).isNull();
+        assertThat(value.get("tenant")).isEqualTo(17);
+        assertThat(((Struct) record.key()).get("id")).isEqualTo(1);
+        assertThat(record.kafkaPartition()).isEqualTo(1);
+        value.validate();
+    }
+
+    @Test
+    public void shouldConvertMinimalUpdateUsingKeyFromBeforeImage() {
+        usePartitionedTable();
+        update(columns(0), new Serializable[] { 7 }, columns(2), new Serializable[] { 42 });
+        SourceRecord record = records.get(0);
+        Struct value = (Struct) record.value();
+        assertThat(((Struct) record.key()).get("id")).isEqualTo(7);
+        assertThat(value.get("id")).isEqualTo(7);
+        assertThat(value.get("qty")).isEqualTo(42);
+        assertThat(value.get("name")).isNull();
+        assertThat(value.schema().field("name").schema().isOptional()).isTrue();
+        assertThat(record.kafkaPartition()).isEqualTo(7);
+        value.validate();
+    }
+
+    @Test
+    public void shouldConvertMinimalUpdateThatChangesKey() {
+        usePartitionedTable();
+        update(columns(0), new Serializable[] { 7 }, columns(0, 3), new Serializable[] { 8, 19 });
+        SourceRecord record = records.get(0);
+        Struct value = (Struct) record.value();
+        assertThat(((Struct) record.key()).get("id")).isEqualTo(8);
+        assertThat(value.get("id")).isEqualTo(8);
+        assertThat(value.get("tenant")).isEqualTo(19);
+        assertThat(record.kafkaPartition()).isEqualTo(8);
+    }
+
+    @Test
+    public void shouldConvertFullUpdate() {
+        usePartitionedTable();
+        update(columns(0, 1, 2, 3), new Serializable[] { 7, "a", 1, 2 }, columns(0, 1, 2, 3), new Serializable[] { 7, "b", 3, 4 });
+        SourceRecord record = records.get(0);
+        Struct value = (Struct) record.value();
+        assertThat(record.valueSchema()).isSameAs(converters.converterFor(1L).valueSchema());
+        assertThat(value.get("name")).isEqualTo("b");
+        assertThat(value.get("qty")).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldConvertMinimalDelete() {
+        usePartitionedTable();
+        DeleteRowsEventData data = new DeleteRowsEventData();
+        data.setTableId(1L);
+        data.setIncludedColumns(columns(0));
+        data.setRows(Collections.singletonList(new Serializable[] { 7 }));
+        converters.handleDelete(new Event(header(EventType.EXT_DELETE_ROWS), data), source, 10, records::add);
+        SourceRecord record = records.get(0);
+        assertThat(((Struct) record.key()).get("id")).isEqualTo(7);
+        assertThat(record.value()).isNull();
+        assertThat(record.kafkaPartition()).isEqualTo(7);
+    }
+
+    @Test
+    public void shouldNotBuildSchemasWhenLoadingTables() {
+        useTablesWithLazySchemas();
+        assertThat(builtSchemas).isEmpty();
+    }
+
+    @Test
+    public void shouldBuildSchemaOnceWhenFirstNeeded() {
+        useTablesWithLazySchemas();
+        tableMap(1L, "db1", "t1");
+        assertThat(builtSchemas).containsOnly(new TableId("db1", null, "t1"));
+        TableSchema schema = converters.schemaFor(new TableId("db1", null, "t1"));
+        assertThat(converters.converterFor(1L).tableSchema()).isSameAs(schema);
+        tableMap(2L, "db1", "t1");
+        assertThat(builtSchemas.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRebuildSchemaOnlyOfChangedTableWhenNextNeeded() {
+        useTablesWithLazySchemas();
+        tableMap(1L, "db1", "t1");
+        converters.applyDdl(source, source.offset(), "db1", "ALTER TABLE t1 ADD COLUMN c1 VARCHAR(10);", records::add);
+        converters.applyDdl(source, source.offset(), "db1", "ALTER TABLE t2 ADD COLUMN c2 VARCHAR(10);", records::add);
+        assertThat(builtSchemas.size()).isEqualTo(1);
+        tableMap(2L, "db1", "t1");
+        assertThat(builtSchemas.size()).isEqualTo(2);
+        assertThat(converters.converterFor(2L).valueSchema().field("c1")).isNotNull();
+        assertThat(converters.schemaFor(new TableId("db1", null, "t2")).valueSchema().field("c2")).isNotNull();
+        assertThat(builtSchemas.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldNotBuildSchemaOfDroppedTable() {
+        useTablesWithLazySchemas();
+        converters.applyDdl(source, source.offset(), "db1", "DROP TABLE t3;", records::add);
+        assertThat(converters.schemaFor(new TableId("db1", null, "t3"))).isNull();
+        assertThat(builtSchemas).isEmpty();
+    }
+
+    @Test
+    public void shouldReleaseStructureOfSchemaNoLongerUsedAfterSchemaChange() {
+        define("db1", "CREATE TABLE t1 (id INT NOT NULL PRIMARY KEY);");
+        TableSchemaBuilder schemaBuilder = new TableSchemaBuilder();
+        useConverters(null, schemaBuilder);
+        converters.schemaFor(new TableId("db1", null, "t1"));
+        assertThat(schemaBuilder.structureCount()).isEqualTo(1);
+        converters.applyDdl(source, source.offset(), "db1", "ALTER TABLE t1 ADD COLUMN c1 VARCHAR(10);", records::add);
+        assertThat(schemaBuilder.structureCount()).isEqualTo(0);
+        converters.schemaFor(new TableId("db1", null, "t1"));
+        assertThat(schemaBuilder.structureCount()).isEqualTo(1);
+        converters.loadTables();
+        assertThat(schemaBuilder.structureCount()).isEqualTo(0);
+    }
+
+    protected void useSingleTable() {
+        define("db1", "CREATE TABLE t1 (id INT NOT NULL PRIMARY KEY);");
+        useConverters(null);
+        tableMap(1L, "db1", "t1");
+    }
+
+    protected void useTablesWithSameNameInDifferentDatabases() {
+        define("db1", "CREATE TABLE t1 (id INT NOT NULL PRIMARY KEY);");
+        define("db2", "CREATE TABLE t1 (id INT NOT NULL PRIMARY KEY);");
+        useConverters(null);
+    }
+
+    /**
+     * Use a table whose rows are partitioned by the primary key, to convert the rows read from binlogs written with
+     * {@code binlog_row_image=MINIMAL}, in which the row images include only some of the table's columns.
+     */
+    protected void usePartitionedTable() {
+        define("db1", "CREATE TABLE t1 (id INT NOT NULL PRIMARY KEY, name VARCHAR(20) NOT NULL, qty INT, tenant INT);");
+        Configuration config = Configuration.create()
+                                            .with(MySqlConnectorConfig.PARTITION_STRATEGY, "column")
+                                            .with(MySqlConnectorConfig.PARTITION_COUNT, 10)
+                                            .with(MySqlConnectorConfig.PARTITION_COLUMNS, "db1.t1.id")
+                                            .build();
+        useConverters(PartitionSelector.factory(config));
+        tableMap(1L, "db1", "t1");
+    }
+
+    /**
+     * Use tables whose schemas are recorded in {@link #builtSchemas} as they are built.
+     */
+    protected void useTablesWithLazySchemas() {
+        define("db1", "CREATE TABLE t1 (id INT NOT NULL PRIMARY KEY);",
+               "CREATE TABLE t2 (id INT NOT NULL PRIMARY KEY, c1 VARCHAR(10));",
+               "CREATE TABLE t3 (id INT NOT NULL PRIMARY KEY);");
+        useConverters(null, new TableSchemaBuilder() {
+            @Override
+            public TableSchema create(Table table) {
+                builtSchemas.add(table.id());
+                return super.create(table);
+            }
+        });
+    }
+
+    protected void define(String databaseName, String... ddlStatements) {
+        MySqlDdlParser parser = new MySqlDdlParser();
+        parser.setCurrentSchema(databaseName);
+        for (String ddl : ddlStatements) {
+            parser.parse(ddl, tables);
+        }
+    }
+
+    protected void useConverters(PartitionSelector.Factory partitionSelectors) {
+        useConverters(partitionSelectors, new TableSchemaBuilder());
+    }
+
+    protected void useConverters(PartitionSelector.Factory partitionSelectors, TableSchemaBuilder schemaBuilder) {
+        converters = new TableConverters(TopicSelector.defaultSelector(), new MemoryDatabaseHistory(), tables,
+                TableConverters.Options.create()
+                                       .withPartitionSelectors(partitionSelectors)
+                                       .withUpdateFormat(UpdateFormat.AFTER)
+                                       .withSchemaBuilder(schemaBuilder));
+        converters.loadTables();
+    }
+
+    protected void tableMap(long tableNumber, String databaseName, String tableName) {
+        TableMapEventData tableMap = new TableMapEventData();
+        tableMap.setTableId(tableNumber);
+        tableMap.setDatabase(databaseName);
+        tableMap.setTable(tableName);
+        converters.updateTableMetadata(new Event(header(EventType.TABLE_MAP), tableMap), source, records::add);
+    }
+
+    protected void rotate() {
+        RotateEventData rotate = new RotateEventData();
+        rotate.setBinlogFilename("mysql-bin.000002");
+        rotate.setBinlogPosition(4L);
+        converters.rotateLogs(new Event(header(EventType.ROTATE), rotate), source, records::add);
+    }
+
+    protected Event insertEvent(int rowCount) {
+        List<Serializable[]> rows = new ArrayList<>();
+        for (int i = 0; i != rowCount; ++i) {
+            rows.add(new Serializable[] { i });
+        }
+        WriteRowsEventData data = new WriteRowsEventData();
+        data.setTableId(1L);
+        data.setIncludedColumns(columns(0));
+        data.setRows(rows);
+        source.setRowInEvent(0);
+        return new Event(header(EventType.EXT_WRITE_ROWS), data);
+    }
+
+    protected void insert(BitSet includedColumns, Serializable... values) {
+        WriteRowsEventData data = new WriteRowsEventData();
+        data.setTableId(1L);
+        data.setIncludedColumns(includedColumns);
+        data.setRows(Collections.singletonList(values));
+        converters.handleInsert(new Event(header(EventType.EXT_WRITE_ROWS), data), source, 10, records::add);
+        assertThat(records.size()).isEqualTo(1);
+    }
+
+    protected void update(BitSet includedColumnsBefore, Serializable[] before, BitSet includedColumns, Serializable[] after) {
+        UpdateRowsEventData data = new UpdateRowsEventData();
+        data.setTableId(1L);
+        data.setIncludedColumnsBeforeUpdate(includedColumnsBefore);
+        data.setIncludedColumns(includedColumns);
+        List<Map.Entry<Serializable[], Serializable[]>> rows = new ArrayList<>();
+        rows.add(new AbstractMap.SimpleEntry<>(before, after));
+        data.setRows(rows);
+        converters.handleUpdate(new Event(header(EventType.EXT_UPDATE_ROWS), data), source, 10, records::add);
+        assertThat(records.size()).isEqualTo(1);
+    }
+
+    protected void assertInserted(int firstId, int count) {
+        assertThat(records.size()).isEqualTo(count);
+        for (int i = 0; i != count; ++i) {
+            SourceRecord record = records.get(i);
+            assertThat(((Struct) record.value()).get("id")).isEqualTo(firstId + i);
+            assertThat(record.sourceOffset().get(SourceInfo.BINLOG_EVENT_ROW_NUMBER_OFFSET_KEY)).isEqualTo(firstId + i + 1);
+        }
+    }
+
+    protected BitSet columns(int... positions) {
+        BitSet columns = new BitSet();
+        for (int position : positions) {
+            columns.set(position);
+        }
+        return columns;
+    }
+
+    protected EventHeaderV4 header(EventType type) {
+        EventHeaderV4 header = new EventHeaderV4();
+        header.setEventType(type);
+        return header;
+    }
 }
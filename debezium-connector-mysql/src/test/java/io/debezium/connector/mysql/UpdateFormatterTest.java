@@ -0,0 +1,143 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.connector.mysql;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.apache.kafka.connect.data.Struct;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import io.debezium.config.Configuration;
+import io.debezium.connector.mysql.MySqlConnectorConfig.UpdateFormat;
+import io.debezium.relational.TableId;
+import io.debezium.relational.TableSchema;
+import io.debezium.relational.TableSchemaBuilder;
+import io.debezium.relational.Tables;
+
+/**
+ * @author Randall Hauch
+ */
+public class UpdateFormatterTest {
+
+    private static final int[] KEY_INDEXES = { 0 };
+    private static final int COLUMN_COUNT = 4;
+
+    private TableSchema tableSchema;
+
+    @Before
+    public void beforeEach() {
+        Tables tables = new Tables();
+        MySqlDdlParser parser = new MySqlDdlParser();
+        parser.setCurrentSchema("db1");
+        parser.parse("CREATE TABLE t1 (id INT NOT NULL PRIMARY KEY, name VARCHAR(20) NOT NULL, qty INT, notes VARCHAR(200));", tables);
+        tableSchema = new TableSchemaBuilder().create(tables.forTable(new TableId("db1", null, "t1")));
+    }
+
+    @Test
+    public void shouldWriteAfterImageByDefault() {
+        UpdateFormatter formatter = UpdateFormatter.create(null, tableSchema, KEY_INDEXES, COLUMN_COUNT);
+        Struct value = formatter.updated(row(1, "a", 2, "x"), null, row(1, "a", 3, "x"), null);
+        assertThat(value.schema()).isSameAs(tableSchema.valueSchema());
+        assertThat(value.get("qty")).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldWriteEnvelopeWithBeforeAndAfterImages() {
+        UpdateFormatter formatter = UpdateFormatter.create(UpdateFormat.ENVELOPE, tableSchema, KEY_INDEXES, COLUMN_COUNT);
+        Struct value = formatter.updated(row(1, "a", 2, "x"), null, row(1, "a", 3, "x"), null);
+        assertThat(value.schema().name()).isEqualTo("db1.t1/envelope");
+        assertThat(value.getStruct("before").get("qty")).isEqualTo(2);
+        assertThat(value.getStruct("after").get("qty")).isEqualTo(3);
+        assertThat(value.getStruct("after").schema()).isSameAs(tableSchema.valueSchema());
+        value.validate();
+        Struct next = formatter.updated(row(2, "b", 1, "y"), null, row(2, "c", 1, "y"), null);
+        assertThat(next.schema()).isSameAs(value.schema());
+    }
+
+    @Test
+    public void shouldWriteEnvelopeWithPartialImages() {
+        UpdateFormatter formatter = UpdateFormatter.create(UpdateFormat.ENVELOPE, tableSchema, KEY_INDEXES, COLUMN_COUNT);
+        Struct value = formatter.updated(row(1), columns(0), row(1, 3), columns(0, 2));
+        assertThat(value.getStruct("before").get("id")).isEqualTo(1);
+        assertThat(value.getStruct("before").get("qty")).isNull();
+        assertThat(value.getStruct("after").get("qty")).isEqualTo(3);
+        assertThat(value.schema().name()).isEqualTo("db1.t1/partial/envelope");
+        assertThat(value.getStruct("before").schema().name()).isEqualTo("db1.t1/partial");
+        value.validate();
+
+        // A complete image uses the partial schema when the other image is partial ...
+        Struct mixed = formatter.updated(row(1, "a", 2, "x"), null, row(1, 3), columns(0, 2));
+        assertThat(mixed.schema()).isSameAs(value.schema());
+        assertThat(mixed.getStruct("before").get("notes")).isEqualTo("x");
+        mixed.validate();
+    }
+
+    @Test
+    public void shouldWriteOnlyKeyAndChangedColumns() {
+        UpdateFormatter formatter = UpdateFormatter.create(UpdateFormat.CHANGES, tableSchema, KEY_INDEXES, COLUMN_COUNT);
+        Struct value = formatter.updated(row(1, "a", 2, "x"), null, row(1, "a", 3, null), null);
+        assertThat(value.schema().name()).isEqualTo("db1.t1/changes");
+        assertThat(value.get("id")).isEqualTo(1);
+        assertThat(value.get("name")).isNull();
+        assertThat(value.get("qty")).isEqualTo(3);
+        assertThat(value.get("notes")).isNull();
+        assertThat(value.getArray(UpdateFormatter.CHANGED_COLUMNS_FIELD)).containsOnly("qty", "notes");
+        value.validate();
+        Struct next = formatter.updated(row(2, "b", 5, null), null, row(2, "c", 5, "z"), null);
+        assertThat(next.schema()).isSameAs(value.schema());
+        assertThat(next.get("name")).isEqualTo("c");
+        assertThat(next.get("qty")).isNull();
+        assertThat(next.getArray(UpdateFormatter.CHANGED_COLUMNS_FIELD)).containsOnly("name", "notes");
+    }
+
+    @Test
+    public void shouldWriteChangedColumnsOfPartialImages() {
+        UpdateFormatter formatter = UpdateFormatter.create(UpdateFormat.CHANGES, tableSchema, KEY_INDEXES, COLUMN_COUNT);
+        Struct full = formatter.updated(row(1, "a", 2, "x"), null, row(1, "a", 3, "x"), null);
+        // The after image has been completed with the key from the before image ...
+        Struct value = formatter.updated(row(1), columns(0), row(1, "b"), columns(0, 1));
+        assertThat(value.schema()).isSameAs(full.schema());
+        assertThat(value.get("id")).isEqualTo(1);
+        assertThat(value.get("name")).isEqualTo("b");
+        assertThat(value.getArray(UpdateFormatter.CHANGED_COLUMNS_FIELD)).containsOnly("name");
+        value.validate();
+    }
+
+    @Test
+    public void shouldCompareBinaryValuesByContent() {
+        BitSet changed = UpdateFormatter.changedColumns(row(1, new byte[] { 1, 2 }), null, row(1, new byte[] { 1, 2 }), null, 2);
+        assertThat(changed.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldNotAllowChangesFormatWithIncrementalSnapshots() {
+        Configuration config = Configuration.create()
+                                            .with(MySqlConnectorConfig.UPDATE_FORMAT, "changes")
+                                            .with(MySqlConnectorConfig.SNAPSHOT_MODE, "incremental")
+                                            .build();
+        List<String> problems = new ArrayList<>();
+        config.validate(MySqlConnectorConfig.ALL_FIELDS, problems::add);
+        assertThat(problems.stream().anyMatch(problem -> problem.contains(MySqlConnectorConfig.UPDATE_FORMAT.name()))).isTrue();
+    }
+
+    protected Serializable[] row(Serializable... values) {
+        return values;
+    }
+
+    protected BitSet columns(int... positions) {
+        BitSet columns = new BitSet();
+        for (int position : positions) {
+            columns.set(position);
+        }
+        return columns;
+    }
+}
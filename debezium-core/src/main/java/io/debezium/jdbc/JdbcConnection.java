@@ -8,6 +8,7 @@
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -77,6 +78,49 @@ public static interface Operations {
         void apply(Statement statement) throws SQLException;
     }
 
+    /**
+     * Creates the JDBC statement used to execute a query, such as one configured to stream large result sets.
+     */
+    @FunctionalInterface
+    public static interface StatementFactory {
+        /**
+         * Create a statement on the given connection.
+         * 
+         * @param connection the JDBC connection; never null
+         * @return the new statement; may not be null
+         * @throws SQLException if there is an error creating the statement
+         */
+        Statement createStatement(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Sets the parameters of a prepared statement.
+     */
+    @FunctionalInterface
+    public static interface StatementPreparer {
+        /**
+         * Set the parameters of the given prepared statement.
+         * 
+         * @param statement the prepared statement; never null
+         * @throws SQLException if there is an error setting the parameters
+         */
+        void accept(PreparedStatement statement) throws SQLException;
+    }
+
+    /**
+     * Processes the results of a query.
+     */
+    @FunctionalInterface
+    public static interface ResultSetConsumer {
+        /**
+         * Process the results of a query.
+         * 
+         * @param resultSet the query results; never null
+         * @throws SQLException if there is an error reading the results
+         */
+        void accept(ResultSet resultSet) throws SQLException;
+    }
+
     /**
      * Create a {@link ConnectionFactory} that replaces variables in the supplied URL pattern. Variables include:
      * <ul>
@@ -258,6 +302,62 @@ public JdbcConnection query(String query, Consumer<ResultSet> resultConsumer) th
         return this;
     }
 
+    /**
+     * Execute a SQL query using a statement created by the supplied factory, and process the results with a consumer that may
+     * throw {@link SQLException}s. This is useful to stream the results of very large queries.
+     * 
+     * @param query the SQL query
+     * @param statementFactory the factory for the statement used to execute the query; may not be null
+     * @param resultConsumer the consumer of the query results; may be null
+     * @return this object for chaining methods together
+     * @throws SQLException if there is an error connecting to the database, executing the query, or processing the results
+     */
+    public JdbcConnection query(String query, StatementFactory statementFactory, ResultSetConsumer resultConsumer)
+            throws SQLException {
+        Connection conn = connection();
+        conn.setAutoCommit(false);
+        try (Statement statement = statementFactory.createStatement(conn);
+                ResultSet resultSet = statement.executeQuery(query);) {
+            if (resultConsumer != null) resultConsumer.accept(resultSet);
+        }
+        return this;
+    }
+
+    /**
+     * Execute a parameterized SQL query, and process the results with a consumer that may throw {@link SQLException}s. The query
+     * is executed within the connection's current transaction, which the caller is responsible for committing.
+     * 
+     * @param preparedQuery the SQL query with parameter placeholders
+     * @param preparer the function that sets the parameters of the prepared statement; may be null if there are no parameters
+     * @param resultConsumer the consumer of the query results; may be null
+     * @return this object for chaining methods together
+     * @throws SQLException if there is an error connecting to the database, executing the query, or processing the results
+     */
+    public JdbcConnection prepareQuery(String preparedQuery, StatementPreparer preparer, ResultSetConsumer resultConsumer)
+            throws SQLException {
+        Connection conn = connection();
+        conn.setAutoCommit(false);
+        try (PreparedStatement statement = conn.prepareStatement(preparedQuery);) {
+            if (preparer != null) preparer.accept(statement);
+            try (ResultSet resultSet = statement.executeQuery();) {
+                if (resultConsumer != null) resultConsumer.accept(resultSet);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Commit the connection's current transaction.
+     * 
+     * @return this object for chaining methods together
+     * @throws SQLException if there is an error connecting to the database or committing the transaction
+     */
+    public JdbcConnection commit() throws SQLException {
+        Connection conn = connection();
+        if (!conn.getAutoCommit()) conn.commit();
+        return this;
+    }
+
     public void print(ResultSet resultSet) {
         // CHECKSTYLE:OFF
         print(resultSet, System.out::println);
@@ -5,6 +5,8 @@
  */
 package io.debezium.relational;
 
+import java.util.BitSet;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 import org.apache.kafka.connect.data.Schema;
@@ -35,6 +37,10 @@
  * 
  * all of which can be handed to Kafka Connect to create a new record.
  * <p>
+ * Rows that contain only some of the table's columns, such as those read from a MySQL binlog written with
+ * {@code binlog_row_image=MINIMAL}, can be converted by also supplying the {@link BitSet} of the positions of the included
+ * columns.
+ * <p>
  * When the table structure changes, simply obtain a new or updated {@link Table} definition (e.g., via an {@link Table#edit()
  * editor}), rebuild the {@link TableSchema} for that {@link Table}, and use the new {@link TableSchema} instance for subsequent
  * records.
@@ -47,8 +53,8 @@ public class TableSchema {
 
     private final Schema keySchema;
     private final Schema valueSchema;
-    private final Function<Object[], Object> keyGenerator;
-    private final Function<Object[], Struct> valueGenerator;
+    private final BiFunction<Object[], BitSet, Object> keyGenerator;
+    private final BiFunction<Object[], BitSet, Struct> valueGenerator;
 
     /**
      * Create an instance with the specified {@link Schema}s for the keys and values, and the functions that generate the
@@ -63,10 +69,27 @@ public class TableSchema {
      */
     public TableSchema(Schema keySchema, Function<Object[], Object> keyGenerator,
             Schema valueSchema, Function<Object[], Struct> valueGenerator) {
+        this(keySchema, keyGenerator != null ? (row, includedColumns) -> keyGenerator.apply(row) : null,
+             valueSchema, valueGenerator != null ? (row, includedColumns) -> valueGenerator.apply(row) : null);
+    }
+
+    /**
+     * Create an instance with the specified {@link Schema}s for the keys and values, and the functions that generate the
+     * key and value for a given row of data and the {@link BitSet} of the columns included in the row.
+     * 
+     * @param keySchema the schema for the primary key; may be null
+     * @param keyGenerator the function that converts a row into a single key object for Kafka Connect; may not be null but may
+     *            return nulls
+     * @param valueSchema the schema for the values; may be null
+     * @param valueGenerator the function that converts a row into a single value object for Kafka Connect; may not be null but
+     *            may return nulls
+     */
+    public TableSchema(Schema keySchema, BiFunction<Object[], BitSet, Object> keyGenerator,
+            Schema valueSchema, BiFunction<Object[], BitSet, Struct> valueGenerator) {
         this.keySchema = keySchema;
         this.valueSchema = valueSchema;
-        this.keyGenerator = keyGenerator != null ? keyGenerator : (row) -> null;
-        this.valueGenerator = valueGenerator != null ? valueGenerator : (row) -> null;
+        this.keyGenerator = keyGenerator != null ? keyGenerator : (row, includedColumns) -> null;
+        this.valueGenerator = valueGenerator != null ? valueGenerator : (row, includedColumns) -> null;
     }
 
     /**
@@ -95,7 +118,18 @@ public Schema keySchema() {
      * @return the key, or null if the {@code columnData}
      */
     public Object keyFromColumnData(Object[] columnData) {
-        return columnData == null ? null : keyGenerator.apply(columnData);
+        return columnData == null ? null : keyGenerator.apply(columnData, null);
+    }
+
+    /**
+     * Convert the specified row of values for the included columns into a Kafka Connect key.
+     * 
+     * @param columnData the values of the included columns, in order of the columns' positions
+     * @param includedColumns the 0-based positions of the columns included in the row, or null if the row contains all columns
+     * @return the key, or null if the {@code columnData} is null or does not include all of the primary key columns
+     */
+    public Object keyFromColumnData(Object[] columnData, BitSet includedColumns) {
+        return columnData == null ? null : keyGenerator.apply(columnData, includedColumns);
     }
 
     /**
@@ -106,6 +140,19 @@ public Object keyFromColumnData(Object[] columnData) {
      * @return the value, or null if the {@code columnData}
      */
     public Struct valueFromColumnData(Object[] columnData) {
-        return columnData == null ? null : valueGenerator.apply(columnData);
+        return columnData == null ? null : valueGenerator.apply(columnData, null);
+    }
+
+    /**
+     * Convert the specified row of values for the included columns into a Kafka Connect value. When the row does not include all
+     * of the table's columns, the value's {@link Struct#schema() schema} is a variant of the {@link #valueSchema()} named
+     * {@code <name>/partial} in which all fields are optional, and the fields of the excluded columns are null.
+     * 
+     * @param columnData the values of the included columns, in order of the columns' positions
+     * @param includedColumns the 0-based positions of the columns included in the row, or null if the row contains all columns
+     * @return the value, or null if the {@code columnData} is null
+     */
+    public Struct valueFromColumnData(Object[] columnData, BitSet includedColumns) {
+        return columnData == null ? null : valueGenerator.apply(columnData, includedColumns);
     }
 }
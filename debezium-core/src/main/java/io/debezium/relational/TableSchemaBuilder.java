@@ -17,11 +17,16 @@
 import java.time.temporal.ChronoField;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Function;
+import java.util.function.BiFunction;
+import java.util.stream.IntStream;
 
+import org.apache.kafka.connect.data.ConnectSchema;
 import org.apache.kafka.connect.data.Date;
 import org.apache.kafka.connect.data.Decimal;
 import org.apache.kafka.connect.data.Field;
@@ -34,7 +39,6 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import io.debezium.annotation.Immutable;
 import io.debezium.annotation.ThreadSafe;
 import io.debezium.data.Bits;
 import io.debezium.data.IsoTime;
@@ -55,12 +59,13 @@
  * @author Randall Hauch
  */
 @ThreadSafe
-@Immutable
 public class TableSchemaBuilder {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TableSchemaBuilder.class);
     private static final LocalDate EPOCH_DAY = LocalDate.ofEpochDay(0);
 
+    private final ConcurrentMap<List<Object>, TableLayout> layoutsByStructure = new ConcurrentHashMap<>();
+
     /**
      * Create a new instance of the builder.
      */
@@ -87,7 +92,7 @@ public TableSchema create(ResultSet resultSet, String name) throws SQLException
         Schema valueSchema = schemaBuilder.build();
 
         // And a generator that can be used to create values from rows in the result set ...
-        Function<Object[], Struct> valueGenerator = createValueGenerator(valueSchema, name, columns);
+        BiFunction<Object[], BitSet, Struct> valueGenerator = createValueGenerator(valueSchema, name, columns, columns.size());
 
         // Finally create our result object with no primary key or key generator ...
         return new TableSchema(null, null, valueSchema, valueGenerator);
@@ -99,16 +104,62 @@ public TableSchema create(ResultSet resultSet, String name) throws SQLException
      * and a {@link TableSchema#valueSchema() value schema} that contains only those columns that are not in the table's primary
      * key.
      * <p>
+     * Tables with the same structure, such as the same tables in many databases of a sharded or multi-tenant server, share the
+     * fields of their schemas and the converters of their columns, so their schemas differ only in their names. The shared
+     * fields and converters are kept until every schema created for that structure has been {@link #release(Table) released}.
+     * <p>
      * This is equivalent to calling {@code create(table,false)}.
      * 
      * @param table the table definition; may not be null
      * @return the table schema that can be used for sending rows of data for this table to Kafka Connect; never null
      */
     public TableSchema create(Table table) {
-        // Build the schemas ...
         final String tableId = table.id().toString();
-        SchemaBuilder valSchemaBuilder = SchemaBuilder.struct().name(tableId);
-        SchemaBuilder keySchemaBuilder = SchemaBuilder.struct().name(tableId + "/pk");
+        TableLayout layout = layoutsByStructure.compute(structureOf(table), (structure, existing) -> {
+            TableLayout result = existing != null ? existing : createLayout(table);
+            ++result.references;
+            return result;
+        });
+
+        // Build the schemas with the shared fields ...
+        Schema valSchema = structSchema(tableId, layout.valueFields);
+        Schema keySchema = layout.keyFields != null ? structSchema(tableId + "/pk", layout.keyFields) : null;
+
+        // Create the generators with the shared conversions ...
+        int columnCount = table.columns().size();
+        BiFunction<Object[], BitSet, Object> keyGenerator = keySchema != null
+                ? keyGenerator(keySchema, tableId, table.primaryKeyColumns(), columnCount, layout.keyConversions)
+                : null;
+        BiFunction<Object[], BitSet, Struct> valueGenerator = valueGenerator(valSchema, tableId, table.columns(), columnCount,
+                                                                             layout.valueConversions);
+
+        // And the table schema ...
+        return new TableSchema(keySchema, keyGenerator, valSchema, valueGenerator);
+    }
+
+    /**
+     * Signal that a schema {@link #create(Table) created} from the given table definition is no longer used, so that the fields
+     * and converters shared by tables with the same structure can be discarded once no schema uses them.
+     * 
+     * @param table the table definition from which the schema was created; may not be null
+     */
+    public void release(Table table) {
+        layoutsByStructure.computeIfPresent(structureOf(table), (structure, layout) -> --layout.references > 0 ? layout : null);
+    }
+
+    /**
+     * Get the number of distinct table structures for which this builder has created and cached the fields and converters.
+     * 
+     * @return the number of distinct table structures
+     */
+    public int structureCount() {
+        return layoutsByStructure.size();
+    }
+
+    private TableLayout createLayout(Table table) {
+        // Build the schemas, whose names are replaced for each table ...
+        SchemaBuilder valSchemaBuilder = SchemaBuilder.struct();
+        SchemaBuilder keySchemaBuilder = SchemaBuilder.struct();
         AtomicBoolean hasPrimaryKey = new AtomicBoolean(false);
         table.columns().forEach(column -> {
             if (table.isPrimaryKeyColumn(column.name())) {
@@ -121,83 +172,267 @@ public TableSchema create(Table table) {
         });
         Schema valSchema = valSchemaBuilder.build();
         Schema keySchema = hasPrimaryKey.get() ? keySchemaBuilder.build() : null;
+        return new TableLayout(keySchema != null ? keySchema.fields() : null,
+                keySchema != null ? conversionsFor(keySchema, table.primaryKeyColumns(), false) : null,
+                valSchema.fields(),
+                conversionsFor(valSchema, table.columns(), true));
+    }
 
-        // Create the generators ...
-        Function<Object[], Object> keyGenerator = createKeyGenerator(keySchema, tableId, table.primaryKeyColumns());
-        Function<Object[], Struct> valueGenerator = createValueGenerator(valSchema, tableId, table.columns());
-
-        // And the table schema ...
-        return new TableSchema(keySchema, keyGenerator, valSchema, valueGenerator);
+    /**
+     * Determine the structure of the given table, which includes everything about its columns and primary key that affects the
+     * fields of its schemas and the conversions of its values.
+     * 
+     * @param table the table definition; may not be null
+     * @return the structure, which can be compared with the structures of other tables; never null
+     */
+    protected List<Object> structureOf(Table table) {
+        List<Column> columns = table.columns();
+        List<Object> structure = new ArrayList<>(columns.size() * 9 + 2);
+        structure.add(columns.size());
+        columns.forEach(column -> {
+            structure.add(column.name());
+            structure.add(column.typeName());
+            structure.add(column.jdbcType());
+            structure.add(column.position());
+            structure.add(column.length());
+            structure.add(column.scale());
+            structure.add(column.isOptional());
+            structure.add(column.isAutoIncremented());
+            structure.add(column.isGenerated());
+        });
+        structure.add(table.primaryKeyColumnNames());
+        return structure;
     }
 
     /**
      * Creates the function that produces a Kafka Connect key object for a row of data.
+     * <p>
+     * The function accepts rows that contain values for all of the table's columns, with a null {@link BitSet}, and
+     * <em>sparse</em> rows that contain only the values of the columns whose positions are set in the {@link BitSet}, in order of
+     * their positions. The function returns null when the key of a sparse row cannot be determined because one or more of the
+     * key's columns are not included.
      * 
      * @param schema the Kafka Connect schema for the key; may be null if there is no known schema, in which case the generator
      *            will be null
      * @param columnSetName the name for the set of columns, used in error messages; may not be null
      * @param columns the column definitions for the table that defines the row; may not be null
+     * @param columnCount the total number of columns in each complete row
      * @return the key-generating function, or null if there is no key schema
      */
-    protected Function<Object[], Object> createKeyGenerator(Schema schema, String columnSetName, List<Column> columns) {
+    protected BiFunction<Object[], BitSet, Object> createKeyGenerator(Schema schema, String columnSetName, List<Column> columns,
+                                                                      int columnCount) {
         if (schema != null) {
-            int[] recordIndexes = indexesForColumns(columns);
-            Field[] fields = fieldsForColumns(schema, columns);
-            int numFields = recordIndexes.length;
-            ValueConverter[] converters = convertersForColumns(schema, columns);
-            return (row) -> {
-                Struct result = new Struct(schema);
-                for (int i = 0; i != numFields; ++i) {
-                    Object value = row[recordIndexes[i]];
-                    value = value == null ? value : converters[i].convert(value);
-                    try {
-                        result.put(fields[i], value);
-                    } catch (DataException e) {
-                        Column col = columns.get(i);
-                        LOGGER.error("Failed to properly convert key value for '" + columnSetName + "." + col.name() + "' of type "
-                                + col.typeName() + ":", e);
-                    }
-                }
-                return result;
-            };
+            return keyGenerator(schema, columnSetName, columns, columnCount,
+                                conversionsFor(schema, columns, false));
         }
         return null;
     }
 
+    private BiFunction<Object[], BitSet, Object> keyGenerator(Schema schema, String columnSetName, List<Column> columns,
+                                                              int columnCount, Conversions conversions) {
+        int[] recordIndexes = conversions.recordIndexes;
+        Field[] fields = conversions.fields;
+        int numFields = recordIndexes.length;
+        ValueConverter[] converters = conversions.converters;
+        int[] order = conversions.order;
+        return (row, includedColumns) -> {
+            ColumnCursor cursor = null;
+            if (includedColumns != null && row.length != columnCount) {
+                for (int index : recordIndexes) {
+                    if (!includedColumns.get(index)) return null;
+                }
+                cursor = new ColumnCursor(row, includedColumns);
+            }
+            Struct result = new Struct(schema);
+            for (int j = 0; j != numFields; ++j) {
+                int i = order[j];
+                Object value = cursor == null ? row[recordIndexes[i]] : cursor.valueAt(recordIndexes[i]);
+                value = value == null ? value : converters[i].convert(value);
+                try {
+                    result.put(fields[i], value);
+                } catch (DataException e) {
+                    Column col = columns.get(i);
+                    LOGGER.error("Failed to properly convert key value for '" + columnSetName + "." + col.name() + "' of type "
+                            + col.typeName() + ":", e);
+                }
+            }
+            return result;
+        };
+    }
+
     /**
      * Creates the function that produces a Kafka Connect value object for a row of data.
+     * <p>
+     * The function accepts rows that contain values for all of the table's columns, with a null {@link BitSet}, and
+     * <em>sparse</em> rows that contain only the values of the columns whose positions are set in the {@link BitSet}, in order of
+     * their positions. The value of a sparse row that does not include all columns uses a variant of the schema named
+     * {@code <name>/partial} in which every field is optional, and the fields of the excluded columns are null. The variant has
+     * its own name so that schema registries never see two different definitions under the value schema's name.
      * 
      * @param schema the Kafka Connect schema for the value; may be null if there is no known schema, in which case the generator
      *            will be null
      * @param columnSetName the name for the set of columns, used in error messages; may not be null
      * @param columns the column definitions for the table that defines the row; may not be null
+     * @param columnCount the total number of columns in each complete row
      * @return the value-generating function, or null if there is no value schema
      */
-    protected Function<Object[], Struct> createValueGenerator(Schema schema, String columnSetName, List<Column> columns) {
+    protected BiFunction<Object[], BitSet, Struct> createValueGenerator(Schema schema, String columnSetName, List<Column> columns,
+                                                                        int columnCount) {
         if (schema != null) {
-            int[] recordIndexes = indexesForColumns(columns);
-            Field[] fields = fieldsForColumns(schema, columns);
-            int numFields = recordIndexes.length;
-            ValueConverter[] converters = convertersForColumns(schema, columns);
-            return (row) -> {
-                Struct result = new Struct(schema);
-                for (int i = 0; i != numFields; ++i) {
-                    Object value = row[recordIndexes[i]];
-                    if (value != null) value = converters[i].convert(value);
-                    try {
-                        result.put(fields[i], value);
-                    } catch (DataException e) {
-                        Column col = columns.get(i);
-                        LOGGER.error("Failed to properly convert data value for '" + columnSetName + "." + col.name() + "' of type "
-                                + col.typeName() + ":", e);
-                    }
-                }
-                return result;
-            };
+            return valueGenerator(schema, columnSetName, columns, columnCount,
+                                  conversionsFor(schema, columns, true));
         }
         return null;
     }
 
+    private BiFunction<Object[], BitSet, Struct> valueGenerator(Schema schema, String columnSetName, List<Column> columns,
+                                                                int columnCount, Conversions conversions) {
+        int[] recordIndexes = conversions.recordIndexes;
+        Field[] fields = conversions.fields;
+        int numFields = recordIndexes.length;
+        ValueConverter[] converters = conversions.converters;
+        int[] order = conversions.order;
+        Schema partialSchema = structSchema(schema.name() + "/partial", conversions.partialSchemaFields);
+        Field[] partialFields = conversions.partialFields;
+        return (row, includedColumns) -> {
+            boolean partial = includedColumns != null && row.length != columnCount;
+            Struct result = new Struct(partial ? partialSchema : schema);
+            Field[] resultFields = partial ? partialFields : fields;
+            ColumnCursor cursor = partial ? new ColumnCursor(row, includedColumns) : null;
+            for (int j = 0; j != numFields; ++j) {
+                int i = order[j];
+                if (partial && !includedColumns.get(recordIndexes[i])) continue;
+                Object value = cursor == null ? row[recordIndexes[i]] : cursor.valueAt(recordIndexes[i]);
+                if (value != null) value = converters[i].convert(value);
+                try {
+                    result.put(resultFields[i], value);
+                } catch (DataException e) {
+                    Column col = columns.get(i);
+                    LOGGER.error("Failed to properly convert data value for '" + columnSetName + "." + col.name() + "' of type "
+                            + col.typeName() + ":", e);
+                }
+            }
+            return result;
+        };
+    }
+
+    private Conversions conversionsFor(Schema schema, List<Column> columns, boolean withPartialFields) {
+        int[] recordIndexes = indexesForColumns(columns);
+        Field[] fields = fieldsForColumns(schema, columns);
+        ValueConverter[] converters = convertersForColumns(schema, columns);
+        Schema partialSchema = withPartialFields ? optionalFields(schema) : null;
+        return new Conversions(recordIndexes, fields, converters, ascendingOrder(recordIndexes),
+                partialSchema != null ? partialSchema.fields() : null,
+                partialSchema != null ? fieldsForColumns(partialSchema, columns) : null);
+    }
+
+    private static Schema structSchema(String name, List<Field> fields) {
+        return new ConnectSchema(Schema.Type.STRUCT, false, null, name, null, null, null, fields, null, null);
+    }
+
+    /**
+     * Create a copy of the supplied struct schema in which every field is optional.
+     * 
+     * @param schema the struct schema; may not be null
+     * @return the schema with optional fields; never null
+     */
+    protected Schema optionalFields(Schema schema) {
+        SchemaBuilder builder = SchemaBuilder.struct().name(schema.name()).version(schema.version()).doc(schema.doc());
+        for (Field field : schema.fields()) {
+            Schema fieldSchema = field.schema();
+            if (!fieldSchema.isOptional()) {
+                SchemaBuilder fieldBuilder = SchemaBuilder.type(fieldSchema.type())
+                                                          .name(fieldSchema.name())
+                                                          .version(fieldSchema.version())
+                                                          .doc(fieldSchema.doc())
+                                                          .optional();
+                if (fieldSchema.parameters() != null) fieldBuilder.parameters(fieldSchema.parameters());
+                fieldSchema = fieldBuilder.build();
+            }
+            builder.field(field.name(), fieldSchema);
+        }
+        return builder.build();
+    }
+
+    private static int[] ascendingOrder(int[] recordIndexes) {
+        // Sparse rows are read in order of column position, so visit the columns in that order ...
+        return IntStream.range(0, recordIndexes.length).boxed()
+                        .sorted((a, b) -> Integer.compare(recordIndexes[a], recordIndexes[b]))
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+    }
+
+    /**
+     * Finds the values of columns within a sparse row, where the columns are visited in order of their positions.
+     */
+    private static final class ColumnCursor {
+        private final Object[] row;
+        private final BitSet includedColumns;
+        private int position = -1;
+        private int index = -1;
+
+        protected ColumnCursor(Object[] row, BitSet includedColumns) {
+            this.row = row;
+            this.includedColumns = includedColumns;
+        }
+
+        /**
+         * Get the value of the column at the given position, which must be included in the row and must be after the positions of
+         * all previously requested columns.
+         * 
+         * @param columnIndex the 0-based position of the column
+         * @return the value
+         */
+        protected Object valueAt(int columnIndex) {
+            while (position < columnIndex) {
+                position = includedColumns.nextSetBit(position + 1);
+                ++index;
+            }
+            return row[index];
+        }
+    }
+
+    /**
+     * The fields and converters shared by the schemas of all tables with the same structure.
+     */
+    private static final class TableLayout {
+        private final List<Field> keyFields;
+        private final Conversions keyConversions;
+        private final List<Field> valueFields;
+        private final Conversions valueConversions;
+        private int references; // only changed within the map's atomic compute functions
+
+        protected TableLayout(List<Field> keyFields, Conversions keyConversions, List<Field> valueFields,
+                Conversions valueConversions) {
+            this.keyFields = keyFields;
+            this.keyConversions = keyConversions;
+            this.valueFields = valueFields;
+            this.valueConversions = valueConversions;
+        }
+    }
+
+    /**
+     * The positions, fields, and converters used to convert a row's values for a set of columns.
+     */
+    private static final class Conversions {
+        private final int[] recordIndexes;
+        private final Field[] fields;
+        private final ValueConverter[] converters;
+        private final int[] order;
+        private final List<Field> partialSchemaFields;
+        private final Field[] partialFields;
+
+        protected Conversions(int[] recordIndexes, Field[] fields, ValueConverter[] converters, int[] order,
+                List<Field> partialSchemaFields, Field[] partialFields) {
+            this.recordIndexes = recordIndexes;
+            this.fields = fields;
+            this.converters = converters;
+            this.order = order;
+            this.partialSchemaFields = partialSchemaFields;
+            this.partialFields = partialFields;
+        }
+    }
+
     protected int[] indexesForColumns(List<Column> columns) {
         int[] recordIndexes = new int[columns.size()];
         AtomicInteger i = new AtomicInteger(0);
@@ -5,24 +5,74 @@
  */
 package io.debezium.relational.history;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
+import org.apache.kafka.connect.errors.ConnectException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.debezium.config.Configuration;
+import io.debezium.config.Field;
+import io.debezium.document.Array;
 import io.debezium.relational.Tables;
 import io.debezium.relational.ddl.DdlParser;
 
 /**
+ * A base {@link DatabaseHistory} that stores each change as a {@link HistoryRecord}. When the {@link #SNAPSHOT_INTERVAL snapshot
+ * interval} is positive, the definitions of all tables are periodically stored as a snapshot at the position of the last
+ * recorded change, so that recovery begins with the latest snapshot at or before the recovery point and parses only the DDL
+ * statements recorded after that snapshot. Each snapshot is split across as many records as needed to keep each record under
+ * the {@link #SNAPSHOT_RECORD_MAX_BYTES maximum size}, and recovery ignores a snapshot unless all of its records were stored.
+ * <p>
+ * When the {@link #COMPACTION_THRESHOLD compaction threshold} is positive and recovery has to apply at least that many DDL
+ * statements, the history is {@link #compact(Map, Map, DdlParser) compacted} at the point to which it was recovered.
+ * 
  * @author Randall Hauch
  *
  */
 public abstract class AbstractDatabaseHistory implements DatabaseHistory {
 
+    public static final Field SNAPSHOT_INTERVAL = Field.create(CONFIGURATION_FIELD_PREFIX_STRING + "snapshot.interval")
+                                                       .withDescription("The number of DDL changes recorded in the history between snapshots of the "
+                                                               + "definitions of all tables, which allow recovery to skip parsing the DDL statements "
+                                                               + "recorded before the snapshot. Use 0 to never record snapshots.")
+                                                       .withDefault(0)
+                                                       .withValidation(Field::isNonNegativeInteger);
+
+    private static final int DEFAULT_SNAPSHOT_RECORD_MAX_BYTES = 512 * 1024;
+
+    public static final Field SNAPSHOT_RECORD_MAX_BYTES = Field.create(CONFIGURATION_FIELD_PREFIX_STRING + "snapshot.record.max.bytes")
+                                                               .withDescription("The approximate maximum size in bytes of each of the records into "
+                                                                       + "which a snapshot of the definitions of all tables is split. This must be "
+                                                                       + "smaller than the largest record the history can store; for the Kafka "
+                                                                       + "history that is the smallest of the producer's 'max.request.size' and "
+                                                                       + "'buffer.memory' (both set with the 'database.history.producer.' prefix) "
+                                                                       + "and the topic's 'max.message.bytes'. The definition of a single table "
+                                                                       + "that is larger is stored in a record of its own. The default is 524288.")
+                                                               .withDefault(DEFAULT_SNAPSHOT_RECORD_MAX_BYTES)
+                                                               .withValidation(Field::isPositiveInteger);
+
+    public static final Field COMPACTION_THRESHOLD = Field.create(CONFIGURATION_FIELD_PREFIX_STRING + "compaction.threshold")
+                                                          .withDescription("The number of DDL changes that recovery must apply before the history is "
+                                                                  + "compacted at the point to which it was recovered, which is the offset from which "
+                                                                  + "the connector restarts. The Kafka history cannot remove records from its topic, "
+                                                                  + "so compacting it only records a snapshot of all tables. Use 0 to never compact "
+                                                                  + "the history automatically.")
+                                                          .withDefault(0)
+                                                          .withValidation(Field::isNonNegativeInteger);
+
     protected Configuration config;
     protected final Logger logger = LoggerFactory.getLogger(getClass());
+    private final AtomicInteger changesSinceSnapshot = new AtomicInteger();
+    private final Object snapshotLock = new Object();
+    private int snapshotInterval = 0;
+    private int snapshotRecordMaxBytes = DEFAULT_SNAPSHOT_RECORD_MAX_BYTES;
+    private int compactionThreshold = 0;
 
     protected AbstractDatabaseHistory() {
     }
@@ -30,6 +80,12 @@ protected AbstractDatabaseHistory() {
     @Override
     public void configure(Configuration config) {
         this.config = config;
+        if (!config.validate(new Field[] { SNAPSHOT_INTERVAL, SNAPSHOT_RECORD_MAX_BYTES, COMPACTION_THRESHOLD }, logger::error)) {
+            throw new ConnectException("Error configuring an instance of " + getClass().getSimpleName() + "; check the logs for details");
+        }
+        this.snapshotInterval = config.getInteger(SNAPSHOT_INTERVAL);
+        this.snapshotRecordMaxBytes = config.getInteger(SNAPSHOT_RECORD_MAX_BYTES);
+        this.compactionThreshold = config.getInteger(COMPACTION_THRESHOLD);
     }
     
     @Override
@@ -40,24 +96,188 @@ public void start() {
     @Override
     public final void record(Map<String, ?> source, Map<String, ?> position, String databaseName, Tables schema, String ddl) {
         storeRecord(new HistoryRecord(source, position, databaseName, ddl));
+        if (snapshotInterval > 0 && changesSinceSnapshot.incrementAndGet() >= snapshotInterval) {
+            synchronized (snapshotLock) {
+                if (changesSinceSnapshot.get() >= snapshotInterval) {
+                    // The schema already reflects this change, so the snapshot has the same position. The count is reset only
+                    // after all of the snapshot's records are stored, so that a failed snapshot is tried again ...
+                    for (HistoryRecord part : snapshotOf(new HistoryRecord(source, position, null, null), schema)) {
+                        storeRecord(part);
+                    }
+                    changesSinceSnapshot.set(0);
+                }
+            }
+        }
     }
 
     @Override
     public final void recover(Map<String, ?> source, Map<String, ?> position, Tables schema, DdlParser ddlParser) {
+        Recovery recovery = recoverTo(new HistoryRecord(source, position, null, null), schema, ddlParser);
+        if (compactionThreshold > 0 && recovery.changes.size() >= compactionThreshold) {
+            // The history won't be recovered to an earlier point, so the changes just applied need never be parsed again ...
+            compactAt(recovery.last, schema);
+        }
+    }
+
+    @Override
+    public final void compact(Map<String, ?> source, Map<String, ?> position, DdlParser ddlParser) {
         HistoryRecord stopPoint = new HistoryRecord(source, position, null, null);
-        recoverRecords(schema,ddlParser,recovered->{
-            if (recovered.isAtOrBefore(stopPoint)) {
-                String ddl = recovered.ddl();
-                if (ddl != null) {
-                    ddlParser.setCurrentSchema(recovered.databaseName()); // may be null
-                    ddlParser.parse(ddl, schema);
+        Tables schema = new Tables();
+        Recovery recovery = recoverTo(stopPoint, schema, ddlParser);
+        if (recovery.last == null) {
+            logger.info("No database history at or before {} to compact", stopPoint.position());
+            return;
+        }
+        compactAt(recovery.last, schema);
+    }
+
+    /**
+     * Recover the table definitions at the given point in a single pass over the stored records.
+     * 
+     * @param stopPoint the record with the source and position to which the history is recovered; may not be null
+     * @param schema the table definitions to be updated; may not be null
+     * @param ddlParser the DDL parser used to apply the changes; may not be null
+     * @return the result of reading the history; never null
+     */
+    private Recovery recoverTo(HistoryRecord stopPoint, Tables schema, DdlParser ddlParser) {
+        // Read the history once, keeping the latest snapshot at or before the stop point and only the changes it doesn't
+        // include. Snapshots written by compaction may follow changes with later positions, so the latest snapshot is not
+        // necessarily the last one ...
+        Recovery recovery = new Recovery();
+        recoverRecords(schema, ddlParser, recovered -> {
+            if (recovered.isAtOrBefore(stopPoint)) recovery.add(recovered);
+        });
+        if (recovery.snapshot != null) {
+            logger.info("Recovering table definitions from snapshot at {}", recovery.snapshot.get(0).position());
+            TableSnapshots.restore(tablesOf(recovery.snapshot), schema);
+        }
+        // And then apply only the changes after that snapshot ...
+        for (HistoryRecord change : recovery.changes) {
+            ddlParser.setCurrentSchema(change.databaseName()); // may be null
+            ddlParser.parse(change.ddl(), schema);
+        }
+        logger.info("Recovered table definitions by applying {} DDL records", recovery.changes.size());
+        changesSinceSnapshot.set(recovery.changes.size());
+        return recovery;
+    }
+
+    /**
+     * Replace all of the records at or before the given record with a snapshot of the given table definitions.
+     * 
+     * @param at the last record at or before the point of compaction; may not be null
+     * @param schema the table definitions at that point; may not be null
+     * @throws ConnectException if the records could not be replaced
+     */
+    private void compactAt(HistoryRecord at, Tables schema) {
+        // The snapshot has the position of the last change it replaces, so recovery to that or later positions still works ...
+        logger.info("Compacting database history at or before {} into the definitions of {} tables", at.position(),
+                    schema.size());
+        replaceRecords(snapshotOf(at, schema), record -> record.isAtOrBefore(at));
+        changesSinceSnapshot.set(0);
+    }
+
+    /**
+     * Create the records of a snapshot of the given table definitions at the position of the given record.
+     * 
+     * @param at the record whose source and position the snapshot is to have; may not be null
+     * @param schema the table definitions; may not be null
+     * @return the snapshot's records in the order they are to be stored; never null or empty
+     */
+    private List<HistoryRecord> snapshotOf(HistoryRecord at, Tables schema) {
+        List<Array> tables = TableSnapshots.write(schema, snapshotRecordMaxBytes);
+        List<HistoryRecord> parts = new ArrayList<>(tables.size());
+        for (int i = 0; i != tables.size(); ++i) {
+            parts.add(new HistoryRecord(at, tables.get(i), i, tables.size()));
+        }
+        return parts;
+    }
+
+    private static List<Array> tablesOf(List<HistoryRecord> snapshot) {
+        List<Array> tables = new ArrayList<>(snapshot.size());
+        snapshot.forEach(part -> tables.add(part.tables()));
+        return tables;
+    }
+
+    /**
+     * The latest complete snapshot and the changes that are not included in it, as the records at or before the recovery point
+     * are read in the order they were stored.
+     * <p>
+     * A snapshot includes every change stored before it at or before its position, so those changes are discarded when the
+     * snapshot is complete. A change stored after a snapshot is included in it only when it has an earlier position, such as
+     * when a change is recorded again after a restart. Changes stored after a snapshot at the <em>same</em> position are kept,
+     * since a periodic snapshot may be taken partway through the changes recorded at one position, such as the definitions of
+     * all tables recorded by a snapshot of the database.
+     */
+    private static final class Recovery {
+        private final SnapshotParts parts = new SnapshotParts();
+        private final List<HistoryRecord> changes = new ArrayList<>();
+        private List<HistoryRecord> snapshot;
+        private HistoryRecord last;
+        private int changesBeforeParts;
+
+        void add(HistoryRecord recovered) {
+            if (last == null || last.isAtOrBefore(recovered)) last = recovered;
+            if (recovered.isSnapshot()) {
+                // Only changes stored before the snapshot's first record can be included in it ...
+                if (recovered.snapshotPart() == 0) changesBeforeParts = changes.size();
+                List<HistoryRecord> complete = parts.add(recovered);
+                if (complete != null && (snapshot == null || snapshot.get(0).isAtOrBefore(recovered))) {
+                    snapshot = complete;
+                    changes.subList(0, changesBeforeParts).removeIf(change -> change.isAtOrBefore(recovered));
                 }
+            } else if (recovered.ddl() != null && (snapshot == null || !isBefore(recovered, snapshot.get(0)))) {
+                changes.add(recovered);
             }
-        });
+        }
+
+        private static boolean isBefore(HistoryRecord record, HistoryRecord other) {
+            return record.isAtOrBefore(other) && !other.isAtOrBefore(record);
+        }
+    }
+
+    /**
+     * The records of a snapshot that have been recovered so far. The records of a snapshot are stored one after the other, though
+     * possibly interleaved with the records of other changes, and a snapshot whose records were not all stored is ignored.
+     */
+    private static final class SnapshotParts {
+        private final List<HistoryRecord> parts = new ArrayList<>();
+
+        /**
+         * Add the next recovered record of a snapshot.
+         * 
+         * @param part the snapshot record; may not be null
+         * @return all of the records of the snapshot if the given record completes it, or null otherwise
+         */
+        List<HistoryRecord> add(HistoryRecord part) {
+            if (part.snapshotPart() == 0) {
+                parts.clear();
+            } else if (parts.size() != part.snapshotPart() || !parts.get(0).isAtOrBefore(part) || !part.isAtOrBefore(parts.get(0))) {
+                // This is a record of a snapshot whose earlier records are missing ...
+                parts.clear();
+                return null;
+            }
+            parts.add(part);
+            if (parts.size() < part.snapshotParts()) return null;
+            List<HistoryRecord> complete = new ArrayList<>(parts);
+            parts.clear();
+            return complete;
+        }
     }
 
     protected abstract void storeRecord(HistoryRecord record);
 
+    /**
+     * Atomically remove the stored records that are replaced by the given snapshot records, and store the snapshot records in
+     * place of the last of the removed records. Implementations that are unable to remove stored records may simply
+     * {@link #storeRecord(HistoryRecord) store} the snapshot records, since recovery uses the latest snapshot and ignores all
+     * changes at or before it.
+     * 
+     * @param snapshot the records of the snapshot, in order; never null or empty
+     * @param isReplaced the predicate that determines whether a stored record is replaced by the snapshot; never null
+     * @throws ConnectException if the records could not be replaced, in which case the stored records must be unchanged
+     */
+    protected abstract void replaceRecords(List<HistoryRecord> snapshot, Predicate<HistoryRecord> isReplaced);
+
     protected abstract void recoverRecords(Tables schema, DdlParser ddlParser, Consumer<HistoryRecord> records);
     
     @Override
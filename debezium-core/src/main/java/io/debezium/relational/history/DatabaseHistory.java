@@ -7,6 +7,8 @@
 
 import java.util.Map;
 
+import org.apache.kafka.connect.errors.ConnectException;
+
 import io.debezium.config.Configuration;
 import io.debezium.relational.Tables;
 import io.debezium.relational.ddl.DdlParser;
@@ -58,6 +60,24 @@ public interface DatabaseHistory {
      * @param ddlParser the DDL parser that can be used to apply DDL statements to the given {@code schema}; may not be null
      */
     void recover(Map<String, ?> source, Map<String, ?> position, Tables schema, DdlParser ddlParser);
+
+    /**
+     * Compact the history so that all of the changes recorded at or before the given point in history are replaced with the
+     * definitions of the tables at that point. Afterward the {@link Tables database schema} can still be
+     * {@link #recover(Map, Map, Tables, DdlParser) recovered} to that point or to any later point, but no longer to earlier
+     * points. Compaction may be done while changes are being {@link #record(Map, Map, String, Tables, String) recorded}, or on an
+     * instance that has been {@link #configure(Configuration) configured} but not {@link #start() started}.
+     * <p>
+     * Not all storage can remove records. The {@link KafkaDatabaseHistory} cannot delete records from its topic, so compacting
+     * it only appends the definitions of the tables: recovery then skips the earlier changes, but the topic is not made any
+     * smaller and still grows until the topic's retention policy removes the old records.
+     * 
+     * @param source the information about the source database; may not be null
+     * @param position the point in history at or before which all changes are to be compacted; may not be null
+     * @param ddlParser the DDL parser that can be used to apply DDL statements to determine the table definitions; may not be null
+     * @throws ConnectException if the history could not be compacted
+     */
+    void compact(Map<String, ?> source, Map<String, ?> position, DdlParser ddlParser);
     
     /**
      * Stop recording history and release any resources acquired since {@link #configure(Configuration)}.
@@ -5,15 +5,28 @@
  */
 package io.debezium.relational.history;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.apache.kafka.connect.errors.ConnectException;
 
@@ -24,28 +37,113 @@
 import io.debezium.document.DocumentWriter;
 import io.debezium.relational.Tables;
 import io.debezium.relational.ddl.DdlParser;
+import io.debezium.util.Clock;
 import io.debezium.util.Collect;
 import io.debezium.util.FunctionalReadWriteLock;
 
 /**
  * A {@link DatabaseHistory} implementation that stores the schema history in a local file.
+ * <p>
+ * Records are appended through a single {@link FileChannel} that remains open until the history is {@link #stop() stopped}.
+ * Records stored concurrently are written together: each thread adds its record to the pending group of records and then waits
+ * for the write lock, and the thread that obtains the lock writes all of the records in the pending group with as few writes as
+ * possible and at most one {@link FileChannel#force(boolean) fsync}, so that the other threads find their records already
+ * written. If the group cannot be written, every thread whose record is in the group fails with the same error. When the file
+ * is forced is determined by the {@link FsyncPolicy}.
  * 
  * @author Randall Hauch
  */
 @ThreadSafe
 public final class FileDatabaseHistory extends AbstractDatabaseHistory {
 
+    /**
+     * The set of predefined FsyncPolicy options or aliases.
+     */
+    public static enum FsyncPolicy {
+        /**
+         * Force the file after each group of records is written, before any of the threads storing those records continue.
+         */
+        ALWAYS("always"),
+
+        /**
+         * Force the file after a group of records is written only when the {@link FileDatabaseHistory#FSYNC_INTERVAL_MS interval}
+         * has elapsed since the file was last forced, and when the history is stopped. Records written within the interval are
+         * forced by a background thread once the interval elapses, so they are not left unforced until the next record is
+         * written.
+         */
+        BATCHED("batched"),
+
+        /**
+         * Force the file only when the history is stopped.
+         */
+        ON_STOP("on_stop");
+
+        private final String value;
+
+        private FsyncPolicy(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * Determine if the supplied value is one of the predefined options.
+         * 
+         * @param value the configuration property value; may not be null
+         * @return the matching option, or null if no match is found
+         */
+        public static FsyncPolicy parse(String value) {
+            if (value == null) return null;
+            value = value.trim();
+            for (FsyncPolicy option : FsyncPolicy.values()) {
+                if (option.getValue().equalsIgnoreCase(value)) return option;
+            }
+            return null;
+        }
+    }
+
     public static final Field FILE_PATH = Field.create(CONFIGURATION_FIELD_PREFIX_STRING + "file.filename")
                                                .withDescription("The path to the file that will be used to record the database history")
                                                .withValidation(Field::isRequired);
 
-    public static Collection<Field> ALL_FIELDS = Collect.arrayListOf(FILE_PATH);
+    public static final Field FSYNC = Field.create(CONFIGURATION_FIELD_PREFIX_STRING + "file.fsync")
+                                           .withDescription("Specifies when the database history file is forced to the storage device. The default is "
+                                                   + "'batched', which forces the file after records are written only if the fsync interval has "
+                                                   + "elapsed since the file was last forced, forces any records left unforced once the interval "
+                                                   + "elapses, and forces the file when the history is stopped. Use 'always' to "
+                                                   + "force the file before recording of each change completes, or 'on_stop' to force the file "
+                                                   + "only when the history is stopped.")
+                                           .withDefault(FsyncPolicy.BATCHED.getValue())
+                                           .withValidation(FileDatabaseHistory::validateFsyncPolicy);
+
+    public static final Field FSYNC_INTERVAL_MS = Field.create(CONFIGURATION_FIELD_PREFIX_STRING + "file.fsync.interval.ms")
+                                                       .withDescription("The minimum number of milliseconds between forcing the database history file "
+                                                               + "to the storage device when the fsync policy is 'batched'. The default is 1000.")
+                                                       .withDefault(1000)
+                                                       .withValidation(Field::isPositiveInteger);
+
+    public static Collection<Field> ALL_FIELDS = Collect.arrayListOf(FILE_PATH, FSYNC, FSYNC_INTERVAL_MS);
 
     private static final Charset UTF8 = StandardCharsets.UTF_8;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(UTF8);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private final FunctionalReadWriteLock lock = FunctionalReadWriteLock.reentrant();
     private final DocumentWriter writer = DocumentWriter.defaultWriter();
     private final DocumentReader reader = DocumentReader.defaultReader();
+    private final Clock clock = Clock.system();
+    private final Object pendingLock = new Object();
+    private Group pending = new Group(); // guarded by 'pendingLock'
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE); // guarded by write lock
+    private FileChannel channel; // guarded by write lock
+    private long lastForced; // guarded by write lock
+    private boolean unforced; // guarded by write lock
+    private ScheduledExecutorService forcer; // guarded by write lock
     private Path path;
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.BATCHED;
+    private long fsyncIntervalMs = 1000L;
 
     @Override
     public void configure(Configuration config) {
@@ -53,34 +151,153 @@ public void configure(Configuration config) {
         if (!config.validate(ALL_FIELDS, logger::error)) {
             throw new ConnectException("Error configuring an instance of " + getClass().getSimpleName() + "; check the logs for details");
         }
-        config.validate(ALL_FIELDS, logger::error);
-        super.configure(config);
         path = Paths.get(config.getString(FILE_PATH));
+        fsyncPolicy = FsyncPolicy.parse(config.getString(FSYNC));
+        fsyncIntervalMs = config.getInteger(FSYNC_INTERVAL_MS);
     }
 
     @Override
     protected void storeRecord(HistoryRecord record) {
+        byte[] line;
+        try {
+            line = writer.write(record.document()).getBytes(UTF8);
+        } catch (IOException e) {
+            logger.error("Failed to add record to history at {}: {}", path, record, e);
+            return;
+        }
+        Group group;
+        synchronized (pendingLock) {
+            group = pending;
+            group.lines.add(line);
+        }
         lock.write(() -> {
+            // Another thread may have already written this record with the rest of its group ...
+            if (group.written) return;
+            // Groups are written in order, so the unwritten group of this record is still the pending group ...
+            synchronized (pendingLock) {
+                pending = new Group();
+            }
             try {
-                String line = writer.write(record.document());
-                if (!Files.exists(path)) {
-                    Files.createDirectories(path.getParent());
-                    Files.createFile(path);
-                }
-                Files.write(path, Collect.arrayListOf(line), UTF8, StandardOpenOption.APPEND);
+                append(group.lines);
             } catch (IOException e) {
-                logger.error("Failed to add record to history at {}: {}", path, record, e);
+                logger.error("Failed to add {} records to history at {}", group.lines.size(), path, e);
+                group.failure = e;
+                closeChannel();
+            } finally {
+                group.written = true;
+            }
+        });
+        if (group.failure != null) {
+            throw new ConnectException("Failed to add record to history at " + path + ": " + record, group.failure);
+        }
+    }
+
+    private void append(List<byte[]> lines) throws IOException {
+        FileChannel channel = channel();
+        buffer.clear();
+        for (byte[] line : lines) {
+            if (line.length + LINE_SEPARATOR.length > buffer.remaining()) {
+                writeBuffer(channel);
+                if (line.length + LINE_SEPARATOR.length > buffer.capacity()) {
+                    // Too large for the buffer, so write it directly ...
+                    writeFully(channel, ByteBuffer.wrap(line));
+                    writeFully(channel, ByteBuffer.wrap(LINE_SEPARATOR));
+                    continue;
+                }
+            }
+            buffer.put(line).put(LINE_SEPARATOR);
+        }
+        writeBuffer(channel);
+        unforced = true;
+        if (fsyncPolicy == FsyncPolicy.ALWAYS
+                || (fsyncPolicy == FsyncPolicy.BATCHED && clock.currentTimeInMillis() - lastForced >= fsyncIntervalMs)) {
+            force(channel);
+        }
+    }
+
+    private void force(FileChannel channel) throws IOException {
+        channel.force(false);
+        lastForced = clock.currentTimeInMillis();
+        unforced = false;
+    }
+
+    private void forceIfUnforced() {
+        lock.write(() -> {
+            if (channel != null && unforced && clock.currentTimeInMillis() - lastForced >= fsyncIntervalMs) {
+                try {
+                    force(channel);
+                } catch (IOException e) {
+                    logger.error("Failed to force history at {}", path, e);
+                }
             }
         });
     }
 
+    private void writeBuffer(FileChannel channel) throws IOException {
+        buffer.flip();
+        writeFully(channel, buffer);
+        buffer.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            if (path.getParent() != null) Files.createDirectories(path.getParent());
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            lastForced = clock.currentTimeInMillis();
+            unforced = false;
+            if (fsyncPolicy == FsyncPolicy.BATCHED) {
+                // Force the records written since the file was last forced, when no more records are written to force them ...
+                forcer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "file-history-fsync");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                forcer.scheduleWithFixedDelay(this::forceIfUnforced, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        return channel;
+    }
+
+    private void closeChannel() {
+        if (forcer != null) {
+            forcer.shutdown();
+            forcer = null;
+        }
+        if (channel != null) {
+            try {
+                if (channel.isOpen()) channel.force(false);
+            } catch (IOException e) {
+                logger.error("Failed to force history at {}", path, e);
+            } finally {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.error("Failed to close history at {}", path, e);
+                } finally {
+                    channel = null;
+                    unforced = false;
+                }
+            }
+        }
+    }
+
     @Override
     protected void recoverRecords(Tables schema, DdlParser ddlParser, Consumer<HistoryRecord> records) {
         lock.write(() -> {
             try {
                 if (Files.exists(path)) {
-                    for (String line : Files.readAllLines(path)) {
-                        records.accept(new HistoryRecord(reader.read(line)));
+                    // Read one line at a time rather than loading the whole history ...
+                    try (BufferedReader lines = Files.newBufferedReader(path, UTF8)) {
+                        String line = null;
+                        while ((line = lines.readLine()) != null) {
+                            records.accept(new HistoryRecord(reader.read(line)));
+                        }
                     }
                 }
             } catch (IOException e) {
@@ -89,8 +306,96 @@ protected void recoverRecords(Tables schema, DdlParser ddlParser, Consumer<Histo
         });
     }
 
+    @Override
+    protected void replaceRecords(List<HistoryRecord> snapshot, Predicate<HistoryRecord> isReplaced) {
+        lock.write(() -> {
+            // The channel would continue to append to the replaced file ...
+            closeChannel();
+            try {
+                List<String> lines = new ArrayList<>();
+                int index = -1;
+                if (Files.exists(path)) {
+                    for (String line : Files.readAllLines(path, UTF8)) {
+                        if (isReplaced.test(new HistoryRecord(reader.read(line)))) {
+                            index = lines.size();
+                        } else {
+                            lines.add(line);
+                        }
+                    }
+                } else if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                List<String> snapshotLines = new ArrayList<>(snapshot.size());
+                for (HistoryRecord part : snapshot) {
+                    snapshotLines.add(writer.write(part.document()));
+                }
+                lines.addAll(index < 0 ? lines.size() : index, snapshotLines);
+                // Write the compacted history to a separate file, and then replace the history with it ...
+                Path compacted = path.resolveSibling(path.getFileName() + ".compacted");
+                try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(out));
+                    for (String line : lines) {
+                        stream.write(line.getBytes(UTF8));
+                        stream.write(LINE_SEPARATOR);
+                    }
+                    stream.flush();
+                    // The compacted history must be on the storage device before it replaces the history ...
+                    out.force(true);
+                }
+                Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                forceDirectory(path.toAbsolutePath().getParent());
+            } catch (IOException e) {
+                throw new ConnectException("Failed to compact history at " + path, e);
+            }
+        });
+    }
+
+    /**
+     * Force the given directory to the storage device, so that a file renamed within it remains renamed after a crash. Some
+     * platforms, such as Windows, cannot open a directory, in which case the rename is left for the file system to persist.
+     * 
+     * @param directory the directory; may be null
+     */
+    private void forceDirectory(Path directory) {
+        if (directory == null) return;
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug("Unable to force directory {} of history at {}", directory, path, e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        try {
+            lock.write(this::closeChannel);
+        } finally {
+            super.stop();
+        }
+    }
+
     @Override
     public String toString() {
         return "file " + (path != null ? path : "(unstarted)");
     }
+
+    /**
+     * A group of records that are written together, and the outcome of writing them.
+     */
+    private static final class Group {
+        private final List<byte[]> lines = new ArrayList<>(); // guarded by 'pendingLock' until written
+        private boolean written; // guarded by write lock
+        private IOException failure; // guarded by write lock
+    }
+
+    private static int validateFsyncPolicy(Configuration config, Field field, Consumer<String> problems) {
+        String value = config.getString(field);
+        if (FsyncPolicy.parse(value) == null) {
+            problems.accept("The " + field + " value '" + value + "' must be one of '" + FsyncPolicy.ALWAYS.getValue()
+                    + "', '" + FsyncPolicy.BATCHED.getValue() + "', or '" + FsyncPolicy.ON_STOP.getValue() + "'.");
+            return 1;
+        }
+        return 0;
+    }
 }
@@ -7,6 +7,7 @@
 
 import java.util.Map;
 
+import io.debezium.document.Array;
 import io.debezium.document.Document;
 
 public class HistoryRecord {
@@ -26,6 +27,15 @@ public HistoryRecord(Map<String, ?> source, Map<String, ?> position, String data
         if (ddl != null) doc.setString("ddl", ddl);
     }
 
+    public HistoryRecord(HistoryRecord at, Array tables, int part, int parts) {
+        this.doc = Document.create();
+        doc.setDocument("source", at.source().clone());
+        doc.setDocument("position", at.position().clone());
+        doc.setArray("tables", tables);
+        doc.setNumber("snapshotPart", part);
+        doc.setNumber("snapshotParts", parts);
+    }
+
     public Document document() {
         return this.doc;
     }
@@ -52,6 +62,22 @@ protected String ddl() {
         return doc.getString("ddl");
     }
 
+    protected Array tables() {
+        return doc.getArray("tables");
+    }
+
+    protected boolean isSnapshot() {
+        return doc.has("tables");
+    }
+
+    protected int snapshotPart() {
+        return doc.getInteger("snapshotPart", 0);
+    }
+
+    protected int snapshotParts() {
+        return doc.getInteger("snapshotParts", 1);
+    }
+
     protected boolean hasSameSource(HistoryRecord other) {
         if (this == other) return true;
         return other != null && source().equals(other.source());
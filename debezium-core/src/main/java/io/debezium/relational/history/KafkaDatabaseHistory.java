@@ -7,10 +7,12 @@
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
@@ -143,9 +145,38 @@ protected void storeRecord(HistoryRecord record) {
                              metadata.topic(), metadata.partition(), metadata.offset());
             }
         } catch (InterruptedException e) {
-            logger.error("Interrupted while waiting for response to storing record into database history: {}", record);
+            Thread.currentThread().interrupt();
+            throw new ConnectException("Interrupted while waiting for response to storing record into database history", e);
         } catch (ExecutionException e) {
-            logger.error("Error while storing database history record into Kafka: {}", record, e);
+            // The history would be missing this record, so fail rather than continue ...
+            throw new ConnectException("Error while storing database history record into Kafka topic '" + topicName + "': "
+                    + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Records cannot be removed from the history topic, so this simply stores the snapshot records, after which recovery parses
+     * only the changes recorded after the snapshot. The replaced records remain in the topic until they are removed by the
+     * topic's retention policy.
+     */
+    @Override
+    protected void replaceRecords(List<HistoryRecord> snapshot, Predicate<HistoryRecord> isReplaced) {
+        if (this.producer != null) {
+            snapshot.forEach(this::storeRecord);
+            return;
+        }
+        // Compacting without having been started, so use a producer just for the snapshot ...
+        this.producer = new KafkaProducer<>(this.producerConfig.asProperties());
+        try {
+            snapshot.forEach(this::storeRecord);
+        } finally {
+            try {
+                this.producer.close();
+            } finally {
+                this.producer = null;
+            }
         }
     }
 
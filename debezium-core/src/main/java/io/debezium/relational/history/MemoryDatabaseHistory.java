@@ -8,6 +8,7 @@
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import io.debezium.annotation.ThreadSafe;
 import io.debezium.relational.Tables;
@@ -41,6 +42,22 @@ protected void recoverRecords(Tables schema, DdlParser ddlParser, Consumer<Histo
         lock.write(() -> this.records.forEach(records));
     }
     
+    @Override
+    protected void replaceRecords(List<HistoryRecord> snapshot, Predicate<HistoryRecord> isReplaced) {
+        lock.write(() -> {
+            int index = -1;
+            for (int i = 0; i < records.size();) {
+                if (isReplaced.test(records.get(i))) {
+                    records.remove(i);
+                    index = i;
+                } else {
+                    ++i;
+                }
+            }
+            records.addAll(index < 0 ? records.size() : index, snapshot);
+        });
+    }
+
     @Override
     public String toString() {
         return "memory";
@@ -0,0 +1,144 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.relational.history;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import io.debezium.annotation.Immutable;
+import io.debezium.document.Array;
+import io.debezium.document.Document;
+import io.debezium.document.DocumentWriter;
+import io.debezium.relational.Column;
+import io.debezium.relational.ColumnEditor;
+import io.debezium.relational.Table;
+import io.debezium.relational.TableId;
+import io.debezium.relational.Tables;
+
+/**
+ * Utilities for writing the definitions of all of the tables in a {@link Tables} into {@link Array}s of {@link Document}s
+ * that can each be stored in a {@link HistoryRecord}, and for restoring those definitions from such arrays without parsing
+ * any DDL.
+ * 
+ * @author Randall Hauch
+ */
+@Immutable
+final class TableSnapshots {
+
+    private static final DocumentWriter WRITER = DocumentWriter.defaultWriter();
+
+    private TableSnapshots() {
+    }
+
+    /**
+     * Write the definitions of all tables into arrays with one document per table, where each array holds as many table
+     * documents as fit into the given number of bytes when written as JSON. A table whose document alone is larger than that is
+     * written into an array of its own.
+     * 
+     * @param tables the table definitions; may not be null
+     * @param maxBytes the approximate maximum number of bytes of each array; must be positive
+     * @return the arrays of table documents, of which there is always at least one; never null
+     */
+    static List<Array> write(Tables tables, int maxBytes) {
+        List<Array> result = new ArrayList<>();
+        Array current = Array.create();
+        long currentBytes = 0;
+        for (TableId tableId : tables.tableIds()) {
+            Table table = tables.forTable(tableId);
+            if (table == null) continue;
+            Document doc = write(table);
+            int bytes = WRITER.writeAsBytes(doc).length + 1; // including the separator
+            if (current.size() != 0 && currentBytes + bytes > maxBytes) {
+                result.add(current);
+                current = Array.create();
+                currentBytes = 0;
+            }
+            current.add(doc);
+            currentBytes += bytes;
+        }
+        // Always include the last array, even if empty, since restoring a snapshot removes the tables that are not in it ...
+        result.add(current);
+        return result;
+    }
+
+    /**
+     * Replace all of the table definitions in the given {@link Tables} with those in the arrays.
+     * 
+     * @param snapshot the arrays of table documents written by {@link #write(Tables, int)}; may not be null
+     * @param tables the table definitions to be replaced; may not be null
+     */
+    static void restore(List<Array> snapshot, Tables tables) {
+        Set<TableId> restored = new HashSet<>();
+        for (Array part : snapshot) {
+            for (Array.Entry entry : part) {
+                Document doc = entry.getValue().asDocument();
+                TableId tableId = new TableId(doc.getString("catalog"), doc.getString("schema"), doc.getString("table"));
+                tables.overwriteTable(tableId, columns(doc.getArray("columns")), strings(doc.getArray("primaryKeyColumnNames")));
+                restored.add(tableId);
+            }
+        }
+        for (TableId tableId : tables.tableIds()) {
+            if (!restored.contains(tableId)) tables.removeTable(tableId);
+        }
+    }
+
+    private static Document write(Table table) {
+        Document doc = Document.create();
+        TableId tableId = table.id();
+        if (tableId.catalog() != null) doc.setString("catalog", tableId.catalog());
+        if (tableId.schema() != null) doc.setString("schema", tableId.schema());
+        doc.setString("table", tableId.table());
+        Array columns = doc.setArray("columns");
+        for (Column column : table.columns()) {
+            Document col = Document.create();
+            col.setString("name", column.name());
+            col.setNumber("position", column.position());
+            col.setNumber("jdbcType", column.jdbcType());
+            if (column.typeName() != null) col.setString("typeName", column.typeName());
+            col.setNumber("length", column.length());
+            col.setNumber("scale", column.scale());
+            col.setBoolean("optional", column.isOptional());
+            col.setBoolean("autoIncremented", column.isAutoIncremented());
+            col.setBoolean("generated", column.isGenerated());
+            columns.add(col);
+        }
+        Array pkNames = doc.setArray("primaryKeyColumnNames");
+        table.primaryKeyColumnNames().forEach(pkNames::add);
+        return doc;
+    }
+
+    private static List<Column> columns(Array array) {
+        List<Column> columns = new ArrayList<>();
+        for (Array.Entry entry : array) {
+            Document col = entry.getValue().asDocument();
+            ColumnEditor editor = Column.editor()
+                                        .name(col.getString("name"))
+                                        .position(col.getInteger("position", 1))
+                                        .jdbcType(col.getInteger("jdbcType", 0))
+                                        .length(col.getInteger("length", -1))
+                                        .scale(col.getInteger("scale", -1))
+                                        .optional(col.getBoolean("optional", true))
+                                        .autoIncremented(col.getBoolean("autoIncremented", false))
+                                        .generated(col.getBoolean("generated", false));
+            String typeName = col.getString("typeName");
+            if (typeName != null) editor.typeName(typeName);
+            columns.add(editor.create());
+        }
+        return columns;
+    }
+
+    private static List<String> strings(Array array) {
+        List<String> values = new ArrayList<>();
+        if (array != null) {
+            for (Array.Entry entry : array) {
+                values.add(entry.getValue().asString());
+            }
+        }
+        return values;
+    }
+}
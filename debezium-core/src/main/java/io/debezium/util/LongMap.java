@@ -0,0 +1,241 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.util;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+import io.debezium.annotation.NotThreadSafe;
+
+/**
+ * A hash map with primitive {@code long} keys and object values, which unlike a {@code java.util.HashMap<Long,V>} never boxes
+ * keys and allocates no entry objects. Entries are stored in parallel arrays using open addressing with linear probing, and
+ * removed entries are filled by shifting subsequent entries back, so that lookups never have to skip deleted slots.
+ * <p>
+ * Null values are not allowed, so that {@link #get(long)} returning null always means the map has no entry for the key.
+ * 
+ * @param <V> the type of value
+ * @author Randall Hauch
+ */
+@NotThreadSafe
+public final class LongMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int shift;
+    private int size;
+    private int resizeThreshold;
+
+    /**
+     * Create an empty map.
+     */
+    public LongMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty map that can hold the given number of entries without resizing.
+     * 
+     * @param expectedSize the expected number of entries; must not be negative
+     */
+    public LongMap(int expectedSize) {
+        if (expectedSize < 0) throw new IllegalArgumentException("The expected size may not be negative");
+        allocate(Math.max(DEFAULT_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSize * 2 - 1)) << 1));
+    }
+
+    /**
+     * Get the number of entries in this map.
+     * 
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Determine whether this map has no entries.
+     * 
+     * @return {@code true} if the map is empty, or {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the value for the given key.
+     * 
+     * @param key the key
+     * @return the value, or null if there is no entry for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int index = indexOf(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    /**
+     * Determine whether this map has an entry for the given key.
+     * 
+     * @param key the key
+     * @return {@code true} if there is an entry for the key, or {@code false} otherwise
+     */
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Set the value for the given key.
+     * 
+     * @param key the key
+     * @param value the value; may not be null
+     * @return the previous value for the key, or null if there was no entry for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) throw new NullPointerException("Null values are not allowed");
+        int index = slot(key);
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                V previous = (V) values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        if (++size > resizeThreshold) rehash(keys.length << 1);
+        return null;
+    }
+
+    /**
+     * Get the value for the given key, computing and adding a value if there is no entry for the key.
+     * 
+     * @param key the key
+     * @param function the function that computes the value for the key; may not be null and may not return null
+     * @return the existing or computed value; never null
+     */
+    public V computeIfAbsent(long key, LongFunction<? extends V> function) {
+        V value = get(key);
+        if (value == null) {
+            value = function.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Remove the entry for the given key.
+     * 
+     * @param key the key
+     * @return the removed value, or null if there was no entry for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int index = indexOf(key);
+        if (index < 0) return null;
+        V previous = (V) values[index];
+        // Shift back any subsequent entries in the same probe sequence, so that there are no gaps ...
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (values[next] != null) {
+            int home = slot(keys[next]);
+            // Move the entry into the gap unless its home slot lies cyclically after the gap and at or before the entry ...
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[gap] = null;
+        --size;
+        return previous;
+    }
+
+    /**
+     * Remove all entries from this map, retaining its capacity.
+     */
+    public void clear() {
+        if (size == 0) return;
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Call the supplied function with each entry in this map, in no particular order. The function may not modify this map.
+     * 
+     * @param consumer the function; may not be null
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> consumer) {
+        for (int i = 0; i != values.length; ++i) {
+            if (values[i] != null) consumer.accept(keys[i], (V) values[i]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((key, value) -> {
+            if (sb.length() > 1) sb.append(", ");
+            sb.append(key).append('=').append(value);
+        });
+        return sb.append('}').toString();
+    }
+
+    /**
+     * A function that accepts the key and value of a map entry.
+     * 
+     * @param <V> the type of value
+     */
+    @FunctionalInterface
+    public static interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    private int indexOf(long key) {
+        int index = slot(key);
+        while (values[index] != null) {
+            if (keys[index] == key) return index;
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slot(long key) {
+        // Fibonacci hashing spreads sequential keys, such as MySQL table numbers, across the whole table ...
+        return (int) ((key * PHI) >>> shift);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        resizeThreshold = capacity / 2;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i != oldValues.length; ++i) {
+            if (oldValues[i] != null) {
+                int index = slot(oldKeys[i]);
+                while (values[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.util;
+
+import io.debezium.annotation.Immutable;
+
+/**
+ * An implementation of the 32-bit (x86) variant of Austin Appleby's MurmurHash3 algorithm, which produces well-distributed
+ * hashes that are identical on all platforms and in all JVMs, and that are therefore suitable for assigning values to
+ * partitions. Besides hashing byte arrays, this class exposes the {@link #mix(int, int) block mixing} and
+ * {@link #finish(int, int) finalization} steps so that a hash can be computed incrementally over multiple values without first
+ * serializing them into a byte array.
+ * 
+ * @author Randall Hauch
+ */
+@Immutable
+public final class MurmurHash3 {
+
+    private static final int C1 = 0xcc9e2d51;
+    private static final int C2 = 0x1b873593;
+
+    private MurmurHash3() {
+    }
+
+    /**
+     * Compute the hash of the supplied bytes.
+     * 
+     * @param data the bytes; may not be null
+     * @param seed the seed
+     * @return the hash
+     */
+    public static int hash(byte[] data, int seed) {
+        return hash(data, 0, data.length, seed);
+    }
+
+    /**
+     * Compute the hash of a range of the supplied bytes.
+     * 
+     * @param data the bytes; may not be null
+     * @param offset the index of the first byte to be hashed
+     * @param length the number of bytes to be hashed
+     * @param seed the seed
+     * @return the hash
+     */
+    public static int hash(byte[] data, int offset, int length, int seed) {
+        int h1 = seed;
+        int end = offset + (length & ~3);
+        for (int i = offset; i != end; i += 4) {
+            int k1 = (data[i] & 0xff) | (data[i + 1] & 0xff) << 8 | (data[i + 2] & 0xff) << 16 | data[i + 3] << 24;
+            h1 = mix(h1, k1);
+        }
+        int k1 = 0;
+        switch (length & 3) {
+            case 3:
+                k1 = (data[end + 2] & 0xff) << 16;
+            case 2:
+                k1 |= (data[end + 1] & 0xff) << 8;
+            case 1:
+                k1 |= data[end] & 0xff;
+                h1 ^= mixBlock(k1);
+        }
+        return finish(h1, length);
+    }
+
+    /**
+     * Compute the hash of the UTF-16 code units of the supplied characters, two of which are mixed as each 4-byte block.
+     * 
+     * @param chars the characters; may not be null
+     * @param seed the seed
+     * @return the hash
+     */
+    public static int hash(CharSequence chars, int seed) {
+        int h1 = seed;
+        int length = chars.length();
+        for (int i = 1; i < length; i += 2) {
+            h1 = mix(h1, chars.charAt(i - 1) | chars.charAt(i) << 16);
+        }
+        if ((length & 1) == 1) {
+            h1 ^= mixBlock(chars.charAt(length - 1));
+        }
+        return finish(h1, 2 * length);
+    }
+
+    /**
+     * Compute the hash of the supplied 64-bit value, which is mixed as two 4-byte blocks with the low-order bits first.
+     * 
+     * @param value the value
+     * @param seed the seed
+     * @return the hash
+     */
+    public static int hash(long value, int seed) {
+        int h1 = mix(seed, (int) value);
+        h1 = mix(h1, (int) (value >>> 32));
+        return finish(h1, 8);
+    }
+
+    /**
+     * Mix the supplied 4-byte block into the hash.
+     * 
+     * @param h1 the hash computed from all prior blocks, or the seed if this is the first block
+     * @param k1 the block
+     * @return the updated hash
+     */
+    public static int mix(int h1, int k1) {
+        h1 ^= mixBlock(k1);
+        h1 = Integer.rotateLeft(h1, 13);
+        return h1 * 5 + 0xe6546b64;
+    }
+
+    /**
+     * Complete the hash after all blocks have been {@link #mix(int, int) mixed}, forcing all bits of the hash to avalanche.
+     * 
+     * @param h1 the hash computed from all of the blocks
+     * @param length the total number of bytes in all of the blocks
+     * @return the final hash
+     */
+    public static int finish(int h1, int length) {
+        h1 ^= length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+        return h1;
+    }
+
+    private static int mixBlock(int k1) {
+        k1 *= C1;
+        k1 = Integer.rotateLeft(k1, 15);
+        return k1 * C2;
+    }
+}
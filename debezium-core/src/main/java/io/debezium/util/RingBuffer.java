@@ -0,0 +1,455 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.util;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+import io.debezium.annotation.NotThreadSafe;
+
+/**
+ * A bounded {@link BlockingQueue} backed by a preallocated array, designed to hand off elements from a <em>single</em> producer
+ * thread to a <em>single</em> consumer thread. Unlike {@link java.util.concurrent.LinkedBlockingQueue}, adding an element
+ * allocates no memory and neither side ever takes a lock, except when using the {@link #blocking() blocking}
+ * {@link WaitStrategy wait strategy} and the other side is actually waiting.
+ * <p>
+ * A producer that finds the buffer full, and a consumer that finds the buffer empty, wait using the buffer's
+ * {@link WaitStrategy}. The strategies trade CPU usage for latency: {@link #busySpin() busy spinning} has the lowest latency but
+ * consumes an entire core while waiting, while {@link #blocking() blocking} uses no CPU but requires the thread to be woken up.
+ * <p>
+ * This queue is <em>not</em> safe for general concurrent use. It requires a single-producer, single-consumer contract:
+ * <ul>
+ * <li>only one thread at a time may add elements with {@link #offer(Object)}, {@link #offer(Object, long, TimeUnit)} or
+ * {@link #put(Object)};</li>
+ * <li>only one thread at a time may remove elements with {@link #poll()}, {@link #poll(long, TimeUnit)}, {@link #take()} or
+ * {@link #drainTo(Collection, int)}; and</li>
+ * <li>the {@link #size()}, {@link #peek()}, {@link #isEmpty()} and {@link #remainingCapacity()} methods can be called by any
+ * thread.</li>
+ * </ul>
+ * Breaking this contract, such as by adding elements from two threads, silently loses or duplicates elements. Null elements
+ * are not allowed.
+ * <p>
+ * Any thread can {@link #close() close} the buffer, which wakes up a producer or consumer that is waiting without a timeout.
+ * Once closed, no more elements can be added, but the elements already in the buffer can still be removed.
+ *
+ * @param <T> the type of element
+ * @author Randall Hauch
+ */
+@NotThreadSafe
+public final class RingBuffer<T> extends AbstractQueue<T> implements BlockingQueue<T> {
+
+    /**
+     * The strategy used by the producer and consumer threads to wait for the other side to make progress.
+     */
+    public static interface WaitStrategy {
+        /**
+         * Wait until the supplied condition is satisfied or the timeout elapses.
+         *
+         * @param condition the condition; may not be null
+         * @param timeoutInNanos the maximum time to wait in nanoseconds, or {@link Long#MAX_VALUE} if there is no timeout
+         * @return {@code true} if the condition was satisfied, or {@code false} if the timeout elapsed
+         * @throws InterruptedException if the thread was interrupted while waiting
+         */
+        boolean await(BooleanSupplier condition, long timeoutInNanos) throws InterruptedException;
+
+        /**
+         * Signal any waiting thread that the state of the buffer has changed. This is called after every change.
+         */
+        default void signal() {
+        }
+    }
+
+    /**
+     * Obtain a wait strategy that continually checks the condition, and is therefore best suited when the lowest possible latency
+     * is required and an entire CPU core can be dedicated to the waiting thread.
+     *
+     * @return the wait strategy; never null
+     */
+    public static WaitStrategy busySpin() {
+        return new SpinningWaitStrategy("busy-spin") {
+            @Override
+            protected void idle() {
+            }
+        };
+    }
+
+    /**
+     * Obtain a wait strategy that {@link Thread#yield() yields} between checks of the condition, allowing other threads to run
+     * on the same core while still responding quickly.
+     *
+     * @return the wait strategy; never null
+     */
+    public static WaitStrategy yielding() {
+        return new SpinningWaitStrategy("yield") {
+            @Override
+            protected void idle() {
+                Thread.yield();
+            }
+        };
+    }
+
+    /**
+     * Obtain a wait strategy that {@link LockSupport#parkNanos(long) parks} the thread for the given time between checks of the
+     * condition. This uses very little CPU, and does not require any signaling, but it adds up to the park time of latency.
+     *
+     * @param parkTime the time to park the thread between checks of the condition; must be positive
+     * @param unit the unit of time; may not be null
+     * @return the wait strategy; never null
+     */
+    public static WaitStrategy parking(long parkTime, TimeUnit unit) {
+        long parkTimeInNanos = unit.toNanos(parkTime);
+        if (parkTimeInNanos <= 0) throw new IllegalArgumentException("The park time must be positive");
+        return new SpinningWaitStrategy("park") {
+            @Override
+            protected void idle() {
+                LockSupport.parkNanos(parkTimeInNanos);
+            }
+        };
+    }
+
+    /**
+     * Obtain a wait strategy that blocks the thread on a {@link Condition} until it is signaled by the other side. This uses no
+     * CPU while waiting, and the lock is only acquired by the signaling thread when the other side is actually waiting.
+     *
+     * @return the wait strategy; never null
+     */
+    public static WaitStrategy blocking() {
+        return new BlockingWaitStrategy();
+    }
+
+    private static abstract class SpinningWaitStrategy implements WaitStrategy {
+        private final String name;
+
+        protected SpinningWaitStrategy(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean await(BooleanSupplier condition, long timeoutInNanos) throws InterruptedException {
+            long deadline = timeoutInNanos == Long.MAX_VALUE ? 0L : System.nanoTime() + timeoutInNanos;
+            while (!condition.getAsBoolean()) {
+                if (Thread.interrupted()) throw new InterruptedException();
+                if (timeoutInNanos != Long.MAX_VALUE && deadline - System.nanoTime() <= 0) return false;
+                idle();
+            }
+            return true;
+        }
+
+        protected abstract void idle();
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static final class BlockingWaitStrategy implements WaitStrategy {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        // Modified only while holding the lock, but volatile so that 'signal()' can check without locking ...
+        private volatile int waiters = 0;
+
+        @Override
+        public boolean await(BooleanSupplier condition, long timeoutInNanos) throws InterruptedException {
+            long remaining = timeoutInNanos;
+            lock.lockInterruptibly();
+            try {
+                // Increment the waiters before checking the condition so that a concurrent 'signal()' cannot be missed ...
+                ++waiters;
+                while (!condition.getAsBoolean()) {
+                    if (timeoutInNanos == Long.MAX_VALUE) {
+                        changed.await();
+                    } else {
+                        if (remaining <= 0L) return false;
+                        remaining = changed.awaitNanos(remaining);
+                    }
+                }
+                return true;
+            } finally {
+                --waiters;
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void signal() {
+            if (waiters != 0) {
+                lock.lock();
+                try {
+                    changed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "blocking";
+        }
+    }
+
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private final Object[] entries;
+    private final int mask;
+    private final int capacity;
+    private final WaitStrategy waitStrategy;
+    // The sequence number of the next entry to be removed, written only by the consumer ...
+    private final AtomicLong head = new AtomicLong();
+    // The sequence number of the next entry to be added, written only by the producer ...
+    private final AtomicLong tail = new AtomicLong();
+    // The producer's most recently read value of 'head', so the producer rarely has to read the consumer's sequence ...
+    private long producerCachedHead = 0L;
+    // The consumer's most recently read value of 'tail', so the consumer rarely has to read the producer's sequence ...
+    private long consumerCachedTail = 0L;
+    private volatile boolean closed = false;
+    private final BooleanSupplier hasSpace;
+    private final BooleanSupplier hasEntries;
+
+    /**
+     * Create a new ring buffer with the given capacity.
+     *
+     * @param capacity the maximum number of elements in the buffer; must be positive
+     * @param waitStrategy the strategy for the producer and consumer to wait; may not be null
+     */
+    public RingBuffer(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 1 || capacity > MAXIMUM_CAPACITY) {
+            throw new IllegalArgumentException("The capacity must be positive and no larger than " + MAXIMUM_CAPACITY);
+        }
+        Objects.requireNonNull(waitStrategy, "A wait strategy is required");
+        // Use a power of 2 for the array size so that we can mask rather than use modulo, but limit the number of entries ...
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size = size << 1;
+        this.entries = new Object[size];
+        this.mask = size - 1;
+        this.capacity = capacity;
+        this.waitStrategy = waitStrategy;
+        this.hasSpace = () -> closed || tail.get() - head.get() < this.capacity;
+        this.hasEntries = () -> closed || tail.get() != head.get();
+    }
+
+    /**
+     * Get the strategy used to wait.
+     *
+     * @return the wait strategy; never null
+     */
+    public WaitStrategy waitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * Get the maximum number of elements in this buffer.
+     *
+     * @return the capacity; always positive
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Close this buffer, so that no more elements can be added and so that any thread waiting to add or remove an element
+     * returns. Closing a buffer more than once has no effect.
+     */
+    public void close() {
+        closed = true;
+        waitStrategy.signal();
+    }
+
+    /**
+     * Determine whether this buffer has been {@link #close() closed}.
+     *
+     * @return {@code true} if the buffer is closed, or {@code false} otherwise
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This method returns {@code false} if the buffer is {@link #close() closed}.
+     */
+    @Override
+    public boolean offer(T e) {
+        Objects.requireNonNull(e);
+        if (closed) return false;
+        long t = tail.get();
+        if (t - producerCachedHead >= capacity) {
+            producerCachedHead = head.get();
+            if (t - producerCachedHead >= capacity) return false; // full
+        }
+        entries[(int) t & mask] = e;
+        tail.set(t + 1);
+        waitStrategy.signal();
+        return true;
+    }
+
+    @Override
+    public boolean offer(T e, long timeout, TimeUnit unit) throws InterruptedException {
+        Objects.requireNonNull(e);
+        long remaining = unit.toNanos(timeout);
+        long deadline = System.nanoTime() + remaining;
+        while (!offer(e)) {
+            if (remaining <= 0L || closed) return false;
+            waitStrategy.await(hasSpace, remaining);
+            remaining = deadline - System.nanoTime();
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if the buffer is {@link #close() closed} before the element could be added
+     */
+    @Override
+    public void put(T e) throws InterruptedException {
+        Objects.requireNonNull(e);
+        while (!offer(e)) {
+            if (closed) throw new IllegalStateException("The ring buffer is closed");
+            waitStrategy.await(hasSpace, Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public T poll() {
+        long h = head.get();
+        if (h >= consumerCachedTail) {
+            consumerCachedTail = tail.get();
+            if (h >= consumerCachedTail) return null; // empty
+        }
+        int index = (int) h & mask;
+        @SuppressWarnings("unchecked")
+        T e = (T) entries[index];
+        entries[index] = null;
+        head.set(h + 1);
+        waitStrategy.signal();
+        return e;
+    }
+
+    @Override
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        long deadline = System.nanoTime() + remaining;
+        T e = null;
+        while ((e = poll()) == null) {
+            if (remaining <= 0L || closed) return null;
+            waitStrategy.await(hasEntries, remaining);
+            remaining = deadline - System.nanoTime();
+        }
+        return e;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if the buffer is {@link #close() closed} and empty
+     */
+    @Override
+    public T take() throws InterruptedException {
+        T e = null;
+        while ((e = poll()) == null) {
+            if (closed) throw new IllegalStateException("The ring buffer is closed");
+            waitStrategy.await(hasEntries, Long.MAX_VALUE);
+        }
+        return e;
+    }
+
+    @Override
+    public int drainTo(Collection<? super T> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super T> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this) throw new IllegalArgumentException();
+        if (maxElements <= 0) return 0;
+        long h = head.get();
+        consumerCachedTail = tail.get();
+        int n = (int) Math.min(maxElements, consumerCachedTail - h);
+        if (n <= 0) return 0;
+        int count = 0;
+        try {
+            while (count != n) {
+                int index = (int) (h + count) & mask;
+                @SuppressWarnings("unchecked")
+                T e = (T) entries[index];
+                c.add(e);
+                entries[index] = null;
+                ++count;
+            }
+        } finally {
+            // Release all of the slots at once ...
+            head.set(h + count);
+            waitStrategy.signal();
+        }
+        return count;
+    }
+
+    @Override
+    public T peek() {
+        long h = head.get();
+        if (h == tail.get()) return null;
+        @SuppressWarnings("unchecked")
+        T e = (T) entries[(int) h & mask];
+        return e;
+    }
+
+    @Override
+    public int size() {
+        // Read the head first, so that the tail is never behind it ...
+        long h = head.get();
+        long t = tail.get();
+        return (int) Math.max(0L, Math.min(capacity, t - h));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    /**
+     * Return an iterator over a snapshot of the elements in this buffer. The iterator does not support removal, and it may not
+     * reflect concurrent changes to the buffer.
+     *
+     * @return the iterator; never null
+     */
+    @Override
+    public Iterator<T> iterator() {
+        List<T> snapshot = new ArrayList<>(size());
+        long t = tail.get();
+        for (long sequence = head.get(); sequence < t; ++sequence) {
+            @SuppressWarnings("unchecked")
+            T e = (T) entries[(int) sequence & mask];
+            if (e != null) snapshot.add(e);
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    @Override
+    public String toString() {
+        return "RingBuffer (capacity " + capacity + ", " + waitStrategy + " wait strategy)";
+    }
+}
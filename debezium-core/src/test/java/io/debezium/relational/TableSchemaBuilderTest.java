@@ -6,6 +6,7 @@
 package io.debezium.relational;
 
 import java.sql.Types;
+import java.util.BitSet;
 
 import org.apache.kafka.connect.data.Date;
 import org.apache.kafka.connect.data.Decimal;
@@ -104,4 +105,99 @@ public void shouldBuildTableSchemaFromTableWithoutPrimaryKey() {
         assertThat(value).isNotNull();
     }
 
+    @Test
+    public void shouldBuildKeyAndValueFromSparseRows() {
+        schema = new TableSchemaBuilder().create(table);
+        Struct key = (Struct) schema.keyFromColumnData(data);
+
+        // All columns included ...
+        BitSet all = new BitSet();
+        all.set(0, 4);
+        assertThat(schema.keyFromColumnData(data, all)).isEqualTo(key);
+        assertThat(schema.valueFromColumnData(data, all)).isEqualTo(schema.valueFromColumnData(data));
+
+        // Only the key columns and C4 are included ...
+        BitSet some = new BitSet();
+        some.set(0);
+        some.set(1);
+        some.set(3);
+        Object[] sparse = new Object[] { "c1value", 3.142d, 4 };
+        assertThat(schema.keyFromColumnData(sparse, some)).isEqualTo(key);
+        Struct value = schema.valueFromColumnData(sparse, some);
+        assertThat(value.get("C1")).isEqualTo("c1value");
+        assertThat(value.get("C3")).isNull();
+        assertThat(value.get("C4")).isEqualTo(4);
+        assertThat(value.schema().name()).isEqualTo(schema.valueSchema().name() + "/partial");
+        assertThat(schema.valueFromColumnData(new Object[] { "c2value", 2.0d, 5 }, some).schema()).isSameAs(value.schema());
+        assertThat(value.schema().field("C1").schema().isOptional()).isTrue();
+        value.validate();
+    }
+
+    @Test
+    public void shouldNotBuildKeyFromSparseRowWithoutAllKeyColumns() {
+        schema = new TableSchemaBuilder().create(table);
+        BitSet some = new BitSet();
+        some.set(1);
+        some.set(2);
+        Object[] sparse = new Object[] { 3.142d, java.sql.Date.valueOf("2001-10-31") };
+        assertThat(schema.keyFromColumnData(sparse, some)).isNull();
+        Struct value = schema.valueFromColumnData(sparse, some);
+        assertThat(value.get("C1")).isNull();
+        assertThat(value.get("C4")).isNull();
+        value.validate();
+    }
+
+    @Test
+    public void shouldShareFieldsOfTablesWithSameStructure() {
+        TableSchemaBuilder builder = new TableSchemaBuilder();
+        schema = builder.create(table);
+        Table other = table.edit().tableId(new TableId("catalog2", "schema", "table")).create();
+        TableSchema otherSchema = builder.create(other);
+        assertThat(builder.structureCount()).isEqualTo(1);
+        assertThat(otherSchema.valueSchema().name()).isEqualTo("catalog2.schema.table");
+        assertThat(otherSchema.keySchema().name()).isEqualTo("catalog2.schema.table/pk");
+        assertThat(otherSchema.valueSchema().fields()).isSameAs(schema.valueSchema().fields());
+        assertThat(otherSchema.keySchema().fields()).isSameAs(schema.keySchema().fields());
+        assertThat(otherSchema.valueSchema()).isNotEqualTo(schema.valueSchema());
+        Struct value = otherSchema.valueFromColumnData(data);
+        assertThat(value.schema()).isSameAs(otherSchema.valueSchema());
+        assertThat(value.get("C4")).isEqualTo(4);
+        assertThat(((Struct) otherSchema.keyFromColumnData(data)).schema()).isSameAs(otherSchema.keySchema());
+
+        // Each table's schema is equal to one built for just that table ...
+        assertThat(otherSchema.valueSchema()).isEqualTo(new TableSchemaBuilder().create(other).valueSchema());
+        assertThat(otherSchema.keySchema()).isEqualTo(new TableSchemaBuilder().create(other).keySchema());
+    }
+
+    @Test
+    public void shouldNotShareFieldsOfTablesWithDifferentStructures() {
+        TableSchemaBuilder builder = new TableSchemaBuilder();
+        schema = builder.create(table);
+        TableEditor editor = table.edit().tableId(new TableId("catalog2", "schema", "table"));
+        builder.create(editor.setPrimaryKeyNames("C1").create());
+        // Names of columns are compared exactly ...
+        builder.create(editor.setPrimaryKeyNames("C1", "C2")
+                             .removeColumn("C4")
+                             .addColumn(c4.edit().name("c4").create())
+                             .create());
+        assertThat(builder.structureCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldDiscardSharedFieldsWhenAllSchemasOfStructureAreReleased() {
+        TableSchemaBuilder builder = new TableSchemaBuilder();
+        schema = builder.create(table);
+        Table other = table.edit().tableId(new TableId("catalog2", "schema", "table")).create();
+        TableSchema otherSchema = builder.create(other);
+        builder.release(table);
+        assertThat(builder.structureCount()).isEqualTo(1);
+        assertThat(builder.create(table).valueSchema().fields()).isSameAs(otherSchema.valueSchema().fields());
+        builder.release(table);
+        builder.release(other);
+        assertThat(builder.structureCount()).isEqualTo(0);
+        // Releasing a structure that is no longer cached has no effect ...
+        builder.release(other);
+        assertThat(builder.structureCount()).isEqualTo(0);
+        assertThat(builder.create(other).valueSchema().fields()).isNotSameAs(otherSchema.valueSchema().fields());
+    }
 }
@@ -116,4 +116,30 @@ public void shouldRecordChangesAndRecoverToVariousPoints() {
         assertThat(recover(1033, 4)).isEqualTo(t3);
     }
 
+    @Test
+    public void shouldRecoverToPointsAfterCompaction() {
+        record(01, 0, "CREATE TABLE foo ( first VARCHAR(22) NOT NULL );", all, t3, t2);
+        record(23, 1, "CREATE TABLE person ( name VARCHAR(22) NOT NULL );", all, t3, t2);
+        record(30, 2, "CREATE TABLE address ( street VARCHAR(22) NOT NULL );", all, t3, t2);
+        record(32, 3, "ALTER TABLE address ADD city VARCHAR(22) NOT NULL;", all, t3);
+        record(40, 0, "DROP TABLE foo;", all);
+
+        // Compact the changes at or before the third change ...
+        history.compact(source1, position("a.log", 31, 0), parser);
+        assertThat(recover(30, 2)).isEqualTo(t2);
+        assertThat(recover(32, 2)).isEqualTo(t2);
+        assertThat(recover(32, 3)).isEqualTo(t3);
+        assertThat(recover(1033, 4)).isEqualTo(all);
+
+        // Compact all of the changes, including the dropped table ...
+        history.compact(source1, position("a.log", 1033, 4), parser);
+        assertThat(recover(1033, 4)).isEqualTo(all);
+        assertThat(recover(40, 0).forTable(null, null, "foo")).isNull();
+
+        // Record more changes after compaction ...
+        record(50, 0, "CREATE TABLE foo ( first VARCHAR(22) NOT NULL );", all);
+        assertThat(recover(50, 0)).isEqualTo(all);
+        assertThat(recover(50, 0).size()).isEqualTo(3);
+    }
+
 }
@@ -5,11 +5,25 @@
  */
 package io.debezium.relational.history;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.apache.kafka.connect.errors.ConnectException;
 import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
 
 import io.debezium.config.Configuration;
+import io.debezium.relational.history.FileDatabaseHistory.FsyncPolicy;
+import io.debezium.relational.Tables;
 import io.debezium.util.Testing;
 
 /**
@@ -34,4 +48,255 @@ protected DatabaseHistory createHistory() {
                                        .build());
         return history;
     }
+
+    @Test
+    public void shouldRecoverFromLatestSnapshotAndLaterChanges() {
+        history = new FileDatabaseHistory();
+        history.configure(Configuration.create()
+                                       .with(FileDatabaseHistory.FILE_PATH, TEST_FILE_PATH.toAbsolutePath().toString())
+                                       .with(AbstractDatabaseHistory.SNAPSHOT_INTERVAL, 2)
+                                       .build());
+        recordAndApply(01, 0, "CREATE TABLE foo ( first VARCHAR(22) NOT NULL );", t4, t3, t2, t1, t0);
+        recordAndApply(23, 1, "CREATE TABLE person ( name VARCHAR(22) NOT NULL, PRIMARY KEY (name) );", t4, t3, t2, t1);
+        recordAndApply(30, 2, "CREATE TABLE address ( street VARCHAR(22) NOT NULL );", t4, t3, t2);
+        recordAndApply(32, 3, "ALTER TABLE address ADD city VARCHAR(22) NOT NULL;", t4, t3);
+        recordAndApply(40, 0, "DROP TABLE foo;", t4);
+
+        assertThat(recover(01, 0)).isEqualTo(t0);
+        assertThat(recover(23, 0)).isEqualTo(t0);
+        assertThat(recover(23, 1)).isEqualTo(t1);
+        assertThat(recover(30, 2)).isEqualTo(t2);
+        assertThat(recover(32, 3)).isEqualTo(t3);
+        assertThat(recover(40, 0)).isEqualTo(t4);
+        assertThat(recover(1033, 4)).isEqualTo(t4);
+        assertThat(recover(1033, 4).forTable(null, null, "foo")).isNull();
+    }
+
+    @Test
+    public void shouldNotParseChangesRecordedBeforeSnapshot() {
+        history = new FileDatabaseHistory();
+        history.configure(Configuration.create()
+                                       .with(FileDatabaseHistory.FILE_PATH, TEST_FILE_PATH.toAbsolutePath().toString())
+                                       .with(AbstractDatabaseHistory.SNAPSHOT_INTERVAL, 2)
+                                       .build());
+        recordAndApply(01, 0, "CREATE TABLE foo ( first VARCHAR(22) NOT NULL );", t1);
+        // Record a statement that cannot be parsed, but which is covered by the following snapshot ...
+        history.record(source1, position("a.log", 10, 0), "db", all, "THIS IS NOT DDL");
+        recordAndApply(20, 0, "CREATE TABLE person ( name VARCHAR(22) NOT NULL );", t1);
+        assertThat(recover(20, 0)).isEqualTo(t1);
+    }
+
+    @Test
+    public void shouldRecoverFromSnapshotSplitAcrossRecords() throws Exception {
+        history = createHistory(3, 1);
+        recordAndApply(01, 0, "CREATE TABLE foo ( first VARCHAR(22) NOT NULL );", t1);
+        recordAndApply(23, 1, "CREATE TABLE person ( name VARCHAR(22) NOT NULL );", t1);
+        // Record a statement that cannot be parsed, but which is covered by the following snapshot ...
+        parser.setCurrentSchema("db");
+        parser.parse("CREATE TABLE address ( street VARCHAR(22) NOT NULL );", all);
+        history.record(source1, position("a.log", 30, 2), "db", all, "THIS IS NOT DDL");
+        history.stop();
+
+        // Each table is in a record of its own ...
+        assertThat(Files.readAllLines(TEST_FILE_PATH)).hasSize(6);
+        history = createHistory(3, 1);
+        assertThat(recover(30, 2)).isEqualTo(all);
+        assertThat(recover(23, 1)).isEqualTo(t1);
+    }
+
+    @Test
+    public void shouldRecoverChangesRecordedAfterSnapshotAtSamePosition() throws Exception {
+        // Record the definitions of several tables at one position, as a snapshot of the database does ...
+        history = createHistory(2, 1);
+        for (int i = 0; i != 5; ++i) {
+            recordAndApply(30, 0, "CREATE TABLE t" + i + " ( c VARCHAR(22) NOT NULL );");
+        }
+        history.stop();
+
+        // The last snapshot was taken after the fourth table, and the fifth is recovered from its DDL ...
+        history = createHistory(2, 1);
+        assertThat(recover(30, 0)).isEqualTo(all);
+        assertThat(all.size()).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldIgnoreSnapshotWhoseRecordsWereNotAllStored() throws Exception {
+        history = createHistory(3, 1);
+        recordAndApply(01, 0, "CREATE TABLE foo ( first VARCHAR(22) NOT NULL );");
+        recordAndApply(23, 1, "CREATE TABLE person ( name VARCHAR(22) NOT NULL );");
+        recordAndApply(30, 2, "CREATE TABLE address ( street VARCHAR(22) NOT NULL );");
+        history.stop();
+
+        // Remove the last record of the snapshot, as if storing it had failed ...
+        List<String> lines = Files.readAllLines(TEST_FILE_PATH);
+        assertThat(lines).hasSize(6);
+        Files.write(TEST_FILE_PATH, lines.subList(0, 5));
+        history = createHistory(3, 1);
+        assertThat(recover(30, 2)).isEqualTo(all);
+        assertThat(all.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldRewriteFileWhenCompacting() throws Exception {
+        record(01, 0, "CREATE TABLE foo ( first VARCHAR(22) NOT NULL );", all);
+        record(23, 1, "CREATE TABLE person ( name VARCHAR(22) NOT NULL );", all);
+        record(30, 2, "DROP TABLE foo;", all);
+        record(32, 3, "ALTER TABLE person ADD city VARCHAR(22) NOT NULL;", all);
+        assertThat(Files.readAllLines(TEST_FILE_PATH)).hasSize(4);
+
+        history.compact(source1, position("a.log", 31, 0), parser);
+        assertThat(Files.readAllLines(TEST_FILE_PATH)).hasSize(2);
+        assertThat(recover(1033, 4)).isEqualTo(all);
+
+        // A new instance recovers from the compacted file ...
+        history = createHistory();
+        assertThat(recover(1033, 4)).isEqualTo(all);
+    }
+
+    @Test
+    public void shouldCompactWhenRecoveryAppliesManyChanges() throws Exception {
+        record(01, 0, "CREATE TABLE foo ( first VARCHAR(22) NOT NULL );", all);
+        record(23, 1, "CREATE TABLE person ( name VARCHAR(22) NOT NULL );", all);
+        record(30, 2, "DROP TABLE foo;", all);
+        record(32, 3, "ALTER TABLE person ADD city VARCHAR(22) NOT NULL;", all);
+        history.stop();
+
+        // Recovering to an earlier point doesn't apply enough changes to compact ...
+        history = new FileDatabaseHistory();
+        history.configure(Configuration.create()
+                                       .with(FileDatabaseHistory.FILE_PATH, TEST_FILE_PATH.toAbsolutePath().toString())
+                                       .with(AbstractDatabaseHistory.COMPACTION_THRESHOLD, 3)
+                                       .build());
+        recover(23, 1);
+        assertThat(Files.readAllLines(TEST_FILE_PATH)).hasSize(4);
+
+        // But recovering to the latest point does, and afterward recovery parses nothing ...
+        assertThat(recover(1033, 4)).isEqualTo(all);
+        assertThat(Files.readAllLines(TEST_FILE_PATH)).hasSize(1);
+        assertThat(recover(1033, 4)).isEqualTo(all);
+    }
+
+    @Test
+    public void shouldFailCompactionWhenFileCannotBeReplaced() throws Exception {
+        record(01, 0, "CREATE TABLE foo ( first VARCHAR(22) NOT NULL );", all);
+        record(23, 1, "CREATE TABLE person ( name VARCHAR(22) NOT NULL );", all);
+        history.stop();
+
+        // The compacted history cannot be written where a directory exists ...
+        Path compacted = TEST_FILE_PATH.resolveSibling(TEST_FILE_PATH.getFileName() + ".compacted");
+        Files.createDirectories(compacted.resolve("child"));
+        try {
+            history.compact(source1, position("a.log", 1033, 4), parser);
+            fail("Expected the compaction to fail");
+        } catch (ConnectException e) {
+            // expected
+        } finally {
+            Testing.Files.delete(compacted);
+        }
+        // And the history is unchanged ...
+        assertThat(Files.readAllLines(TEST_FILE_PATH)).hasSize(2);
+        assertThat(recover(1033, 4)).isEqualTo(all);
+    }
+
+    @Test
+    public void shouldStoreAllRecordsFromConcurrentThreads() throws Exception {
+        history = createHistory(FsyncPolicy.ALWAYS);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread != 4; ++thread) {
+                int entry = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i != 250; ++i) {
+                        history.record(source1, position("a.log", i, entry), "db", all, "CREATE TABLE t" + entry + "_" + i + " ( c INTEGER );");
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        history.stop();
+        assertThat(Files.readAllLines(TEST_FILE_PATH)).hasSize(1000);
+        assertThat(recover(1000, 0).size()).isEqualTo(1000);
+    }
+
+    @Test
+    public void shouldContinueAppendingAfterStopping() throws Exception {
+        history = createHistory(FsyncPolicy.ON_STOP);
+        record(01, 0, "CREATE TABLE foo ( first VARCHAR(22) NOT NULL );", all);
+        history.stop();
+        record(23, 1, "CREATE TABLE person ( name VARCHAR(22) NOT NULL );", all);
+        history.stop();
+        assertThat(Files.readAllLines(TEST_FILE_PATH)).hasSize(2);
+        assertThat(recover(1033, 4)).isEqualTo(all);
+    }
+
+    @Test
+    public void shouldFailAllThreadsWhoseRecordsCouldNotBeWritten() throws Exception {
+        // The history cannot be appended to a directory ...
+        Files.createDirectories(TEST_FILE_PATH);
+        history = createHistory(FsyncPolicy.BATCHED);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread != 4; ++thread) {
+                int entry = thread;
+                futures.add(executor.submit(() -> {
+                    history.record(source1, position("a.log", 1, entry), "db", all, "CREATE TABLE t" + entry + " ( c INTEGER );");
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                    fail("Expected the record to fail");
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(ConnectException.class);
+                }
+            }
+        } finally {
+            executor.shutdown();
+            history.stop();
+            Testing.Files.delete(TEST_FILE_PATH);
+        }
+    }
+
+    @Test(expected = ConnectException.class)
+    public void shouldNotAllowUnknownFsyncPolicy() {
+        new FileDatabaseHistory().configure(Configuration.create()
+                                                         .with(FileDatabaseHistory.FILE_PATH, TEST_FILE_PATH.toAbsolutePath().toString())
+                                                         .with(FileDatabaseHistory.FSYNC, "sometimes")
+                                                         .build());
+    }
+
+    protected DatabaseHistory createHistory(int snapshotInterval, int snapshotRecordMaxBytes) {
+        DatabaseHistory history = new FileDatabaseHistory();
+        history.configure(Configuration.create()
+                                       .with(FileDatabaseHistory.FILE_PATH, TEST_FILE_PATH.toAbsolutePath().toString())
+                                       .with(AbstractDatabaseHistory.SNAPSHOT_INTERVAL, snapshotInterval)
+                                       .with(AbstractDatabaseHistory.SNAPSHOT_RECORD_MAX_BYTES, snapshotRecordMaxBytes)
+                                       .build());
+        return history;
+    }
+
+    protected DatabaseHistory createHistory(FsyncPolicy fsyncPolicy) {
+        DatabaseHistory history = new FileDatabaseHistory();
+        history.configure(Configuration.create()
+                                       .with(FileDatabaseHistory.FILE_PATH, TEST_FILE_PATH.toAbsolutePath().toString())
+                                       .with(FileDatabaseHistory.FSYNC, fsyncPolicy.getValue())
+                                       .build());
+        return history;
+    }
+
+    protected void recordAndApply(long pos, int entry, String ddl, Tables... update) {
+        // The history is given the current definitions after the change has been applied ...
+        parser.setCurrentSchema("db");
+        parser.parse(ddl, all);
+        history.record(source1, position("a.log", pos, entry), "db", all, ddl);
+        for (Tables tables : update) {
+            parser.parse(ddl, tables);
+        }
+    }
 }
@@ -8,13 +8,18 @@
 import java.io.File;
 import java.util.Map;
 
+import org.apache.kafka.connect.errors.ConnectException;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
 
 import io.debezium.config.Configuration;
+import io.debezium.document.Array;
+import io.debezium.document.Document;
+import io.debezium.document.DocumentWriter;
 import io.debezium.kafka.KafkaCluster;
 import io.debezium.relational.Tables;
 import io.debezium.relational.ddl.DdlParser;
@@ -151,6 +156,105 @@ public void shouldStartWithEmptyTopicAndStoreDataAndRecoverAllState() throws Exc
         assertThat(recoveredTables).isEqualTo(tables3);
     }
 
+    @Test
+    public void shouldRecoverAfterCompactingWithoutStarting() throws Exception {
+        kafka.createTopic(topicName, 1, 1);
+        config = Configuration.create()
+                              .with(KafkaDatabaseHistory.BOOTSTRAP_SERVERS, kafka.brokerList())
+                              .with(KafkaDatabaseHistory.TOPIC, topicName)
+                              .build();
+        history.configure(config);
+        history.start();
+
+        DdlParser ddlParser = new DdlParserSql2003();
+        ddlParser.setCurrentSchema("db1");
+        Tables tables = new Tables();
+        setLogPosition(10);
+        ddl = "CREATE TABLE foo ( name VARCHAR(255) NOT NULL PRIMARY KEY); \n" +
+                "CREATE TABLE customers ( id INTEGER NOT NULL PRIMARY KEY, name VARCHAR(100) NOT NULL ); \n";
+        history.record(source, position, "db1", tables, ddl);
+        ddlParser.parse(ddl, tables);
+        setLogPosition(39);
+        ddl = "DROP TABLE foo;";
+        history.record(source, position, "db1", tables, ddl);
+        ddlParser.parse(ddl, tables);
+        history.stop();
+
+        // Compact offline ...
+        history = new KafkaDatabaseHistory();
+        history.configure(config);
+        history.compact(source, position, new DdlParserSql2003());
+
+        Tables recoveredTables = new Tables();
+        setLogPosition(100);
+        history.recover(source, position, recoveredTables, new DdlParserSql2003());
+        assertThat(recoveredTables).isEqualTo(tables);
+    }
+
+    @Test
+    public void shouldStoreAndRecoverSnapshotLargerThanProducerRequests() throws Exception {
+        kafka.createTopic(topicName, 1, 1);
+        config = Configuration.create()
+                              .with(KafkaDatabaseHistory.BOOTSTRAP_SERVERS, kafka.brokerList())
+                              .with(KafkaDatabaseHistory.TOPIC, topicName)
+                              .with(AbstractDatabaseHistory.SNAPSHOT_INTERVAL, 1)
+                              .build();
+        history.configure(config);
+        history.start();
+
+        // Define enough tables that their definitions are larger than the producer's default maximum request size ...
+        DdlParser ddlParser = new DdlParserSql2003();
+        ddlParser.setCurrentSchema("db1");
+        Tables tables = new Tables();
+        for (int i = 0; i != 2000; ++i) {
+            StringBuilder ddl = new StringBuilder("CREATE TABLE t" + i + " ( id INTEGER NOT NULL PRIMARY KEY");
+            for (int j = 0; j != 20; ++j) {
+                ddl.append(", c").append(j).append(" VARCHAR(255)");
+            }
+            ddlParser.parse(ddl.append(");").toString(), tables);
+        }
+        Array definitions = TableSnapshots.write(tables, Integer.MAX_VALUE).get(0);
+        Document document = Document.create();
+        document.setArray("tables", definitions);
+        assertThat(DocumentWriter.defaultWriter().writeAsBytes(document).length).isGreaterThan(1024 * 1024);
+
+        // Record a statement that cannot be parsed, but which is covered by the following snapshot ...
+        setLogPosition(10);
+        history.record(source, position, "db1", tables, "THIS IS NOT DDL");
+        history.stop();
+
+        history = new KafkaDatabaseHistory();
+        history.configure(config);
+        Tables recoveredTables = new Tables();
+        setLogPosition(100);
+        history.recover(source, position, recoveredTables, new DdlParserSql2003());
+        assertThat(recoveredTables).isEqualTo(tables);
+    }
+
+    @Test
+    public void shouldFailToRecordWhenRecordIsTooLargeForProducer() throws Exception {
+        kafka.createTopic(topicName, 1, 1);
+        config = Configuration.create()
+                              .with(KafkaDatabaseHistory.BOOTSTRAP_SERVERS, kafka.brokerList())
+                              .with(KafkaDatabaseHistory.TOPIC, topicName)
+                              .with("database.history.producer.max.request.size", 512)
+                              .build();
+        history.configure(config);
+        history.start();
+
+        setLogPosition(10);
+        StringBuilder ddl = new StringBuilder("CREATE TABLE foo ( id INTEGER NOT NULL PRIMARY KEY");
+        for (int j = 0; j != 100; ++j) {
+            ddl.append(", c").append(j).append(" VARCHAR(255)");
+        }
+        try {
+            history.record(source, position, "db1", new Tables(), ddl.append(");").toString());
+            fail("Should not have been able to store a record larger than the producer's maximum request size");
+        } catch (ConnectException e) {
+            // expected
+        }
+    }
+
     protected void setLogPosition(int index) {
         this.position = Collect.hashMapOf("filename", "my-txn-file.log",
                                           "position", index);
@@ -0,0 +1,98 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Randall Hauch
+ */
+public class LongMapTest {
+
+    private final LongMap<String> map = new LongMap<>();
+
+    @Test
+    public void shouldBeEmptyWhenCreated() {
+        assertThat(map.isEmpty()).isTrue();
+        assertThat(map.size()).isEqualTo(0);
+        assertThat(map.get(0L)).isNull();
+        assertThat(map.containsKey(0L)).isFalse();
+        assertThat(map.toString()).isEqualTo("{}");
+    }
+
+    @Test
+    public void shouldPutGetAndReplaceValues() {
+        assertThat(map.put(1L, "a")).isNull();
+        assertThat(map.put(-1L, "b")).isNull();
+        assertThat(map.put(Long.MAX_VALUE, "c")).isNull();
+        assertThat(map.put(1L, "d")).isEqualTo("a");
+        assertThat(map.size()).isEqualTo(3);
+        assertThat(map.get(1L)).isEqualTo("d");
+        assertThat(map.get(-1L)).isEqualTo("b");
+        assertThat(map.get(Long.MAX_VALUE)).isEqualTo("c");
+        assertThat(map.get(2L)).isNull();
+    }
+
+    @Test
+    public void shouldComputeAbsentValues() {
+        assertThat(map.computeIfAbsent(5L, key -> "v" + key)).isEqualTo("v5");
+        assertThat(map.computeIfAbsent(5L, key -> "other")).isEqualTo("v5");
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRemoveValuesAndClear() {
+        for (long key = 0; key != 100; ++key) {
+            map.put(key, "v" + key);
+        }
+        for (long key = 0; key != 100; key += 2) {
+            assertThat(map.remove(key)).isEqualTo("v" + key);
+        }
+        assertThat(map.remove(0L)).isNull();
+        assertThat(map.size()).isEqualTo(50);
+        for (long key = 0; key != 100; ++key) {
+            assertThat(map.get(key)).isEqualTo(key % 2 == 0 ? null : "v" + key);
+        }
+        map.clear();
+        assertThat(map.isEmpty()).isTrue();
+        assertThat(map.get(1L)).isNull();
+    }
+
+    @Test
+    public void shouldBehaveLikeHashMapForRandomOperations() {
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i != 100000; ++i) {
+            // Use a small key space so that there are many collisions, replacements, and removals ...
+            long key = random.nextInt(500) * 1024L;
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            } else {
+                String value = Integer.toString(i);
+                assertThat(map.put(key, value)).isEqualTo(expected.put(key, value));
+            }
+            assertThat(map.size()).isEqualTo(expected.size());
+        }
+        expected.forEach((key, value) -> assertThat(map.get(key)).isEqualTo(value));
+        int[] count = new int[1];
+        map.forEach((key, value) -> {
+            assertThat(expected.get(key)).isEqualTo(value);
+            ++count[0];
+        });
+        assertThat(count[0]).isEqualTo(expected.size());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldNotAllowNullValues() {
+        map.put(1L, null);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Randall Hauch
+ */
+public class MurmurHash3Test {
+
+    @Test
+    public void shouldMatchReferenceImplementation() {
+        assertThat(MurmurHash3.hash(new byte[0], 0)).isEqualTo(0);
+        assertThat(MurmurHash3.hash(new byte[0], 1)).isEqualTo(0x514e28b7);
+        assertThat(MurmurHash3.hash(utf8("hello"), 0)).isEqualTo(0x248bfa47);
+        assertThat(MurmurHash3.hash(utf8("The quick brown fox jumps over the lazy dog"), 0)).isEqualTo(0x2e4ff723);
+    }
+
+    @Test
+    public void shouldHashCharactersAsUtf16Bytes() {
+        for (String value : new String[] { "", "a", "ab", "abc", "café 日本" }) {
+            assertThat(MurmurHash3.hash(value, 7)).isEqualTo(MurmurHash3.hash(value.getBytes(StandardCharsets.UTF_16LE), 7));
+        }
+    }
+
+    @Test
+    public void shouldHashLongAsLittleEndianBytes() {
+        for (long value : new long[] { 0L, 1L, -1L, Long.MAX_VALUE, 1234567890123L }) {
+            byte[] bytes = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(value).array();
+            assertThat(MurmurHash3.hash(value, 3)).isEqualTo(MurmurHash3.hash(bytes, 3));
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import io.debezium.util.RingBuffer.WaitStrategy;
+
+/**
+ * @author Randall Hauch
+ */
+public class RingBufferTest {
+
+    @Test
+    public void shouldLimitNumberOfElementsToCapacity() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(3, RingBuffer.blocking());
+        assertThat(buffer.capacity()).isEqualTo(3);
+        assertThat(buffer.isEmpty()).isTrue();
+        assertThat(buffer.offer(1)).isTrue();
+        assertThat(buffer.offer(2)).isTrue();
+        assertThat(buffer.offer(3)).isTrue();
+        assertThat(buffer.offer(4)).isFalse();
+        assertThat(buffer.size()).isEqualTo(3);
+        assertThat(buffer.remainingCapacity()).isEqualTo(0);
+        assertThat(buffer.peek()).isEqualTo(1);
+        assertThat(buffer.poll()).isEqualTo(1);
+        assertThat(buffer.offer(4)).isTrue();
+        assertThat(new ArrayList<>(buffer)).isEqualTo(Arrays.asList(2, 3, 4));
+    }
+
+    @Test
+    public void shouldDrainElementsInOrder() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4, RingBuffer.busySpin());
+        List<Integer> drained = new ArrayList<>();
+        for (int round = 0; round != 10; ++round) {
+            for (int i = 0; i != 3; ++i) {
+                assertThat(buffer.offer(round * 3 + i)).isTrue();
+            }
+            assertThat(buffer.drainTo(drained, 2)).isEqualTo(2);
+            assertThat(buffer.drainTo(drained)).isEqualTo(1);
+            assertThat(buffer.drainTo(drained)).isEqualTo(0);
+        }
+        assertThat(drained.size()).isEqualTo(30);
+        for (int i = 0; i != 30; ++i) {
+            assertThat(drained.get(i)).isEqualTo(i);
+        }
+        assertThat(buffer.poll()).isNull();
+    }
+
+    @Test
+    public void shouldTimeOutWhenPollingEmptyBuffer() throws InterruptedException {
+        for (WaitStrategy strategy : strategies()) {
+            RingBuffer<Integer> buffer = new RingBuffer<>(2, strategy);
+            assertThat(buffer.poll(10, TimeUnit.MILLISECONDS)).isNull();
+            buffer.put(1);
+            buffer.put(2);
+            assertThat(buffer.offer(3, 10, TimeUnit.MILLISECONDS)).isFalse();
+        }
+    }
+
+    @Test
+    public void shouldHandOffAllElementsFromProducerToConsumer() throws InterruptedException {
+        for (WaitStrategy strategy : strategies()) {
+            RingBuffer<Integer> buffer = new RingBuffer<>(1024, strategy);
+            int count = 10000;
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread producer = new Thread(() -> {
+                try {
+                    for (int i = 0; i != count; ++i) {
+                        buffer.put(i);
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            });
+            producer.start();
+            for (int i = 0; i != count; ++i) {
+                Integer value = i % 2 == 0 ? buffer.take() : buffer.poll(10, TimeUnit.SECONDS);
+                assertThat(value).isEqualTo(i);
+            }
+            producer.join();
+            assertThat(failure.get()).isNull();
+            assertThat(buffer.isEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    public void shouldWakeWaitingProducerAndConsumerWhenClosed() throws InterruptedException {
+        for (WaitStrategy strategy : strategies()) {
+            RingBuffer<Integer> full = new RingBuffer<>(1, strategy);
+            full.put(1);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread producer = new Thread(() -> {
+                try {
+                    full.put(2);
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            });
+            producer.start();
+            Thread.sleep(10);
+            full.close();
+            producer.join(10000);
+            assertThat(producer.isAlive()).isFalse();
+            assertThat(failure.get()).isInstanceOf(IllegalStateException.class);
+            assertThat(full.offer(3)).isFalse();
+            assertThat(full.isClosed()).isTrue();
+            // The elements added before closing can still be removed ...
+            assertThat(full.take()).isEqualTo(1);
+            assertThat(full.poll(10, TimeUnit.SECONDS)).isNull();
+
+            RingBuffer<Integer> empty = new RingBuffer<>(1, strategy);
+            failure.set(null);
+            Thread consumer = new Thread(() -> {
+                try {
+                    empty.take();
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            });
+            consumer.start();
+            Thread.sleep(10);
+            empty.close();
+            consumer.join(10000);
+            assertThat(consumer.isAlive()).isFalse();
+            assertThat(failure.get()).isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    protected WaitStrategy[] strategies() {
+        return new WaitStrategy[] { RingBuffer.busySpin(), RingBuffer.yielding(),
+                RingBuffer.parking(10, TimeUnit.MICROSECONDS), RingBuffer.blocking() };
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.performance;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.debezium.config.Configuration;
+import io.debezium.document.DocumentWriter;
+import io.debezium.relational.Tables;
+import io.debezium.relational.history.FileDatabaseHistory;
+import io.debezium.relational.history.HistoryRecord;
+import io.debezium.util.Collect;
+
+/**
+ * Measures the throughput of recording bursts of DDL statements, such as those issued by a migration script, in the
+ * {@link FileDatabaseHistory} with each of its fsync policies, from a single thread as the connector does and from several
+ * concurrent threads whose records are written together. The {@link #appendWithFilesWrite() baseline} opens, appends to, and
+ * closes the file for each record.
+ * 
+ * @author Randall Hauch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FileDatabaseHistoryPerf {
+
+    private static final int BURST = 1000;
+    private static final String DDL = "ALTER TABLE customers ADD COLUMN loyalty_points INTEGER NOT NULL DEFAULT 0;";
+
+    @Param({ "always", "batched", "on_stop" })
+    public String fsync;
+
+    private final Map<String, Object> source = Collect.linkMapOf("server", "server1");
+    private final Tables tables = new Tables();
+    private final AtomicLong position = new AtomicLong();
+    private final DocumentWriter writer = DocumentWriter.defaultWriter();
+    private Path file;
+    private FileDatabaseHistory history;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        file = Files.createTempFile("dbhistory", ".log");
+        history = new FileDatabaseHistory();
+        history.configure(Configuration.create()
+                                       .with(FileDatabaseHistory.FILE_PATH, file.toAbsolutePath().toString())
+                                       .with(FileDatabaseHistory.FSYNC, fsync)
+                                       .build());
+        history.start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        history.stop();
+        Files.deleteIfExists(file);
+    }
+
+    private Map<String, Object> nextPosition() {
+        return Collect.linkMapOf("file", "mysql-bin.000003", "pos", position.incrementAndGet());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void recordBurst() {
+        for (int i = 0; i != BURST; ++i) {
+            history.record(source, nextPosition(), "inventory", tables, DDL);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(BURST)
+    public void recordConcurrentBursts() {
+        for (int i = 0; i != BURST; ++i) {
+            history.record(source, nextPosition(), "inventory", tables, DDL);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void appendWithFilesWrite() throws IOException {
+        // The way each record was appended before the file history kept its channel open ...
+        for (int i = 0; i != BURST; ++i) {
+            String line = writer.write(new HistoryRecord(source, nextPosition(), "inventory", DDL).document());
+            Files.write(file, Collect.arrayListOf(line), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.performance;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.debezium.util.LongMap;
+
+/**
+ * Compares {@link LongMap} with the {@code HashMap<Long,V>} it replaced for the lookups of converters by MySQL table number,
+ * which are performed for every row event, and for the rebinding of all table numbers after the binlog is rotated.
+ * <p>
+ * Table numbers are consecutive values starting well above the range of cached {@link Long} instances, as they are on a long
+ * running MySQL server, so that the {@link HashMap} lookups box each key as they do in the connector.
+ * 
+ * @author Randall Hauch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LongMapPerf {
+
+    private static final int LOOKUPS = 1024;
+    private static final long FIRST_TABLE_NUMBER = 100000L;
+
+    @Param({ "16", "1000", "20000" })
+    public int tableCount;
+
+    private final Map<Long, Object> hashMap = new HashMap<>();
+    private final LongMap<Object> longMap = new LongMap<>();
+    private long[] tableNumbers;
+    private long[] lookups;
+
+    @Setup
+    public void setup() {
+        tableNumbers = new long[tableCount];
+        for (int i = 0; i != tableCount; ++i) {
+            tableNumbers[i] = FIRST_TABLE_NUMBER + i;
+            Object converter = new Object();
+            hashMap.put(tableNumbers[i], converter);
+            longMap.put(tableNumbers[i], converter);
+        }
+        // Row events arrive for tables in no particular order ...
+        Random random = new Random(0);
+        lookups = new long[LOOKUPS];
+        for (int i = 0; i != LOOKUPS; ++i) {
+            lookups[i] = tableNumbers[random.nextInt(tableCount)];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void hashMapGet(Blackhole blackhole) {
+        for (long tableNumber : lookups) {
+            blackhole.consume(hashMap.get(tableNumber));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void longMapGet(Blackhole blackhole) {
+        for (long tableNumber : lookups) {
+            blackhole.consume(longMap.get(tableNumber));
+        }
+    }
+
+    @Benchmark
+    public Object hashMapRebindAfterRotation() {
+        hashMap.clear();
+        Object converter = lookups;
+        for (long tableNumber : tableNumbers) {
+            hashMap.put(tableNumber + 1, converter);
+        }
+        return hashMap;
+    }
+
+    @Benchmark
+    public Object longMapRebindAfterRotation() {
+        longMap.clear();
+        Object converter = lookups;
+        for (long tableNumber : tableNumbers) {
+            longMap.put(tableNumber + 1, converter);
+        }
+        return longMap;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright Debezium Authors.
+ * 
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.debezium.performance;
+
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.connect.data.Struct;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.debezium.relational.Column;
+import io.debezium.relational.Table;
+import io.debezium.relational.TableEditor;
+import io.debezium.relational.TableId;
+import io.debezium.relational.TableSchema;
+import io.debezium.relational.TableSchemaBuilder;
+
+/**
+ * Measures the conversion of complete rows into keys and values by the generators of {@link TableSchemaBuilder}, and the cost of
+ * building a {@link TableSchema}, including for a table with the same structure as one for which a schema has already been built.
+ * <p>
+ * Rows are converted for several tables with different structures in turn, as in a connector capturing many tables, so that the
+ * generators' calls to the value converters are megamorphic. Each table has a single-column primary key and columns of several
+ * common types, and the tables range from narrow to very wide.
+ * 
+ * @author Randall Hauch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TableSchemaPerf {
+
+    private static final int[] TYPES = { Types.INTEGER, Types.VARCHAR, Types.BIGINT, Types.DOUBLE, Types.BOOLEAN, Types.SMALLINT };
+
+    @Param({ "30", "1000", "4000" })
+    public int columnCount;
+
+    @Param({ "1", "8" })
+    public int tableCount;
+
+    private Table[] tables;
+    private TableSchema[] schemas;
+    private Object[][] rows;
+    private int next;
+    private final TableSchemaBuilder sharingBuilder = new TableSchemaBuilder();
+
+    @Setup
+    public void setup() {
+        tables = new Table[tableCount];
+        schemas = new TableSchema[tableCount];
+        rows = new Object[tableCount][];
+        TableSchemaBuilder builder = new TableSchemaBuilder();
+        for (int t = 0; t != tableCount; ++t) {
+            TableEditor editor = Table.editor().tableId(new TableId("db", null, "table" + t));
+            Object[] row = new Object[columnCount];
+            for (int i = 0; i != columnCount; ++i) {
+                // Offset the types of each table's columns, so the tables have different structures ...
+                int type = TYPES[(i + t) % TYPES.length];
+                editor.addColumn(Column.editor().name("c" + i).typeName("T" + type).jdbcType(type).optional(i != 0).create());
+                row[i] = valueFor(type, i);
+            }
+            tables[t] = editor.setPrimaryKeyNames("c0").create();
+            schemas[t] = builder.create(tables[t]);
+            rows[t] = row;
+        }
+    }
+
+    private static Object valueFor(int type, int i) {
+        switch (type) {
+            case Types.VARCHAR:
+                return "value-" + i;
+            case Types.BIGINT:
+                return (long) i;
+            case Types.DOUBLE:
+                return (double) i;
+            case Types.BOOLEAN:
+                return i % 2 == 0;
+            case Types.SMALLINT:
+                return (short) i;
+            default:
+                return i;
+        }
+    }
+
+    private int nextTable() {
+        int t = next;
+        next = t + 1 == tableCount ? 0 : t + 1;
+        return t;
+    }
+
+    @Benchmark
+    public Struct value() {
+        int t = nextTable();
+        return schemas[t].valueFromColumnData(rows[t]);
+    }
+
+    @Benchmark
+    public Object key() {
+        int t = nextTable();
+        return schemas[t].keyFromColumnData(rows[t]);
+    }
+
+    @Benchmark
+    public TableSchema build() {
+        return new TableSchemaBuilder().create(tables[nextTable()]);
+    }
+
+    @Benchmark
+    public TableSchema buildWithSameStructure() {
+        // Like the same table in another database, whose fields and converters are shared ...
+        return sharingBuilder.create(tables[nextTable()]);
+    }
+}